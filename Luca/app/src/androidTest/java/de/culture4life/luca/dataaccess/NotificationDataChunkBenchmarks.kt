@@ -0,0 +1,94 @@
+package de.culture4life.luca.dataaccess
+
+import android.util.Base64
+import com.nexenio.rxkeystore.util.RxBase64
+import de.culture4life.luca.LucaInstrumentationTest
+import de.culture4life.luca.util.TimeUtil
+import okhttp3.MediaType.Companion.toMediaType
+import okhttp3.ResponseBody.Companion.toResponseBody
+import org.junit.Ignore
+import org.junit.Test
+import java.nio.ByteBuffer
+import java.util.concurrent.TimeUnit
+import kotlin.random.Random
+
+/**
+ * Compares parse time and retained heap of [NotificationDataChunk]s with the previous implementation,
+ * which created one Base64 encoded [String] per hashed trace ID.
+ */
+class NotificationDataChunkBenchmarks : LucaInstrumentationTest() {
+
+    @Ignore("Benchmark")
+    @Test
+    fun benchmark_parse() {
+        for (hashCount in HASH_COUNTS) {
+            measure("NotificationDataChunk", hashCount) { NotificationDataChunk.from(it.toResponseBody(MEDIA_TYPE)) }
+        }
+    }
+
+    @Ignore("Benchmark")
+    @Test
+    fun benchmark_legacyParse() {
+        for (hashCount in HASH_COUNTS) {
+            measure("Legacy", hashCount) { parseLegacy(it) }
+        }
+    }
+
+    private fun measure(name: String, hashCount: Int, parse: (ByteArray) -> Any) {
+        val responseBody = createResponseBody(hashCount)
+        repeat(WARM_UP_ITERATIONS) { parse(responseBody) }
+        val durations = List(MEASUREMENT_ITERATIONS) {
+            val startTime = System.nanoTime()
+            parse(responseBody)
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime)
+        }
+        val usedMemory = getUsedMemory()
+        val chunk = parse(responseBody)
+        val retainedMemory = getUsedMemory() - usedMemory
+        println("$name with $hashCount hashes: ${durations.average()} ms average parse time, ${retainedMemory / 1024} KiB retained heap")
+        check(chunk.hashCode() != 0)
+    }
+
+    private fun getUsedMemory(): Long {
+        val runtime = Runtime.getRuntime()
+        repeat(3) { System.gc() }
+        return runtime.totalMemory() - runtime.freeMemory()
+    }
+
+    private fun createResponseBody(hashCount: Int): ByteArray {
+        val random = Random(hashCount)
+        val byteBuffer = ByteBuffer.allocate(NotificationDataChunk.HEADER_LENGTH + hashCount * HASH_LENGTH)
+        byteBuffer.put(1) // version
+        byteBuffer.put(0) // algorithm
+        byteBuffer.put(HASH_LENGTH.toByte())
+        byteBuffer.putLong(TimeUtil.getCurrentMillis() - TimeUnit.HOURS.toMillis(1))
+        byteBuffer.position(16)
+        byteBuffer.put(random.nextBytes(16)) // previous chunk hash
+        byteBuffer.put(random.nextBytes(hashCount * HASH_LENGTH))
+        return byteBuffer.array()
+    }
+
+    /**
+     * The hash parsing of [NotificationDataChunk.from] before the hashes have been stored in [HashedTraceIds].
+     */
+    private fun parseLegacy(responseBody: ByteArray): ArrayList<String> {
+        val byteBuffer = ByteBuffer.wrap(responseBody)
+        val hashLength = byteBuffer.get(2).toInt()
+        byteBuffer.position(NotificationDataChunk.HEADER_LENGTH)
+        val hashedTraceIds = ArrayList<String>()
+        while (byteBuffer.hasRemaining()) {
+            val hash = ByteArray(hashLength)
+            byteBuffer.get(hash)
+            hashedTraceIds.add(RxBase64.encode(hash, Base64.NO_WRAP).blockingGet())
+        }
+        return hashedTraceIds
+    }
+
+    companion object {
+        private const val HASH_LENGTH = 16
+        private const val WARM_UP_ITERATIONS = 2
+        private const val MEASUREMENT_ITERATIONS = 5
+        private val HASH_COUNTS = listOf(10_000, 100_000, 1_000_000)
+        private val MEDIA_TYPE = "application/octet-stream".toMediaType()
+    }
+}
@@ -7,6 +7,7 @@ import io.reactivex.rxjava3.schedulers.Schedulers
 import org.junit.Ignore
 import org.junit.Test
 import java.math.BigInteger
+import java.security.SecureRandom
 import java.util.concurrent.TimeUnit
 
 class PowBenchmarks : LucaInstrumentationTest() {
@@ -59,4 +60,24 @@ class PowBenchmarks : LucaInstrumentationTest() {
         println("Calculations per minute: $calculationsPerMinute")
         println("Average calculation duration: $averageDuration milliseconds")
     }
+
+    /**
+     * Measures the solve time for different numbers of squarings and modulus sizes, in order to
+     * verify that challenges can be solved well within their expiry on low-end devices.
+     */
+    @Ignore("Benchmark")
+    @Test
+    fun benchmark_squaringsAndModulusSizes() {
+        val random = SecureRandom()
+        for (modulusBits in listOf(1024, 2048)) {
+            val n = BigInteger.probablePrime(modulusBits / 2, random) * BigInteger.probablePrime(modulusBits / 2, random)
+            for (t in listOf(100000, 722000, 2000000)) {
+                val startTime = TimeUtil.getCurrentMillis()
+                PowChallenge(challenge.id, t, n, challenge.expirationTimestamp).calculateW()
+                val duration = TimeUtil.getCurrentMillis() - startTime
+                val squaringsPerSecond = t * TimeUnit.SECONDS.toMillis(1) / duration.coerceAtLeast(1)
+                println("Modulus bits: $modulusBits, t: $t, duration: $duration milliseconds, squarings per second: $squaringsPerSecond")
+            }
+        }
+    }
 }
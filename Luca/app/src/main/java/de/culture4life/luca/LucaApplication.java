@@ -27,7 +27,9 @@ import com.google.android.gms.common.GoogleApiAvailability;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -78,6 +80,7 @@ public class LucaApplication extends MultiDexApplication {
 
     public static final boolean IS_USING_STAGING_ENVIRONMENT = !BuildConfig.BUILD_TYPE.equals("production");
     public static final String INTENT_TYPE_MAIL = "message/rfc822";
+    private static final long LAZY_MANAGER_INITIALIZATION_DELAY = TimeUnit.SECONDS.toMillis(3);
 
     private PreferencesManager preferencesManager;
     private LucaNotificationManager notificationManager;
@@ -102,6 +105,9 @@ public class LucaApplication extends MultiDexApplication {
     private IdNowManager idNowManager;
     private AttestationManager attestationManager;
 
+    private final ManagerDependencyGraph managerDependencyGraph;
+    private final StartupTrace startupTrace;
+
     private final CompositeDisposable applicationDisposable;
 
     private final Set<Activity> startedActivities;
@@ -141,6 +147,9 @@ public class LucaApplication extends MultiDexApplication {
         documentManager = new DocumentManager(preferencesManager, networkManager, historyManager, cryptoManager, registrationManager, childrenManager);
         connectManager = new ConnectManager(preferencesManager, notificationManager, networkManager, powManager, cryptoManager, registrationManager, documentManager, healthDepartmentManager, whatIsNewManager);
 
+        managerDependencyGraph = createManagerDependencyGraph();
+        startupTrace = new StartupTrace();
+
         applicationDisposable = new CompositeDisposable();
 
         startedActivities = new HashSet<>();
@@ -195,38 +204,97 @@ public class LucaApplication extends MultiDexApplication {
                 .andThen(preferencesManager.initialize(this));
     }
 
+    /**
+     * Mirrors the constructor wiring above. Dependencies that are marked as "initialization deferred
+     * to first use" are omitted, as the managers don't initialize them in {@link Manager#doInitialize(Context)}.
+     */
+    private ManagerDependencyGraph createManagerDependencyGraph() {
+        return new ManagerDependencyGraph()
+                .add(preferencesManager)
+                .add(notificationManager)
+                .add(locationManager)
+                .add(networkManager)
+                .add(geofenceManager)
+                .add(powManager, networkManager)
+                .add(consentManager, preferencesManager)
+                .add(rolloutManager, preferencesManager, networkManager)
+                .add(genuinityManager, preferencesManager, networkManager)
+                .add(cryptoManager, preferencesManager, networkManager, genuinityManager)
+                .add(attestationManager, preferencesManager, networkManager)
+                .add(registrationManager, preferencesManager, networkManager)
+                .add(whatIsNewManager, preferencesManager, notificationManager, registrationManager, rolloutManager)
+                .add(idNowManager, preferencesManager, networkManager, powManager, whatIsNewManager, attestationManager, rolloutManager, consentManager)
+                .add(childrenManager, preferencesManager, registrationManager)
+                .add(historyManager, preferencesManager, childrenManager)
+                .add(healthDepartmentManager, preferencesManager, networkManager, consentManager, registrationManager)
+                .add(meetingManager, preferencesManager, networkManager, locationManager, historyManager)
+                .add(checkInManager, preferencesManager, networkManager, geofenceManager, locationManager, historyManager, notificationManager)
+                .add(dataAccessManager, preferencesManager, networkManager, notificationManager, checkInManager, historyManager)
+                .add(documentManager, preferencesManager, networkManager, historyManager, registrationManager, childrenManager)
+                .add(connectManager, preferencesManager, notificationManager, networkManager, powManager, registrationManager, documentManager, healthDepartmentManager, whatIsNewManager);
+    }
+
     /**
      * Initializes everything that is not required instantly after application creation.
      */
     @CallSuper
     private Completable initializeAsync() {
-        return Completable.mergeArray(
-                notificationManager.initialize(this).subscribeOn(Schedulers.io()),
-                networkManager.initialize(this).subscribeOn(Schedulers.io()),
-                powManager.initialize(this).subscribeOn(Schedulers.io()),
-                consentManager.initialize(this).subscribeOn(Schedulers.io()),
-                rolloutManager.initialize(this).subscribeOn(Schedulers.io()),
-                whatIsNewManager.initialize(this).subscribeOn(Schedulers.io()),
-                cryptoManager.initialize(this).subscribeOn(Schedulers.io()),
-                genuinityManager.initialize(this).subscribeOn(Schedulers.io()),
-                locationManager.initialize(this).subscribeOn(Schedulers.io()),
-                registrationManager.initialize(this).subscribeOn(Schedulers.io()),
-                childrenManager.initialize(this).subscribeOn(Schedulers.io()),
-                checkInManager.initialize(this).subscribeOn(Schedulers.io()),
-                historyManager.initialize(this).subscribeOn(Schedulers.io()),
-                dataAccessManager.initialize(this).subscribeOn(Schedulers.io()),
-                documentManager.initialize(this).subscribeOn(Schedulers.io()),
-                geofenceManager.initialize(this).subscribeOn(Schedulers.io()),
-                connectManager.initialize(this).subscribeOn(Schedulers.io()),
-                idNowManager.initialize(this).subscribeOn(Schedulers.io()),
-                healthDepartmentManager.initialize(this).subscribeOn(Schedulers.io()),
-                attestationManager.initialize(this).subscribeOn(Schedulers.io())
-        ).andThen(Completable.mergeArray(
-                invokeRotatingBackendPublicKeyUpdate(),
-                invokeAccessedDataUpdate(),
-                startKeepingDataUpdated(),
-                invokeCheckUpdateRequired()
-        ));
+        return managerDependencyGraph.initialize(this, getEagerlyInitializedManagers(), startupTrace)
+                .doOnComplete(() -> Timber.d("Manager initialization completed: %s", startupTrace))
+                .andThen(Completable.mergeArray(
+                        invokeRotatingBackendPublicKeyUpdate(),
+                        invokeAccessedDataUpdate(),
+                        startKeepingDataUpdated(),
+                        invokeCheckUpdateRequired(),
+                        invokeLazyManagerInitialization()
+                ));
+    }
+
+    /**
+     * Managers that are required by the first screens or need to keep data updated in the background.
+     */
+    private List<Manager> getEagerlyInitializedManagers() {
+        return Arrays.asList(
+                notificationManager,
+                networkManager,
+                powManager,
+                consentManager,
+                rolloutManager,
+                cryptoManager,
+                genuinityManager,
+                locationManager,
+                registrationManager,
+                childrenManager,
+                checkInManager,
+                historyManager,
+                dataAccessManager,
+                documentManager,
+                geofenceManager,
+                healthDepartmentManager
+        );
+    }
+
+    /**
+     * Managers that are not required by the first screens. They are initialized on first use or,
+     * at the latest, after the {@link #LAZY_MANAGER_INITIALIZATION_DELAY}, because some of them
+     * schedule background work during initialization.
+     */
+    private List<Manager> getLazilyInitializedManagers() {
+        return Arrays.asList(
+                whatIsNewManager,
+                attestationManager,
+                idNowManager,
+                connectManager
+        );
+    }
+
+    private Completable invokeLazyManagerInitialization() {
+        return Completable.fromAction(() -> applicationDisposable.add(managerDependencyGraph.initialize(this, getLazilyInitializedManagers(), startupTrace)
+                .delaySubscription(LAZY_MANAGER_INITIALIZATION_DELAY, TimeUnit.MILLISECONDS, Schedulers.io())
+                .subscribe(
+                        () -> Timber.d("Lazy manager initialization completed: %s", startupTrace),
+                        throwable -> Timber.w("Unable to initialize lazy managers: %s", throwable.toString())
+                )));
     }
 
     private Completable invokeRotatingBackendPublicKeyUpdate() {
@@ -494,6 +562,15 @@ public class LucaApplication extends MultiDexApplication {
 
     public void onActivityStopped(@NonNull Activity activity) {
         startedActivities.remove(activity);
+        if (!isUiCurrentlyVisible()) {
+            cryptoManager.clearUnwrappedSecrets();
+            applicationDisposable.add(preferencesManager.flush()
+                    .subscribeOn(Schedulers.io())
+                    .subscribe(
+                            () -> Timber.d("Flushed preferences after UI became invisible"),
+                            throwable -> Timber.w("Unable to flush preferences: %s", throwable.toString())
+                    ));
+        }
     }
 
     public void showError(@NonNull ViewError error) {
@@ -605,6 +682,14 @@ public class LucaApplication extends MultiDexApplication {
         }).andThen(Single.just(manager));
     }
 
+    public ManagerDependencyGraph getManagerDependencyGraph() {
+        return managerDependencyGraph;
+    }
+
+    public StartupTrace getStartupTrace() {
+        return startupTrace;
+    }
+
     public PreferencesManager getPreferencesManager() {
         return preferencesManager;
     }
@@ -4,6 +4,7 @@ import android.content.Context;
 
 import androidx.annotation.CallSuper;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import java.util.concurrent.TimeUnit;
 
@@ -17,12 +18,15 @@ import timber.log.Timber;
 /**
  * Base class for managers that require initialization. Allows multiple concurrent subscriptions to
  * {@link #initialize(Context)} but will make sure that {@link #doInitialize(Context)} is only done
- * once.
+ * once. Subscribers arriving while the initialization is in progress share the same cached
+ * {@link Completable} instead of blocking a thread until it is done.
  */
 public abstract class Manager {
 
-    private boolean isInitializing;
-    private boolean isInitialized;
+    private volatile boolean isInitialized;
+
+    @Nullable
+    private volatile Completable initialization;
 
     protected Context context;
 
@@ -31,40 +35,43 @@ public abstract class Manager {
     @CallSuper
     public Completable initialize(@NonNull Context context) {
         return Completable.defer(() -> {
-            synchronized (this) {
-                if (isInitializing && !isInitialized) {
-                    wait();
-                }
-                isInitializing = !isInitialized;
+            if (isInitialized) {
+                return Completable.complete();
             }
-            if (!isInitialized) {
-                long startTime = TimeUtil.getCurrentMillis();
-                this.context = context.getApplicationContext();
-                this.managerDisposable = new CompositeDisposable();
-                return doInitialize(context)
-                        .doOnComplete(() -> {
-                            isInitialized = true;
-                            Timber.i("Completed initialization of %s in %d ms", this, (TimeUtil.getCurrentMillis() - startTime));
-                        })
-                        .doFinally(() -> {
-                            isInitializing = false;
-                            synchronized (this) {
-                                notifyAll();
-                            }
-                        });
-            } else {
-                synchronized (this) {
-                    notifyAll();
+            synchronized (this) {
+                if (initialization == null) {
+                    initialization = createInitialization(context);
                 }
+                return initialization;
             }
-            return Completable.complete();
         });
     }
 
+    private Completable createInitialization(@NonNull Context context) {
+        return Completable.defer(() -> {
+            long startTime = TimeUtil.getCurrentMillis();
+            this.context = context.getApplicationContext();
+            this.managerDisposable = new CompositeDisposable();
+            return doInitialize(context)
+                    .doOnComplete(() -> {
+                        isInitialized = true;
+                        Timber.i("Completed initialization of %s in %d ms", this, (TimeUtil.getCurrentMillis() - startTime));
+                    });
+        }).doOnError(throwable -> {
+            synchronized (this) {
+                // allow subsequent subscribers to retry
+                initialization = null;
+            }
+        }).cache();
+    }
+
     protected abstract Completable doInitialize(@NonNull Context context);
 
     @CallSuper
     public void dispose() {
+        synchronized (this) {
+            initialization = null;
+        }
         if (isInitialized) {
             isInitialized = false;
             managerDisposable.dispose();
@@ -82,7 +89,7 @@ public abstract class Manager {
     }
 
     public boolean isInitializing() {
-        return isInitializing;
+        return initialization != null && !isInitialized;
     }
 
     public boolean isInitialized() {
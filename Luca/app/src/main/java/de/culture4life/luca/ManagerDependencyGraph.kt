@@ -0,0 +1,86 @@
+package de.culture4life.luca
+
+import android.content.Context
+import io.reactivex.rxjava3.core.Completable
+import io.reactivex.rxjava3.schedulers.Schedulers
+
+/**
+ * Describes which managers need to be initialized before another manager can be initialized.
+ * Allows initializing managers in topological order, with independent managers being initialized
+ * in parallel and each manager only being started once all of its dependencies are initialized.
+ */
+class ManagerDependencyGraph {
+
+    private val dependencies = LinkedHashMap<Manager, Set<Manager>>()
+
+    /**
+     * Adds the manager and its dependencies. Dependencies that have not been added yet are added
+     * without dependencies of their own.
+     */
+    fun add(manager: Manager, vararg managerDependencies: Manager): ManagerDependencyGraph {
+        managerDependencies.forEach { dependencies.getOrPut(it) { emptySet() } }
+        dependencies[manager] = (dependencies[manager] ?: emptySet()) + managerDependencies
+        return this
+    }
+
+    fun getManagers(): Set<Manager> {
+        return dependencies.keys
+    }
+
+    fun getDependencies(manager: Manager): Set<Manager> {
+        return dependencies[manager] ?: emptySet()
+    }
+
+    /**
+     * Returns the specified managers and all of their transitive dependencies, ordered so that
+     * each manager comes after its dependencies.
+     *
+     * @throws IllegalStateException if the dependencies contain a cycle
+     */
+    @JvmOverloads
+    fun getTopologicalOrder(managers: Collection<Manager> = getManagers()): List<Manager> {
+        val orderedManagers = LinkedHashSet<Manager>()
+        val visitingManagers = HashSet<Manager>()
+
+        fun visit(manager: Manager) {
+            if (orderedManagers.contains(manager)) {
+                return
+            }
+            check(visitingManagers.add(manager)) { "Cyclic dependency detected for $manager" }
+            getDependencies(manager).forEach(::visit)
+            visitingManagers.remove(manager)
+            orderedManagers.add(manager)
+        }
+
+        managers.forEach(::visit)
+        return orderedManagers.toList()
+    }
+
+    /**
+     * Initializes the specified managers and all of their transitive dependencies. Each manager
+     * gets initialized on the IO scheduler as soon as all of its dependencies are initialized.
+     * Begin and end of each initialization are recorded in the [trace], managers that have
+     * already been initialized are skipped.
+     */
+    @JvmOverloads
+    fun initialize(context: Context, managers: Collection<Manager> = getManagers(), trace: StartupTrace = StartupTrace()): Completable {
+        return Completable.defer {
+            val initializations = HashMap<Manager, Completable>()
+            for (manager in getTopologicalOrder(managers)) {
+                val managerDependencies = getDependencies(manager)
+                val dependencyInitializations = Completable.merge(managerDependencies.map { initializations[it]!! })
+                val managerInitialization = Completable.defer {
+                    if (manager.isInitialized) {
+                        Completable.complete()
+                    } else {
+                        trace.begin(manager.toString(), managerDependencies.map(Manager::toString))
+                        manager.initialize(context)
+                            .doOnComplete { trace.end(manager.toString()) }
+                    }
+                }.subscribeOn(Schedulers.io())
+                initializations[manager] = dependencyInitializations.andThen(managerInitialization).cache()
+            }
+            Completable.merge(managers.map { initializations[it]!! })
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package de.culture4life.luca
+
+import java.util.concurrent.TimeUnit
+
+/**
+ * Records when the initialization of each manager began and ended during application startup,
+ * including the dependencies it had to wait for, so that the critical path can be determined.
+ */
+class StartupTrace {
+
+    data class Entry(
+        val name: String,
+        val dependencies: List<String>,
+        val startTimestamp: Long,
+        val endTimestamp: Long? = null
+    ) {
+
+        val isCompleted: Boolean
+            get() = endTimestamp != null
+
+        /**
+         * Duration in milliseconds, or -1 if the initialization has not completed yet.
+         */
+        val duration: Long
+            get() = endTimestamp?.let { TimeUnit.NANOSECONDS.toMillis(it - startTimestamp) } ?: -1
+
+        override fun toString(): String {
+            return "$name (${duration} ms)"
+        }
+    }
+
+    private val entries = LinkedHashMap<String, Entry>()
+
+    @Synchronized
+    fun begin(name: String, dependencies: List<String> = emptyList()) {
+        entries[name] = Entry(name, dependencies, System.nanoTime())
+    }
+
+    @Synchronized
+    fun end(name: String) {
+        val entry = entries[name] ?: throw IllegalStateException("Initialization of $name has not begun")
+        entries[name] = entry.copy(endTimestamp = System.nanoTime())
+    }
+
+    /**
+     * All recorded entries, in the order the initializations began.
+     */
+    @Synchronized
+    fun getEntries(): List<Entry> {
+        return entries.values.toList()
+    }
+
+    @Synchronized
+    fun getEntry(name: String): Entry? {
+        return entries[name]
+    }
+
+    /**
+     * The chain of completed initializations that determined when the last initialization completed,
+     * starting with the one that began first. Each entry is followed by the one that depended on it.
+     */
+    @Synchronized
+    fun getCriticalPath(): List<Entry> {
+        val completedEntries = entries.values.filter { it.isCompleted }
+        var entry = completedEntries.maxByOrNull { it.endTimestamp!! } ?: return emptyList()
+        val criticalPath = arrayListOf(entry)
+        while (true) {
+            entry = entry.dependencies
+                .mapNotNull { entries[it] }
+                .filter { it.isCompleted }
+                .maxByOrNull { it.endTimestamp!! } ?: break
+            criticalPath.add(entry)
+        }
+        return criticalPath.reversed()
+    }
+
+    override fun toString(): String {
+        return "StartupTrace(criticalPath=${getCriticalPath()})"
+    }
+}
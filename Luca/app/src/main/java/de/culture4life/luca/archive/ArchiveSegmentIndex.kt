@@ -0,0 +1,16 @@
+package de.culture4life.luca.archive
+
+import com.google.gson.annotations.Expose
+import com.google.gson.annotations.SerializedName
+
+/**
+ * Lists the start timestamps of all segments persisted by an [Archiver], so that segments can be
+ * restored or dropped without scanning all preference keys.
+ */
+data class ArchiveSegmentIndex(
+
+    @Expose
+    @SerializedName("segments")
+    var segments: List<Long> = ArrayList()
+
+)
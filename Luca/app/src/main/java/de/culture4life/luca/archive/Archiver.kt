@@ -4,10 +4,22 @@ import de.culture4life.luca.preference.PreferencesManager
 import de.culture4life.luca.util.TimeUtil
 import io.reactivex.rxjava3.core.Completable
 import io.reactivex.rxjava3.core.Observable
+import io.reactivex.rxjava3.core.Single
+import io.reactivex.rxjava3.subjects.CompletableSubject
+import io.reactivex.rxjava3.subjects.PublishSubject
+import timber.log.Timber
 import java.util.*
 import java.util.concurrent.TimeUnit
 import java.util.function.Predicate
 
+/**
+ * Archives data in time-partitioned segments. Each segment contains the data of one day, as provided
+ * by the [TimestampHelper], and is persisted as a separate encrypted preference. Adding data only
+ * rewrites the affected segments and expired data is removed by dropping whole segments.
+ *
+ * Data that has been archived by previous versions under the plain [key] is migrated into segments
+ * when restored.
+ */
 class Archiver<T>(
     private val preferencesManager: PreferencesManager,
     private val key: String,
@@ -15,7 +27,15 @@ class Archiver<T>(
     private var timestampHelper: TimestampHelper<T>
 ) {
 
-    private var cachedData: Observable<T>? = null
+    private var cachedSegments: Single<SortedMap<Long, MutableList<T>>>? = null
+
+    /**
+     * Persists segments one after another in the order they have been enqueued, so that an older
+     * state of a segment can't overwrite a more recent one.
+     */
+    private val segmentWrites = PublishSubject.create<Completable>().toSerialized().also { writes ->
+        writes.concatMapCompletable { it.onErrorComplete() }.subscribe()
+    }
 
     fun addData(data: T): Completable {
         return addData(data) { OVERRIDE_NONE }
@@ -30,56 +50,169 @@ class Archiver<T>(
     }
 
     fun addData(data: List<T>, overrideFilter: Predicate<T>): Completable {
-        return getData()
-            .filter { !overrideFilter.test(it) }
-            .mergeWith(Observable.fromIterable(data))
-            .sorted { o1, o2 -> timestampHelper.compare(o1, o2) }
-            .toList()
-            .map(this::convertToArchivedData)
-            .flatMapCompletable {
-                preferencesManager.persist(key, it)
-                    .doOnComplete { cachedData = Observable.fromIterable(it.getData()).cache() }
-            }
+        return modifySegments { segments ->
+            val modifiedSegmentIds = removeData(segments, overrideFilter)
+            data.forEach { modifiedSegmentIds.add(insertData(segments, it)) }
+            modifiedSegmentIds
+        }
     }
 
     fun getData(): Observable<T> {
-        return Observable.defer {
-            if (cachedData == null) {
-                cachedData = restoreArchivedData().cache()
+        return getSegments()
+            .map { segments -> synchronized(segments) { segments.values.flatten() } }
+            .flatMapObservable { Observable.fromIterable(it) }
+    }
+
+    private fun getSegments(): Single<SortedMap<Long, MutableList<T>>> {
+        return Single.defer {
+            if (cachedSegments == null) {
+                cachedSegments = restoreSegments().cache()
             }
-            cachedData!!
+            cachedSegments!!
         }
     }
 
-    private fun restoreArchivedData(): Observable<T> {
+    private fun restoreSegments(): Single<SortedMap<Long, MutableList<T>>> {
+        return preferencesManager.restoreIfAvailable(segmentIndexKey, ArchiveSegmentIndex::class.java)
+            .flattenAsObservable(ArchiveSegmentIndex::segments)
+            .concatMapMaybe { preferencesManager.restoreIfAvailable(getSegmentKey(it), clazz) }
+            .flatMapIterable(ArchivedData<T>::getData)
+            .collect({ TreeMap<Long, MutableList<T>>() }, { segments, data -> insertData(segments, data) })
+            .flatMap { segments -> migrateLegacyData(segments).andThen(Single.just<SortedMap<Long, MutableList<T>>>(segments)) }
+    }
+
+    /**
+     * Moves data that has been persisted as one list under the plain [key] into the segments.
+     */
+    private fun migrateLegacyData(segments: SortedMap<Long, MutableList<T>>): Completable {
         return preferencesManager.restoreIfAvailable(key, clazz)
             .map(ArchivedData<T>::getData)
-            .defaultIfEmpty(ArrayList())
-            .flatMapObservable { Observable.fromIterable(it) }
-            // needed as old data may not be sorted
-            .sorted { o1, o2 -> timestampHelper.compare(o1, o2) }
+            .flatMapCompletable { legacyData ->
+                val previousSegmentIds = segments.keys.toList()
+                val modifiedSegmentIds = legacyData.mapTo(HashSet()) { insertData(segments, it) }
+                enqueueWrite(persistSegments(segments, previousSegmentIds, modifiedSegmentIds))
+                    .andThen(preferencesManager.delete(key))
+                    .doOnComplete { Timber.d("Migrated %d archived entries of %s into segments", legacyData.size, key) }
+            }
     }
 
     fun deleteDataAddedBefore(timestamp: Long): Completable {
-        return deleteData { timestampHelper.getTimestamp(it) < timestamp }
+        return modifySegments { segments ->
+            val boundarySegmentId = getSegmentId(timestamp)
+            val expiredSegments = segments.headMap(boundarySegmentId)
+            val modifiedSegmentIds = HashSet(expiredSegments.keys)
+            expiredSegments.clear()
+            val boundarySegment = segments[boundarySegmentId]
+            if (boundarySegment != null && boundarySegment.removeAll { timestampHelper.getTimestamp(it) < timestamp }) {
+                modifiedSegmentIds.add(boundarySegmentId)
+            }
+            modifiedSegmentIds
+        }
     }
 
     @JvmOverloads
     fun deleteDataOlderThan(duration: Long = DEFAULT_ARCHIVE_DURATION): Completable {
-        return deleteData { timestampHelper.getTimestamp(it) < TimeUtil.getCurrentMillis() - duration }
+        return Completable.defer { deleteDataAddedBefore(TimeUtil.getCurrentMillis() - duration) }
     }
 
     fun deleteData(filter: Predicate<T>): Completable {
-        return getData()
-            .filter { !filter.test(it) }
-            .toList()
-            .map(this::convertToArchivedData)
-            .flatMapCompletable { preferencesManager.persist(key, it) }
+        return modifySegments { segments -> removeData(segments, filter) }
             .doOnComplete(this::clearCachedData)
     }
 
     fun clearCachedData() {
-        cachedData = null
+        cachedSegments = null
+    }
+
+    /**
+     * Applies the modification to the cached segments and persists the segments which have been
+     * reported as modified. Emptied segments will be deleted.
+     */
+    private fun modifySegments(modification: (SortedMap<Long, MutableList<T>>) -> MutableSet<Long>): Completable {
+        return getSegments()
+            .flatMapCompletable { segments ->
+                synchronized(segments) {
+                    val previousSegmentIds = segments.keys.toList()
+                    val modifiedSegmentIds = modification(segments)
+                    enqueueWrite(persistSegments(segments, previousSegmentIds, modifiedSegmentIds))
+                }
+            }
+            .doOnError { clearCachedData() }
+    }
+
+    /**
+     * Creates a [Completable] persisting the current state of the modified segments and, if needed,
+     * the segment index. The data is captured eagerly, so that later modifications are not persisted.
+     */
+    private fun persistSegments(
+        segments: SortedMap<Long, MutableList<T>>,
+        previousSegmentIds: List<Long>,
+        modifiedSegmentIds: Set<Long>
+    ): Completable {
+        segments.values.removeAll { it.isEmpty() }
+        val segmentIds = segments.keys.toList()
+        val persistModifiedSegments = modifiedSegmentIds.map { segmentId ->
+            val segmentData = segments[segmentId]
+            if (segmentData != null) {
+                preferencesManager.persist(getSegmentKey(segmentId), convertToArchivedData(ArrayList(segmentData)))
+            } else {
+                preferencesManager.delete(getSegmentKey(segmentId))
+            }
+        }
+        val persistSegmentIndex = if (segmentIds != previousSegmentIds) {
+            preferencesManager.persist(segmentIndexKey, ArchiveSegmentIndex(segmentIds))
+        } else {
+            Completable.complete()
+        }
+        return Completable.concat(persistModifiedSegments).andThen(persistSegmentIndex)
+    }
+
+    /**
+     * Enqueues the write to the [segmentWrites]. Must be called while holding the lock of the
+     * segments which have been captured by the write, unless they are not accessible by others yet.
+     *
+     * @return a [Completable] that completes once the write has been performed
+     */
+    private fun enqueueWrite(write: Completable): Completable {
+        val writeResult = CompletableSubject.create()
+        segmentWrites.onNext(
+            write.doOnComplete(writeResult::onComplete)
+                .doOnError(writeResult::onError)
+        )
+        return writeResult
+    }
+
+    private fun removeData(segments: SortedMap<Long, MutableList<T>>, filter: Predicate<T>): MutableSet<Long> {
+        val modifiedSegmentIds = HashSet<Long>()
+        for ((segmentId, segmentData) in segments) {
+            if (segmentData.removeAll { filter.test(it) }) {
+                modifiedSegmentIds.add(segmentId)
+            }
+        }
+        return modifiedSegmentIds
+    }
+
+    /**
+     * Inserts the data into the matching segment, after all entries with the same or an older timestamp.
+     *
+     * @return the ID of the segment that has been modified
+     */
+    private fun insertData(segments: SortedMap<Long, MutableList<T>>, data: T): Long {
+        val timestamp = timestampHelper.getTimestamp(data)
+        val segmentId = getSegmentId(timestamp)
+        val segmentData = segments.getOrPut(segmentId) { ArrayList() }
+        var low = 0
+        var high = segmentData.size
+        while (low < high) {
+            val middle = (low + high) ushr 1
+            if (timestampHelper.getTimestamp(segmentData[middle]) <= timestamp) {
+                low = middle + 1
+            } else {
+                high = middle
+            }
+        }
+        segmentData.add(low, data)
+        return segmentId
     }
 
     private fun convertToArchivedData(data: List<T>): ArchivedData<T> {
@@ -88,17 +221,27 @@ class Archiver<T>(
         return archivedData
     }
 
+    private val segmentIndexKey: String
+        get() = key + SEGMENT_INDEX_KEY_SUFFIX
+
+    private fun getSegmentKey(segmentId: Long): String {
+        return key + SEGMENT_KEY_SUFFIX + segmentId
+    }
+
     companion object {
         const val OVERRIDE_ALL = true
         const val OVERRIDE_NONE = false
         private var DEFAULT_ARCHIVE_DURATION: Long = TimeUnit.DAYS.toMillis(28L)
+        private val SEGMENT_DURATION: Long = TimeUnit.DAYS.toMillis(1)
+        private const val SEGMENT_INDEX_KEY_SUFFIX = "_segments"
+        private const val SEGMENT_KEY_SUFFIX = "_segment_"
+
+        private fun getSegmentId(timestamp: Long): Long {
+            return timestamp - timestamp.mod(SEGMENT_DURATION)
+        }
     }
 
     fun interface TimestampHelper<T> {
         fun getTimestamp(data: T): Long
     }
-
-    private fun TimestampHelper<T>.compare(data1: T, data2: T): Int {
-        return compareValues(getTimestamp(data1), getTimestamp(data2))
-    }
 }
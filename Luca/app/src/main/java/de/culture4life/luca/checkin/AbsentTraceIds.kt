@@ -0,0 +1,44 @@
+package de.culture4life.luca.checkin
+
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Keeps track of serialized trace IDs that the backend didn't know when they have been looked up,
+ * so that they don't need to be sent again until the [recheckInterval] passed.
+ */
+class AbsentTraceIds(private val recheckInterval: Long) {
+
+    /**
+     * Number of trace IDs that have not been sent to the backend because they were known to be absent.
+     */
+    val skippedTraceIds = AtomicLong()
+
+    private val lookUpTimestamps = HashMap<String, Long>()
+
+    /**
+     * Removes trace IDs that have recently been looked up without being found. Trace IDs that
+     * are not part of the given [traceIds] anymore will be forgotten.
+     */
+    @Synchronized
+    fun filterTraceIdsToLookUp(traceIds: List<String>, currentTimestamp: Long): List<String> {
+        lookUpTimestamps.keys.retainAll(traceIds.toHashSet())
+        val traceIdsToLookUp = traceIds.filter { traceId ->
+            val lookUpTimestamp = lookUpTimestamps[traceId]
+            lookUpTimestamp == null || currentTimestamp - lookUpTimestamp >= recheckInterval
+        }
+        skippedTraceIds.addAndGet((traceIds.size - traceIdsToLookUp.size).toLong())
+        return traceIdsToLookUp
+    }
+
+    @Synchronized
+    fun onTraceIdsLookedUp(traceIds: List<String>, foundTraceIds: Collection<String>, timestamp: Long) {
+        val foundTraceIdSet = foundTraceIds.toHashSet()
+        for (traceId in traceIds) {
+            if (traceId in foundTraceIdSet) {
+                lookUpTimestamps.remove(traceId)
+            } else {
+                lookUpTimestamps[traceId] = timestamp
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package de.culture4life.luca.checkin
+
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Calculates the delay until the backend should be polled again.
+ *
+ * - The delay starts at the [minimumInterval] and is doubled after each poll, up to the
+ *   [maximumInterval]. Call [reset] when the polled state changed.
+ * - If a state change is expected at a known time, e.g. when the average check-in duration of the
+ *   venue is reached, the delay will not exceed that time and the [minimumInterval] is used within
+ *   the [expectedEventWindow] afterwards.
+ */
+class AdaptivePollingInterval(
+    private val minimumInterval: Long,
+    private val maximumInterval: Long,
+    private val expectedEventWindow: Long = maximumInterval
+) {
+
+    /**
+     * Number of polls that have been scheduled.
+     */
+    val scheduledPolls = AtomicLong()
+
+    /**
+     * Number of polls that would have been performed additionally when always using the
+     * [minimumInterval].
+     */
+    val savedPolls = AtomicLong()
+
+    private var currentInterval = minimumInterval
+
+    init {
+        require(minimumInterval > 0) { "Minimum interval must be positive" }
+        require(maximumInterval >= minimumInterval) { "Maximum interval must not be smaller than minimum interval" }
+    }
+
+    @Synchronized
+    fun reset() {
+        currentInterval = minimumInterval
+    }
+
+    /**
+     * @param durationUntilExpectedEvent duration until a state change is expected in milliseconds,
+     * negative if it has already passed or `null` if unknown
+     * @return the delay until the next poll in milliseconds
+     */
+    @Synchronized
+    fun getNextDelay(durationUntilExpectedEvent: Long?): Long {
+        val delay = when {
+            durationUntilExpectedEvent == null -> currentInterval
+            durationUntilExpectedEvent > 0 -> minOf(currentInterval, maxOf(minimumInterval, durationUntilExpectedEvent))
+            -durationUntilExpectedEvent <= expectedEventWindow -> minimumInterval
+            else -> currentInterval
+        }
+        currentInterval = minOf(currentInterval * 2, maximumInterval)
+        scheduledPolls.incrementAndGet()
+        savedPolls.addAndGet(delay / minimumInterval - 1)
+        return delay
+    }
+}
@@ -54,7 +54,7 @@ import de.culture4life.luca.crypto.AsymmetricCipherProvider;
 import de.culture4life.luca.crypto.CryptoManager;
 import de.culture4life.luca.crypto.EciesResult;
 import de.culture4life.luca.crypto.TraceIdWrapper;
-import de.culture4life.luca.crypto.TraceIdWrapperList;
+import de.culture4life.luca.crypto.TraceIdWrapperStore;
 import de.culture4life.luca.crypto.WrappedSecret;
 import de.culture4life.luca.genuinity.GenuinityManager;
 import de.culture4life.luca.history.HistoryManager;
@@ -114,8 +114,11 @@ public class CheckInManager extends Manager {
     private static final long MINIMUM_CHECK_IN_DURATION = TimeUnit.MINUTES.toMillis(2);
     private static final long LOCATION_REQUEST_TIMEOUT = TimeUnit.SECONDS.toMillis(3);
     private static final int RECENT_TRACE_IDS_LIMIT = (int) TimeUnit.HOURS.toMinutes(6);
+    private static final long MAXIMUM_TRACE_ID_WRAPPER_AGE = TimeUnit.HOURS.toSeconds(6);
     private static final long MAXIMUM_YOUNGER_TRACE_ID_AGE = TimeUnit.MINUTES.toMillis(2);
     private static final long CHECK_OUT_POLLING_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+    private static final long MAXIMUM_CHECK_OUT_POLLING_INTERVAL = TimeUnit.MINUTES.toMillis(8);
+    private static final long ABSENT_TRACE_ID_RECHECK_INTERVAL = TimeUnit.MINUTES.toMillis(30);
     private static final long AUTOMATIC_CHECK_OUT_RETRY_DELAY = BuildConfig.DEBUG ? TimeUnit.SECONDS.toMillis(15) : TimeUnit.MINUTES.toMillis(2);
 
     private final PreferencesManager preferencesManager;
@@ -127,6 +130,9 @@ public class CheckInManager extends Manager {
     private final LucaNotificationManager notificationManager;
     private final GenuinityManager genuinityManager;
     private final Archiver<CheckInData> archiver;
+    private final TraceIdWrapperStore traceIdWrapperStore;
+    private final AdaptivePollingInterval checkOutPollingInterval;
+    private final AbsentTraceIds absentTraceIds;
 
     private boolean skipMinimumCheckInDurationAssertion;
     private boolean skipMinimumDistanceAssertion;
@@ -170,6 +176,9 @@ public class CheckInManager extends Manager {
         this.notificationManager = notificationManager;
         this.genuinityManager = genuinityManager;
         archiver = new Archiver<>(preferencesManager, KEY_ARCHIVED_CHECK_IN_DATA, ArchivedCheckInData.class, CheckInData::getTimestamp);
+        traceIdWrapperStore = new TraceIdWrapperStore(preferencesManager, KEY_TRACE_ID_WRAPPERS, MAXIMUM_TRACE_ID_WRAPPER_AGE);
+        checkOutPollingInterval = new AdaptivePollingInterval(CHECK_OUT_POLLING_INTERVAL, MAXIMUM_CHECK_OUT_POLLING_INTERVAL, MAXIMUM_CHECK_OUT_POLLING_INTERVAL);
+        absentTraceIds = new AbsentTraceIds(ABSENT_TRACE_ID_RECHECK_INTERVAL);
 
         skipMinimumDistanceAssertion = true;
     }
@@ -197,6 +206,7 @@ public class CheckInManager extends Manager {
     @Override
     public void dispose() {
         archiver.clearCachedData();
+        traceIdWrapperStore.clearCachedData();
         super.dispose();
     }
 
@@ -721,14 +731,51 @@ public class CheckInManager extends Manager {
     /**
      * If currently checked in, this will poll the backend and check the check-in status. If the
      * status changes, this will trigger a checkout.
+     * <p>
+     * The polling interval backs off while the status doesn't change and is tightened again when
+     * the average check-in duration of the venue is reached, as that's when a check-out is likely.
      */
     public Completable monitorCheckOutAtBackend() {
-        return Observable.interval(0, CHECK_OUT_POLLING_INTERVAL, TimeUnit.MILLISECONDS, Schedulers.io())
-                .flatMapCompletable(tick -> isCheckedIn()
-                        .filter(Boolean::booleanValue)
-                        .flatMapCompletable(isCheckedIn -> checkOutIfNotCheckedInAtBackend())
-                        .doOnError(throwable -> Timber.w("Unable to monitor backend check-out: %s", throwable.toString()))
-                        .onErrorComplete());
+        return Completable.defer(() -> isCheckedIn()
+                .flatMap(isCheckedIn -> {
+                    if (!isCheckedIn) {
+                        checkOutPollingInterval.reset();
+                        return Single.just(CHECK_OUT_POLLING_INTERVAL);
+                    }
+                    return checkOutIfNotCheckedInAtBackend()
+                            .doOnError(throwable -> Timber.w("Unable to monitor backend check-out: %s", throwable.toString()))
+                            .onErrorComplete()
+                            .andThen(getNextCheckOutPollingDelay());
+                })
+                .doOnError(throwable -> Timber.w("Unable to get check-in status for backend check-out monitoring: %s", throwable.toString()))
+                .onErrorReturnItem(CHECK_OUT_POLLING_INTERVAL)
+                .flatMapCompletable(delay -> Completable.timer(delay, TimeUnit.MILLISECONDS, Schedulers.io())))
+                .repeat();
+    }
+
+    private Single<Long> getNextCheckOutPollingDelay() {
+        return getDurationUntilAverageCheckInDuration()
+                .map(checkOutPollingInterval::getNextDelay)
+                .switchIfEmpty(Single.fromCallable(() -> checkOutPollingInterval.getNextDelay(null)))
+                .onErrorReturnItem(CHECK_OUT_POLLING_INTERVAL)
+                .doOnSuccess(delay -> Timber.v("Next backend check-out poll in %d ms, saved %d polls",
+                        delay, checkOutPollingInterval.getSavedPolls().get()));
+    }
+
+    /**
+     * @return the number of backend polls that have been saved by backing off the check-out
+     * polling interval
+     */
+    public long getSavedCheckOutPolls() {
+        return checkOutPollingInterval.getSavedPolls().get();
+    }
+
+    /**
+     * @return the number of trace IDs that have not been sent to the backend because they were
+     * recently looked up without being found
+     */
+    public long getSkippedTraceIdLookUps() {
+        return absentTraceIds.getSkippedTraceIds().get();
     }
 
     public Completable checkOutIfNotCheckedInAtBackend() {
@@ -742,7 +789,7 @@ public class CheckInManager extends Manager {
                 .filter(isCheckedIn -> isCheckedIn)
                 .ignoreElement()
                 .andThen(disableCheckOutReminderNotification())
-                .andThen(calculateDurationToCheckOutReminder())
+                .andThen(getDurationUntilAverageCheckInDuration())
                 .flatMapCompletable(delay -> Completable.fromAction(() ->
                         checkOutReminderDisposable = Completable.timer(delay, TimeUnit.MILLISECONDS, Schedulers.io())
                                 .andThen(showCheckOutReminderNotification())
@@ -768,7 +815,7 @@ public class CheckInManager extends Manager {
         );
     }
 
-    private Maybe<Long> calculateDurationToCheckOutReminder() {
+    private Maybe<Long> getDurationUntilAverageCheckInDuration() {
         return Maybe.zip(getAverageCheckInDurationIfAvailable(), getCurrentCheckInDuration(),
                 (averageCheckInDuration, currentCheckInDuration) -> averageCheckInDuration - currentCheckInDuration);
     }
@@ -1018,38 +1065,59 @@ public class CheckInManager extends Manager {
                 .flatMap(this::getTraceDataFromBackend);
     }
 
+    /**
+     * Older trace IDs that the backend didn't know when they were last looked up are skipped
+     * until the {@link #ABSENT_TRACE_ID_RECHECK_INTERVAL} passed. Younger trace IDs are always
+     * sent, as a scanner may upload the check-in at any time.
+     */
     private Maybe<TraceData> getTraceDataForRecentTraceIdsFromBackend(boolean useOlderTraceIds) {
         return getRecentTraceIds(useOlderTraceIds)
                 .takeLast(RECENT_TRACE_IDS_LIMIT)
+                .flatMapSingle(SerializationUtil::toBase64)
                 .toList()
-                .flatMapObservable(this::getTraceDataFromBackend)
-                .lastElement();
+                .map(serializedTraceIds -> useOlderTraceIds ? absentTraceIds.filterTraceIdsToLookUp(serializedTraceIds, TimeUtil.getCurrentMillis()) : serializedTraceIds)
+                .flatMapMaybe(serializedTraceIds -> fetchTraceData(serializedTraceIds)
+                        .doOnSuccess(traceDataList -> {
+                            if (useOlderTraceIds) {
+                                List<String> foundTraceIds = new ArrayList<>(traceDataList.size());
+                                for (TraceData traceData : traceDataList) {
+                                    foundTraceIds.add(traceData.getTraceId());
+                                }
+                                absentTraceIds.onTraceIdsLookedUp(serializedTraceIds, foundTraceIds, TimeUtil.getCurrentMillis());
+                            }
+                        })
+                        .flatMapMaybe(CheckInManager::getLatestTraceData));
     }
 
     private Maybe<TraceData> getTraceDataFromBackend(@NonNull byte[] traceId) {
-        return Single.fromCallable(() -> Collections.singletonList(traceId))
-                .flatMapObservable(this::getTraceDataFromBackend)
-                .lastElement();
+        return SerializationUtil.toBase64(traceId)
+                .map(Collections::singletonList)
+                .flatMap(this::fetchTraceData)
+                .flatMapMaybe(CheckInManager::getLatestTraceData);
     }
 
-    private Observable<TraceData> getTraceDataFromBackend(@NonNull List<byte[]> traceIds) {
-        return Observable.fromIterable(traceIds)
-                .flatMapSingle(SerializationUtil::toBase64)
-                .toList()
-                .filter(serializedTraceIds -> !serializedTraceIds.isEmpty())
-                .map(serializedTraceIds -> {
-                    JsonArray jsonArray = new JsonArray(serializedTraceIds.size());
-                    for (String serializedTraceId : serializedTraceIds) {
-                        jsonArray.add(serializedTraceId);
-                    }
-                    JsonObject jsonObject = new JsonObject();
-                    jsonObject.add("traceIds", jsonArray);
-                    return jsonObject;
-                })
-                .flatMapSingle(jsonObject -> networkManager.getLucaEndpointsV3()
-                        .flatMap(lucaEndpointsV3 -> lucaEndpointsV3.getTraces(jsonObject)))
-                .flatMapObservable(Observable::fromIterable)
-                .sorted((first, second) -> Long.compare(first.getCheckInTimestamp(), second.getCheckInTimestamp()));
+    private Single<List<TraceData>> fetchTraceData(@NonNull List<String> serializedTraceIds) {
+        if (serializedTraceIds.isEmpty()) {
+            return Single.just(Collections.emptyList());
+        }
+        return Single.fromCallable(() -> {
+            JsonArray jsonArray = new JsonArray(serializedTraceIds.size());
+            for (String serializedTraceId : serializedTraceIds) {
+                jsonArray.add(serializedTraceId);
+            }
+            JsonObject jsonObject = new JsonObject();
+            jsonObject.add("traceIds", jsonArray);
+            return jsonObject;
+        }).flatMap(jsonObject -> networkManager.getLucaEndpointsV3()
+                .flatMap(lucaEndpointsV3 -> lucaEndpointsV3.getTraces(jsonObject)));
+    }
+
+    /**
+     * @return the trace data with the most recent check-in timestamp, if any
+     */
+    private static Maybe<TraceData> getLatestTraceData(@NonNull List<TraceData> traceDataList) {
+        return Observable.fromIterable(traceDataList)
+                .reduce((latest, traceData) -> traceData.getCheckInTimestamp() >= latest.getCheckInTimestamp() ? traceData : latest);
     }
 
     public Maybe<byte[]> getCheckedInTraceId() {
@@ -1065,18 +1133,17 @@ public class CheckInManager extends Manager {
     }
 
     private Observable<byte[]> getRecentTraceIds(boolean useOlderTraceIds) {
-        return getTraceIdWrappers()
-                .filter(traceIdWrapper -> {
-                    Timber.i("CheckInManger.getRecentTraceIds has traceId %s", SerializationUtil.toBase64(traceIdWrapper.getTraceId()).blockingGet());
-                    long creationTimestamp = TimeUtil.convertFromUnixTimestamp(traceIdWrapper.getTimestamp()).blockingGet();
-                    long age = TimeUtil.getCurrentMillis() - creationTimestamp;
-                    if (useOlderTraceIds) {
-                        return age > MAXIMUM_YOUNGER_TRACE_ID_AGE;
-                    } else {
-                        return age <= MAXIMUM_YOUNGER_TRACE_ID_AGE;
-                    }
-                })
-                .map(TraceIdWrapper::getTraceId);
+        return Observable.defer(() -> {
+            // wrapper timestamps are in seconds, younger trace IDs are at most MAXIMUM_YOUNGER_TRACE_ID_AGE old
+            long minimumYoungerTimestamp = TimeUnit.MILLISECONDS.toSeconds(TimeUtil.getCurrentMillis() - MAXIMUM_YOUNGER_TRACE_ID_AGE + 999);
+            Observable<TraceIdWrapper> traceIdWrappers;
+            if (useOlderTraceIds) {
+                traceIdWrappers = traceIdWrapperStore.getTraceIdWrappers(Long.MIN_VALUE, minimumYoungerTimestamp - 1);
+            } else {
+                traceIdWrappers = traceIdWrapperStore.getTraceIdWrappers(minimumYoungerTimestamp, Long.MAX_VALUE);
+            }
+            return traceIdWrappers.map(TraceIdWrapper::getTraceId);
+        });
     }
 
     public Observable<String> getArchivedTraceIds() {
@@ -1100,8 +1167,16 @@ public class CheckInManager extends Manager {
     private Single<TraceIdWrapper> generateTraceIdWrapper(@NonNull UUID userId) {
         return TimeUtil.getCurrentUnixTimestamp()
                 .flatMap(TimeUtil::roundUnixTimestampDownToMinute)
-                .flatMap(roundedUnixTimestamp -> generateTraceId(userId, roundedUnixTimestamp)
-                        .map(traceId -> new TraceIdWrapper(roundedUnixTimestamp, traceId)));
+                .flatMap(roundedUnixTimestamp -> generateTraceIdWrapper(userId, roundedUnixTimestamp));
+    }
+
+    /**
+     * Generate a trace ID for the given minute without persisting it, e.g. to prepare upcoming QR
+     * codes. Use {@link #persistTraceIdWrapper(TraceIdWrapper)} once it's actually being used.
+     */
+    public Single<TraceIdWrapper> generateTraceIdWrapper(@NonNull UUID userId, long roundedUnixTimestamp) {
+        return generateTraceId(userId, roundedUnixTimestamp)
+                .map(traceId -> new TraceIdWrapper(roundedUnixTimestamp, traceId));
     }
 
     public Single<byte[]> generateTraceId(@NonNull UUID userId, long roundedUnixTimestamp) {
@@ -1118,34 +1193,34 @@ public class CheckInManager extends Manager {
      * Get current {@link TraceIdWrapper}s ordered by timestamp.
      */
     public Observable<TraceIdWrapper> getTraceIdWrappers() {
-        return restoreTraceIdWrappers();
+        return traceIdWrapperStore.getTraceIdWrappers();
     }
 
     /**
-     * Restore {@link TraceIdWrapperList} from {@link PreferencesManager} and sort by timestamp.
+     * Persist given {@link TraceIdWrapper}, appending it to the stored ones. The user ephemeral key
+     * pairs of wrappers that got evicted in turn will be deleted if they don't belong to any check-in.
      */
-    private Observable<TraceIdWrapper> restoreTraceIdWrappers() {
-        return preferencesManager.restoreIfAvailable(KEY_TRACE_ID_WRAPPERS, TraceIdWrapperList.class)
-                .flatMapObservable(Observable::fromIterable)
-                .sorted((first, second) -> Long.compare(first.getTimestamp(), second.getTimestamp()));
+    public Completable persistTraceIdWrapper(@NonNull TraceIdWrapper traceIdWrapper) {
+        return traceIdWrapperStore.add(traceIdWrapper)
+                .andThen(traceIdWrapperStore.getEvictedTraceIdWrappers())
+                .filter(evictedTraceIdWrappers -> !evictedTraceIdWrappers.isEmpty())
+                .flatMapCompletable(evictedTraceIdWrappers -> deleteUnusedTraceData(Observable.fromIterable(evictedTraceIdWrappers)));
     }
 
     /**
-     * Persist given {@link TraceIdWrapper}, appending it to the list of stored ones.
+     * Delete all trace IDs and their associated user ephemeral key pair that do not belong to any check-in.
      */
-    private Completable persistTraceIdWrapper(@NonNull TraceIdWrapper traceIdWrapper) {
-        return getTraceIdWrappers()
-                .mergeWith(Observable.just(traceIdWrapper))
-                .toList()
-                .map(TraceIdWrapperList::new)
-                .flatMapCompletable(traceIdWrappers -> preferencesManager.persist(KEY_TRACE_ID_WRAPPERS, traceIdWrappers));
+    public Completable deleteUnusedTraceData() {
+        return deleteUnusedTraceData(getTraceIdWrappers().mergeWith(traceIdWrapperStore.getEvictedTraceIdWrappers()
+                .flatMapObservable(Observable::fromIterable)))
+                .andThen(traceIdWrapperStore.deleteAll());
     }
 
     /**
-     * Delete all trace IDs and their associated user ephemeral key pair that do not belong to any check-in.
+     * Delete the user ephemeral key pairs of the given trace IDs that do not belong to any check-in.
      */
-    public Completable deleteUnusedTraceData() {
-        Observable<String> allTraceIds = getTraceIdWrappers()
+    private Completable deleteUnusedTraceData(@NonNull Observable<TraceIdWrapper> traceIdWrappers) {
+        Observable<String> allTraceIds = traceIdWrappers
                 .map(TraceIdWrapper::getTraceId)
                 .flatMapSingle(SerializationUtil::toBase64);
 
@@ -1162,11 +1237,9 @@ public class CheckInManager extends Manager {
         ).flatMapObservable(Observable::fromIterable);
 
         return cryptoManager.initialize(context)
-                .andThen(discardableTraceIds)
-                .flatMapSingle(SerializationUtil::fromBase64)
-                .flatMapSingle(CheckInManager::getGuestEphemeralKeyPairAlias)
-                .flatMapCompletable(cryptoManager::deleteKeyPair)
-                .andThen(preferencesManager.delete(KEY_TRACE_ID_WRAPPERS));
+                .andThen(cryptoManager.deleteKeyPairs(discardableTraceIds
+                        .flatMapSingle(SerializationUtil::fromBase64)
+                        .flatMapSingle(CheckInManager::getGuestEphemeralKeyPairAlias)));
     }
 
     /*
@@ -1222,11 +1295,18 @@ public class CheckInManager extends Manager {
                 .flatMapCompletable(preferenceKey -> cryptoManager.persistWrappedSecret(preferenceKey, secret));
     }
 
+    /**
+     * Restore the tracing secrets of the given duration, starting with today's secret. Unwrapped
+     * secrets are kept by the {@link CryptoManager}, so that they only need to be decrypted once.
+     */
     public Observable<Pair<Long, byte[]>> restoreRecentTracingSecrets(long duration) {
         return cryptoManager.initialize(context)
-                .andThen(generateRecentStartOfDayTimestamps(duration))
-                .flatMapMaybe(startOfDayTimestamp -> cryptoManager.restoreWrappedSecretIfAvailable(KEY_PREFIX_TRACING_SECRET + startOfDayTimestamp)
-                        .map(secret -> new Pair<>(startOfDayTimestamp, secret)));
+                .andThen(cryptoManager.restoreWrappedSecretsIfAvailable(generateRecentStartOfDayTimestamps(duration)
+                        .map(startOfDayTimestamp -> KEY_PREFIX_TRACING_SECRET + startOfDayTimestamp)))
+                .map(aliasAndSecret -> new Pair<>(
+                        Long.parseLong(aliasAndSecret.getFirst().substring(KEY_PREFIX_TRACING_SECRET.length())),
+                        aliasAndSecret.getSecond()
+                ));
     }
 
     public Observable<Long> generateRecentStartOfDayTimestamps(long duration) {
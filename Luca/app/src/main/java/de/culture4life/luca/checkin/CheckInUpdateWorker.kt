@@ -38,6 +38,9 @@ class CheckInUpdateWorker(
                     }
                 }
                 .subscribeOn(Schedulers.io())
+        }.let { work ->
+            // write deferred preference changes, the process may be killed after the work finished
+            Completable.concatArrayDelayError(work, (applicationContext as LucaApplication).preferencesManager.flush())
         }.andThen(Single.just(Result.success()))
             .onErrorReturnItem(Result.failure())
     }
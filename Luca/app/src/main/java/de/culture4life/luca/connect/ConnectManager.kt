@@ -37,6 +37,8 @@ import io.reactivex.rxjava3.subjects.BehaviorSubject
 import okhttp3.internal.and
 import timber.log.Timber
 import java.net.HttpURLConnection
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
 import java.security.PrivateKey
 import java.security.interfaces.ECPublicKey
 import java.util.*
@@ -379,6 +381,7 @@ open class ConnectManager(
         return Completable.fromAction { Timber.d("Cleaning local enrollment data") }
             .andThen(clearContactArchive())
             .andThen(deleteNotificationId())
+            .andThen(deleteMessageIdCache())
             .andThen(deleteContactId())
             .doOnComplete { enrollmentStatusSubject.onNext(false) }
     }
@@ -593,8 +596,8 @@ open class ConnectManager(
                 val healthDepartmentId = getHealthDepartmentId().blockingGet()
 
                 generateRoundedTimestampsSinceLastUpdate()
-                    .flatMapSingle { generateMessageId(notificationId, healthDepartmentId, it) }
                     .toList()
+                    .flatMap { getMessageIds(notificationId, healthDepartmentId, it) }
                     .flatMap { fillMessageIdsWithFakeMessageIds(notificationId, healthDepartmentId, it) }
                     .doOnSuccess { Timber.v("Generated ${it.size} message IDs") }
                     .map(::ConnectMessageRequestData)
@@ -632,10 +635,8 @@ open class ConnectManager(
         realMessageIds: List<String>
     ): Single<List<String>> {
         val maxFakeMessageIds = Random.nextLong(0, MAX_MESSAGE_IDS - realMessageIds.size)
-        val messageIdSingles = (0 until maxFakeMessageIds).map { generateMessageId(notificationId, healthDepartmentId, Random.nextLong()) }
-        return Single
-            .merge(messageIdSingles)
-            .toList()
+        val fakeTimestamps = (0 until maxFakeMessageIds).map { Random.nextLong() }
+        return generateMessageIds(notificationId, healthDepartmentId, fakeTimestamps)
             .map { it + realMessageIds }
     }
 
@@ -715,18 +716,72 @@ open class ConnectManager(
     }
 
     fun generateMessageId(notificationId: String, healthDepartmentId: String, roundedTimestamp: Long): Single<String> {
+        return generateMessageIds(notificationId, healthDepartmentId, listOf(roundedTimestamp))
+            .map { it.first() }
+    }
+
+    /**
+     * Derives the message IDs for all specified rounded timestamps in one batch, see [generateMessageId].
+     */
+    fun generateMessageIds(notificationId: String, healthDepartmentId: String, roundedTimestamps: List<Long>): Single<List<String>> {
         return Single.defer {
-            val encodedTimestamp = TimeUtil.convertToUnixTimestamp(roundedTimestamp)
-                .flatMap(TimeUtil::encodeUnixTimestamp)
-                .blockingGet()
             val encodedHealthDepartmentId = UUID.fromString(healthDepartmentId).toByteArray()
+            val salts = roundedTimestamps.map { roundedTimestamp ->
+                ByteBuffer.allocate(4 + encodedHealthDepartmentId.size)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(TimeUnit.MILLISECONDS.toSeconds(roundedTimestamp).toInt())
+                    .put(encodedHealthDepartmentId)
+                    .array()
+            }
             cryptoManager.hkdf(
                 ikm = notificationId.decodeFromBase64(),
-                salt = encodedTimestamp + encodedHealthDepartmentId,
+                salts = salts,
                 label = MESSAGE_ID_HKDF_LABEL,
                 length = 16
             )
-        }.map(ByteArray::encodeToBase64)
+        }.map { messageIds -> messageIds.map(ByteArray::encodeToBase64) }
+    }
+
+    /**
+     * Provides the message IDs for the specified rounded timestamps. Previously derived message IDs
+     * are restored from the [ConnectMessageIdCache], only the missing ones get derived and added to it.
+     */
+    fun getMessageIds(notificationId: String, healthDepartmentId: String, roundedTimestamps: List<Long>): Single<List<String>> {
+        return restoreMessageIdCacheIfAvailable()
+            .filter { it.notificationId == notificationId && it.healthDepartmentId == healthDepartmentId }
+            .map(ConnectMessageIdCache::messageIds)
+            .defaultIfEmpty(emptyMap())
+            .flatMap { cachedMessageIds ->
+                val missingTimestamps = roundedTimestamps.filterNot(cachedMessageIds::containsKey)
+                if (missingTimestamps.isEmpty()) {
+                    return@flatMap Single.just(roundedTimestamps.map { cachedMessageIds.getValue(it) })
+                }
+                generateMessageIds(notificationId, healthDepartmentId, missingTimestamps)
+                    .doOnSuccess { Timber.v("Derived ${it.size} message IDs, reused ${roundedTimestamps.size - it.size}") }
+                    .map { generatedMessageIds -> cachedMessageIds + missingTimestamps.zip(generatedMessageIds) }
+                    .flatMap { messageIds ->
+                        val minimumTimestamp = TimeUtil.getCurrentMillis() - CONTACT_ARCHIVE_DURATION - ROUNDED_TIMESTAMP_ACCURACY
+                        val messageIdCache = ConnectMessageIdCache(
+                            notificationId = notificationId,
+                            healthDepartmentId = healthDepartmentId,
+                            messageIds = messageIds.filterKeys { it >= minimumTimestamp }
+                        )
+                        persistMessageIdCache(messageIdCache)
+                            .andThen(Single.fromCallable { roundedTimestamps.map { messageIds.getValue(it) } })
+                    }
+            }
+    }
+
+    private fun restoreMessageIdCacheIfAvailable(): Maybe<ConnectMessageIdCache> {
+        return preferencesManager.restoreIfAvailable(MESSAGE_ID_CACHE_KEY, ConnectMessageIdCache::class.java)
+    }
+
+    private fun persistMessageIdCache(messageIdCache: ConnectMessageIdCache): Completable {
+        return preferencesManager.persistDeferred(MESSAGE_ID_CACHE_KEY, messageIdCache)
+    }
+
+    private fun deleteMessageIdCache(): Completable {
+        return preferencesManager.delete(MESSAGE_ID_CACHE_KEY)
     }
 
     open fun generateRoundedTimestampsSinceLastUpdate(): Observable<Long> {
@@ -942,6 +997,7 @@ open class ConnectManager(
         private const val NOTIFICATION_ID_KEY = "connect_notification_id"
         private const val CONTACT_ID_KEY = "connect_contact_id"
         private const val LAST_MESSAGE_UPDATE_TIMESTAMP_KEY = "connect_message_update_timestamp"
+        private const val MESSAGE_ID_CACHE_KEY = "connect_message_id_cache"
         private const val AUTHENTICATION_KEY_PAIR_ALIAS = "connect_authentication_key_pair"
         private const val MESSAGE_ENCRYPTION_KEY_PAIR_ALIAS = "message_encryption_key_pair"
         private const val MESSAGE_SIGNING_KEY_PAIR_ALIAS = "message_signing_key_pair"
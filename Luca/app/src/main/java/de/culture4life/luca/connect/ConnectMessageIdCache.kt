@@ -0,0 +1,24 @@
+package de.culture4life.luca.connect
+
+import com.google.gson.annotations.Expose
+import com.google.gson.annotations.SerializedName
+
+/**
+ * Message IDs that have already been derived for the rounded timestamps of the specified
+ * notification ID and health department, so that they don't need to be derived again.
+ */
+data class ConnectMessageIdCache(
+
+    @Expose
+    @SerializedName("notificationId")
+    val notificationId: String,
+
+    @Expose
+    @SerializedName("healthDepartmentId")
+    val healthDepartmentId: String,
+
+    @Expose
+    @SerializedName("messageIds")
+    val messageIds: Map<Long, String> = HashMap()
+
+)
@@ -30,12 +30,18 @@ import org.bouncycastle.crypto.params.HKDFParameters
 import org.bouncycastle.jce.provider.BouncyCastleProvider
 import timber.log.Timber
 import java.io.ByteArrayOutputStream
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
 import java.nio.ByteBuffer
 import java.security.*
 import java.security.cert.X509Certificate
 import java.security.interfaces.ECPrivateKey
 import java.security.interfaces.ECPublicKey
 import java.util.*
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
 import javax.crypto.SecretKey
 import javax.crypto.spec.SecretKeySpec
 
@@ -66,6 +72,19 @@ class CryptoManager constructor(
 
     private var dailyPublicKeyData: DailyPublicKeyData? = null
 
+    /**
+     * Guards mutations of the [.bouncyCastleKeyStore] against concurrent writes of the key store file.
+     */
+    private val keyStoreLock = Any()
+    private var keyStorePassword: Single<CharArray>? = null
+    private val secretVault = SecretVault(MAXIMUM_SECRET_RESIDENCY_DURATION)
+    private val hasScheduledSecretEviction = AtomicBoolean()
+
+    val keyStoreMetrics = Metrics()
+
+    val secretVaultMetrics: SecretVault.Metrics
+        get() = secretVault.metrics
+
     init {
         androidKeyStore = RxKeyStore(RxKeyStore.TYPE_ANDROID, getAndroidKeyStoreProviderName())
         bouncyCastleKeyStore = RxKeyStore(RxKeyStore.TYPE_BKS, RxKeyStore.PROVIDER_BOUNCY_CASTLE)
@@ -96,6 +115,12 @@ class CryptoManager constructor(
             .andThen(deleteOldPreferencesIfRequired())
     }
 
+    override fun dispose() {
+        clearUnwrappedSecrets()
+        super.dispose()
+        hasScheduledSecretEviction.set(false)
+    }
+
     /**
      * Delete preferences that have been used instead in app versions before 2.3.0.
      */
@@ -155,23 +180,48 @@ class CryptoManager constructor(
     fun persistKeyStoreToFile(): Completable {
         return getKeyStorePassword()
             .observeOn(Schedulers.io())
-            .flatMapCompletable { passwordChars ->
-                Single.fromCallable { context.openFileOutput(KEYSTORE_FILE_NAME, Context.MODE_PRIVATE) }
-                    .flatMapCompletable { outputStream ->
-                        bouncyCastleKeyStore.save(outputStream, passwordChars)
-                            .doFinally { outputStream.close() }
-                    }
-            }
+            .flatMapCompletable { passwordChars -> Completable.fromAction { writeKeyStoreToFile(passwordChars) } }
             .retry(1)
             .doOnSubscribe { Timber.d("Persisting keystore to file") }
             .doOnError { Timber.e("Unable to persist keystore to file: %s", it.toString()) }
     }
 
+    /**
+     * Writes the [.bouncyCastleKeyStore] to a temporary file and replaces the key store file with it,
+     * so that an interrupted write can't leave a corrupted key store file behind.
+     */
+    private fun writeKeyStoreToFile(passwordChars: CharArray) {
+        synchronized(keyStoreLock) {
+            val temporaryFile = File(context.filesDir, KEYSTORE_FILE_NAME + TEMPORARY_FILE_SUFFIX)
+            FileOutputStream(temporaryFile).use { outputStream ->
+                bouncyCastleKeyStore.save(outputStream, passwordChars).blockingAwait()
+                outputStream.fd.sync()
+            }
+            if (!temporaryFile.renameTo(File(context.filesDir, KEYSTORE_FILE_NAME))) {
+                temporaryFile.delete()
+                throw IOException("Unable to replace keystore file")
+            }
+            keyStoreMetrics.keyStoreWrites.incrementAndGet()
+        }
+    }
+
+    /**
+     * Fetch the cached [.bouncyCastleKeyStore] password, so that it only needs to be unwrapped
+     * using the [.androidKeyStore] once.
+     */
+    private fun getKeyStorePassword(): Single<CharArray> {
+        return Single.defer {
+            synchronized(keyStoreLock) {
+                keyStorePassword ?: restoreOrGenerateKeyStorePassword().cache().also { keyStorePassword = it }
+            }
+        }.doOnError { keyStorePassword = null }
+    }
+
     /**
      * Fetch [.bouncyCastleKeyStore] password if available, otherwise generate new random
      * password and persist it using [.androidKeyStore]-backed [WrappedSecret]}.
      */
-    private fun getKeyStorePassword(): Single<CharArray> {
+    private fun restoreOrGenerateKeyStorePassword(): Single<CharArray> {
         return restoreWrappedSecretIfAvailable(ALIAS_KEYSTORE_PASSWORD)
             .switchIfEmpty(
                 generateSecureRandomData(128)
@@ -203,17 +253,41 @@ class CryptoManager constructor(
      * Will restore the [WrappedSecret] using the [.preferencesManager] and decrypt it
      * using the [.wrappingCipherProvider].
      *
-     * [WrappedSecret]s are encrypted using an AndroidKeyStore-backed key.
+     * [WrappedSecret]s are encrypted using an AndroidKeyStore-backed key. Decrypted secrets are
+     * kept in the [.secretVault] until [clearUnwrappedSecrets] is called.
      */
     fun restoreWrappedSecretIfAvailable(alias: String): Maybe<ByteArray> {
-        return preferencesManager.restoreIfAvailable(alias, WrappedSecret::class.java)
-            .flatMapSingle { wrappedSecret ->
-                getSecretWrappingKeyPair()
-                    .flatMap { keyPair ->
-                        wrappingCipherProvider.decrypt(wrappedSecret.deserializedEncryptedSecret, wrappedSecret.deserializedIv, keyPair.private)
-                            .compose(retryWhen(KeyStoreException::class.java, 3))
-                    }
+        return restoreWrappedSecretIfAvailable(alias, getSecretWrappingKeyPair())
+    }
+
+    /**
+     * Will restore the [WrappedSecret]s with the specified aliases, e.g. all tracing secrets of a
+     * time window. The secret wrapping key pair is only fetched once for all secrets that are not
+     * available in the [.secretVault].
+     */
+    fun restoreWrappedSecretsIfAvailable(aliases: Observable<String>): Observable<Pair<String, ByteArray>> {
+        return Observable.defer {
+            val secretWrappingKeyPair = getSecretWrappingKeyPair().cache()
+            aliases.concatMapMaybe { alias ->
+                restoreWrappedSecretIfAvailable(alias, secretWrappingKeyPair)
+                    .map { Pair(alias, it) }
             }
+        }
+    }
+
+    private fun restoreWrappedSecretIfAvailable(alias: String, secretWrappingKeyPair: Single<KeyPair>): Maybe<ByteArray> {
+        return Maybe.fromCallable<ByteArray> { secretVault.get(alias) }
+            .switchIfEmpty(
+                preferencesManager.restoreIfAvailable(alias, WrappedSecret::class.java)
+                    .flatMapSingle { wrappedSecret ->
+                        secretWrappingKeyPair
+                            .flatMap { keyPair ->
+                                wrappingCipherProvider.decrypt(wrappedSecret.deserializedEncryptedSecret, wrappedSecret.deserializedIv, keyPair.private)
+                                    .compose(retryWhen(KeyStoreException::class.java, 3))
+                            }
+                    }
+                    .doOnSuccess { putUnwrappedSecret(alias, it) }
+            )
             .doOnError { Timber.e("Unable to restore wrapped secret: %s", it.toString()) }
     }
 
@@ -229,9 +303,44 @@ class CryptoManager constructor(
             }
             .map(::WrappedSecret)
             .flatMapCompletable { preferencesManager.persist(alias, it) }
+            .doOnComplete { putUnwrappedSecret(alias, secret) }
             .doOnError { Timber.e("Unable to persist wrapped secret: %s", it.toString()) }
     }
 
+    private fun putUnwrappedSecret(alias: String, secret: ByteArray) {
+        secretVault.put(alias, secret)
+        scheduleExpiredSecretsEviction(MAXIMUM_SECRET_RESIDENCY_DURATION)
+    }
+
+    /**
+     * Evicts unwrapped secrets once they expired, so that secrets unwrapped by background work
+     * don't stay in memory until the UI becomes invisible. Only one eviction is scheduled at a time,
+     * which schedules the next one if secrets remain.
+     */
+    private fun scheduleExpiredSecretsEviction(delay: Long) {
+        if (!hasScheduledSecretEviction.compareAndSet(false, true)) {
+            return // already scheduled
+        }
+        managerDisposable.add(
+            Completable.timer(delay, TimeUnit.MILLISECONDS, Schedulers.computation())
+                .subscribe {
+                    hasScheduledSecretEviction.set(false)
+                    secretVault.evictExpired()?.let(::scheduleExpiredSecretsEviction)
+                }
+        )
+    }
+
+    /**
+     * Overwrites all secrets that have been unwrapped before, including the key store password.
+     * Should be called when the UI becomes invisible, so that secrets don't stay in memory longer
+     * than needed.
+     */
+    fun clearUnwrappedSecrets() {
+        Timber.d("Clearing unwrapped secrets: %s", secretVault.metrics)
+        secretVault.clear()
+        keyStorePassword = null
+    }
+
     /*
         Hashing
      */
@@ -310,6 +419,23 @@ class CryptoManager constructor(
         }
     }
 
+    /**
+     * Derives one secret per salt from the same input key material and label, as done by [hkdf].
+     * The HMAC and its block buffer are reused for all derivations, making this considerably
+     * cheaper than deriving each secret separately.
+     */
+    fun hkdf(ikm: ByteArray, salts: List<ByteArray?>, label: ByteArray, length: Int): Single<List<ByteArray>> {
+        return Single.fromCallable {
+            val generator = HKDFBytesGenerator(SHA256Digest())
+            salts.map { salt ->
+                val output = ByteArray(length)
+                generator.init(HKDFParameters(ikm, salt, label))
+                generator.generateBytes(output, 0, output.size)
+                output
+            }
+        }
+    }
+
     /*
         Elliptic Curve Integrated Encryption Scheme
      */
@@ -507,8 +633,9 @@ class CryptoManager constructor(
      */
     fun persistKeyPair(alias: String = "ephemeral", keyPair: KeyPair): Completable {
         return Completable.defer {
-            asymmetricCipherProvider.setKeyPair(alias, keyPair)
-                .andThen(persistKeyStoreToFile())
+            beginKeyStoreTransaction()
+                .setKeyPair(alias, keyPair)
+                .commit()
                 .doOnComplete { Timber.d("Persisted key pair for alias: %s", alias) }
         }
     }
@@ -518,12 +645,66 @@ class CryptoManager constructor(
      */
     fun deleteKeyPair(alias: String = "ephemeral"): Completable {
         return Completable.defer {
-            bouncyCastleKeyStore.deleteEntry(alias)
-                .andThen(persistKeyStoreToFile())
+            beginKeyStoreTransaction()
+                .deleteEntry(alias)
+                .commit()
                 .doOnComplete { Timber.d("Deleted key pair for alias: %s", alias) }
         }
     }
 
+    /**
+     * Will delete the key store entries with the specified aliases from the [.bouncyCastleKeyStore]
+     * in a single transaction, which writes the key store file once. Completes after the file has
+     * been written, so that callers may drop their references to the aliases afterwards.
+     */
+    fun deleteKeyPairs(aliases: Observable<String>): Completable {
+        return aliases.toList()
+            .flatMapCompletable { aliasList ->
+                aliasList.fold(beginKeyStoreTransaction(), KeyStoreTransaction::deleteEntry)
+                    .commit()
+                    .doOnComplete { Timber.d("Deleted %d key pairs", aliasList.size) }
+            }
+    }
+
+    fun beginKeyStoreTransaction(): KeyStoreTransaction {
+        return KeyStoreTransaction()
+    }
+
+    /**
+     * Collects mutations of the [.bouncyCastleKeyStore] which are applied and persisted with a
+     * single key store file write on [commit], instead of rewriting the file after each mutation.
+     */
+    inner class KeyStoreTransaction internal constructor() {
+
+        private val mutations = ArrayList<Completable>()
+
+        fun setKeyPair(alias: String, keyPair: KeyPair): KeyStoreTransaction {
+            mutations.add(asymmetricCipherProvider.setKeyPair(alias, keyPair))
+            return this
+        }
+
+        fun deleteEntry(alias: String): KeyStoreTransaction {
+            mutations.add(bouncyCastleKeyStore.deleteEntry(alias))
+            return this
+        }
+
+        /**
+         * Applies the mutations and persists the key store.
+         */
+        fun commit(): Completable {
+            val committedMutations = mutations.toList()
+            if (committedMutations.isEmpty()) {
+                return Completable.complete()
+            }
+            return Completable.fromAction {
+                synchronized(keyStoreLock) {
+                    Completable.concat(committedMutations).blockingAwait()
+                }
+                keyStoreMetrics.keyStoreMutations.addAndGet(committedMutations.size.toLong())
+            }.andThen(persistKeyStoreToFile())
+        }
+    }
+
     /*
         Daily public key
     */
@@ -755,12 +936,26 @@ class CryptoManager constructor(
         return Completable.defer {
             androidKeyStore.deleteAllEntries()
                 .andThen(bouncyCastleKeyStore.deleteAllEntries())
+                .doOnComplete { clearUnwrappedSecrets() }
+        }
+    }
+
+    class Metrics {
+
+        val keyStoreMutations = AtomicLong()
+
+        val keyStoreWrites = AtomicLong()
+
+        override fun toString(): String {
+            return "Metrics(keyStoreMutations=%d, keyStoreWrites=%d)".format(keyStoreMutations.get(), keyStoreWrites.get())
         }
     }
 
     companion object {
 
         private const val KEYSTORE_FILE_NAME = "keys.ks"
+        private const val TEMPORARY_FILE_SUFFIX = ".tmp"
+        private val MAXIMUM_SECRET_RESIDENCY_DURATION = TimeUnit.MINUTES.toMillis(15)
         private const val DAILY_PUBLIC_KEY_DATA_KEY = "daily_public_key_data"
         private const val DAILY_PUBLIC_KEY_ISSUER_DATA_KEY = "daily_public_key_issuer_data"
         private const val DATA_SECRET_KEY = "user_data_secret_2"
@@ -0,0 +1,103 @@
+package de.culture4life.luca.crypto
+
+import de.culture4life.luca.util.TimeUtil
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Keeps unwrapped [WrappedSecret]s in memory, so that they don't need to be decrypted using the
+ * AndroidKeyStore-backed wrapping key each time they are accessed.
+ *
+ * - Secrets are evicted after [maximumResidencyDuration] or when [clear] is called, e.g. because
+ *   the UI became invisible. Expired secrets are evicted when being accessed or when
+ *   [evictExpired] is called.
+ * - Evicted secrets are overwritten with zeros. As callers may keep references to the secrets they
+ *   got, secrets are copied when being put or returned.
+ */
+class SecretVault(private val maximumResidencyDuration: Long) {
+
+    private val entries = HashMap<String, Entry>()
+
+    val metrics = Metrics()
+
+    /**
+     * @return a copy of the secret with the specified alias, `null` if not available or expired
+     */
+    @Synchronized
+    fun get(alias: String): ByteArray? {
+        val entry = entries[alias]
+        if (entry != null && entry.isExpired()) {
+            evict(alias)
+        } else if (entry != null) {
+            metrics.hits.incrementAndGet()
+            return entry.secret.copyOf()
+        }
+        metrics.misses.incrementAndGet()
+        return null
+    }
+
+    @Synchronized
+    fun put(alias: String, secret: ByteArray) {
+        entries.put(alias, Entry(secret.copyOf(), TimeUtil.getCurrentMillis()))?.zero()
+    }
+
+    @Synchronized
+    fun remove(alias: String) {
+        evict(alias)
+    }
+
+    @Synchronized
+    fun clear() {
+        entries.keys.toList().forEach(::evict)
+    }
+
+    /**
+     * Evicts all expired secrets.
+     *
+     * @return the duration until the next remaining secret expires, `null` if no secrets remain
+     */
+    @Synchronized
+    fun evictExpired(): Long? {
+        entries.filterValues { it.isExpired() }.keys.forEach(::evict)
+        return entries.values.minOfOrNull { it.getRemainingResidencyDuration() }
+    }
+
+    @Synchronized
+    fun size(): Int {
+        return entries.size
+    }
+
+    private fun evict(alias: String) {
+        entries.remove(alias)?.let {
+            it.zero()
+            metrics.evictions.incrementAndGet()
+        }
+    }
+
+    private inner class Entry(val secret: ByteArray, val timestamp: Long) {
+
+        fun isExpired(): Boolean {
+            return getRemainingResidencyDuration() <= 0
+        }
+
+        fun getRemainingResidencyDuration(): Long {
+            return timestamp + maximumResidencyDuration - TimeUtil.getCurrentMillis()
+        }
+
+        fun zero() {
+            secret.fill(0)
+        }
+    }
+
+    class Metrics {
+
+        val hits = AtomicLong()
+
+        val misses = AtomicLong()
+
+        val evictions = AtomicLong()
+
+        override fun toString(): String {
+            return "Metrics(hits=%d, misses=%d, evictions=%d)".format(hits.get(), misses.get(), evictions.get())
+        }
+    }
+}
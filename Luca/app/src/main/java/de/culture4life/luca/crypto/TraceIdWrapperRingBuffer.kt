@@ -0,0 +1,155 @@
+package de.culture4life.luca.crypto
+
+import java.nio.ByteBuffer
+
+/**
+ * Bounded collection of [TraceIdWrapper]s ordered by timestamp.
+ *
+ * Appending a wrapper that is not older than the newest one is O(1). If the buffer is full, the
+ * oldest wrapper is evicted. Range queries by timestamp use a binary search.
+ */
+class TraceIdWrapperRingBuffer(val capacity: Int) {
+
+    private val timestamps = LongArray(capacity)
+    private val traceIds = arrayOfNulls<ByteArray>(capacity)
+    private var head = 0
+
+    var size = 0
+        private set
+
+    init {
+        require(capacity > 0) { "Capacity must be positive" }
+    }
+
+    val newest: TraceIdWrapper?
+        get() = if (size == 0) null else get(size - 1)
+
+    val oldest: TraceIdWrapper?
+        get() = if (size == 0) null else get(0)
+
+    fun isEmpty(): Boolean = size == 0
+
+    /**
+     * Adds the wrapper, keeping the buffer ordered by timestamp.
+     *
+     * @return the wrapper that has been evicted because the buffer was full, if any
+     */
+    fun add(traceIdWrapper: TraceIdWrapper): TraceIdWrapper? {
+        val newest = newest
+        if (newest != null && traceIdWrapper.timestamp < newest.timestamp) {
+            return insertOutOfOrder(traceIdWrapper)
+        }
+        var evicted: TraceIdWrapper? = null
+        if (size == capacity) {
+            evicted = removeOldest()
+        }
+        val index = physicalIndex(size)
+        timestamps[index] = traceIdWrapper.timestamp
+        traceIds[index] = traceIdWrapper.traceId
+        size++
+        return evicted
+    }
+
+    /**
+     * Removes all wrappers with a timestamp before the given one.
+     *
+     * @return the removed wrappers, oldest first
+     */
+    fun removeOlderThan(timestamp: Long): List<TraceIdWrapper> {
+        val count = lowerBound(timestamp)
+        return List(count) { removeOldest() }
+    }
+
+    /**
+     * @return wrappers with a timestamp within the given bounds (both inclusive), oldest first
+     */
+    fun getRange(minimumTimestamp: Long, maximumTimestamp: Long): List<TraceIdWrapper> {
+        val fromIndex = lowerBound(minimumTimestamp)
+        val toIndex = if (maximumTimestamp == Long.MAX_VALUE) size else lowerBound(maximumTimestamp + 1)
+        return if (fromIndex >= toIndex) emptyList() else List(toIndex - fromIndex) { get(fromIndex + it) }
+    }
+
+    fun toList(): List<TraceIdWrapper> = List(size) { get(it) }
+
+    fun clear() {
+        traceIds.fill(null)
+        head = 0
+        size = 0
+    }
+
+    private fun get(index: Int): TraceIdWrapper {
+        val physicalIndex = physicalIndex(index)
+        return TraceIdWrapper(timestamps[physicalIndex], traceIds[physicalIndex])
+    }
+
+    private fun removeOldest(): TraceIdWrapper {
+        val oldest = get(0)
+        traceIds[head] = null
+        head = (head + 1) % capacity
+        size--
+        return oldest
+    }
+
+    /**
+     * Only required if the device clock has been changed, so rebuilding the buffer is fine.
+     */
+    private fun insertOutOfOrder(traceIdWrapper: TraceIdWrapper): TraceIdWrapper? {
+        val traceIdWrappers = toList().toMutableList()
+        traceIdWrappers.add(lowerBound(traceIdWrapper.timestamp + 1), traceIdWrapper)
+        clear()
+        val evicted = if (traceIdWrappers.size > capacity) traceIdWrappers.removeAt(0) else null
+        traceIdWrappers.forEach { add(it) }
+        return evicted
+    }
+
+    /**
+     * @return the index of the first wrapper with a timestamp not before the given one
+     */
+    private fun lowerBound(timestamp: Long): Int {
+        var low = 0
+        var high = size
+        while (low < high) {
+            val middle = (low + high) ushr 1
+            if (timestamps[physicalIndex(middle)] < timestamp) {
+                low = middle + 1
+            } else {
+                high = middle
+            }
+        }
+        return low
+    }
+
+    private fun physicalIndex(index: Int): Int = (head + index) % capacity
+
+    companion object {
+
+        const val TRACE_ID_LENGTH = HashProvider.TRIMMED_HASH_LENGTH
+        const val ENCODED_WRAPPER_LENGTH = Long.SIZE_BYTES + TRACE_ID_LENGTH
+
+        /**
+         * Encodes the wrappers as consecutive timestamps (8 bytes) and trace IDs (16 bytes).
+         */
+        @JvmStatic
+        fun encode(traceIdWrappers: List<TraceIdWrapper>): ByteArray {
+            val buffer = ByteBuffer.allocate(traceIdWrappers.size * ENCODED_WRAPPER_LENGTH)
+            for (traceIdWrapper in traceIdWrappers) {
+                require(traceIdWrapper.traceId.size == TRACE_ID_LENGTH) { "Invalid trace ID length: ${traceIdWrapper.traceId.size}" }
+                buffer.putLong(traceIdWrapper.timestamp)
+                buffer.put(traceIdWrapper.traceId)
+            }
+            return buffer.array()
+        }
+
+        @JvmStatic
+        fun decode(encodedTraceIdWrappers: ByteArray): List<TraceIdWrapper> {
+            require(encodedTraceIdWrappers.size % ENCODED_WRAPPER_LENGTH == 0) { "Invalid encoded length: ${encodedTraceIdWrappers.size}" }
+            val buffer = ByteBuffer.wrap(encodedTraceIdWrappers)
+            return List(encodedTraceIdWrappers.size / ENCODED_WRAPPER_LENGTH) {
+                val timestamp = buffer.long
+                val traceId = ByteArray(TRACE_ID_LENGTH)
+                buffer.get(traceId)
+                TraceIdWrapper(timestamp, traceId)
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package de.culture4life.luca.crypto
+
+import de.culture4life.luca.preference.PreferencesManager
+import de.culture4life.luca.util.TimeUtil
+import de.culture4life.luca.util.decodeFromBase64
+import de.culture4life.luca.util.encodeToBase64
+import de.culture4life.luca.util.toUnixTimestamp
+import io.reactivex.rxjava3.core.Completable
+import io.reactivex.rxjava3.core.Observable
+import io.reactivex.rxjava3.core.Single
+import timber.log.Timber
+import java.util.concurrent.TimeUnit
+
+/**
+ * Keeps the [TraceIdWrapper]s of the last [maximumAge] seconds in a [TraceIdWrapperRingBuffer].
+ *
+ * Wrappers are persisted in hourly segments using the compact [TraceIdWrapperRingBuffer.encode]
+ * encoding. Adding a wrapper only rewrites the segment of its hour and the segments are reused in
+ * a round-robin fashion, so that expired wrappers are overwritten instead of being deleted.
+ * Expired and evicted wrappers are kept until [getEvictedTraceIdWrappers] is called, so that their
+ * associated data can be deleted.
+ *
+ * Wrappers that have been persisted by previous versions under the plain [key] are migrated into
+ * segments when restored.
+ */
+class TraceIdWrapperStore(
+    private val preferencesManager: PreferencesManager,
+    private val key: String,
+    private val maximumAge: Long
+) {
+
+    private val segmentCount = (maximumAge / SEGMENT_DURATION + 1).toInt()
+    private val ringBuffer = TraceIdWrapperRingBuffer(segmentCount * SEGMENT_CAPACITY)
+    private val evictedTraceIdWrappers = ArrayList<TraceIdWrapper>()
+    private var restoration: Completable? = null
+
+    /**
+     * Adds the wrapper and persists the segment of its hour. Wrappers equal to the newest one, e.g.
+     * because the trace ID has been regenerated within the same minute, are ignored.
+     */
+    fun add(traceIdWrapper: TraceIdWrapper): Completable {
+        return restore()
+            .andThen(Completable.defer {
+                synchronized(ringBuffer) {
+                    evictExpiredTraceIdWrappers()
+                    val newest = ringBuffer.newest
+                    if (newest != null && newest.timestamp == traceIdWrapper.timestamp && newest.traceId.contentEquals(traceIdWrapper.traceId)) {
+                        Completable.complete()
+                    } else {
+                        addToRingBuffer(traceIdWrapper)
+                        persistSegment(getSegmentId(traceIdWrapper.timestamp))
+                    }
+                }
+            })
+            .doOnError { clearCachedData() }
+    }
+
+    /**
+     * Emits the wrappers of the last [maximumAge] seconds, oldest first.
+     */
+    fun getTraceIdWrappers(): Observable<TraceIdWrapper> {
+        return getTraceIdWrappers(Long.MIN_VALUE, Long.MAX_VALUE)
+    }
+
+    /**
+     * Emits the wrappers with a timestamp within the given bounds (both inclusive), oldest first.
+     */
+    fun getTraceIdWrappers(minimumTimestamp: Long, maximumTimestamp: Long): Observable<TraceIdWrapper> {
+        return restore()
+            .andThen(Single.fromCallable {
+                synchronized(ringBuffer) {
+                    evictExpiredTraceIdWrappers()
+                    ringBuffer.getRange(minimumTimestamp, maximumTimestamp)
+                }
+            })
+            .flatMapObservable { Observable.fromIterable(it) }
+    }
+
+    /**
+     * Emits and forgets the wrappers that have been removed because they expired or exceeded the
+     * capacity.
+     */
+    fun getEvictedTraceIdWrappers(): Single<List<TraceIdWrapper>> {
+        return restore()
+            .andThen(Single.fromCallable {
+                synchronized(ringBuffer) {
+                    evictExpiredTraceIdWrappers()
+                    val traceIdWrappers: List<TraceIdWrapper> = ArrayList(evictedTraceIdWrappers)
+                    evictedTraceIdWrappers.clear()
+                    traceIdWrappers
+                }
+            })
+    }
+
+    fun deleteAll(): Completable {
+        return Completable.defer {
+            synchronized(ringBuffer) {
+                ringBuffer.clear()
+                evictedTraceIdWrappers.clear()
+            }
+            restoration = Completable.complete()
+            Observable.range(0, segmentCount)
+                .concatMapCompletable { preferencesManager.delete(getSegmentKey(it)) }
+                .andThen(preferencesManager.delete(key))
+        }
+    }
+
+    fun clearCachedData() {
+        restoration = null
+    }
+
+    private fun restore(): Completable {
+        return Completable.defer {
+            if (restoration == null) {
+                restoration = restoreRingBuffer().cache()
+            }
+            restoration!!
+        }
+    }
+
+    private fun restoreRingBuffer(): Completable {
+        return Observable.range(0, segmentCount)
+            .concatMapMaybe { preferencesManager.restoreIfAvailable(getSegmentKey(it), String::class.java) }
+            .flatMapIterable { TraceIdWrapperRingBuffer.decode(it.decodeFromBase64()) }
+            .toSortedList { first, second -> first.timestamp.compareTo(second.timestamp) }
+            .flatMapCompletable { traceIdWrappers ->
+                synchronized(ringBuffer) {
+                    ringBuffer.clear()
+                    traceIdWrappers.forEach(::addToRingBuffer)
+                }
+                migrateLegacyTraceIdWrappers()
+            }
+    }
+
+    /**
+     * Moves wrappers that have been persisted as one [TraceIdWrapperList] under the plain [key]
+     * into the segments.
+     */
+    private fun migrateLegacyTraceIdWrappers(): Completable {
+        return preferencesManager.restoreIfAvailable(key, TraceIdWrapperList::class.java)
+            .flatMapCompletable { legacyTraceIdWrappers ->
+                val modifiedSegmentIds = synchronized(ringBuffer) {
+                    legacyTraceIdWrappers.forEach(::addToRingBuffer)
+                    evictExpiredTraceIdWrappers()
+                    ringBuffer.toList().mapTo(HashSet()) { getSegmentId(it.timestamp) }
+                }
+                Completable.concat(modifiedSegmentIds.map(::persistSegment))
+                    .andThen(preferencesManager.delete(key))
+                    .doOnComplete { Timber.d("Migrated %d trace ID wrappers into segments", legacyTraceIdWrappers.size) }
+            }
+    }
+
+    private fun addToRingBuffer(traceIdWrapper: TraceIdWrapper) {
+        ringBuffer.add(traceIdWrapper)?.let { evictedTraceIdWrappers.add(it) }
+    }
+
+    private fun evictExpiredTraceIdWrappers() {
+        val minimumTimestamp = TimeUtil.getCurrentMillis().toUnixTimestamp() - maximumAge
+        evictedTraceIdWrappers.addAll(ringBuffer.removeOlderThan(minimumTimestamp))
+    }
+
+    /**
+     * Creates a [Completable] persisting the wrappers of the segment. The data is captured eagerly,
+     * so that later modifications are not persisted.
+     */
+    private fun persistSegment(segmentId: Long): Completable {
+        val segmentStartTimestamp = segmentId * SEGMENT_DURATION
+        val traceIdWrappers = synchronized(ringBuffer) {
+            ringBuffer.getRange(segmentStartTimestamp, segmentStartTimestamp + SEGMENT_DURATION - 1)
+        }
+        val encodedTraceIdWrappers = TraceIdWrapperRingBuffer.encode(traceIdWrappers).encodeToBase64()
+        return preferencesManager.persist(getSegmentKey(segmentId.mod(segmentCount)), encodedTraceIdWrappers)
+    }
+
+    private fun getSegmentKey(segmentIndex: Int): String {
+        return key + SEGMENT_KEY_SUFFIX + segmentIndex
+    }
+
+    companion object {
+
+        /**
+         * Duration of a segment in seconds.
+         */
+        private val SEGMENT_DURATION = TimeUnit.HOURS.toSeconds(1)
+
+        /**
+         * Trace IDs are generated at most once per minute.
+         */
+        private val SEGMENT_CAPACITY = TimeUnit.HOURS.toMinutes(1).toInt()
+
+        private const val SEGMENT_KEY_SUFFIX = "_segment_"
+
+        private fun getSegmentId(timestamp: Long): Long {
+            return timestamp.floorDiv(SEGMENT_DURATION)
+        }
+    }
+}
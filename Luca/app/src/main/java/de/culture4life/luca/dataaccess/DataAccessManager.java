@@ -13,8 +13,11 @@ import androidx.work.PeriodicWorkRequest;
 import androidx.work.WorkManager;
 import androidx.work.WorkRequest;
 
-import java.net.HttpURLConnection;
+import java.io.File;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
@@ -43,7 +46,6 @@ import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.Single;
 import io.reactivex.rxjava3.schedulers.Schedulers;
 import io.reactivex.rxjava3.subjects.BehaviorSubject;
-import okhttp3.ResponseBody;
 import timber.log.Timber;
 
 /**
@@ -64,6 +66,8 @@ public class DataAccessManager extends Manager {
     public static final String LAST_INFO_SHOWN_TIMESTAMP_KEY = "last_accessed_data_info_shown_timestamp";
     public static final String LAST_PREVIOUS_CHUNK_ID_KEY = "last_previous_chunk_id";
     public static final String KEY_ARCHIVED_ACCESSED_TRACE_DATA = "accessed_data";
+    public static final String KEY_HASHED_TRACE_ID_INDEX = "hashed_trace_id_index";
+    private static final String CHUNK_CACHE_DIRECTORY_NAME = "notification_chunks";
 
     private final PreferencesManager preferencesManager;
     private final NetworkManager networkManager;
@@ -76,6 +80,9 @@ public class DataAccessManager extends Manager {
 
     private final Archiver<AccessedTraceData> archiver;
 
+    private NotificationDataChunkCache chunkCache;
+    private NotificationDataChunkFetcher chunkFetcher;
+
     private final BehaviorSubject<Boolean> hasNewNotifications = BehaviorSubject.create();
 
     @Nullable
@@ -103,6 +110,8 @@ public class DataAccessManager extends Manager {
             if (!LucaApplication.isRunningUnitTests()) {
                 this.workManager = WorkManager.getInstance(context);
             }
+            chunkCache = new NotificationDataChunkCache(new File(context.getCacheDir(), CHUNK_CACHE_DIRECTORY_NAME));
+            chunkFetcher = new NotificationDataChunkFetcher(networkManager.getLucaEndpointsV4(), chunkCache);
         })).andThen(invokeStartUpdatingInRegularIntervals())
                 .andThen(Completable.fromAction(this::publishHasNewNotification));
     }
@@ -158,11 +167,19 @@ public class DataAccessManager extends Manager {
                 .flatMapCompletable(isEmpty -> isEmpty ? Completable.complete() : update());
     }
 
+    /**
+     * Fetches and processes new accessed trace data. The fetched chunks are only marked as processed
+     * after the accessed data has been persisted, so that an interrupted update will fetch them again.
+     */
     public Completable update() {
-        return fetchNewRecentlyAccessedTraceData()
-                .doOnNext(traceData -> traceData.setIsNew(true))
-                .toList()
-                .flatMapCompletable(this::processNewRecentlyAccessedTraceData)
+        return Completable.defer(() -> {
+                    Observable<NotificationDataChunk> chunks = fetchUnprocessedChunks().cache();
+                    return fetchNewRecentlyAccessedTraceData(chunks)
+                            .doOnNext(traceData -> traceData.setIsNew(true))
+                            .toList()
+                            .flatMapCompletable(this::processNewRecentlyAccessedTraceData)
+                            .andThen(markChunksAsProcessed(chunks));
+                })
                 .andThen(preferencesManager.persist(LAST_UPDATE_TIMESTAMP_KEY, TimeUtil.getCurrentMillis()))
                 .doOnSubscribe(disposable -> Timber.d("Updating accessed data"))
                 .doOnComplete(() -> Timber.d("Accessed data update complete"))
@@ -223,74 +240,29 @@ public class DataAccessManager extends Manager {
         Chunks
      */
 
-    /**
-     * Fetches the most recent chunk of trace ID hashes, which should always be requested when updating the accessed data.
-     */
-    private Single<NotificationDataChunk> fetchCurrentChunk() {
-        return networkManager.getLucaEndpointsV4()
-                .flatMap(LucaEndpointsV4::getNotifications)
-                .map(ResponseBody::bytes)
-                .map(NotificationDataChunk.Factory::from)
-                .doOnSuccess(chunk -> Timber.d("Fetched current chunk: %s", chunk));
-    }
-
-    /**
-     * Attempts to fetch the chunk that is references as predecessor of the specified chunk.
-     * <p>
-     * Note that this chunk may already be deleted on the backend if it was older than two weeks,
-     * in which case no error is emitted here.
-     */
-    private Maybe<NotificationDataChunk> fetchPreviousChunk(@NonNull NotificationDataChunk currentChunk) {
-        return networkManager.getLucaEndpointsV4()
-                .flatMap(lucaEndpointsV4 -> lucaEndpointsV4.getNotifications(currentChunk.getPreviousChunkId()))
-                .map(ResponseBody::bytes)
-                .map(NotificationDataChunk.Factory::from)
-                .doOnSuccess(chunk -> Timber.d("Fetched old chunk: %s", chunk))
-                .toMaybe()
-                .onErrorResumeNext(throwable -> {
-                    if (NetworkManager.isHttpException(throwable, HttpURLConnection.HTTP_NOT_FOUND)) {
-                        return Maybe.empty(); // old chunks may be deleted after 14 days
-                    } else {
-                        return Maybe.error(throwable);
-                    }
-                })
-                .doOnError(throwable -> Timber.w("Unable to fetch old chunk: %s", throwable.toString()));
-    }
-
-    private Maybe<NotificationDataChunk> fetchPreviousUnprocessedChunk(@NonNull NotificationDataChunk currentChunk) {
-        return shouldFetchPreviousChunk(currentChunk)
-                .flatMapMaybe(fetchPreviousChunk -> fetchPreviousChunk ? fetchPreviousChunk(currentChunk) : Maybe.empty());
-    }
-
-    private Observable<NotificationDataChunk> fetchPreviousUnprocessedChunks(@NonNull NotificationDataChunk currentChunk) {
-        return fetchPreviousUnprocessedChunk(currentChunk)
-                .flatMapObservable(previousChunk -> Observable.just(previousChunk)
-                        .mergeWith(fetchPreviousUnprocessedChunk(previousChunk)));
-    }
-
     /**
      * Fetches the current chunk and all it's predecessors that have not been processed before.
      */
     protected Observable<NotificationDataChunk> fetchUnprocessedChunks() {
-        return fetchCurrentChunk()
-                .flatMapObservable(chunk -> Observable.just(chunk)
-                        .mergeWith(fetchPreviousUnprocessedChunks(chunk)))
+        return chunkFetcher.fetchChunks(this::shouldFetchPreviousChunk)
                 .doOnSubscribe(disposable -> Timber.d("Fetching unprocessed chunks"))
+                .doOnComplete(() -> Timber.d("Fetched unprocessed chunks: %s", chunkFetcher.getMetrics()))
                 .doOnError(throwable -> Timber.w("Unable to fetch unprocessed chunks: %s", throwable.toString()));
     }
 
-    private Single<Boolean> shouldFetchPreviousChunk(@NonNull NotificationDataChunk chunk) {
+    private Single<Boolean> shouldFetchPreviousChunk(@NonNull String previousChunkId) {
         return preferencesManager.restoreIfAvailable(LAST_PREVIOUS_CHUNK_ID_KEY, String.class)
-                .map(lastProcessedChunkId -> !chunk.getPreviousChunkId().equals(lastProcessedChunkId))
+                .map(lastProcessedChunkId -> !previousChunkId.equals(lastProcessedChunkId))
                 .defaultIfEmpty(true)
-                .doOnSuccess(shouldFetchPreviousChunk -> Timber.d("Should fetch chunk %s: %b", chunk.getPreviousChunkId(), shouldFetchPreviousChunk));
+                .doOnSuccess(shouldFetchPreviousChunk -> Timber.d("Should fetch chunk %s: %b", previousChunkId, shouldFetchPreviousChunk));
     }
 
     private Completable markChunksAsProcessed(Observable<NotificationDataChunk> chunks) {
         return chunks.sorted((first, second) -> Long.compare(second.getCreationTimestamp(), first.getCreationTimestamp()))
                 .firstElement()
                 .doOnSuccess(chunk -> Timber.d("Marking chunk as last processed: %s", chunk.getPreviousChunkId()))
-                .flatMapCompletable(chunk -> preferencesManager.persist(LAST_PREVIOUS_CHUNK_ID_KEY, chunk.getPreviousChunkId()));
+                .flatMapCompletable(chunk -> preferencesManager.persist(LAST_PREVIOUS_CHUNK_ID_KEY, chunk.getPreviousChunkId()))
+                .andThen(chunkCache.deleteAll());
     }
 
     /*
@@ -301,33 +273,47 @@ public class DataAccessManager extends Manager {
      * Emits trace data that is related to the user and is part of a {@link NotificationDataChunk} that has not been processed yet.
      */
     public Observable<AccessedTraceData> fetchRecentlyAccessedTraceData() {
+        return Observable.defer(() -> fetchRecentlyAccessedTraceData(fetchUnprocessedChunks().cache()));
+    }
+
+    /**
+     * Emits trace data that is related to the user and is part of the specified chunks.
+     */
+    protected Observable<AccessedTraceData> fetchRecentlyAccessedTraceData(Observable<NotificationDataChunk> chunks) {
         Observable<NotifyingHealthDepartment> healthDepartments = fetchHealthDepartments().cache();
-        Observable<Integer> warningLevels = Observable.range(1, AccessedTraceData.NUMBER_OF_WARNING_LEVELS).cache();
         Observable<String> traceIds = getRecentTraceIds().cache();
-        Observable<NotificationDataChunk> chunks = fetchUnprocessedChunks().cache();
-
-        return markChunksAsProcessed(chunks)
-                .andThen(getAccessedTraceData(healthDepartments, warningLevels, traceIds, chunks));
+        return getAccessedTraceData(healthDepartments, traceIds, chunks);
     }
 
-    private Observable<AccessedTraceData> getAccessedTraceData(Observable<NotifyingHealthDepartment> healthDepartments, Observable<Integer> warningLevels, Observable<String> traceIds, Observable<NotificationDataChunk> chunks) {
-        return chunks.flatMap(
-                chunk -> healthDepartments.flatMap(
-                        healthDepartment -> warningLevels.flatMap(
-                                warningLevel -> traceIds.flatMapMaybe(
-                                        traceId -> getAccessedTraceData(healthDepartment, warningLevel, traceId, chunk)))));
+    private Observable<AccessedTraceData> getAccessedTraceData(Observable<NotifyingHealthDepartment> healthDepartments, Observable<String> traceIds, Observable<NotificationDataChunk> chunks) {
+        return chunks.isEmpty()
+                .flatMapObservable(noChunks -> {
+                    if (noChunks) {
+                        return Observable.empty();
+                    }
+                    return Single.zip(
+                            getUpdatedHashedTraceIdIndex(healthDepartments, traceIds),
+                            healthDepartments.toMap(NotifyingHealthDepartment::getId),
+                            (index, healthDepartmentsById) -> chunks.flatMap(chunk -> getAccessedTraceData(index, healthDepartmentsById, chunk))
+                    ).flatMapObservable(accessedTraceData -> accessedTraceData);
+                });
     }
 
-    private Maybe<AccessedTraceData> getAccessedTraceData(NotifyingHealthDepartment healthDepartment, int warningLevel, String traceId, NotificationDataChunk chunk) {
-        return getHashedTraceId(healthDepartment.getId(), warningLevel, traceId, chunk.getHashLength())
-                .filter(hashedTraceId -> chunk.getHashedTraceIds().contains(hashedTraceId))
-                .map(hashedTraceId -> {
+    /**
+     * Looks up the hashed trace IDs of the index in the specified chunk, which takes logarithmic time
+     * in the size of the chunk.
+     */
+    private Observable<AccessedTraceData> getAccessedTraceData(HashedTraceIdIndex index, Map<String, NotifyingHealthDepartment> healthDepartmentsById, NotificationDataChunk chunk) {
+        return Observable.defer(() -> Observable.fromIterable(index.findEntries(chunk.getHashedTraceIds())))
+                .filter(match -> healthDepartmentsById.containsKey(match.getEntry().getHealthDepartmentId()))
+                .map(match -> {
+                    HashedTraceIdIndex.Entry entry = match.getEntry();
                     AccessedTraceData data = new AccessedTraceData();
-                    data.setTraceId(traceId);
-                    data.setHashedTraceId(hashedTraceId);
+                    data.setTraceId(entry.getTraceId());
+                    data.setHashedTraceId(match.getHashedTraceId());
                     data.setAccessTimestamp(chunk.getCreationTimestamp());
-                    data.setHealthDepartment(healthDepartment);
-                    data.setWarningLevel(warningLevel);
+                    data.setHealthDepartment(healthDepartmentsById.get(entry.getHealthDepartmentId()));
+                    data.setWarningLevel(entry.getWarningLevel());
                     data.setLocationName(getLocationName(data).blockingGet());
                     Pair<Long, Long> checkInAndOutTimestamps = getCheckInAndOutTimestamps(data).blockingGet();
                     data.setCheckInTimestamp(checkInAndOutTimestamps.first);
@@ -342,11 +328,18 @@ public class DataAccessManager extends Manager {
      * {@link #getPreviouslyAccessedTraceData()}.
      */
     public Observable<AccessedTraceData> fetchNewRecentlyAccessedTraceData() {
+        return Observable.defer(() -> fetchNewRecentlyAccessedTraceData(fetchUnprocessedChunks().cache()));
+    }
+
+    /**
+     * Emits trace data that is part of the specified chunks and has not been accessed before.
+     */
+    protected Observable<AccessedTraceData> fetchNewRecentlyAccessedTraceData(Observable<NotificationDataChunk> chunks) {
         return getPreviouslyAccessedTraceData()
                 .map(AccessedTraceData::getHashedTraceId)
                 .toList()
                 .doOnSuccess(previouslyAccessedHashTraceIds -> Timber.d("Previously accessed hashed trace IDs: %s", previouslyAccessedHashTraceIds))
-                .flatMapObservable(previouslyAccessedHashTraceIds -> fetchRecentlyAccessedTraceData()
+                .flatMapObservable(previouslyAccessedHashTraceIds -> fetchRecentlyAccessedTraceData(chunks)
                         .filter(accessedTraceData -> !previouslyAccessedHashTraceIds.contains(accessedTraceData.getHashedTraceId())));
     }
 
@@ -456,6 +449,12 @@ public class DataAccessManager extends Manager {
      * Hashes the specified base64 encoded trace ID and encodes the result back to base64.
      */
     public Single<String> getHashedTraceId(@NonNull String healthDepartmentId, int warningLevel, @NonNull String traceId, int hashLength) {
+        return calculateHashedTraceId(healthDepartmentId, warningLevel, traceId)
+                .flatMap(hmac -> CryptoManager.trim(hmac, hashLength))
+                .flatMap(SerializationUtil::toBase64);
+    }
+
+    private Single<byte[]> calculateHashedTraceId(@NonNull String healthDepartmentId, int warningLevel, @NonNull String traceId) {
         Single<byte[]> getMessage = Single.just(UUID.fromString(healthDepartmentId))
                 .flatMap(CryptoManager::encode)
                 .flatMap(bytes -> CryptoManager.concatenate(bytes, new byte[]{(byte) warningLevel}));
@@ -466,9 +465,51 @@ public class DataAccessManager extends Manager {
 
         return cryptoManager.initialize(context)
                 .andThen(Single.zip(getMessage, getKey, cryptoManager::hmac))
-                .flatMap(hmac -> hmac)
-                .flatMap(hmac -> CryptoManager.trim(hmac, hashLength))
-                .flatMap(SerializationUtil::toBase64);
+                .flatMap(hmac -> hmac);
+    }
+
+    /*
+        Hashed Trace ID Index
+     */
+
+    /**
+     * Emits the index of hashed trace IDs for the specified health departments and trace IDs. Hashes
+     * are only calculated for trace IDs that have not been indexed for a health department before,
+     * entries of trace IDs or health departments that are no longer present get removed.
+     */
+    protected Single<HashedTraceIdIndex> getUpdatedHashedTraceIdIndex(Observable<NotifyingHealthDepartment> healthDepartments, Observable<String> traceIds) {
+        Single<Set<String>> getHealthDepartmentIds = healthDepartments.map(NotifyingHealthDepartment::getId)
+                .collect(HashSet::new, Set::add);
+
+        Single<Set<String>> getTraceIds = traceIds.collect(HashSet::new, Set::add);
+
+        return Single.zip(restoreHashedTraceIdIndex(), getHealthDepartmentIds, getTraceIds, (index, healthDepartmentIds, traceIdSet) -> {
+            HashedTraceIdIndex retainedIndex = index.retain(traceIdSet, healthDepartmentIds);
+            return Observable.fromIterable(retainedIndex.getMissingTraceIds(traceIdSet, healthDepartmentIds).entrySet())
+                    .flatMap(missingTraceIds -> Observable.fromIterable(missingTraceIds.getValue())
+                            .flatMap(traceId -> createHashedTraceIdIndexEntries(missingTraceIds.getKey(), traceId)))
+                    .toList()
+                    .flatMap(newEntries -> {
+                        if (newEntries.isEmpty() && retainedIndex.getEntries().size() == index.getEntries().size()) {
+                            return Single.just(index);
+                        }
+                        HashedTraceIdIndex updatedIndex = retainedIndex.plus(newEntries);
+                        return preferencesManager.persist(KEY_HASHED_TRACE_ID_INDEX, updatedIndex)
+                                .doOnComplete(() -> Timber.d("Updated hashed trace ID index with %d new entries: %s", newEntries.size(), updatedIndex))
+                                .andThen(Single.just(updatedIndex));
+                    });
+        }).flatMap(updatedIndex -> updatedIndex);
+    }
+
+    private Observable<HashedTraceIdIndex.Entry> createHashedTraceIdIndexEntries(@NonNull String healthDepartmentId, @NonNull String traceId) {
+        return Observable.range(1, AccessedTraceData.NUMBER_OF_WARNING_LEVELS)
+                .flatMapSingle(warningLevel -> calculateHashedTraceId(healthDepartmentId, warningLevel, traceId)
+                        .flatMap(SerializationUtil::toBase64)
+                        .map(hash -> new HashedTraceIdIndex.Entry(traceId, healthDepartmentId, warningLevel, hash)));
+    }
+
+    private Single<HashedTraceIdIndex> restoreHashedTraceIdIndex() {
+        return preferencesManager.restoreOrDefault(KEY_HASHED_TRACE_ID_INDEX, new HashedTraceIdIndex());
     }
 
     /*
@@ -14,7 +14,9 @@ class DataAccessUpdateWorker(
 ) : RxWorker(appContext, workerParams) {
 
     override fun createWork(): Single<Result> {
-        return Companion.createWork(applicationContext as LucaApplication)
+        val application = applicationContext as LucaApplication
+        // write deferred preference changes, the process may be killed after the work finished
+        return Completable.concatArrayDelayError(Companion.createWork(application), application.preferencesManager.flush())
             .andThen(Single.just(Result.success()))
             .onErrorReturnItem(Result.failure())
             .subscribeOn(Schedulers.io())
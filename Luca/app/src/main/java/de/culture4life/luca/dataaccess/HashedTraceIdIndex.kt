@@ -0,0 +1,165 @@
+package de.culture4life.luca.dataaccess
+
+import com.google.gson.JsonDeserializationContext
+import com.google.gson.JsonDeserializer
+import com.google.gson.JsonElement
+import com.google.gson.JsonObject
+import com.google.gson.JsonParseException
+import com.google.gson.JsonSerializationContext
+import com.google.gson.JsonSerializer
+import de.culture4life.luca.crypto.trim
+import de.culture4life.luca.util.decodeFromBase64
+import de.culture4life.luca.util.encodeToBase64
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.lang.reflect.Type
+
+/**
+ * Maps hashed trace IDs to the trace ID, health department and warning level they have been
+ * calculated for. Hashes are stored untrimmed and get trimmed to the hash length of a
+ * [NotificationDataChunk] when looking them up, so that the same index can be used for all chunks.
+ *
+ * The index contains an entry per health department, trace ID and warning level, so it is persisted
+ * in the compact form of the [TypeAdapter].
+ */
+data class HashedTraceIdIndex(
+    val entries: List<Entry> = ArrayList()
+) {
+
+    data class Entry(
+        val traceId: String,
+        val healthDepartmentId: String,
+        val warningLevel: Int,
+        val hash: String
+    )
+
+    data class Match(
+        val hashedTraceId: String,
+        val entry: Entry
+    )
+
+    @Transient
+    private var trimmedHashes: MutableMap<Int, List<TrimmedHash>>? = null
+
+    /**
+     * Creates an index that only contains entries for the specified trace IDs and health departments.
+     */
+    fun retain(traceIds: Set<String>, healthDepartmentIds: Set<String>): HashedTraceIdIndex {
+        return HashedTraceIdIndex(entries.filter { traceIds.contains(it.traceId) && healthDepartmentIds.contains(it.healthDepartmentId) })
+    }
+
+    /**
+     * Returns the trace IDs that have no entries yet, grouped by the ID of the health department
+     * they are missing for.
+     */
+    fun getMissingTraceIds(traceIds: Set<String>, healthDepartmentIds: Set<String>): Map<String, List<String>> {
+        val indexedTraceIds = HashMap<String, MutableSet<String>>()
+        entries.forEach { indexedTraceIds.getOrPut(it.healthDepartmentId) { HashSet() }.add(it.traceId) }
+        val missingTraceIds = HashMap<String, List<String>>()
+        for (healthDepartmentId in healthDepartmentIds) {
+            val indexedHealthDepartmentTraceIds = indexedTraceIds[healthDepartmentId] ?: emptySet<String>()
+            val missingHealthDepartmentTraceIds = traceIds.filterNot { indexedHealthDepartmentTraceIds.contains(it) }
+            if (missingHealthDepartmentTraceIds.isNotEmpty()) {
+                missingTraceIds[healthDepartmentId] = missingHealthDepartmentTraceIds
+            }
+        }
+        return missingTraceIds
+    }
+
+    fun plus(additionalEntries: List<Entry>): HashedTraceIdIndex {
+        return HashedTraceIdIndex(entries + additionalEntries)
+    }
+
+    /**
+     * Looks up the entries of all specified hashed trace IDs. As the index is usually much smaller
+     * than the hashed trace IDs of a chunk, the trimmed hashes of the index are looked up in the
+     * hashed trace IDs instead of the other way around.
+     */
+    fun findEntries(hashedTraceIds: HashedTraceIds): List<Match> {
+        val matches = ArrayList<Match>()
+        for (trimmedHash in getTrimmedHashes(hashedTraceIds.hashLength)) {
+            if (trimmedHash.hash in hashedTraceIds) {
+                trimmedHash.entries.forEach { matches.add(Match(trimmedHash.encodedHash, it)) }
+            }
+        }
+        return matches
+    }
+
+    @Synchronized
+    private fun getTrimmedHashes(hashLength: Int): List<TrimmedHash> {
+        val cachedHashes = trimmedHashes ?: HashMap<Int, List<TrimmedHash>>().also { trimmedHashes = it }
+        return cachedHashes.getOrPut(hashLength) {
+            entries.groupBy { it.hash.decodeFromBase64().trim(hashLength).encodeToBase64() }
+                .map { (encodedHash, entries) -> TrimmedHash(encodedHash, encodedHash.decodeFromBase64(), entries) }
+        }
+    }
+
+    private class TrimmedHash(
+        val encodedHash: String,
+        val hash: ByteArray,
+        val entries: List<Entry>
+    )
+
+    override fun toString(): String {
+        return "HashedTraceIdIndex(entries=${entries.size})"
+    }
+
+    /**
+     * Stores each health department ID and trace ID once. Entries are stored as binary records that
+     * reference them by position and contain the decoded hash, instead of one JSON object each.
+     */
+    class TypeAdapter : JsonSerializer<HashedTraceIdIndex>, JsonDeserializer<HashedTraceIdIndex> {
+
+        override fun serialize(index: HashedTraceIdIndex, type: Type, context: JsonSerializationContext): JsonElement {
+            val healthDepartmentIds = LinkedHashMap<String, Int>()
+            val traceIds = LinkedHashMap<String, Int>()
+            val outputStream = ByteArrayOutputStream()
+            DataOutputStream(outputStream).use { output ->
+                for (entry in index.entries) {
+                    val hash = entry.hash.decodeFromBase64()
+                    output.writeShort(getPosition(healthDepartmentIds, entry.healthDepartmentId))
+                    output.writeShort(getPosition(traceIds, entry.traceId))
+                    output.writeByte(entry.warningLevel)
+                    output.writeByte(hash.size)
+                    output.write(hash)
+                }
+            }
+            return JsonObject().apply {
+                add("healthDepartmentIds", context.serialize(healthDepartmentIds.keys.toList()))
+                add("traceIds", context.serialize(traceIds.keys.toList()))
+                addProperty("entries", outputStream.toByteArray().encodeToBase64())
+            }
+        }
+
+        override fun deserialize(jsonElement: JsonElement, type: Type, context: JsonDeserializationContext): HashedTraceIdIndex {
+            val jsonObject = jsonElement.asJsonObject
+            val healthDepartmentIds = jsonObject.getAsJsonArray("healthDepartmentIds").map { it.asString }
+            val traceIds = jsonObject.getAsJsonArray("traceIds").map { it.asString }
+            val entries = ArrayList<Entry>()
+            DataInputStream(ByteArrayInputStream(jsonObject.get("entries").asString.decodeFromBase64())).use { input ->
+                while (input.available() > 0) {
+                    val healthDepartmentId = healthDepartmentIds[input.readUnsignedShort()]
+                    val traceId = traceIds[input.readUnsignedShort()]
+                    val warningLevel = input.readUnsignedByte()
+                    val hash = ByteArray(input.readUnsignedByte()).also { input.readFully(it) }
+                    entries.add(Entry(traceId, healthDepartmentId, warningLevel, hash.encodeToBase64()))
+                }
+            }
+            return HashedTraceIdIndex(entries)
+        }
+
+        private fun getPosition(positions: MutableMap<String, Int>, id: String): Int {
+            val position = positions.getOrPut(id) { positions.size }
+            if (position > MAXIMUM_POSITION) {
+                throw JsonParseException("Too many distinct IDs to serialize index")
+            }
+            return position
+        }
+
+        companion object {
+            private const val MAXIMUM_POSITION = 0xFFFF
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package de.culture4life.luca.dataaccess
+
+import de.culture4life.luca.util.decodeFromBase64
+import de.culture4life.luca.util.encodeToBase64
+import okio.BufferedSink
+import okio.BufferedSource
+
+/**
+ * Hashed trace IDs of a [NotificationDataChunk], stored sorted in one contiguous array instead of
+ * one object per hash. Chunks may contain hundreds of thousands of hashes, while only a few of them
+ * are looked up, so membership is tested using a binary search.
+ */
+class HashedTraceIds private constructor(
+    val hashLength: Int,
+    private val hashes: ByteArray
+) {
+
+    val size: Int
+        get() = hashes.size / hashLength
+
+    fun isEmpty(): Boolean = hashes.isEmpty()
+
+    operator fun contains(hash: ByteArray): Boolean {
+        return hash.size == hashLength && binarySearch(hash) >= 0
+    }
+
+    /**
+     * @param encodedHash Base64 encoded hash, as used by the [HashedTraceIdIndex]
+     */
+    operator fun contains(encodedHash: String): Boolean {
+        return contains(encodedHash.decodeFromBase64())
+    }
+
+    /**
+     * Base64 encodes all hashes. Only intended for small chunks, e.g. for debugging.
+     */
+    fun toEncodedList(): List<String> {
+        return List(size) { hashes.copyOfRange(it * hashLength, (it + 1) * hashLength).encodeToBase64() }
+    }
+
+    /**
+     * Writes the hashes in sorted order, as expected by [read].
+     */
+    fun writeTo(sink: BufferedSink) {
+        sink.write(hashes)
+    }
+
+    private fun binarySearch(hash: ByteArray): Int {
+        var low = 0
+        var high = size - 1
+        while (low <= high) {
+            val middle = (low + high) ushr 1
+            val comparison = compare(hashes, hashLength, middle, hash)
+            when {
+                comparison < 0 -> low = middle + 1
+                comparison > 0 -> high = middle - 1
+                else -> return middle
+            }
+        }
+        return -(low + 1)
+    }
+
+    override fun equals(other: Any?): Boolean {
+        return other is HashedTraceIds && hashLength == other.hashLength && hashes.contentEquals(other.hashes)
+    }
+
+    override fun hashCode(): Int {
+        return 31 * hashLength + hashes.contentHashCode()
+    }
+
+    override fun toString(): String {
+        return "HashedTraceIds(hashLength=$hashLength, size=$size)"
+    }
+
+    companion object {
+
+        private const val INSERTION_SORT_THRESHOLD = 16
+
+        /**
+         * Reads the hashes until the source is exhausted.
+         *
+         * @param expectedByteCount number of remaining bytes in the source if known, `-1` otherwise
+         */
+        @JvmStatic
+        fun read(source: BufferedSource, hashLength: Int, expectedByteCount: Long = -1): HashedTraceIds {
+            val hashes = if (expectedByteCount >= 0) {
+                require(expectedByteCount <= Int.MAX_VALUE) { "Invalid hashes length: $expectedByteCount" }
+                ByteArray(expectedByteCount.toInt()).also { source.readFully(it) }
+            } else {
+                source.readByteArray()
+            }
+            require(source.exhausted()) { "Unexpected data after hashes" }
+            return from(hashes, hashLength)
+        }
+
+        /**
+         * Uses the specified array as storage, sorting it in place.
+         */
+        @JvmStatic
+        fun from(hashes: ByteArray, hashLength: Int): HashedTraceIds {
+            require(hashLength > 0) { "Invalid hash length: $hashLength" }
+            require(hashes.size % hashLength == 0) { "Invalid hashes length: ${hashes.size}" }
+            sort(hashes, hashLength, 0, hashes.size / hashLength - 1)
+            return HashedTraceIds(hashLength, hashes)
+        }
+
+        /**
+         * @param encodedHashes Base64 encoded hashes of the specified length
+         */
+        @JvmStatic
+        fun fromEncoded(encodedHashes: List<String>, hashLength: Int): HashedTraceIds {
+            val hashes = ByteArray(encodedHashes.size * hashLength)
+            encodedHashes.forEachIndexed { index, encodedHash ->
+                val hash = encodedHash.decodeFromBase64()
+                require(hash.size == hashLength) { "Invalid hash length: ${hash.size}" }
+                hash.copyInto(hashes, index * hashLength)
+            }
+            return from(hashes, hashLength)
+        }
+
+        /**
+         * Quicksort on the fixed-length records of the array, recursing into the smaller partition
+         * only so that the stack depth stays logarithmic.
+         */
+        private fun sort(hashes: ByteArray, hashLength: Int, fromIndex: Int, toIndex: Int) {
+            var low = fromIndex
+            var high = toIndex
+            val pivot = ByteArray(hashLength)
+            while (high - low >= INSERTION_SORT_THRESHOLD) {
+                val middle = (low + high) ushr 1
+                hashes.copyInto(pivot, 0, middle * hashLength, (middle + 1) * hashLength)
+                var i = low
+                var j = high
+                while (i <= j) {
+                    while (compare(hashes, hashLength, i, pivot) < 0) i++
+                    while (compare(hashes, hashLength, j, pivot) > 0) j--
+                    if (i <= j) {
+                        swap(hashes, hashLength, i++, j--)
+                    }
+                }
+                if (j - low < high - i) {
+                    sort(hashes, hashLength, low, j)
+                    low = i
+                } else {
+                    sort(hashes, hashLength, i, high)
+                    high = j
+                }
+            }
+            insertionSort(hashes, hashLength, low, high)
+        }
+
+        private fun insertionSort(hashes: ByteArray, hashLength: Int, fromIndex: Int, toIndex: Int) {
+            val hash = ByteArray(hashLength)
+            for (i in fromIndex + 1..toIndex) {
+                hashes.copyInto(hash, 0, i * hashLength, (i + 1) * hashLength)
+                var j = i - 1
+                while (j >= fromIndex && compare(hashes, hashLength, j, hash) > 0) {
+                    j--
+                }
+                if (j + 1 < i) {
+                    hashes.copyInto(hashes, (j + 2) * hashLength, (j + 1) * hashLength, i * hashLength)
+                    hash.copyInto(hashes, (j + 1) * hashLength)
+                }
+            }
+        }
+
+        private fun compare(hashes: ByteArray, hashLength: Int, index: Int, hash: ByteArray): Int {
+            val offset = index * hashLength
+            for (i in 0 until hashLength) {
+                val comparison = (hashes[offset + i].toInt() and 0xFF) - (hash[i].toInt() and 0xFF)
+                if (comparison != 0) {
+                    return comparison
+                }
+            }
+            return 0
+        }
+
+        private fun swap(hashes: ByteArray, hashLength: Int, first: Int, second: Int) {
+            if (first == second) {
+                return
+            }
+            val firstOffset = first * hashLength
+            val secondOffset = second * hashLength
+            for (i in 0 until hashLength) {
+                val byte = hashes[firstOffset + i]
+                hashes[firstOffset + i] = hashes[secondOffset + i]
+                hashes[secondOffset + i] = byte
+            }
+        }
+    }
+}
@@ -3,62 +3,130 @@ package de.culture4life.luca.dataaccess
 import android.util.Base64
 import com.nexenio.rxkeystore.util.RxBase64
 import de.culture4life.luca.util.TimeUtil
-import java.nio.ByteBuffer
+import de.culture4life.luca.util.decodeFromBase64
+import okhttp3.ResponseBody
+import okio.Buffer
+import okio.BufferedSink
+import okio.BufferedSource
 import java.util.concurrent.TimeUnit
 
+/**
+ * @param id the ID of the chunk if it has been requested by ID, `null` for the current chunk
+ */
 data class NotificationDataChunk(
     val version: Int,
     val algorithm: Int,
     val hashLength: Int,
     val creationTimestamp: Long,
     val previousChunkId: String,
-    val hashedTraceIds: ArrayList<String>
+    val hashedTraceIds: HashedTraceIds,
+    val id: String? = null
 ) {
 
+    /**
+     * Length of the chunk in the binary format, as returned by the backend.
+     */
+    val encodedLength: Long
+        get() = HEADER_LENGTH + hashedTraceIds.size.toLong() * hashLength
+
+    /**
+     * Writes the chunk in the binary format it has been parsed from, with the hashed trace IDs in sorted order.
+     */
+    fun writeTo(sink: BufferedSink) {
+        sink.writeByte(version)
+        sink.writeByte(algorithm)
+        sink.writeByte(hashLength)
+        sink.writeLong(creationTimestamp)
+        sink.write(ByteArray(PREVIOUS_CHUNK_HASH_OFFSET - 3 - Long.SIZE_BYTES))
+        sink.write(previousChunkId.decodeFromBase64())
+        hashedTraceIds.writeTo(sink)
+    }
+
+    data class Header(
+        val version: Int,
+        val algorithm: Int,
+        val hashLength: Int,
+        val creationTimestamp: Long,
+        val previousChunkId: String
+    )
+
     companion object Factory {
 
+        const val HEADER_LENGTH = 32
+        private const val PREVIOUS_CHUNK_HASH_OFFSET = 16
+        private const val PREVIOUS_CHUNK_HASH_LENGTH = 16
+
         fun from(responseBody: ByteArray): NotificationDataChunk {
-            require(responseBody.size >= 32) { "Invalid response body length: " + responseBody.size }
-            val byteBuffer = ByteBuffer.wrap(responseBody)
-            val version = byteBuffer.get().toInt()
+            require(responseBody.size >= HEADER_LENGTH) { "Invalid response body length: " + responseBody.size }
+            return from(Buffer().write(responseBody), responseBody.size.toLong())
+        }
+
+        /**
+         * Parses the chunk while reading the body, without buffering the whole body first.
+         */
+        fun from(responseBody: ResponseBody): NotificationDataChunk {
+            return responseBody.use { from(it.source(), it.contentLength()) }
+        }
+
+        /**
+         * @param length number of bytes in the source if known, `-1` otherwise
+         */
+        fun from(source: BufferedSource, length: Long = -1, id: String? = null): NotificationDataChunk {
+            require(length < 0 || length >= HEADER_LENGTH) { "Invalid response body length: $length" }
+            return from(readHeader(source), source, length, id)
+        }
+
+        /**
+         * Reads the remaining hashed trace IDs of a chunk, after the header has been read using [readHeader].
+         *
+         * @param length number of bytes in the source including the header if known, `-1` otherwise
+         */
+        fun from(header: Header, source: BufferedSource, length: Long = -1, id: String? = null): NotificationDataChunk {
+            val hashesLength = if (length >= 0) length - HEADER_LENGTH else -1
+            val hashedTraceIds = HashedTraceIds.read(source, header.hashLength, hashesLength)
+
+            return NotificationDataChunk(
+                header.version,
+                header.algorithm,
+                header.hashLength,
+                header.creationTimestamp,
+                header.previousChunkId,
+                hashedTraceIds,
+                id
+            )
+        }
+
+        /**
+         * Reads and validates the header, which allows requesting the previous chunk before the
+         * hashed trace IDs have been read.
+         */
+        fun readHeader(source: BufferedSource): Header {
+            require(source.request(HEADER_LENGTH.toLong())) { "Invalid response body length: " + source.buffer.size }
+
+            val version = source.readByte().toInt()
             require(version == 1) { "Invalid version: $version" }
 
-            val algorithm = byteBuffer.get().toInt()
+            val algorithm = source.readByte().toInt()
             require(algorithm == 0) { "Invalid algorithm: $algorithm" }
 
-            val hashLength = byteBuffer.get().toInt()
+            val hashLength = source.readByte().toInt()
             require(!(hashLength < 4 || hashLength > 32)) { "Invalid hash length: $hashLength" }
 
-            val creationTimestamp = byteBuffer.long
+            val creationTimestamp = source.readLong()
             val isValidTimestamp =
                 creationTimestamp > TimeUtil.getCurrentMillis() - TimeUnit.DAYS.toMillis(30) &&
                     creationTimestamp < TimeUtil.getCurrentMillis()
             require(isValidTimestamp) { "Invalid creation timestamp: $creationTimestamp" }
 
-            byteBuffer.position(16)
-            val previousChunkHash = ByteArray(16)
-            byteBuffer.get(previousChunkHash)
+            source.skip(PREVIOUS_CHUNK_HASH_OFFSET - 3 - Long.SIZE_BYTES.toLong())
+            val previousChunkHash = source.readByteArray(PREVIOUS_CHUNK_HASH_LENGTH.toLong())
             val previousChunkId = RxBase64.encode(previousChunkHash, Base64.NO_WRAP).blockingGet()
 
-            val hashedTraceIds = ArrayList<String>()
-            while (byteBuffer.hasRemaining()) {
-                val hash = ByteArray(hashLength)
-                byteBuffer.get(hash)
-                hashedTraceIds.add(RxBase64.encode(hash, Base64.NO_WRAP).blockingGet())
-            }
-
-            return NotificationDataChunk(
-                version,
-                algorithm,
-                hashLength,
-                creationTimestamp,
-                previousChunkId,
-                hashedTraceIds
-            )
+            return Header(version, algorithm, hashLength, creationTimestamp, previousChunkId)
         }
     }
 
     override fun toString(): String {
-        return "Chunk(version=$version, algorithm=$algorithm, hashLength=$hashLength, creationTimestamp=$creationTimestamp, previousChunkId='$previousChunkId', hashedTraceIds=${hashedTraceIds.size})"
+        return "Chunk(id=$id, version=$version, algorithm=$algorithm, hashLength=$hashLength, creationTimestamp=$creationTimestamp, previousChunkId='$previousChunkId', hashedTraceIds=${hashedTraceIds.size})"
     }
 }
@@ -0,0 +1,73 @@
+package de.culture4life.luca.dataaccess
+
+import de.culture4life.luca.util.decodeFromBase64
+import io.reactivex.rxjava3.core.Completable
+import io.reactivex.rxjava3.core.Maybe
+import okio.ByteString.Companion.toByteString
+import okio.buffer
+import okio.sink
+import okio.source
+import timber.log.Timber
+import java.io.File
+
+/**
+ * Keeps parsed [NotificationDataChunk]s as files named after their chunk ID, so that chunks that
+ * have been downloaded before an update got interrupted don't need to be downloaded again.
+ *
+ * Only chunks requested by ID are cached, as chunks are immutable and identified by their content.
+ * Files are written atomically and chunks that can't be parsed anymore, e.g. because they expired,
+ * are deleted when read.
+ */
+class NotificationDataChunkCache(private val directory: File) {
+
+    fun get(chunkId: String): Maybe<NotificationDataChunk> {
+        return Maybe.fromCallable {
+            val file = getFile(chunkId)
+            if (!file.exists()) {
+                return@fromCallable null
+            }
+            try {
+                file.source().buffer().use { NotificationDataChunk.from(it, file.length(), chunkId) }
+            } catch (exception: Exception) {
+                Timber.w("Unable to read cached chunk %s: %s", chunkId, exception.toString())
+                file.delete()
+                null
+            }
+        }
+    }
+
+    fun put(chunk: NotificationDataChunk): Completable {
+        return Completable.fromAction {
+            val chunkId = requireNotNull(chunk.id) { "Only chunks with an ID can be cached" }
+            directory.mkdirs()
+            val temporaryFile = File(directory, getFileName(chunkId) + TEMPORARY_FILE_SUFFIX)
+            temporaryFile.sink().buffer().use { chunk.writeTo(it) }
+            if (!temporaryFile.renameTo(getFile(chunkId))) {
+                temporaryFile.delete()
+                throw IllegalStateException("Unable to persist chunk $chunkId")
+            }
+        }
+    }
+
+    fun deleteAll(): Completable {
+        return Completable.fromAction {
+            directory.listFiles()?.forEach { it.delete() }
+        }
+    }
+
+    private fun getFile(chunkId: String): File {
+        return File(directory, getFileName(chunkId))
+    }
+
+    companion object {
+
+        private const val TEMPORARY_FILE_SUFFIX = ".tmp"
+
+        /**
+         * Chunk IDs are Base64 encoded, which may contain characters that are not allowed in file names.
+         */
+        private fun getFileName(chunkId: String): String {
+            return chunkId.decodeFromBase64().toByteString().hex()
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package de.culture4life.luca.dataaccess
+
+import de.culture4life.luca.network.NetworkManager.Companion.isHttpException
+import de.culture4life.luca.network.endpoints.LucaEndpointsV4
+import io.reactivex.rxjava3.core.Observable
+import io.reactivex.rxjava3.core.Single
+import io.reactivex.rxjava3.schedulers.Schedulers
+import okhttp3.ResponseBody
+import timber.log.Timber
+import java.net.HttpURLConnection
+import java.util.concurrent.Semaphore
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Fetches the current [NotificationDataChunk] and its predecessors.
+ *
+ * - The previous chunk is requested as soon as the header of a chunk has been read, so that the
+ *   chunks of the chain are downloaded concurrently instead of one after another. At most
+ *   [MAXIMUM_CONCURRENT_DOWNLOADS] previous chunks are being downloaded at the same time.
+ * - Chunks requested by ID are served from the [cache] if available and cached after they have
+ *   been parsed, so that an interrupted update can continue where it stopped.
+ */
+class NotificationDataChunkFetcher(
+    private val endpoints: Single<LucaEndpointsV4>,
+    private val cache: NotificationDataChunkCache
+) {
+
+    val metrics = Metrics()
+
+    private val downloadPermits = Semaphore(MAXIMUM_CONCURRENT_DOWNLOADS)
+
+    /**
+     * Emits the current chunk and all predecessors, until [shouldFetchChunk] emits `false` for the ID
+     * of a previous chunk or the previous chunk has been deleted on the backend. Chunks are not
+     * emitted in a specific order.
+     */
+    fun fetchChunks(shouldFetchChunk: (String) -> Single<Boolean>): Observable<NotificationDataChunk> {
+        return endpoints.flatMap(LucaEndpointsV4::getNotifications)
+            .flatMapObservable { responseBody -> readChunk(responseBody, null, shouldFetchChunk) {} }
+    }
+
+    private fun fetchPreviousChunks(chunkId: String, shouldFetchChunk: (String) -> Single<Boolean>): Observable<NotificationDataChunk> {
+        return shouldFetchChunk(chunkId)
+            .flatMapObservable { shouldFetch ->
+                if (!shouldFetch) {
+                    Observable.empty()
+                } else {
+                    cache.get(chunkId)
+                        .doOnSuccess { chunk ->
+                            metrics.cachedChunks.incrementAndGet()
+                            metrics.cachedBytes.addAndGet(chunk.encodedLength)
+                        }
+                        .flatMapObservable { chunk -> Observable.just(chunk).mergeWith(fetchPreviousChunks(chunk.previousChunkId, shouldFetchChunk)) }
+                        .switchIfEmpty(downloadChunk(chunkId, shouldFetchChunk))
+                }
+            }
+    }
+
+    /**
+     * Downloads the chunk with the specified ID. Blocks the subscribing thread until one of the
+     * [downloadPermits] is available, which is released as soon as the chunk itself has been read.
+     * Releasing it before the predecessors have been fetched is required, as they need permits too.
+     */
+    private fun downloadChunk(chunkId: String, shouldFetchChunk: (String) -> Single<Boolean>): Observable<NotificationDataChunk> {
+        return Observable.defer {
+            downloadPermits.acquire()
+            val permitReleased = AtomicBoolean()
+            val releasePermit = {
+                if (permitReleased.compareAndSet(false, true)) {
+                    downloadPermits.release()
+                }
+            }
+            endpoints.flatMap { it.getNotifications(chunkId) }
+                .flatMapObservable { responseBody -> readChunk(responseBody, chunkId, shouldFetchChunk, releasePermit) }
+                .doFinally { releasePermit() }
+        }.onErrorResumeNext { throwable ->
+            if (isHttpException(throwable, HttpURLConnection.HTTP_NOT_FOUND)) {
+                Observable.empty() // old chunks may be deleted after 14 days
+            } else {
+                Observable.error(throwable)
+            }
+        }
+    }
+
+    /**
+     * Reads the header of the chunk and starts fetching the previous chunks, while the remaining
+     * hashed trace IDs are being read. Invokes [onChunkRead] when the chunk has been read.
+     */
+    private fun readChunk(
+        responseBody: ResponseBody,
+        chunkId: String?,
+        shouldFetchChunk: (String) -> Single<Boolean>,
+        onChunkRead: () -> Unit
+    ): Observable<NotificationDataChunk> {
+        return Observable.using({ responseBody }, { body ->
+            val source = body.source()
+            val header = NotificationDataChunk.readHeader(source)
+            val previousChunks = fetchPreviousChunks(header.previousChunkId, shouldFetchChunk)
+                .subscribeOn(Schedulers.io())
+            val chunk = Single.fromCallable { NotificationDataChunk.from(header, source, body.contentLength(), chunkId) }
+                .doFinally { onChunkRead() }
+                .doOnSuccess {
+                    Timber.d("Downloaded chunk: %s", it)
+                    metrics.downloadedChunks.incrementAndGet()
+                    metrics.downloadedBytes.addAndGet(it.encodedLength)
+                }
+                .flatMap { chunk ->
+                    if (chunk.id == null) {
+                        Single.just(chunk)
+                    } else {
+                        cache.put(chunk)
+                            .doOnError { Timber.w("Unable to cache chunk %s: %s", chunk.id, it.toString()) }
+                            .onErrorComplete()
+                            .andThen(Single.just(chunk))
+                    }
+                }
+            Observable.merge(previousChunks, chunk.toObservable())
+        }, ResponseBody::close)
+    }
+
+    class Metrics {
+
+        val downloadedChunks = AtomicLong()
+
+        val downloadedBytes = AtomicLong()
+
+        val cachedChunks = AtomicLong()
+
+        /**
+         * Number of bytes that didn't need to be downloaded because the chunks were cached.
+         */
+        val cachedBytes = AtomicLong()
+
+        override fun toString(): String {
+            return "Metrics(downloadedChunks=%d, downloadedBytes=%d, cachedChunks=%d, cachedBytes=%d)".format(
+                downloadedChunks.get(), downloadedBytes.get(), cachedChunks.get(), cachedBytes.get()
+            )
+        }
+    }
+
+    companion object {
+
+        /**
+         * Limits the number of simultaneously open connections and buffered chunks.
+         */
+        const val MAXIMUM_CONCURRENT_DOWNLOADS = 4
+    }
+}
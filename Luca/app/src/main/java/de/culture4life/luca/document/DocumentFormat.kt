@@ -0,0 +1,54 @@
+package de.culture4life.luca.document
+
+import android.util.Base64
+import de.culture4life.luca.document.provider.baercode.BaercodeDocument
+import de.culture4life.luca.document.provider.opentestcheck.OpenTestCheckDocumentProvider
+import de.culture4life.luca.util.LucaUrlUtil
+import dgca.verifier.app.decoder.DefaultCertificateDecoder
+
+/**
+ * Format of an encoded document, detected by only looking at its prefix. Used to pick the
+ * [de.culture4life.luca.document.provider.DocumentProvider] that is most likely able to parse the
+ * document. The detected format is only a hint, the providers still decide if they can parse it.
+ */
+enum class DocumentFormat {
+
+    APPOINTMENT,
+    OPEN_TEST_CHECK,
+    BAERCODE,
+    EUDCC,
+    UNKNOWN;
+
+    companion object {
+
+        private const val JWT_PREFIX = "eyJ" // Base64 encoded '{"'
+
+        @JvmStatic
+        fun detect(encodedDocument: String): DocumentFormat {
+            return when {
+                encodedDocument.startsWith(DefaultCertificateDecoder.PREFIX) -> EUDCC
+                LucaUrlUtil.isAppointment(encodedDocument) -> APPOINTMENT
+                encodedDocument.startsWith(OpenTestCheckDocumentProvider.URL_PREFIX_TESTVERIFY_IO) -> OPEN_TEST_CHECK
+                encodedDocument.startsWith(JWT_PREFIX) && encodedDocument.count { it == '.' } == 2 -> OPEN_TEST_CHECK
+                isBaercode(encodedDocument) -> BAERCODE
+                else -> UNKNOWN
+            }
+        }
+
+        /**
+         * Baercodes are Base64 encoded and start with the CBOR encoded protocol version,
+         * which is a single byte for small values.
+         */
+        private fun isBaercode(encodedDocument: String): Boolean {
+            if (encodedDocument.length < 4) {
+                return false
+            }
+            return try {
+                val header = Base64.decode(encodedDocument.substring(0, 4), Base64.NO_WRAP)
+                header[0].toInt() == BaercodeDocument.PROTOCOL_VERSION
+            } catch (e: IllegalArgumentException) {
+                false
+            }
+        }
+    }
+}
@@ -52,6 +52,10 @@ class DocumentManager(
     private lateinit var eudccDocumentProvider: EudccDocumentProvider
     private lateinit var baercodeDocumentProvider: BaercodeDocumentProvider
     private var documents: Documents? = null
+    private val verificationCache = DocumentVerificationCache(preferencesManager)
+
+    val verificationMetrics: DocumentVerificationCache.Metrics
+        get() = verificationCache.metrics
 
     override fun doInitialize(context: Context): Completable {
         return Completable.mergeArray(
@@ -63,7 +67,7 @@ class DocumentManager(
         ).andThen(
             Completable.fromAction {
                 eudccDocumentProvider = EudccDocumentProvider(context)
-                baercodeDocumentProvider = BaercodeDocumentProvider(context)
+                baercodeDocumentProvider = BaercodeDocumentProvider(context, networkManager.httpClient)
             }
         ).andThen(
             Completable.mergeArray(
@@ -150,18 +154,10 @@ class DocumentManager(
         val getChildren = childrenManager.getChildren()
 
         return Single.zip(getPerson, getChildren) { person: Person, children: Children ->
-            Single.mergeDelayError(
-                getDocumentProvidersFor(encodedDocument)
-                    .doOnNext { documentProvider -> Timber.v("Attempting to parse using %s", documentProvider.javaClass.simpleName) }
-                    .map { documentProvider ->
-                        val verifyParseAndValidate = documentProvider.verifyParseAndValidate(encodedDocument, person, children)
-                        verifyParseAndValidate
-                            .doOnError { throwable -> Timber.w("Parsing failed: $throwable") }
-                            .map(ProvidedDocument::getDocument)
-                    }
-                    .toFlowable(BackpressureStrategy.BUFFER)
-            )
-                .firstOrError()
+            parseUsingDocumentProviders(encodedDocument) { documentProvider ->
+                documentProvider.verifyParseAndValidate(encodedDocument, person, children)
+                    .map(ProvidedDocument::getDocument)
+            }
         }
             .flatMap { documentSingle -> documentSingle }
             .onErrorResumeNext { throwable ->
@@ -174,20 +170,11 @@ class DocumentManager(
     }
 
     fun parseEncodedDocument(encodedDocument: String): Single<out ProvidedDocument> {
-        return Single.mergeDelayError(
-            getDocumentProvidersFor(encodedDocument)
-                .doOnNext { documentProvider ->
-                    Timber.v("Attempting to parse using %s", documentProvider.javaClass.simpleName)
-                }
-                .map { documentProvider ->
-                    documentProvider.verify(encodedDocument)
-                        .andThen(documentProvider.parse(encodedDocument))
-                        .doOnSuccess { parsedDocument -> parsedDocument.document.isVerified = true }
-                        .doOnError { throwable -> Timber.w("Parsing failed: $throwable") }
-                }
-                .toFlowable(BackpressureStrategy.BUFFER)
-        )
-            .firstOrError()
+        return parseUsingDocumentProviders(encodedDocument) { documentProvider ->
+            documentProvider.verify(encodedDocument)
+                .andThen(documentProvider.parse(encodedDocument))
+                .doOnSuccess { parsedDocument -> parsedDocument.document.isVerified = true }
+        }
             .onErrorResumeNext { throwable ->
                 if (throwable is NoSuchElementException) {
                     Single.error(DocumentParsingException("No parser available for encoded data"))
@@ -227,9 +214,83 @@ class DocumentManager(
             }
     }
 
-    private fun getDocumentProvidersFor(encodedDocument: String): Observable<out DocumentProvider<out ProvidedDocument>> {
+    /**
+     * Parses the encoded document using the provider matching the detected [DocumentFormat]. Only
+     * if that provider can't parse the document or fails to do so, the remaining providers are
+     * attempted one after another in their regular order. Emits the error of the likely provider if
+     * no other provider succeeds, or a [NoSuchElementException] if no provider can parse the document.
+     */
+    private fun <T : Any> parseUsingDocumentProviders(
+        encodedDocument: String,
+        parse: (DocumentProvider<out ProvidedDocument>) -> Single<out T>
+    ): Single<T> {
+        return Single.defer {
+            val documentFormat = DocumentFormat.detect(encodedDocument)
+            val likelyDocumentProvider = getDocumentProviderFor(documentFormat)
+            Timber.v("Detected document format: %s", documentFormat)
+            val parseUsingRemainingDocumentProviders = Single.concatDelayError<T>(
+                getRemainingDocumentProvidersFor(encodedDocument, likelyDocumentProvider)
+                    .map { documentProvider -> parseUsing(documentProvider, parse) }
+                    .toFlowable(BackpressureStrategy.BUFFER)
+            ).firstOrError()
+            if (likelyDocumentProvider != null) {
+                canParse(likelyDocumentProvider, encodedDocument)
+                    .flatMapSingle { documentProvider -> parseUsing(documentProvider, parse) }
+                    .switchIfEmpty(parseUsingRemainingDocumentProviders)
+                    .onErrorResumeNext { throwable ->
+                        parseUsingRemainingDocumentProviders.onErrorResumeNext { Single.error(throwable) }
+                    }
+            } else {
+                parseUsingRemainingDocumentProviders
+            }
+        }
+    }
+
+    private fun <T : Any> parseUsing(
+        documentProvider: DocumentProvider<out ProvidedDocument>,
+        parse: (DocumentProvider<out ProvidedDocument>) -> Single<out T>
+    ): Single<out T> {
+        return parse(documentProvider)
+            .doOnSubscribe { Timber.v("Attempting to parse using %s", documentProvider.javaClass.simpleName) }
+            .doOnError { throwable -> Timber.w("Parsing failed: $throwable") }
+    }
+
+    /**
+     * Emits the providers other than the [excludedDocumentProvider] that can parse the encoded
+     * document, in their regular order. Up to [MAXIMUM_CONCURRENT_PROVIDER_PROBES] providers are
+     * probed concurrently. Probing stops as soon as the subscriber disposes, e.g. because a document
+     * has been parsed.
+     */
+    private fun getRemainingDocumentProvidersFor(
+        encodedDocument: String,
+        excludedDocumentProvider: DocumentProvider<out ProvidedDocument>?
+    ): Observable<DocumentProvider<out ProvidedDocument>> {
         return getDocumentProviders()
-            .filter { documentProvider -> documentProvider.canParse(encodedDocument).blockingGet() }
+            .filter { documentProvider -> documentProvider !== excludedDocumentProvider }
+            .concatMapEager({ documentProvider ->
+                canParse(documentProvider, encodedDocument)
+                    .subscribeOn(Schedulers.computation())
+                    .toObservable()
+            }, MAXIMUM_CONCURRENT_PROVIDER_PROBES, 1)
+    }
+
+    private fun canParse(
+        documentProvider: DocumentProvider<out ProvidedDocument>,
+        encodedDocument: String
+    ): Maybe<DocumentProvider<out ProvidedDocument>> {
+        return documentProvider.canParse(encodedDocument)
+            .filter { it }
+            .map { documentProvider }
+    }
+
+    private fun getDocumentProviderFor(documentFormat: DocumentFormat): DocumentProvider<out ProvidedDocument>? {
+        return when (documentFormat) {
+            DocumentFormat.APPOINTMENT -> appointmentProvider
+            DocumentFormat.OPEN_TEST_CHECK -> openTestCheckDocumentProvider
+            DocumentFormat.BAERCODE -> baercodeDocumentProvider
+            DocumentFormat.EUDCC -> eudccDocumentProvider
+            DocumentFormat.UNKNOWN -> null
+        }
     }
 
     private fun getDocumentProviders(): Observable<DocumentProvider<out ProvidedDocument>> {
@@ -403,10 +464,15 @@ class DocumentManager(
                 clearDocuments()
                     .andThen(
                         Observable.fromIterable(encodedDocuments)
-                            .flatMapCompletable { encodedDocument ->
+                            .flatMapMaybe({ encodedDocument ->
                                 parseAndValidateEncodedDocument(encodedDocument)
-                                    .doOnSuccess { document -> Timber.d("Re-importing document: $document") }
-                                    .flatMapCompletable { document -> redeemDocument(document).andThen(addDocument(document)) }
+                                    .doOnError { throwable -> Timber.w("Unable to re-import document: $throwable") }
+                                    .onErrorComplete()
+                                    .subscribeOn(Schedulers.io())
+                            }, false, MAXIMUM_CONCURRENT_VERIFICATIONS)
+                            .doOnNext { document -> Timber.d("Re-importing document: $document") }
+                            .concatMapCompletable { document ->
+                                redeemDocument(document).andThen(addDocument(document))
                                     .doOnError { throwable -> Timber.w("Unable to re-import document: $throwable") }
                                     .onErrorComplete()
                             }
@@ -424,22 +490,66 @@ class DocumentManager(
             .flatMapCompletable { reVerifyDocuments().onErrorComplete() }
     }
 
+    /**
+     * Verifies all EUDCC documents in parallel and updates their verification status. Documents that
+     * have been verified successfully using the current signing keys before will not be verified again.
+     */
     fun reVerifyDocuments(): Completable {
-        val updateVerificationStatus = getOrRestoreDocuments()
-            .toFlowable(BackpressureStrategy.BUFFER)
-            .filter { document -> eudccDocumentProvider.canParse(document.encodedData).blockingGet() }
-            .map { document ->
-                eudccDocumentProvider.verify(document.encodedData)
-                    .andThen(Single.just(true))
-                    .onErrorReturnItem(false)
-                    .doOnSuccess { verified -> document.isVerified = verified }
-                    .doFinally { Timber.d("Re-verified $document") }
-                    .ignoreElement()
-                    .subscribeOn(Schedulers.io())
-            }
-        return Completable.mergeDelayError(updateVerificationStatus)
-            .andThen(persistDocuments())
-            .andThen(preferencesManager.persist(KEY_LAST_RE_VERIFICATION_TIMESTAMP, TimeUtil.getCurrentMillis()))
+        return Completable.defer {
+            val startTime = System.nanoTime()
+            val signingKeySetVersion = eudccDocumentProvider.getSigningKeySetVersion()
+                .doOnError { throwable -> Timber.w("Unable to get signing key set version, results will not be cached: $throwable") }
+                .onErrorComplete()
+                .cache()
+            getOrRestoreDocuments()
+                .toFlowable(BackpressureStrategy.BUFFER)
+                .flatMapCompletable({ document ->
+                    reVerifyDocument(document, signingKeySetVersion)
+                        .subscribeOn(Schedulers.io())
+                }, true, MAXIMUM_CONCURRENT_VERIFICATIONS)
+                .andThen(persistDocuments())
+                .andThen(persistVerificationResults())
+                .andThen(preferencesManager.persist(KEY_LAST_RE_VERIFICATION_TIMESTAMP, TimeUtil.getCurrentMillis()))
+                .doOnComplete {
+                    verificationCache.metrics.lastReVerificationDuration.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime))
+                    Timber.d("Re-verified documents: ${verificationCache.metrics}")
+                }
+        }
+    }
+
+    private fun reVerifyDocument(document: Document, signingKeySetVersion: Maybe<String>): Completable {
+        val encodedData = document.encodedData
+        val verifyDocument = eudccDocumentProvider.canParse(encodedData)
+            .filter { canParse -> canParse }
+            .flatMapSingle { verifyDocument(encodedData, signingKeySetVersion) }
+        return signingKeySetVersion
+            .flatMap { version -> verificationCache.getResult(encodedData, version) }
+            .switchIfEmpty(verifyDocument)
+            .doOnSuccess { verified -> document.isVerified = verified }
+            .ignoreElement()
+    }
+
+    private fun verifyDocument(encodedData: String, signingKeySetVersion: Maybe<String>): Single<Boolean> {
+        return Single.defer {
+            val startTime = System.nanoTime()
+            eudccDocumentProvider.verify(encodedData)
+                .andThen(Single.just(true))
+                .onErrorReturnItem(false)
+                .flatMap { verified ->
+                    val duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime)
+                    Timber.d("Verified document in $duration ms, verified: $verified")
+                    signingKeySetVersion
+                        .flatMapCompletable { version -> verificationCache.putResult(encodedData, version, verified, duration) }
+                        .andThen(Single.just(verified))
+                }
+        }
+    }
+
+    private fun persistVerificationResults(): Completable {
+        return getOrRestoreDocuments()
+            .map(Document::getEncodedData)
+            .toList()
+            .flatMapCompletable(verificationCache::persistResults)
     }
 
     private fun invokeMigrateIsEudccPropertyIfRequired(): Completable {
@@ -560,6 +670,7 @@ class DocumentManager(
     override fun dispose() {
         super.dispose()
         documents = null
+        verificationCache.clearCachedData()
     }
 
     companion object {
@@ -571,6 +682,8 @@ class DocumentManager(
         private val DOCUMENT_REDEEM_HASH_SUFFIX = "testRedeemCheck".toByteArray(StandardCharsets.UTF_8)
         private const val MINIMUM_RE_VERIFICATION_TIMESTAMP = 1634112471927L // 13.10.2021
         private const val MINIMUM_EUDCC_MIGRATION_TIMESTAMP = 1642666115743L // 20.01.2022
+        private const val MAXIMUM_CONCURRENT_PROVIDER_PROBES = 3
+        private const val MAXIMUM_CONCURRENT_VERIFICATIONS = 4
 
         @JvmStatic
         fun getEncodedDocumentFromDeepLink(url: String): Single<String> {
@@ -0,0 +1,167 @@
+package de.culture4life.luca.document
+
+import com.google.gson.annotations.Expose
+import com.google.gson.annotations.SerializedName
+import de.culture4life.luca.preference.PreferencesManager
+import de.culture4life.luca.util.TimeUtil
+import io.reactivex.rxjava3.core.Completable
+import io.reactivex.rxjava3.core.Maybe
+import io.reactivex.rxjava3.core.Single
+import okio.ByteString.Companion.encodeUtf8
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Memoizes the verification results of encoded documents.
+ *
+ * Encoded documents are immutable, so a result only needs to be re-evaluated if the signing key set
+ * or the verification rules ([SCHEMA_VERSION]) changed. Only successful verifications are cached,
+ * as failures may be caused by temporary issues like signing keys that couldn't be fetched.
+ * Results are kept in memory while documents are re-verified and written to the preferences in one
+ * go by [persistResults].
+ */
+class DocumentVerificationCache(private val preferencesManager: PreferencesManager) {
+
+    val metrics = Metrics()
+
+    private var results: DocumentVerificationResults? = null
+
+    /**
+     * Emits `true` if the document has been verified successfully using the same signing key set
+     * and schema version before, completes otherwise.
+     */
+    fun getResult(encodedData: String, signingKeySetVersion: String): Maybe<Boolean> {
+        return getOrRestoreResults()
+            .flatMapMaybe { results ->
+                Maybe.fromCallable {
+                    synchronized(results) { results[getDocumentHash(encodedData)] }
+                        ?.takeIf { it.signingKeySetVersion == signingKeySetVersion && it.schemaVersion == SCHEMA_VERSION }
+                        ?.let { true }
+                }
+            }
+            .doOnSuccess { metrics.cachedResults.incrementAndGet() }
+    }
+
+    /**
+     * Caches the result in memory if the verification succeeded, call [persistResults] afterwards.
+     *
+     * @param duration time it took to verify the document in milliseconds
+     */
+    fun putResult(encodedData: String, signingKeySetVersion: String, isVerified: Boolean, duration: Long): Completable {
+        return getOrRestoreResults()
+            .flatMapCompletable { results ->
+                Completable.fromAction {
+                    val documentHash = getDocumentHash(encodedData)
+                    synchronized(results) {
+                        if (isVerified) {
+                            results[documentHash] = DocumentVerificationResult(signingKeySetVersion, SCHEMA_VERSION, TimeUtil.getCurrentMillis())
+                        } else {
+                            results.remove(documentHash)
+                        }
+                    }
+                    metrics.addVerification(duration)
+                }
+            }
+    }
+
+    /**
+     * Persists the cached results, omitting results of documents that are not part of the given ones anymore.
+     */
+    fun persistResults(retainedEncodedData: Collection<String>): Completable {
+        return getOrRestoreResults()
+            .flatMapCompletable { results ->
+                val retainedResults = synchronized(results) {
+                    results.keys.retainAll(retainedEncodedData.mapTo(HashSet(), ::getDocumentHash))
+                    DocumentVerificationResults(results)
+                }
+                preferencesManager.persistDeferred(KEY_DOCUMENT_VERIFICATION_RESULTS, retainedResults)
+            }
+    }
+
+    fun deleteResults(): Completable {
+        return preferencesManager.delete(KEY_DOCUMENT_VERIFICATION_RESULTS)
+            .doOnComplete { results = DocumentVerificationResults() }
+    }
+
+    fun clearCachedData() {
+        results = null
+    }
+
+    private fun getOrRestoreResults(): Single<DocumentVerificationResults> {
+        return Maybe.fromCallable<DocumentVerificationResults> { results }
+            .switchIfEmpty(
+                preferencesManager.restoreOrDefault(KEY_DOCUMENT_VERIFICATION_RESULTS, DocumentVerificationResults())
+                    .map { restoredResults -> synchronized(this) { results ?: restoredResults.also { results = it } } }
+            )
+    }
+
+    class Metrics {
+
+        /**
+         * Number of documents that have been verified by a provider.
+         */
+        val verifiedDocuments = AtomicLong()
+
+        /**
+         * Number of documents for which a cached result has been used.
+         */
+        val cachedResults = AtomicLong()
+
+        /**
+         * Sum of the time it took to verify the [verifiedDocuments] in milliseconds.
+         */
+        val documentVerificationDuration = AtomicLong()
+
+        /**
+         * Time it took to re-verify all documents the last time in milliseconds.
+         */
+        val lastReVerificationDuration = AtomicLong()
+
+        internal fun addVerification(duration: Long) {
+            verifiedDocuments.incrementAndGet()
+            documentVerificationDuration.addAndGet(duration)
+        }
+
+        override fun toString(): String {
+            return "Metrics(verifiedDocuments=%d, cachedResults=%d, documentVerificationDuration=%d ms, lastReVerificationDuration=%d ms)".format(
+                verifiedDocuments.get(), cachedResults.get(), documentVerificationDuration.get(), lastReVerificationDuration.get()
+            )
+        }
+    }
+
+    companion object {
+
+        const val KEY_DOCUMENT_VERIFICATION_RESULTS = "document_verification_results"
+
+        /**
+         * Increment when the verification rules change, so that all documents will be verified again.
+         */
+        const val SCHEMA_VERSION = 1
+
+        private fun getDocumentHash(encodedData: String): String {
+            return encodedData.encodeUtf8().sha256().hex()
+        }
+    }
+}
+
+class DocumentVerificationResults : HashMap<String, DocumentVerificationResult> {
+
+    constructor() : super()
+
+    constructor(results: Map<String, DocumentVerificationResult>) : super(results)
+}
+
+data class DocumentVerificationResult(
+
+    @Expose
+    @SerializedName("signingKeySetVersion")
+    val signingKeySetVersion: String,
+
+    @Expose
+    @SerializedName("schemaVersion")
+    val schemaVersion: Int,
+
+    @Expose
+    @SerializedName("timestamp")
+    val timestamp: Long
+
+)
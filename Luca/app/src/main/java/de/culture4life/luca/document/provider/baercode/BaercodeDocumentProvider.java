@@ -41,9 +41,12 @@ public class BaercodeDocumentProvider extends DocumentProvider<BaercodeDocument>
     private static OkHttpClient client;
     private final Context context;
 
-    public BaercodeDocumentProvider(@NonNull Context context) {
+    /**
+     * @param httpClient client to derive the download client from, sharing its cache and connection pool
+     */
+    public BaercodeDocumentProvider(@NonNull Context context, @NonNull OkHttpClient httpClient) {
         this.context = context;
-        client = new OkHttpClient.Builder()
+        client = httpClient.newBuilder()
                 .callTimeout(10, TimeUnit.SECONDS)
                 .connectTimeout(10, TimeUnit.SECONDS)
                 .build();
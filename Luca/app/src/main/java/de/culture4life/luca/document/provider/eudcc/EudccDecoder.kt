@@ -2,10 +2,11 @@ package de.culture4life.luca.document.provider.eudcc
 
 import COSE.HeaderKeys
 import android.text.TextUtils
+import android.util.LruCache
 import com.upokecenter.cbor.CBORObject
 import dgca.verifier.app.decoder.CertificateDecodingResult
-import dgca.verifier.app.decoder.DefaultCertificateDecoder
 import dgca.verifier.app.decoder.base45.Base45Decoder
+import dgca.verifier.app.decoder.cbor.DefaultGreenCertificateMapper
 import dgca.verifier.app.decoder.cwt.CwtHeaderKeys
 import dgca.verifier.app.decoder.model.CoseData
 import java.time.Instant
@@ -13,18 +14,31 @@ import java.util.zip.InflaterInputStream
 
 class EudccDecoder(private val base45Decoder: Base45Decoder) {
 
-    private val decoder = DefaultCertificateDecoder(base45Decoder)
+    private val greenCertificateMapper = DefaultGreenCertificateMapper()
+    private val decodingContexts = LruCache<String, EudccDecodingContext>(MAXIMUM_CACHED_DECODING_CONTEXTS)
+
+    /**
+     * Provides the decoding context for the specified certificate. Recently used contexts are
+     * cached, so that subsequent checks, verifications and parsing of the same certificate can
+     * reuse the already decoded data.
+     */
+    fun getDecodingContext(encodedCertificate: String): EudccDecodingContext {
+        return decodingContexts.get(encodedCertificate)
+            ?: EudccDecodingContext(encodedCertificate, base45Decoder, greenCertificateMapper)
+                .also { decodingContexts.put(encodedCertificate, it) }
+    }
 
     fun decodeCertificate(encodedCertificate: String): CertificateDecodingResult {
-        val certificate = decoder.decodeCertificate(encodedCertificate)
-        val coseData = decodeCoseData(encodedCertificate)
-        sanityCheckCertificate(coseData.cbor)
-        return certificate
+        return decodeCertificate(getDecodingContext(encodedCertificate))
     }
 
-    private fun sanityCheckCertificate(cbor: ByteArray) {
-        val map = CBORObject.DecodeFromBytes(cbor)
+    fun decodeCertificate(decodingContext: EudccDecodingContext): CertificateDecodingResult {
+        val certificate = decodingContext.decodingResult
+        sanityCheckCertificate(decodingContext.payload)
+        return certificate
+    }
 
+    private fun sanityCheckCertificate(map: CBORObject) {
         val issuingCountry = map[CwtHeaderKeys.ISSUING_COUNTRY.asCBOR()].AsString()
         if (TextUtils.isEmpty(issuingCountry)) throw IllegalArgumentException("Issuing country not correct: $issuingCountry")
 
@@ -36,22 +50,17 @@ class EudccDecoder(private val base45Decoder: Base45Decoder) {
     }
 
     fun getEncodedCoseData(encodedCertificate: String): ByteArray {
-        val encodedCertificateWithoutPrefix: String = if (encodedCertificate.startsWith(DefaultCertificateDecoder.PREFIX)) {
-            encodedCertificate.drop(DefaultCertificateDecoder.PREFIX.length)
-        } else {
-            encodedCertificate
-        }
-        val base45Decoded = base45Decoder.decode(encodedCertificateWithoutPrefix)
-        return decompressBase45DecodedData(base45Decoded)
+        return getDecodingContext(encodedCertificate).encodedCoseData
     }
 
     fun decodeCoseData(encodedCertificate: String): CoseData {
-        val encodedCoseData = getEncodedCoseData(encodedCertificate)
-        return decodeCoseData(encodedCoseData)
+        return getDecodingContext(encodedCertificate).coseData
     }
 
     companion object {
 
+        private const val MAXIMUM_CACHED_DECODING_CONTEXTS = 32
+
         @JvmStatic
         fun decompressBase45DecodedData(compressedData: ByteArray): ByteArray {
             // ZLIB magic headers
@@ -73,17 +82,22 @@ class EudccDecoder(private val base45Decoder: Base45Decoder) {
 
         @JvmStatic
         fun decodeCoseData(encodedData: ByteArray): CoseData {
-            val messageObject = CBORObject.DecodeFromBytes(encodedData)
+            return decodeCoseData(CBORObject.DecodeFromBytes(encodedData))
+        }
+
+        @JvmStatic
+        fun decodeCoseData(messageObject: CBORObject): CoseData {
             val content = messageObject[2].GetByteString()
             val protectedRgb = messageObject[0].GetByteString()
             val unprotectedRgb = messageObject[1]
             val key = HeaderKeys.KID.AsCBOR()
 
-            if (!CBORObject.DecodeFromBytes(protectedRgb).keys.contains(key)) {
+            val protectedObject = CBORObject.DecodeFromBytes(protectedRgb)
+            if (!protectedObject.keys.contains(key)) {
                 val unprotectedObject = unprotectedRgb.get(key).GetByteString()
                 return CoseData(content, unprotectedObject)
             }
-            val objProtected = CBORObject.DecodeFromBytes(protectedRgb).get(key).GetByteString()
+            val objProtected = protectedObject.get(key).GetByteString()
             return CoseData(content, objProtected)
         }
     }
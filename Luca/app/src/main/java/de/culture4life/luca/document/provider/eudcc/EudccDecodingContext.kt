@@ -0,0 +1,81 @@
+package de.culture4life.luca.document.provider.eudcc
+
+import com.upokecenter.cbor.CBORObject
+import dgca.verifier.app.decoder.CertificateDecodingError
+import dgca.verifier.app.decoder.CertificateDecodingResult
+import dgca.verifier.app.decoder.DefaultCertificateDecoder
+import dgca.verifier.app.decoder.base45.Base45Decoder
+import dgca.verifier.app.decoder.cbor.GreenCertificateMapper
+import dgca.verifier.app.decoder.cwt.CwtHeaderKeys
+import dgca.verifier.app.decoder.model.CoseData
+import dgca.verifier.app.decoder.model.GreenCertificate
+
+/**
+ * Holds the intermediate results of decoding a single encoded EU Digital COVID Certificate (EUDCC).
+ * Each stage (Base45, zlib, COSE, CBOR) is performed lazily and at most once, no matter how often
+ * the certificate gets checked, verified or parsed.
+ */
+@OptIn(ExperimentalUnsignedTypes::class)
+class EudccDecodingContext(
+    val encodedCertificate: String,
+    private val base45Decoder: Base45Decoder,
+    private val greenCertificateMapper: GreenCertificateMapper
+) {
+
+    val base45DecodedData: ByteArray by lazy {
+        base45Decoder.decode(encodedCertificate.removePrefix(DefaultCertificateDecoder.PREFIX))
+    }
+
+    val encodedCoseData: ByteArray by lazy {
+        EudccDecoder.decompressBase45DecodedData(base45DecodedData)
+    }
+
+    val coseMessage: CBORObject by lazy {
+        CBORObject.DecodeFromBytes(encodedCoseData)
+    }
+
+    val coseData: CoseData by lazy {
+        EudccDecoder.decodeCoseData(coseMessage)
+    }
+
+    /**
+     * The CWT payload map, containing the issuer, timestamps and the health certificate.
+     */
+    val payload: CBORObject by lazy {
+        CBORObject.DecodeFromBytes(coseData.cbor)
+    }
+
+    val healthCertificate: CBORObject by lazy {
+        payload[CwtHeaderKeys.HCERT.asCBOR()][CBORObject.FromObject(1)]
+    }
+
+    val greenCertificate: GreenCertificate by lazy {
+        greenCertificateMapper.readValue(healthCertificate)
+    }
+
+    /**
+     * Same result as [DefaultCertificateDecoder.decodeCertificate], but based on the cached stages.
+     */
+    val decodingResult: CertificateDecodingResult by lazy {
+        try {
+            base45DecodedData
+        } catch (error: Throwable) {
+            return@lazy CertificateDecodingResult.Error(CertificateDecodingError.Base45DecodingError(error))
+        }
+        try {
+            encodedCoseData
+        } catch (error: Throwable) {
+            return@lazy CertificateDecodingResult.Error(CertificateDecodingError.Base45DecompressionError(error))
+        }
+        try {
+            coseData
+        } catch (error: Throwable) {
+            return@lazy CertificateDecodingResult.Error(CertificateDecodingError.CoseDataDecodingError(error))
+        }
+        try {
+            CertificateDecodingResult.Success(greenCertificate)
+        } catch (error: Throwable) {
+            CertificateDecodingResult.Error(CertificateDecodingError.GreenCertificateDecodingError(error))
+        }
+    }
+}
@@ -2,7 +2,7 @@ package de.culture4life.luca.document.provider.eudcc
 
 import android.content.Context
 import com.google.gson.Gson
-import com.google.gson.JsonObject
+import com.google.gson.annotations.SerializedName
 import com.nexenio.rxkeystore.provider.signature.RxSignatureException
 import de.culture4life.luca.BuildConfig
 import de.culture4life.luca.LucaApplication
@@ -10,9 +10,9 @@ import de.culture4life.luca.document.DocumentParsingException
 import de.culture4life.luca.document.DocumentVerificationException
 import de.culture4life.luca.document.DocumentVerificationException.Reason.INVALID_SIGNATURE
 import de.culture4life.luca.document.provider.DocumentProvider
+import de.culture4life.luca.util.TimeUtil
 import de.culture4life.luca.util.decodeFromBase64
 import dgca.verifier.app.decoder.base45.Base45Decoder
-import dgca.verifier.app.decoder.base64ToX509Certificate
 import dgca.verifier.app.decoder.cose.VerificationCryptoService
 import dgca.verifier.app.decoder.model.VerificationResult
 import dgca.verifier.app.decoder.services.X509
@@ -21,12 +21,18 @@ import io.reactivex.rxjava3.core.Completable
 import io.reactivex.rxjava3.core.Observable
 import io.reactivex.rxjava3.core.Single
 import io.reactivex.rxjava3.exceptions.CompositeException
+import okio.ByteString.Companion.encodeUtf8
 import org.bouncycastle.asn1.*
+import retrofit2.HttpException
 import timber.log.Timber
 import java.io.ByteArrayOutputStream
 import java.math.BigInteger
+import java.net.HttpURLConnection
 import java.security.KeyFactory
+import java.security.PublicKey
+import java.security.cert.X509Certificate
 import java.security.spec.X509EncodedKeySpec
+import java.util.concurrent.TimeUnit
 
 /**
  * Provider for the EU Digital COVID Certificate (EUDCC)
@@ -37,16 +43,17 @@ open class EudccDocumentProvider(val context: Context) : DocumentProvider<EudccD
     private val base45Decoder = Base45Decoder()
     private val decoder = EudccDecoder(base45Decoder)
     private val verifier = VerificationCryptoService(X509())
+    private val signingKeyStore by lazy { EudccSigningKeyStore((context as LucaApplication).preferencesManager) }
 
     override fun canParse(encodedData: String): Single<Boolean> {
         return Single.fromCallable {
-            val coseData = decoder.decodeCoseData(encodedData)
-            EudccSchemaValidator().validate(coseData.cbor)
+            val decodingContext = decoder.getDecodingContext(encodedData)
+            EudccSchemaValidator().validate(decodingContext.healthCertificate)
         }.onErrorReturn { false }
     }
 
     override fun parse(encodedData: String): Single<EudccDocument> {
-        return Single.fromCallable { EudccDocument(encodedData, decoder.decodeCertificate(encodedData)) }
+        return Single.fromCallable { EudccDocument(encodedData, decoder.decodeCertificate(decoder.getDecodingContext(encodedData))) }
             .map {
                 it.apply {
                     document.provider = "EU Digital COVID Certificate"
@@ -74,12 +81,12 @@ open class EudccDocumentProvider(val context: Context) : DocumentProvider<EudccD
     }
 
     fun verifySignature(encodedData: String): Completable {
-        val validations = fetchSigningKeys(encodedData)
-            .map { signingKey ->
-                verifySignature(encodedData, signingKey)
-                    .doOnSubscribe { Timber.d("Verifying signature using %s", signingKey) }
+        val validations = getSigningKeyCertificates(encodedData)
+            .map { certificate ->
+                verifySignature(encodedData, certificate)
+                    .doOnSubscribe { Timber.d("Verifying signature using %s", certificate.subjectX500Principal) }
                     .doOnError { Timber.w("Signature verification failed: %s", it.toString()) }
-                    .andThen(Observable.just(signingKey))
+                    .andThen(Observable.just(certificate))
                     .onErrorResumeNext { Observable.empty() }
             }
 
@@ -99,10 +106,9 @@ open class EudccDocumentProvider(val context: Context) : DocumentProvider<EudccD
             }
     }
 
-    private fun verifySignature(encodedData: String, signingKey: EudccSigningKey): Completable {
+    private fun verifySignature(encodedData: String, certificate: X509Certificate): Completable {
         return Completable.fromAction {
-            val encodedCoseData = decoder.getEncodedCoseData(encodedData)
-            val certificate = signingKey.rawData.base64ToX509Certificate()!!
+            val encodedCoseData = decoder.getDecodingContext(encodedData).encodedCoseData
             val verificationResult = VerificationResult()
             verifier.validate(encodedCoseData, certificate, verificationResult)
             if (!verificationResult.coseVerified) {
@@ -111,48 +117,94 @@ open class EudccDocumentProvider(val context: Context) : DocumentProvider<EudccD
         }
     }
 
-    private fun fetchSigningKeys(encodedData: String): Observable<EudccSigningKey> {
+    private fun getSigningKeyCertificates(encodedData: String): Observable<X509Certificate> {
         return Single.fromCallable {
-            val coseData = decoder.decodeCoseData(encodedData)
+            val coseData = decoder.getDecodingContext(encodedData).coseData
             coseData.kid?.toBase64()!!
-        }.flatMapObservable { kid -> fetchSigningKeys().filter { it.kid == kid } }
+        }.flatMapObservable { kid ->
+            getSigningKeyStore().flatMapObservable { it.getCertificates(kid, this::fetchSigningKeyList) }
+        }
+    }
+
+    /**
+     * Emits the currently known signing keys, restored from the [EudccSigningKeyStore] or fetched if required.
+     */
+    fun getSigningKeys(): Observable<EudccSigningKey> {
+        return getSigningKeyStore()
+            .flatMapObservable { it.getSigningKeys(this::fetchSigningKeyList) }
     }
 
-    open fun fetchSigningKeys(): Observable<EudccSigningKey> {
+    /**
+     * Emits a version of the currently known signing keys, which changes when keys are added or removed.
+     */
+    open fun getSigningKeySetVersion(): Single<String> {
+        return getSigningKeys()
+            .map { it.kid + it.thumbprint }
+            .toSortedList()
+            .map { it.joinToString(",").encodeUtf8().sha256().hex() }
+    }
+
+    private fun getSigningKeyStore(): Single<EudccSigningKeyStore> {
+        return Single.defer {
+            val preferencesManager = (context as LucaApplication).preferencesManager
+            preferencesManager.initialize(context)
+                .andThen(Single.fromCallable { signingKeyStore })
+        }
+    }
+
+    /**
+     * Fetches the signing keys and verifies the signature of the list. If the list has not been modified
+     * since it has been fetched previously, the previous list with an updated expiration timestamp is emitted.
+     */
+    open fun fetchSigningKeyList(previousSigningKeyList: EudccSigningKeyList?): Single<EudccSigningKeyList> {
         return Single.defer {
             val networkManager = (context as LucaApplication).networkManager
             networkManager.initialize(context)
                 .andThen(networkManager.getLucaEndpointsV4())
-                .flatMap { it.eudccSigningKeys }
-                .map { it.string() }
-        }.flatMapObservable {
-            val encodedSignature = it.lines()[0]
-            val jsonString = it.lines()[1]
-            verifySigningKeySignature(
-                data = jsonString.toByteArray(),
-                signature = toDERSignature(encodedSignature.decodeFromBase64())
-            ).blockingAwait()
-            val jsonObject = Gson().fromJson(jsonString, JsonObject::class.java)
-            val certificates = jsonObject.getAsJsonArray("certificates")
-            Observable.fromIterable(certificates)
-        }.map {
-            Gson().fromJson(it, EudccSigningKey::class.java)
-        }.onErrorResumeNext { Observable.error(IllegalStateException("Unable fetch signing keys", it)) }
+                .flatMap { it.getEudccSigningKeys(previousSigningKeyList?.eTag) }
+        }.map { response ->
+            val downloadTimestamp = TimeUtil.getCurrentMillis()
+            val maximumAge = response.raw().cacheControl.maxAgeSeconds
+                .takeIf { it >= 0 }
+                ?.let { TimeUnit.SECONDS.toMillis(it.toLong()) }
+                ?.coerceAtMost(MAXIMUM_SIGNING_KEYS_AGE)
+                ?: DEFAULT_SIGNING_KEYS_AGE
+            if (response.code() == HttpURLConnection.HTTP_NOT_MODIFIED && previousSigningKeyList != null) {
+                previousSigningKeyList.copy(
+                    downloadTimestamp = downloadTimestamp,
+                    expirationTimestamp = downloadTimestamp + maximumAge
+                )
+            } else {
+                val responseBody = response.body()
+                if (!response.isSuccessful || responseBody == null) {
+                    throw HttpException(response)
+                }
+                EudccSigningKeyList(
+                    signingKeys = parseSigningKeys(responseBody.string()),
+                    eTag = response.headers()["ETag"],
+                    downloadTimestamp = downloadTimestamp,
+                    expirationTimestamp = downloadTimestamp + maximumAge
+                )
+            }
+        }.onErrorResumeNext { Single.error(IllegalStateException("Unable fetch signing keys", it)) }
+    }
+
+    private fun parseSigningKeys(signedSigningKeys: String): List<EudccSigningKey> {
+        val lines = signedSigningKeys.lines()
+        val encodedSignature = lines[0]
+        val jsonString = lines[1]
+        verifySigningKeySignature(
+            data = jsonString.toByteArray(),
+            signature = toDERSignature(encodedSignature.decodeFromBase64())
+        ).blockingAwait()
+        return GSON.fromJson(jsonString, SigningKeysResponseData::class.java).certificates
     }
 
     private fun verifySigningKeySignature(data: ByteArray, signature: ByteArray): Completable {
-        return Single.fromCallable {
-            val base64EncodedX509 = CERT_SERVER_PUBLIC_KEY
-                .substringAfter("-----BEGIN PUBLIC KEY-----")
-                .substringBefore("-----END PUBLIC KEY-----")
-            val keySpec = X509EncodedKeySpec(base64EncodedX509.decodeFromBase64())
-            return@fromCallable KeyFactory.getInstance("EC").generatePublic(keySpec)
-        }.flatMapCompletable { publicKey ->
-            Completable.defer {
-                val cryptoManager = (context as LucaApplication).cryptoManager
-                cryptoManager.initialize(context)
-                    .andThen(cryptoManager.verifyEcdsa(data, signature, publicKey))
-            }
+        return Completable.defer {
+            val cryptoManager = (context as LucaApplication).cryptoManager
+            cryptoManager.initialize(context)
+                .andThen(cryptoManager.verifyEcdsa(data, signature, CERT_SERVER_PUBLIC_KEY))
         }.onErrorResumeNext { Completable.error(RxSignatureException("Unable to verify signing key signature", it)) }
     }
 
@@ -168,9 +220,28 @@ open class EudccDocumentProvider(val context: Context) : DocumentProvider<EudccD
         derOutputStream.close()
         return byteArrayOutputStream.toByteArray()
     }
+
+    private data class SigningKeysResponseData(
+        @SerializedName("certificates")
+        val certificates: List<EudccSigningKey>
+    )
+
+    companion object {
+        private val GSON = Gson()
+        private val DEFAULT_SIGNING_KEYS_AGE = TimeUnit.HOURS.toMillis(6)
+        private val MAXIMUM_SIGNING_KEYS_AGE = TimeUnit.DAYS.toMillis(1)
+
+        private val CERT_SERVER_PUBLIC_KEY: PublicKey by lazy {
+            val base64EncodedX509 = ENCODED_CERT_SERVER_PUBLIC_KEY
+                .substringAfter("-----BEGIN PUBLIC KEY-----")
+                .substringBefore("-----END PUBLIC KEY-----")
+            val keySpec = X509EncodedKeySpec(base64EncodedX509.decodeFromBase64())
+            KeyFactory.getInstance("EC").generatePublic(keySpec)
+        }
+    }
 }
 
-private const val CERT_SERVER_PUBLIC_KEY = "-----BEGIN PUBLIC KEY-----\n" +
+private const val ENCODED_CERT_SERVER_PUBLIC_KEY = "-----BEGIN PUBLIC KEY-----\n" +
     "MFkwEwYHKoZIzj0CAQYIKoZIzj0DAQcDQgAETHfi8foQF4UtSNVxSFxeu7W+gMxd\n" +
     "SGElhdo7825SD3Lyb+Sqh4G6Kra0ro1BdrM6Qx+hsUx4Qwdby7QY0pzxyA==\n" +
     "-----END PUBLIC KEY-----\n"
@@ -1,13 +1,9 @@
 package de.culture4life.luca.document.provider.eudcc
 
-import com.fasterxml.jackson.databind.JsonNode
-import com.fasterxml.jackson.databind.ObjectMapper
-import com.networknt.schema.JsonSchema
-import com.networknt.schema.JsonSchemaFactory
-import com.networknt.schema.SpecVersion
 import com.upokecenter.cbor.CBORObject
-import dgca.verifier.app.decoder.JSON_SCHEMA_V1
 import dgca.verifier.app.decoder.cwt.CwtHeaderKeys
+import dgca.verifier.app.decoder.schema.JsonSchemaRegistry
+import dgca.verifier.app.decoder.schema.toJsonNode
 import timber.log.Timber
 
 /**
@@ -15,24 +11,24 @@ import timber.log.Timber
  */
 class EudccSchemaValidator {
 
-    private val mapper = ObjectMapper()
-
-    private fun getJsonSchemaFromStringContent(schemaContent: String?): JsonSchema? {
-        val factory = JsonSchemaFactory.getInstance(SpecVersion.VersionFlag.V4)
-        return factory.getSchema(schemaContent)
-    }
-
     fun validate(cbor: ByteArray): Boolean {
-        val schema: JsonSchema = getJsonSchemaFromStringContent(JSON_SCHEMA_V1)!!
-        var isValid = false
-        try {
+        return try {
             val map = CBORObject.DecodeFromBytes(cbor)
             val hcert = map[CwtHeaderKeys.HCERT.asCBOR()]
-            val json = hcert[CBORObject.FromObject(1)].ToJSONString()
-
-            val jsonNode: JsonNode = mapper.readTree(json)
+            validate(hcert[CBORObject.FromObject(1)])
+        } catch (ex: Exception) {
+            Timber.e("Exception while validating EUDCC: ${ex.message}")
+            false
+        }
+    }
 
-            val errors = schema.validate(jsonNode)
+    /**
+     * Validates the already decoded health certificate, as contained in the HCERT claim.
+     */
+    fun validate(healthCertificate: CBORObject): Boolean {
+        var isValid = false
+        try {
+            val errors = JsonSchemaRegistry.getSchema().validate(healthCertificate.toJsonNode())
             isValid = errors.isEmpty()
         } catch (ex: Exception) {
             Timber.e("Exception while validating EUDCC: ${ex.message}")
@@ -1,11 +1,36 @@
 package de.culture4life.luca.document.provider.eudcc
 
+import com.google.gson.annotations.Expose
+import com.google.gson.annotations.SerializedName
+
 data class EudccSigningKey(
+
+    @Expose
+    @SerializedName("certificateType")
     val certificateType: String,
+
+    @Expose
+    @SerializedName("country")
     val country: String,
+
+    @Expose
+    @SerializedName("kid")
     val kid: String,
+
+    @Expose
+    @SerializedName("rawData")
     val rawData: String,
+
+    @Expose
+    @SerializedName("signature")
     val signature: String,
+
+    @Expose
+    @SerializedName("thumbprint")
     val thumbprint: String,
+
+    @Expose
+    @SerializedName("timestamp")
     val timestamp: String
+
 )
@@ -0,0 +1,37 @@
+package de.culture4life.luca.document.provider.eudcc
+
+import com.google.gson.annotations.Expose
+import com.google.gson.annotations.SerializedName
+import de.culture4life.luca.util.TimeUtil
+
+/**
+ * Signing keys as downloaded from the trust list, after the list signature has been verified.
+ */
+data class EudccSigningKeyList(
+
+    @Expose
+    @SerializedName("signingKeys")
+    val signingKeys: List<EudccSigningKey> = ArrayList(),
+
+    @Expose
+    @SerializedName("eTag")
+    val eTag: String? = null,
+
+    @Expose
+    @SerializedName("downloadTimestamp")
+    val downloadTimestamp: Long = 0,
+
+    @Expose
+    @SerializedName("expirationTimestamp")
+    val expirationTimestamp: Long = 0
+
+) {
+
+    val isExpired: Boolean
+        get() = TimeUtil.getCurrentMillis() >= expirationTimestamp
+
+    override fun toString(): String {
+        return "EudccSigningKeyList(signingKeys=${signingKeys.size}, eTag=$eTag, downloadTimestamp=$downloadTimestamp, " +
+            "expirationTimestamp=$expirationTimestamp)"
+    }
+}
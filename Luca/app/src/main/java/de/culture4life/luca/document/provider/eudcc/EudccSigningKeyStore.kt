@@ -0,0 +1,175 @@
+package de.culture4life.luca.document.provider.eudcc
+
+import de.culture4life.luca.preference.PreferencesManager
+import de.culture4life.luca.util.TimeUtil
+import dgca.verifier.app.decoder.base64ToX509Certificate
+import io.reactivex.rxjava3.core.Completable
+import io.reactivex.rxjava3.core.Maybe
+import io.reactivex.rxjava3.core.Observable
+import io.reactivex.rxjava3.core.Single
+import io.reactivex.rxjava3.disposables.Disposable
+import io.reactivex.rxjava3.schedulers.Schedulers
+import timber.log.Timber
+import java.security.cert.X509Certificate
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+
+/**
+ * Persists the EUDCC signing keys and keeps them indexed by their key ID. Certificates are parsed
+ * at most once per key ID. Expired signing keys are still used while being refreshed in the
+ * background, so that verifying a certificate does not need to wait for the network.
+ */
+class EudccSigningKeyStore(private val preferencesManager: PreferencesManager) {
+
+    /**
+     * Fetches the current signing keys. Should return the previous list with an updated
+     * expiration timestamp if the signing keys have not been modified.
+     */
+    fun interface SigningKeyListFetcher {
+        fun fetch(previousSigningKeyList: EudccSigningKeyList?): Single<EudccSigningKeyList>
+    }
+
+    @Volatile
+    private var index: Index? = null
+
+    @Volatile
+    private var pendingUpdate: Single<Index>? = null
+
+    private var backgroundUpdateDisposable: Disposable? = null
+
+    /**
+     * Emits the certificates of all signing keys with the specified key ID. If the key ID is
+     * unknown, the signing keys are updated once in case the key has been added recently.
+     */
+    fun getCertificates(kid: String, fetcher: SigningKeyListFetcher): Observable<X509Certificate> {
+        return getIndex(fetcher)
+            .flatMap { index ->
+                if (index.containsKid(kid) || !index.canBeUpdatedForUnknownKid()) {
+                    Single.just(index)
+                } else {
+                    Timber.d("Unknown signing key ID %s, updating signing keys", kid)
+                    update(fetcher).onErrorReturnItem(index)
+                }
+            }
+            .flattenAsObservable { it.getCertificates(kid) }
+    }
+
+    fun getSigningKeys(fetcher: SigningKeyListFetcher): Observable<EudccSigningKey> {
+        return getIndex(fetcher)
+            .flattenAsObservable { it.signingKeyList.signingKeys }
+    }
+
+    private fun getIndex(fetcher: SigningKeyListFetcher): Single<Index> {
+        return Maybe.fromCallable<Index> { index }
+            .switchIfEmpty(restoreIndexIfAvailable())
+            .doOnSuccess { if (it.signingKeyList.isExpired) updateInBackground(fetcher) }
+            .switchIfEmpty(Single.defer { update(fetcher) })
+    }
+
+    private fun restoreIndexIfAvailable(): Maybe<Index> {
+        return preferencesManager.restoreIfAvailable(KEY_SIGNING_KEY_LIST, EudccSigningKeyList::class.java)
+            .map(::Index)
+            .doOnSuccess {
+                Timber.d("Restored signing keys: %s", it.signingKeyList)
+                index = index ?: it
+            }
+    }
+
+    /**
+     * Fetches and persists the signing keys. Concurrent calls share the same update.
+     */
+    @Synchronized
+    private fun update(fetcher: SigningKeyListFetcher): Single<Index> {
+        pendingUpdate?.let { return it }
+        val update = Single.defer { fetcher.fetch(index?.signingKeyList) }
+            .flatMap { signingKeyList ->
+                val currentIndex = index
+                val updatedIndex = if (currentIndex != null && currentIndex.signingKeyList.signingKeys === signingKeyList.signingKeys) {
+                    currentIndex.withSigningKeyList(signingKeyList)
+                } else {
+                    Index(signingKeyList)
+                }
+                preferencesManager.persist(KEY_SIGNING_KEY_LIST, signingKeyList)
+                    .andThen(Single.just(updatedIndex))
+            }
+            .doOnSuccess {
+                Timber.d("Updated signing keys: %s", it.signingKeyList)
+                index = it
+            }
+            .doFinally { clearPendingUpdate() }
+            .cache()
+        pendingUpdate = update
+        return update
+    }
+
+    @Synchronized
+    private fun clearPendingUpdate() {
+        pendingUpdate = null
+    }
+
+    @Synchronized
+    private fun updateInBackground(fetcher: SigningKeyListFetcher) {
+        if (backgroundUpdateDisposable?.isDisposed == false) {
+            return
+        }
+        backgroundUpdateDisposable = update(fetcher)
+            .ignoreElement()
+            .subscribeOn(Schedulers.io())
+            .subscribe(
+                { Timber.d("Updated expired signing keys in background") },
+                { Timber.w("Unable to update expired signing keys: %s", it.toString()) }
+            )
+    }
+
+    fun clear(): Completable {
+        return preferencesManager.delete(KEY_SIGNING_KEY_LIST)
+            .doOnComplete { index = null }
+    }
+
+    private class Index private constructor(
+        val signingKeyList: EudccSigningKeyList,
+        private val signingKeysByKid: Map<String, List<EudccSigningKey>>,
+        private val certificatesByKid: ConcurrentHashMap<String, List<X509Certificate>>
+    ) {
+
+        constructor(signingKeyList: EudccSigningKeyList) : this(
+            signingKeyList,
+            signingKeyList.signingKeys.groupBy(EudccSigningKey::kid),
+            ConcurrentHashMap()
+        )
+
+        /**
+         * Creates an index for an updated list containing the same signing keys,
+         * keeping the already parsed certificates.
+         */
+        fun withSigningKeyList(signingKeyList: EudccSigningKeyList): Index {
+            return Index(signingKeyList, signingKeysByKid, certificatesByKid)
+        }
+
+        fun containsKid(kid: String): Boolean {
+            return signingKeysByKid.containsKey(kid)
+        }
+
+        fun canBeUpdatedForUnknownKid(): Boolean {
+            return TimeUtil.getCurrentMillis() - signingKeyList.downloadTimestamp > MINIMUM_UPDATE_INTERVAL
+        }
+
+        fun getCertificates(kid: String): List<X509Certificate> {
+            return certificatesByKid.getOrPut(kid) {
+                signingKeysByKid[kid].orEmpty().mapNotNull { signingKey ->
+                    try {
+                        signingKey.rawData.base64ToX509Certificate()
+                    } catch (e: Exception) {
+                        Timber.w("Unable to parse certificate of signing key %s: %s", signingKey.kid, e.toString())
+                        null
+                    }
+                }
+            }
+        }
+    }
+
+    companion object {
+        private const val KEY_SIGNING_KEY_LIST = "eudcc_signing_key_list"
+        private val MINIMUM_UPDATE_INTERVAL = TimeUnit.MINUTES.toMillis(10)
+    }
+}
@@ -36,7 +36,7 @@ import timber.log.Timber;
 
 public class OpenTestCheckDocumentProvider extends DocumentProvider<OpenTestCheckDocument> {
 
-    private static final String URL_PREFIX_TESTVERIFY_IO = "https://testverify.io/v1#";
+    public static final String URL_PREFIX_TESTVERIFY_IO = "https://testverify.io/v1#";
     protected static final RxHashProvider HASH_PROVIDER = new Sha256HashProvider(new RxKeyStore());
 
     private final DocumentManager documentManager;
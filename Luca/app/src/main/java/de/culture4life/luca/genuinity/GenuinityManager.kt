@@ -94,7 +94,7 @@ open class GenuinityManager(
             }
             .doOnError { Timber.w("Unable to update server timestamp offset: %s", it.toString()) }
             .flatMap {
-                preferencesManager.persist(KEY_SERVER_TIME_OFFSET, it).andThen(Single.just(it))
+                preferencesManager.persistDeferred(KEY_SERVER_TIME_OFFSET, it).andThen(Single.just(it))
             }
     }
 
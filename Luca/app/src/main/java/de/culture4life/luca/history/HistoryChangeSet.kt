@@ -0,0 +1,13 @@
+package de.culture4life.luca.history
+
+/**
+ * Describes how the history items have changed, so that observers don't need to reload all items.
+ */
+data class HistoryChangeSet(
+    val addedItems: List<HistoryItem> = emptyList(),
+    val removedItems: List<HistoryItem> = emptyList()
+) {
+
+    val isEmpty: Boolean
+        get() = addedItems.isEmpty() && removedItems.isEmpty()
+}
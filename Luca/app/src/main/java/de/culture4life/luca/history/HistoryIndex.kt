@@ -0,0 +1,82 @@
+package de.culture4life.luca.history
+
+import io.reactivex.rxjava3.functions.Predicate
+import java.util.*
+
+/**
+ * Keeps history items sorted by timestamp (descending), type and related ID. Only one item per
+ * related ID and type is kept, subsequently added duplicates are ignored. Inserts and deletes
+ * are applied as deltas and reported as [HistoryChangeSet].
+ */
+class HistoryIndex(items: Collection<HistoryItem> = emptyList()) {
+
+    private val sortedItems = TreeSet(COMPARATOR)
+    private val itemsByIdentity = HashMap<String, HistoryItem>()
+
+    init {
+        items.forEach(::insert)
+    }
+
+    val size: Int
+        @Synchronized get() = sortedItems.size
+
+    /**
+     * All items, ordered by timestamp (descending).
+     */
+    @Synchronized
+    fun getItems(): List<HistoryItem> {
+        return sortedItems.toList()
+    }
+
+    @Synchronized
+    fun add(item: HistoryItem): HistoryChangeSet {
+        return if (insert(item)) {
+            HistoryChangeSet(addedItems = listOf(item))
+        } else {
+            HistoryChangeSet()
+        }
+    }
+
+    @Synchronized
+    fun removeIf(predicate: Predicate<HistoryItem>): HistoryChangeSet {
+        val removedItems = sortedItems.filter { predicate.test(it) }
+        removedItems.forEach {
+            sortedItems.remove(it)
+            itemsByIdentity.remove(getIdentity(it))
+        }
+        return HistoryChangeSet(removedItems = removedItems)
+    }
+
+    @Synchronized
+    fun clear(): HistoryChangeSet {
+        val removedItems = sortedItems.toList()
+        sortedItems.clear()
+        itemsByIdentity.clear()
+        return HistoryChangeSet(removedItems = removedItems)
+    }
+
+    private fun insert(item: HistoryItem): Boolean {
+        val identity = getIdentity(item)
+        if (itemsByIdentity.containsKey(identity)) {
+            return false
+        }
+        itemsByIdentity[identity] = item
+        sortedItems.add(item)
+        return true
+    }
+
+    companion object {
+
+        /**
+         * Orders items by timestamp (descending), type and related ID.
+         */
+        @JvmField
+        val COMPARATOR: Comparator<HistoryItem> = compareByDescending<HistoryItem> { it.timestamp }
+            .thenBy { it.type }
+            .thenBy(nullsFirst()) { it.relatedId }
+
+        private fun getIdentity(item: HistoryItem): String {
+            return item.relatedId + item.type
+        }
+    }
+}
@@ -23,6 +23,7 @@ import de.culture4life.luca.util.TimeUtil;
 import io.reactivex.rxjava3.core.Completable;
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.functions.Function;
 import io.reactivex.rxjava3.functions.Predicate;
 import io.reactivex.rxjava3.subjects.PublishSubject;
 import timber.log.Timber;
@@ -39,14 +40,22 @@ public class HistoryManager extends Manager {
     private final ChildrenManager childrenManager;
 
     private final PublishSubject<HistoryItem> newItemPublisher;
+    private final PublishSubject<HistoryChangeSet> changeSetPublisher;
+
+    private final Object modificationLock = new Object();
+    private final Object persistLock = new Object();
 
     @Nullable
-    private Observable<HistoryItem> cachedHistoryItems;
+    private Single<HistoryIndex> cachedHistoryIndex;
+
+    private long appliedModifications;
+    private long persistedModifications;
 
     public HistoryManager(@NonNull PreferencesManager preferencesManager, @NonNull ChildrenManager childrenManager) {
         this.preferencesManager = preferencesManager;
         this.childrenManager = childrenManager;
         this.newItemPublisher = PublishSubject.create();
+        this.changeSetPublisher = PublishSubject.create();
     }
 
     @Override
@@ -148,20 +157,17 @@ public class HistoryManager extends Manager {
     }
 
     public Completable addItem(@NonNull HistoryItem historyItem) {
-        return persistItemsToPreferences(getItems()
-                .mergeWith(Observable.just(historyItem)))
-                .andThen(invalidateItemCache())
+        return modifyIndex(historyIndex -> historyIndex.add(historyItem))
                 .doOnComplete(() -> newItemPublisher.onNext(historyItem))
                 .doOnSubscribe(disposable -> Timber.d("Adding history item: %s", historyItem));
     }
 
+    /**
+     * All items, ordered by timestamp (descending).
+     */
     public Observable<HistoryItem> getItems() {
-        return Observable.defer(() -> {
-            if (cachedHistoryItems == null) {
-                cachedHistoryItems = restoreItemsFromPreferences().cache();
-            }
-            return cachedHistoryItems;
-        });
+        return getHistoryIndex()
+                .flattenAsObservable(HistoryIndex::getItems);
     }
 
     public Observable<HistoryItem> getNewItems() {
@@ -169,9 +175,15 @@ public class HistoryManager extends Manager {
                 .doOnNext(historyItem -> Timber.d("New history item: %s", historyItem));
     }
 
+    /**
+     * Emits the changes applied to the items, in the order they have been applied.
+     */
+    public Observable<HistoryChangeSet> getChanges() {
+        return changeSetPublisher;
+    }
+
     public Completable clearItems() {
-        return persistItemsToPreferences(Observable.empty())
-                .andThen(invalidateItemCache())
+        return modifyIndex(HistoryIndex::clear)
                 .andThen(addHistoryDeletedItem());
     }
 
@@ -190,27 +202,74 @@ public class HistoryManager extends Manager {
     }
 
     public Completable deleteItems(Predicate<HistoryItem> predicate) {
-        Observable<HistoryItem> remainingItems = getItems()
-                .filter(historyItem -> !predicate.test(historyItem));
+        return modifyIndex(historyIndex -> historyIndex.removeIf(predicate));
+    }
 
-        return persistItemsToPreferences(remainingItems)
-                .andThen(invalidateItemCache());
+    /**
+     * Applies the modification to the cached index, publishes the resulting change set and completes
+     * once the index has been persisted.
+     * <p>
+     * Modifications and their change sets are applied in one serialized order. Persisting is
+     * serialized as well and always writes the latest state of the index, so that writes can't
+     * overtake each other. Modifications applied while the index is being written are persisted
+     * together with the next write, which is skipped by callers whose modification has already
+     * been persisted that way.
+     */
+    private Completable modifyIndex(@NonNull Function<HistoryIndex, HistoryChangeSet> modification) {
+        return getHistoryIndex()
+                .flatMapCompletable(historyIndex -> Completable.defer(() -> {
+                    long modificationNumber;
+                    synchronized (modificationLock) {
+                        HistoryChangeSet changeSet = modification.apply(historyIndex);
+                        if (changeSet.isEmpty()) {
+                            return Completable.complete();
+                        }
+                        modificationNumber = ++appliedModifications;
+                        changeSetPublisher.onNext(changeSet);
+                    }
+                    return persistIndex(historyIndex, modificationNumber);
+                }))
+                .doOnError(throwable -> invalidateIndexCache());
+    }
+
+    private Completable persistIndex(@NonNull HistoryIndex historyIndex, long modificationNumber) {
+        return Completable.fromAction(() -> {
+            synchronized (persistLock) {
+                if (persistedModifications >= modificationNumber) {
+                    return;
+                }
+                List<HistoryItem> items;
+                long modifications;
+                synchronized (modificationLock) {
+                    items = historyIndex.getItems();
+                    modifications = appliedModifications;
+                }
+                persistItemsToPreferences(items).blockingAwait();
+                persistedModifications = modifications;
+            }
+        });
+    }
+
+    private Single<HistoryIndex> getHistoryIndex() {
+        return Single.defer(() -> {
+            if (cachedHistoryIndex == null) {
+                cachedHistoryIndex = restoreItemsFromPreferences().cache();
+            }
+            return cachedHistoryIndex;
+        });
     }
 
-    private Completable invalidateItemCache() {
-        return Completable.fromAction(() -> cachedHistoryItems = null);
+    private void invalidateIndexCache() {
+        cachedHistoryIndex = null;
     }
 
-    private Observable<HistoryItem> restoreItemsFromPreferences() {
+    private Single<HistoryIndex> restoreItemsFromPreferences() {
         return preferencesManager.restoreOrDefault(KEY_HISTORY_ITEMS, new HistoryItemContainer())
-                .flatMapObservable(Observable::fromIterable)
-                .distinct(historyItem -> historyItem.getRelatedId() + historyItem.getType())
-                .sorted((first, second) -> Long.compare(second.getTimestamp(), first.getTimestamp()));
+                .map(HistoryIndex::new);
     }
 
-    private Completable persistItemsToPreferences(Observable<HistoryItem> historyItems) {
-        return historyItems.toList()
-                .map(HistoryItemContainer::new)
+    private Completable persistItemsToPreferences(@NonNull List<HistoryItem> historyItems) {
+        return Single.fromCallable(() -> new HistoryItemContainer(historyItems))
                 .flatMapCompletable(historyItemContainer -> preferencesManager.persist(KEY_HISTORY_ITEMS, historyItemContainer));
     }
 
@@ -1,7 +1,11 @@
 package de.culture4life.luca.meeting;
 
+import androidx.annotation.Nullable;
+
 import com.google.gson.annotations.Expose;
 
+import java.util.Objects;
+
 public class MeetingGuestData {
 
     @Expose
@@ -59,4 +63,21 @@ public class MeetingGuestData {
         this.checkOutTimestamp = checkOutTimestamp;
     }
 
+    @Override
+    public boolean equals(@Nullable Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        MeetingGuestData that = (MeetingGuestData) o;
+        return checkInTimestamp == that.checkInTimestamp &&
+                checkOutTimestamp == that.checkOutTimestamp &&
+                Objects.equals(traceId, that.traceId) &&
+                Objects.equals(firstName, that.firstName) &&
+                Objects.equals(lastName, that.lastName);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(traceId, firstName, lastName, checkInTimestamp, checkOutTimestamp);
+    }
+
 }
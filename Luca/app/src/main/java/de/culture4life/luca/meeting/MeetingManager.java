@@ -13,7 +13,11 @@ import java.nio.charset.StandardCharsets;
 import java.security.KeyPair;
 import java.security.PrivateKey;
 import java.security.interfaces.ECPublicKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 import de.culture4life.luca.Manager;
@@ -32,6 +36,9 @@ import io.reactivex.rxjava3.core.Completable;
 import io.reactivex.rxjava3.core.Maybe;
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import io.reactivex.rxjava3.subjects.PublishSubject;
+import io.reactivex.rxjava3.subjects.Subject;
 import timber.log.Timber;
 
 public class MeetingManager extends Manager {
@@ -39,6 +46,7 @@ public class MeetingManager extends Manager {
     public static final String KEY_CURRENT_MEETING_DATA = "current_meeting_data";
     public static final String KEY_ARCHIVED_MEETING_DATA = "archived_meeting_data";
     public static final String ALIAS_MEETING_EPHEMERAL_KEY_PAIR = "meeting_ephemeral_key_pair";
+    private static final int MAXIMUM_CONCURRENT_DECRYPTIONS = 4;
 
     private final PreferencesManager preferencesManager;
     private final NetworkManager networkManager;
@@ -46,10 +54,24 @@ public class MeetingManager extends Manager {
     private final CryptoManager cryptoManager; // initialization deferred to first use
     private final HistoryManager historyManager;
     private final Archiver<MeetingData> archiver;
+    private final Subject<Boolean> hostStateSubject = PublishSubject.<Boolean>create().toSerialized();
+    private final Gson gson = new Gson();
 
     @Nullable
     private MeetingData currentMeetingData;
 
+    /**
+     * Decrypted additional data of guests, by trace ID. Only valid for the meeting with
+     * the {@link #guestDataMeetingId}.
+     */
+    private final Map<String, MeetingAdditionalData> guestAdditionalData = new ConcurrentHashMap<>();
+
+    @Nullable
+    private UUID guestDataMeetingId;
+
+    @Nullable
+    private PrivateKey meetingPrivateKey;
+
     public MeetingManager(@NonNull PreferencesManager preferencesManager, @NonNull NetworkManager networkManager, @NonNull LocationManager locationManager, @NonNull HistoryManager historyManager, @NonNull CryptoManager cryptoManager) {
         this.preferencesManager = preferencesManager;
         this.networkManager = networkManager;
@@ -72,12 +94,16 @@ public class MeetingManager extends Manager {
     @Override
     public void dispose() {
         archiver.clearCachedData();
+        clearGuestDataCache();
         super.dispose();
     }
 
+    /**
+     * Emits the current host state and subsequent changes, as soon as a meeting gets started or
+     * ended.
+     */
     public Observable<Boolean> getMeetingHostStateChanges() {
-        return Observable.interval(1, TimeUnit.SECONDS)
-                .flatMapSingle(tick -> isCurrentlyHostingMeeting())
+        return Observable.merge(hostStateSubject, isCurrentlyHostingMeeting().toObservable())
                 .distinctUntilChanged();
     }
 
@@ -94,7 +120,12 @@ public class MeetingManager extends Manager {
 
     public Maybe<MeetingData> restoreCurrentMeetingDataIfAvailable() {
         return preferencesManager.restoreIfAvailable(KEY_CURRENT_MEETING_DATA, MeetingData.class)
-                .doOnSuccess(meetingData -> this.currentMeetingData = meetingData);
+                .doOnSuccess(this::setCurrentMeetingData);
+    }
+
+    private void setCurrentMeetingData(@Nullable MeetingData meetingData) {
+        this.currentMeetingData = meetingData;
+        hostStateSubject.onNext(meetingData != null);
     }
 
     public Completable persistCurrentMeetingData(@NonNull MeetingData meetingData) {
@@ -111,7 +142,7 @@ public class MeetingManager extends Manager {
                 .flatMapCompletable(keyPair -> createPrivateLocation((ECPublicKey) keyPair.getPublic())
                         .doOnSuccess(meetingData -> {
                             Timber.i("Created meeting data: %s", meetingData);
-                            this.currentMeetingData = meetingData;
+                            setCurrentMeetingData(meetingData);
                         })
                         .flatMapCompletable(meetingData -> Completable.mergeArray(
                                 persistCurrentMeetingData(meetingData),
@@ -161,14 +192,24 @@ public class MeetingManager extends Manager {
         Status
      */
 
+    /**
+     * Fetches the guest list and updates the guest data of the current meeting. Only guests
+     * whose names have not been decrypted yet are decrypted, the meeting data is only
+     * persisted if the guest data changed.
+     */
     public Completable updateMeetingGuestData() {
         return cryptoManager.initialize(context)
                 .andThen(fetchGuestData())
-                .flatMapSingle(this::getMeetingGuestData)
                 .toList()
-                .flatMapCompletable(meetingGuestData -> getCurrentMeetingDataIfAvailable()
-                        .doOnSuccess(meetingData -> meetingData.setGuestData(meetingGuestData))
-                        .flatMapCompletable(this::persistCurrentMeetingData));
+                .flatMapCompletable(tracesResponseData -> getCurrentMeetingDataIfAvailable()
+                        .flatMapCompletable(meetingData -> getMeetingGuestData(meetingData, tracesResponseData)
+                                .flatMapCompletable(meetingGuestData -> {
+                                    if (meetingGuestData.equals(meetingData.getGuestData())) {
+                                        return Completable.complete();
+                                    }
+                                    meetingData.setGuestData(meetingGuestData);
+                                    return persistCurrentMeetingData(meetingData);
+                                })));
     }
 
     public Observable<TracesResponseData> fetchGuestData() {
@@ -180,55 +221,123 @@ public class MeetingManager extends Manager {
                 .flatMapObservable(Observable::fromIterable);
     }
 
-    private Single<MeetingGuestData> getMeetingGuestData(@NonNull TracesResponseData tracesResponseData) {
-        return Single.fromCallable(() -> {
-            MeetingGuestData meetingGuestData = new MeetingGuestData();
-            meetingGuestData.setTraceId(tracesResponseData.getTraceId());
+    private Single<List<MeetingGuestData>> getMeetingGuestData(@NonNull MeetingData meetingData, @NonNull List<TracesResponseData> tracesResponseData) {
+        return decryptGuestAdditionalData(meetingData, tracesResponseData)
+                .andThen(Observable.fromIterable(tracesResponseData))
+                .map(this::getMeetingGuestData)
+                .toList();
+    }
 
-            try {
-                TracesResponseData.AdditionalData additionalData = tracesResponseData.getAdditionalData();
-                if (additionalData == null) {
-                    throw new IllegalStateException("No additional data available for " + tracesResponseData.getTraceId());
-                }
+    private MeetingGuestData getMeetingGuestData(@NonNull TracesResponseData tracesResponseData) {
+        MeetingGuestData meetingGuestData = new MeetingGuestData();
+        meetingGuestData.setTraceId(tracesResponseData.getTraceId());
+
+        MeetingAdditionalData meetingAdditionalData = guestAdditionalData.get(tracesResponseData.getTraceId());
+        if (meetingAdditionalData != null) {
+            meetingGuestData.setFirstName(meetingAdditionalData.getFirstName());
+            meetingGuestData.setLastName(meetingAdditionalData.getLastName());
+        }
+
+        long checkInTimestamp = TimeUtil.convertFromUnixTimestamp(tracesResponseData.getCheckInTimestamp()).blockingGet();
+        meetingGuestData.setCheckInTimestamp(checkInTimestamp);
+
+        long checkOutTimestamp = TimeUtil.convertFromUnixTimestamp(tracesResponseData.getCheckOutTimestampOrZero()).blockingGet();
+        meetingGuestData.setCheckOutTimestamp(checkOutTimestamp);
+
+        return meetingGuestData;
+    }
 
-                PrivateKey meetingPrivateKey = getCurrentMeetingDataIfAvailable()
-                        .toSingle()
-                        .map(MeetingData::getLocationId)
-                        .flatMap(this::getMeetingEphemeralKeyPair)
-                        .map(KeyPair::getPrivate)
-                        .blockingGet();
-
-                ECPublicKey guestPublicKey = SerializationUtil.fromBase64(additionalData.getPublicKey())
-                        .flatMap(AsymmetricCipherProvider::decodePublicKey)
-                        .blockingGet();
-
-                EciesResult eciesResult = new EciesResult(
-                        SerializationUtil.fromBase64(additionalData.getData()).blockingGet(),
-                        SerializationUtil.fromBase64(additionalData.getIv()).blockingGet(),
-                        SerializationUtil.fromBase64(additionalData.getMac()).blockingGet(),
-                        guestPublicKey
-                );
-
-                byte[] decryptedData = cryptoManager.eciesDecrypt(eciesResult, meetingPrivateKey).blockingGet();
-
-                MeetingAdditionalData meetingAdditionalData = Single.fromCallable(() -> new String(decryptedData, StandardCharsets.UTF_8))
-                        .doOnSuccess(json -> Timber.d("Additional data JSON: %s", json))
-                        .map(json -> new Gson().fromJson(json, MeetingAdditionalData.class))
-                        .blockingGet();
-
-                meetingGuestData.setFirstName(meetingAdditionalData.getFirstName());
-                meetingGuestData.setLastName(meetingAdditionalData.getLastName());
-            } catch (Exception e) {
-                Timber.w("Unable to extract guest names from additional data: %s", e.toString());
+    /**
+     * Decrypts the additional data of guests that have uploaded it since the last update, in
+     * parallel. Guests without additional data (not uploaded yet) are decrypted once it's available.
+     * Failed decryptions are not cached, so that they are attempted again on the next update.
+     */
+    private Completable decryptGuestAdditionalData(@NonNull MeetingData meetingData, @NonNull List<TracesResponseData> tracesResponseData) {
+        return Completable.defer(() -> {
+            prepareGuestDataCache(meetingData);
+            List<TracesResponseData> undecryptedTracesResponseData = new ArrayList<>();
+            for (TracesResponseData data : tracesResponseData) {
+                if (data.getAdditionalData() != null && !guestAdditionalData.containsKey(data.getTraceId())) {
+                    undecryptedTracesResponseData.add(data);
+                }
+            }
+            if (undecryptedTracesResponseData.isEmpty()) {
+                return Completable.complete();
             }
+            return getMeetingPrivateKey(meetingData.getLocationId())
+                    .flatMapObservable(privateKey -> Observable.fromIterable(undecryptedTracesResponseData)
+                            .flatMapMaybe(data -> decryptGuestAdditionalData(data.getAdditionalData(), privateKey)
+                                    .doOnSuccess(meetingAdditionalData -> guestAdditionalData.put(data.getTraceId(), meetingAdditionalData))
+                                    .doOnError(throwable -> Timber.w("Unable to extract guest names from additional data of %s: %s", data.getTraceId(), throwable.toString()))
+                                    .onErrorComplete()
+                                    .subscribeOn(Schedulers.computation()), false, MAXIMUM_CONCURRENT_DECRYPTIONS))
+                    .ignoreElements();
+        });
+    }
 
-            long checkInTimestamp = TimeUtil.convertFromUnixTimestamp(tracesResponseData.getCheckInTimestamp()).blockingGet();
-            meetingGuestData.setCheckInTimestamp(checkInTimestamp);
+    private Single<MeetingAdditionalData> decryptGuestAdditionalData(@NonNull TracesResponseData.AdditionalData additionalData, @NonNull PrivateKey meetingPrivateKey) {
+        return Single.zip(
+                SerializationUtil.fromBase64(additionalData.getData()),
+                SerializationUtil.fromBase64(additionalData.getIv()),
+                SerializationUtil.fromBase64(additionalData.getMac()),
+                SerializationUtil.fromBase64(additionalData.getPublicKey()).flatMap(AsymmetricCipherProvider::decodePublicKey),
+                EciesResult::new
+        )
+                .flatMap(eciesResult -> cryptoManager.eciesDecrypt(eciesResult, meetingPrivateKey))
+                .map(decryptedData -> new String(decryptedData, StandardCharsets.UTF_8))
+                .doOnSuccess(json -> Timber.d("Additional data JSON: %s", json))
+                .map(json -> gson.fromJson(json, MeetingAdditionalData.class));
+    }
 
-            long checkOutTimestamp = TimeUtil.convertFromUnixTimestamp(tracesResponseData.getCheckOutTimestampOrZero()).blockingGet();
-            meetingGuestData.setCheckOutTimestamp(checkOutTimestamp);
+    /**
+     * Clears the cached guest data if it belongs to another meeting. Names already contained in
+     * the persisted guest data are reused, so that they don't need to be decrypted again after
+     * a restart.
+     */
+    private synchronized void prepareGuestDataCache(@NonNull MeetingData meetingData) {
+        if (meetingData.getLocationId().equals(guestDataMeetingId)) {
+            return;
+        }
+        clearGuestDataCache();
+        guestDataMeetingId = meetingData.getLocationId();
+        if (meetingData.getGuestData() == null) {
+            return;
+        }
+        for (MeetingGuestData meetingGuestData : meetingData.getGuestData()) {
+            if (meetingGuestData.getFirstName() != null) {
+                MeetingAdditionalData meetingAdditionalData = new MeetingAdditionalData();
+                meetingAdditionalData.setFirstName(meetingGuestData.getFirstName());
+                meetingAdditionalData.setLastName(meetingGuestData.getLastName());
+                guestAdditionalData.put(meetingGuestData.getTraceId(), meetingAdditionalData);
+            }
+        }
+    }
+
+    private synchronized void clearGuestDataCache() {
+        guestAdditionalData.clear();
+        guestDataMeetingId = null;
+        meetingPrivateKey = null;
+    }
 
-            return meetingGuestData;
+    /**
+     * Emits the private key of the meeting ephemeral key pair, which is only restored from the key
+     * store once per meeting.
+     */
+    private Single<PrivateKey> getMeetingPrivateKey(@NonNull UUID meetingId) {
+        return Single.defer(() -> {
+            PrivateKey privateKey = meetingPrivateKey;
+            if (privateKey != null) {
+                return Single.just(privateKey);
+            }
+            return getMeetingEphemeralKeyPair(meetingId)
+                    .map(KeyPair::getPrivate)
+                    .doOnSuccess(restoredPrivateKey -> {
+                        synchronized (this) {
+                            if (meetingId.equals(guestDataMeetingId)) {
+                                meetingPrivateKey = restoredPrivateKey;
+                            }
+                        }
+                    });
         });
     }
 
@@ -240,7 +349,10 @@ public class MeetingManager extends Manager {
         return restoreCurrentMeetingDataIfAvailable()
                 .flatMapCompletable(this::addMeetingDataToArchive)
                 .andThen(preferencesManager.delete(KEY_CURRENT_MEETING_DATA))
-                .doOnComplete(() -> this.currentMeetingData = null);
+                .doOnComplete(() -> {
+                    setCurrentMeetingData(null);
+                    clearGuestDataCache();
+                });
     }
 
     public Completable addMeetingDataToArchive(@NonNull MeetingData meetingData) {
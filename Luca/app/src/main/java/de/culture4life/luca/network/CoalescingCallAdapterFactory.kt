@@ -0,0 +1,63 @@
+package de.culture4life.luca.network
+
+import io.reactivex.rxjava3.core.Single
+import okhttp3.Request
+import okhttp3.ResponseBody
+import okio.Buffer
+import retrofit2.Call
+import retrofit2.CallAdapter
+import retrofit2.Retrofit
+import java.lang.reflect.Type
+
+/**
+ * Wraps the call adapters of the [delegate] factory, so that identical [Single] calls (same
+ * method, URL, headers and body) are executed only once while in flight, using the [singleFlight].
+ *
+ * Calls emitting a [ResponseBody] are not coalesced, as the body can only be consumed once.
+ *
+ * @param memoizationDurations duration in milliseconds for which results will be memoized, by path fragment
+ */
+class CoalescingCallAdapterFactory(
+    private val delegate: CallAdapter.Factory,
+    private val singleFlight: SingleFlight,
+    private val memoizationDurations: Map<String, Long> = emptyMap()
+) : CallAdapter.Factory() {
+
+    override fun get(returnType: Type, annotations: Array<out Annotation>, retrofit: Retrofit): CallAdapter<*, *>? {
+        @Suppress("UNCHECKED_CAST")
+        val adapter = delegate.get(returnType, annotations, retrofit) as CallAdapter<Any, Any>? ?: return null
+        if (getRawType(returnType) != Single::class.java || adapter.responseType() == ResponseBody::class.java) {
+            return adapter
+        }
+        return object : CallAdapter<Any, Any> {
+
+            override fun responseType(): Type = adapter.responseType()
+
+            override fun adapt(call: Call<Any>): Any {
+                val request = call.request()
+                @Suppress("UNCHECKED_CAST")
+                val source = adapter.adapt(call) as Single<Any>
+                return singleFlight.execute(getKey(request), source, getMemoizationDuration(request))
+            }
+        }
+    }
+
+    internal fun getMemoizationDuration(request: Request): Long {
+        val path = request.url.encodedPath
+        return memoizationDurations.entries.firstOrNull { path.contains(it.key) }?.value ?: 0
+    }
+
+    companion object {
+
+        internal fun getKey(request: Request): String {
+            val key = Buffer()
+                .writeUtf8(request.method)
+                .writeUtf8(" ")
+                .writeUtf8(request.url.toString())
+                .writeUtf8("\n")
+                .writeUtf8(request.headers.toString())
+            request.body?.writeTo(key)
+            return key.sha256().hex()
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package de.culture4life.luca.network
+
+import okhttp3.Call
+import okhttp3.EventListener
+import okhttp3.Response
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Counts how requests have been served by the HTTP cache.
+ */
+class HttpCacheMetrics : EventListener() {
+
+    /**
+     * Requests served from the cache without any network request.
+     */
+    val hits = AtomicLong()
+
+    /**
+     * Requests served from the cache after the server confirmed that the cached response is
+     * still valid (HTTP 304).
+     */
+    val conditionalHits = AtomicLong()
+
+    /**
+     * Requests that required a full network response.
+     */
+    val misses = AtomicLong()
+
+    override fun cacheHit(call: Call, response: Response) {
+        hits.incrementAndGet()
+    }
+
+    override fun cacheConditionalHit(call: Call, cachedResponse: Response) {
+        conditionalHits.incrementAndGet()
+    }
+
+    override fun cacheMiss(call: Call) {
+        misses.incrementAndGet()
+    }
+
+    val hitRate: Double
+        get() {
+            val total = hits.get() + conditionalHits.get() + misses.get()
+            return if (total == 0L) 0.0 else (hits.get() + conditionalHits.get()) / total.toDouble()
+        }
+
+    override fun toString(): String {
+        return "HttpCacheMetrics(hits=$hits, conditionalHits=$conditionalHits, misses=$misses)"
+    }
+}
@@ -0,0 +1,31 @@
+package de.culture4life.luca.network
+
+import okhttp3.Interceptor
+import okhttp3.Response
+
+/**
+ * Network interceptor that makes responses of rarely changing resources cacheable, if the
+ * server didn't specify a `Cache-Control` header. Responses containing an `ETag` or
+ * `Last-Modified` header will be revalidated using conditional requests once expired.
+ *
+ * @param maxAgeByPath maximum age in seconds by path fragment, 0 requires revalidation on each use
+ */
+class HttpCachePolicyInterceptor(private val maxAgeByPath: Map<String, Long>) : Interceptor {
+
+    override fun intercept(chain: Interceptor.Chain): Response {
+        val request = chain.request()
+        val response = chain.proceed(request)
+        if (request.method != "GET" || !response.isSuccessful || response.header("Cache-Control") != null) {
+            return response
+        }
+        val maxAge = getMaxAge(request.url.encodedPath) ?: return response
+        return response.newBuilder()
+            .removeHeader("Pragma")
+            .header("Cache-Control", if (maxAge > 0) "max-age=$maxAge" else "no-cache")
+            .build()
+    }
+
+    internal fun getMaxAge(path: String): Long? {
+        return maxAgeByPath.entries.firstOrNull { path.contains(it.key) }?.value
+    }
+}
@@ -28,6 +28,7 @@ import retrofit2.Retrofit
 import retrofit2.adapter.rxjava3.RxJava3CallAdapterFactory
 import retrofit2.converter.gson.GsonConverterFactory
 import timber.log.Timber
+import java.io.File
 import java.security.SecureRandom
 import java.security.cert.X509Certificate
 import java.util.concurrent.TimeUnit
@@ -40,6 +41,7 @@ import javax.net.ssl.SSLContext;
 
 class NetworkManager : Manager() {
     private val rxAdapter: RxJava3CallAdapterFactory by lazy { RxJava3CallAdapterFactory.createWithScheduler(Schedulers.io()) }
+    private val coalescingAdapter: CoalescingCallAdapterFactory by lazy { CoalescingCallAdapterFactory(rxAdapter, singleFlight, MEMOIZATION_DURATIONS) }
     private var lucaEndpointsV3: LucaEndpointsV3? = null
     private var lucaEndpointsV4: LucaEndpointsV4? = null
     private var attestationEndpoints: AttestationEndpoints? = null
@@ -57,6 +59,19 @@ class NetworkManager : Manager() {
         GsonConverterFactory.create(gson)
     }
 
+    val cacheMetrics = HttpCacheMetrics()
+
+    /**
+     * Coalesces identical concurrent calls of all endpoints.
+     */
+    val singleFlight = SingleFlight()
+
+    /**
+     * Client with the shared disk cache and connection pool. Clients for other purposes should
+     * be derived from it using [OkHttpClient.newBuilder], so that they share these resources.
+     */
+    val httpClient: OkHttpClient by lazy { createSharedOkHttpClient() }
+
     private val okHttpClient: OkHttpClient by lazy { createOkHttpClient() }
 
     override fun doInitialize(context: Context): Completable {
@@ -76,11 +91,19 @@ class NetworkManager : Manager() {
         return Retrofit.Builder()
             .baseUrl(baseUrl + baseUrlSuffix)
             .addConverterFactory(gsonFactory)
-            .addCallAdapterFactory(rxAdapter)
+            .addCallAdapterFactory(coalescingAdapter)
             .client(okHttpClient)
             .build()
     }
 
+    private fun createSharedOkHttpClient(): OkHttpClient {
+        return OkHttpClient.Builder()
+            .cache(Cache(File(context.cacheDir, CACHE_DIRECTORY_NAME), CACHE_SIZE))
+            .connectionPool(ConnectionPool())
+            .eventListener(cacheMetrics)
+            .build()
+    }
+
     private fun createOkHttpClient(): OkHttpClient {
         val userAgentInterceptor = Interceptor { chain: Interceptor.Chain ->
             chain.proceed(
@@ -92,6 +115,7 @@ class NetworkManager : Manager() {
         }
         val builder: OkHttpClient.Builder = getUnsafeOkHttpClient()
             .addInterceptor(userAgentInterceptor)
+            .addNetworkInterceptor(HttpCachePolicyInterceptor(CACHE_MAX_AGES))
 
         if (BuildConfig.DEBUG) {
             // Interceptor that shows all network requests as a notification in debug builds
@@ -148,7 +172,7 @@ class NetworkManager : Manager() {
             sslContext.init(null, trustAllCerts, SecureRandom())
             // Create an ssl socket factory with our all-trusting manager
             val sslSocketFactory  = sslContext.socketFactory
-            val builder = OkHttpClient.Builder()
+            val builder = httpClient.newBuilder()
             builder.sslSocketFactory(sslSocketFactory, trustAllCerts[0] as X509TrustManager)
             builder.hostnameVerifier { _, _ -> true }
 
@@ -253,13 +277,39 @@ class NetworkManager : Manager() {
                 lucaEndpointsV4 = null
                 attestationEndpoints = null
                 lucaIdEndpoints = null
+                singleFlight.clearMemoizedResults()
             }
         }
     }
 
     companion object {
         const val HTTP_UPGRADE_REQUIRED = 426
-        private const val CACHE_SIZE = 1024 * 1024 * 10
+
+        /**
+         * Duration in milliseconds for which responses are reused without any request, by path fragment.
+         */
+        private val MEMOIZATION_DURATIONS = mapOf(
+            "/keys/daily/current" to TimeUnit.SECONDS.toMillis(30),
+            "/keys/issuers/" to TimeUnit.MINUTES.toMillis(1),
+            "/healthDepartments/" to TimeUnit.MINUTES.toMillis(1)
+        )
+        private const val CACHE_SIZE = 1024 * 1024 * 10L
+        private const val CACHE_DIRECTORY_NAME = "http"
+
+        /**
+         * Maximum age in seconds of rarely changing resources, used if the server doesn't specify
+         * it. Resources with a maximum age of 0 are revalidated on each use.
+         */
+        private val CACHE_MAX_AGES = mapOf(
+            "/keys/daily/current" to 0L,
+            "/keys/issuers/" to TimeUnit.DAYS.toSeconds(1),
+            "/trustList/DSC" to 0L,
+            "/notifications/config" to TimeUnit.HOURS.toSeconds(1),
+            "/healthDepartments/" to TimeUnit.DAYS.toSeconds(1),
+            "/testProviders" to TimeUnit.DAYS.toSeconds(1),
+            "/features" to TimeUnit.HOURS.toSeconds(1),
+            "/versions/apps/android" to TimeUnit.HOURS.toSeconds(1)
+        )
         private val DEFAULT_REQUEST_TIMEOUT = TimeUnit.SECONDS.toMillis(10)
         private val USER_AGENT = createUserAgent()
         private fun createUserAgent(): String {
@@ -0,0 +1,86 @@
+package de.culture4life.luca.network
+
+import de.culture4life.luca.util.TimeUtil
+import io.reactivex.rxjava3.core.Single
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Deduplicates concurrent executions of identical calls. While a call with a given key is in
+ * flight, subsequent calls with the same key subscribe to the in-flight call instead of
+ * executing the source again. Optionally, results can be memoized for a short duration.
+ */
+class SingleFlight {
+
+    private val inFlightCalls = HashMap<Any, Single<*>>()
+    private val memoizedResults = HashMap<Any, MemoizedResult>()
+
+    /**
+     * Calls that actually executed their source.
+     */
+    val executedCalls = AtomicLong()
+
+    /**
+     * Calls that subscribed to an identical call already in flight.
+     */
+    val coalescedCalls = AtomicLong()
+
+    /**
+     * Calls that emitted a memoized result.
+     */
+    val memoizedCalls = AtomicLong()
+
+    /**
+     * @param memoizationDuration duration in milliseconds for which a successful result will be
+     * emitted to subsequent calls with the same key, 0 to only coalesce concurrent calls
+     */
+    @JvmOverloads
+    fun <T : Any> execute(key: Any, source: Single<T>, memoizationDuration: Long = 0): Single<T> {
+        return Single.defer {
+            synchronized(this) {
+                getMemoizedResult<T>(key)?.let {
+                    memoizedCalls.incrementAndGet()
+                    return@defer Single.just(it)
+                }
+                @Suppress("UNCHECKED_CAST")
+                (inFlightCalls[key] as Single<T>?)?.let {
+                    coalescedCalls.incrementAndGet()
+                    return@defer it
+                }
+                executedCalls.incrementAndGet()
+                val call = source
+                    .doOnSuccess {
+                        if (memoizationDuration > 0) {
+                            synchronized(this) {
+                                memoizedResults[key] = MemoizedResult(it, TimeUtil.getCurrentMillis() + memoizationDuration)
+                            }
+                        }
+                    }
+                    .doFinally { synchronized(this) { inFlightCalls.remove(key) } }
+                    .cache()
+                inFlightCalls[key] = call
+                call
+            }
+        }
+    }
+
+    private fun <T> getMemoizedResult(key: Any): T? {
+        val memoizedResult = memoizedResults[key] ?: return null
+        if (memoizedResult.expirationTimestamp <= TimeUtil.getCurrentMillis()) {
+            memoizedResults.remove(key)
+            return null
+        }
+        @Suppress("UNCHECKED_CAST")
+        return memoizedResult.value as T
+    }
+
+    @Synchronized
+    fun clearMemoizedResults() {
+        memoizedResults.clear()
+    }
+
+    override fun toString(): String {
+        return "SingleFlight(executedCalls=$executedCalls, coalescedCalls=$coalescedCalls, memoizedCalls=$memoizedCalls)"
+    }
+
+    private class MemoizedResult(val value: Any, val expirationTimestamp: Long)
+}
@@ -1,5 +1,7 @@
 package de.culture4life.luca.network.endpoints;
 
+import androidx.annotation.Nullable;
+
 import com.google.gson.JsonObject;
 
 import java.util.List;
@@ -18,9 +20,11 @@ import de.culture4life.luca.network.pojo.RolloutRatioResponseData;
 import io.reactivex.rxjava3.core.Completable;
 import io.reactivex.rxjava3.core.Single;
 import okhttp3.ResponseBody;
+import retrofit2.Response;
 import retrofit2.http.Body;
 import retrofit2.http.GET;
 import retrofit2.http.HTTP;
+import retrofit2.http.Header;
 import retrofit2.http.Headers;
 import retrofit2.http.POST;
 import retrofit2.http.Path;
@@ -54,8 +58,12 @@ public interface LucaEndpointsV4 {
         EUDCC Signing Keys
      */
 
+    /**
+     * @param eTag the ETag of the previously fetched signing keys, if any. The response will be
+     *             empty with status code 304 if the signing keys have not changed since.
+     */
     @GET("trustList/DSC")
-    Single<ResponseBody> getEudccSigningKeys();
+    Single<Response<ResponseBody>> getEudccSigningKeys(@Nullable @Header("If-None-Match") String eTag);
 
     /*
         Proof of work
@@ -9,12 +9,32 @@ data class PowChallenge(
     val expirationTimestamp: Long
 ) {
 
-    val w: BigInteger by lazy {
-        calculateW()
+    @Volatile
+    private var calculatedW: BigInteger? = null
+
+    /**
+     * Calculated on first access, unless it has already been calculated using [calculateW].
+     */
+    val w: BigInteger
+        get() = getOrCalculateW()
+
+    /**
+     * Returns [w] if it has already been calculated, calculates it using the listener otherwise.
+     */
+    fun getOrCalculateW(listener: SequentialSquaring.Listener? = null): BigInteger {
+        return calculatedW ?: calculateW(listener)
+    }
+
+    /**
+     * Calculates [w]. The listener is notified while calculating and may throw in order to abort
+     * the calculation.
+     */
+    fun calculateW(listener: SequentialSquaring.Listener? = null): BigInteger {
+        return SequentialSquaring(n).calculate(TWO, t, listener)
+            .also { calculatedW = it }
     }
 
-    fun calculateW(): BigInteger {
-        val two = BigInteger.valueOf(2)
-        return two.modPow((two.pow(t)), n)
+    companion object {
+        private val TWO = BigInteger.valueOf(2)
     }
 }
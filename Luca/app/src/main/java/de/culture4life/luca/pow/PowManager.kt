@@ -10,6 +10,7 @@ import io.reactivex.rxjava3.core.Maybe
 import io.reactivex.rxjava3.core.Observable
 import io.reactivex.rxjava3.core.Single
 import timber.log.Timber
+import java.util.concurrent.atomic.AtomicBoolean
 
 class PowManager(
     val networkManager: NetworkManager
@@ -62,20 +63,35 @@ class PowManager(
     /**
      * Solves the specified challenge and completes. If you want to avoid solving the
      * same challenge simultaneously, use [.solveChallenge] instead.
+     *
+     * The expiration timestamp is checked periodically while solving, and solving is
+     * stopped as soon as the subscription gets disposed.
      */
     private fun doSolveChallenge(challenge: PowChallenge): Completable {
-        return Single.fromCallable { challenge.w }
-            .ignoreElement()
-            .doOnSubscribe {
-                checkExpirationTimestamp(challenge)
-                Timber.d("Starting to solve challenge: $challenge")
-            }
-            .doOnComplete {
-                Timber.v("Completed solving challenge: $challenge")
+        return Completable.defer {
+            val isDisposed = AtomicBoolean()
+            val startTimestamp = TimeUtil.getCurrentMillis()
+            val squaringListener = SequentialSquaring.Listener { _, _ ->
+                if (isDisposed.get()) {
+                    throw PowException("Solving challenge has been disposed")
+                }
                 checkExpirationTimestamp(challenge)
             }
-            .doOnDispose { Timber.d("Stopping to solve challenge: $challenge") }
-            .onErrorResumeNext { Completable.error(PowException("Unable to solve challenge", it)) }
+            Single.fromCallable { challenge.getOrCalculateW(squaringListener) }
+                .ignoreElement()
+                .doOnSubscribe {
+                    checkExpirationTimestamp(challenge)
+                    Timber.d("Starting to solve challenge: $challenge")
+                }
+                .doOnComplete {
+                    Timber.v("Completed solving challenge after ${TimeUtil.getCurrentMillis() - startTimestamp} ms: $challenge")
+                    checkExpirationTimestamp(challenge)
+                }
+                .doOnDispose {
+                    isDisposed.set(true)
+                    Timber.d("Stopping to solve challenge: $challenge")
+                }
+        }.onErrorResumeNext { Completable.error(PowException("Unable to solve challenge", it)) }
     }
 
     private fun getSharedChallengeObservableIfAvailable(challenge: PowChallenge): Maybe<Observable<PowChallenge>> {
@@ -0,0 +1,50 @@
+package de.culture4life.luca.pow
+
+import java.math.BigInteger
+
+/**
+ * Calculates `base^(2^t) mod n` by performing `t` sequential modular squarings, without
+ * materializing the `t` bit exponent.
+ *
+ * The squarings are performed in chunks of [CHECK_INTERVAL], each delegated to
+ * [BigInteger.modPow] with a [CHECK_INTERVAL] bit exponent. That way they are performed
+ * using Montgomery multiplication by the platform (BoringSSL on Android), while the
+ * [Listener] gets notified in between and may throw in order to abort the calculation,
+ * e.g. if it has been cancelled or expired.
+ */
+class SequentialSquaring(private val n: BigInteger) {
+
+    fun interface Listener {
+
+        /**
+         * Called after every [CHECK_INTERVAL] squarings and once all squarings are completed.
+         */
+        fun onProgress(completedSquarings: Int, totalSquarings: Int)
+    }
+
+    init {
+        require(n.signum() > 0) { "Modulus must be positive" }
+    }
+
+    fun calculate(base: BigInteger, t: Int, listener: Listener? = null): BigInteger {
+        require(t >= 0) { "Number of squarings must not be negative" }
+        var x = base.mod(n)
+        var completedSquarings = 0
+        while (completedSquarings < t) {
+            val squarings = minOf(CHECK_INTERVAL, t - completedSquarings)
+            x = x.modPow(BigInteger.ONE.shiftLeft(squarings), n)
+            completedSquarings += squarings
+            listener?.onProgress(completedSquarings, t)
+        }
+        return x
+    }
+
+    companion object {
+
+        /**
+         * Number of squarings after which the [Listener] gets notified. Large enough for the
+         * chunking overhead to be negligible, small enough to abort within a few milliseconds.
+         */
+        const val CHECK_INTERVAL = 4096
+    }
+}
@@ -1,34 +1,76 @@
 package de.culture4life.luca.preference;
 
 import android.content.Context;
+import android.util.LruCache;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
+import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.nexenio.rxpreferences.provider.BasePreferencesProvider;
 import com.nexenio.rxpreferences.provider.InMemoryPreferencesProvider;
 import com.nexenio.rxpreferences.provider.PreferencesProvider;
 import com.nexenio.rxpreferences.serializer.GsonSerializer;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
 import de.culture4life.luca.LucaApplication;
 import de.culture4life.luca.Manager;
 import de.culture4life.luca.crypto.TraceIdWrapper;
+import de.culture4life.luca.dataaccess.HashedTraceIdIndex;
 import de.culture4life.luca.history.HistoryItem;
 import io.reactivex.rxjava3.core.Completable;
 import io.reactivex.rxjava3.core.Maybe;
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import io.reactivex.rxjava3.subjects.PublishSubject;
+import io.reactivex.rxjava3.subjects.Subject;
+import timber.log.Timber;
 
+/**
+ * Keeps restored and persisted values in a size-bounded in-memory cache, so that frequently used
+ * keys don't need to be decrypted again. Mutable values are cached as JSON and deserialized on each
+ * restore, so that callers always get their own instance and changes to restored or persisted
+ * objects don't affect the cached value.
+ * <p>
+ * {@link #persist(String, Object)} completes once the value has been written. Values that can be
+ * restored otherwise (e.g. caches) may be persisted using {@link #persistDeferred(String, Object)}
+ * instead, which writes behind: consecutive writes to the same key within the
+ * {@link #WRITE_BEHIND_DELAY} are coalesced into one write to the underlying provider. Use
+ * {@link #flush()} to write pending changes immediately, e.g. when the app goes to the background.
+ */
 public class PreferencesManager extends Manager implements PreferencesProvider {
 
-    public static final GsonSerializer SERIALIZER = new GsonSerializer(new GsonBuilder()
-            .setPrettyPrinting()
+    private static final Gson GSON = new GsonBuilder()
             .excludeFieldsWithoutExposeAnnotation()
             .registerTypeAdapter(TraceIdWrapper.class, new TraceIdWrapper.TypeAdapter())
             .registerTypeAdapter(HistoryItem.class, new HistoryItem.TypeAdapter())
-            .create());
+            .registerTypeAdapter(HashedTraceIdIndex.class, new HashedTraceIdIndex.TypeAdapter())
+            .create();
+
+    public static final GsonSerializer SERIALIZER = new GsonSerializer(GSON);
+
+    private static final int MAXIMUM_CACHED_VALUES = 100;
+    private static final long WRITE_BEHIND_DELAY = 500;
+
+    /**
+     * Placeholder for pending deletions.
+     */
+    private static final CachedValue DELETED = new CachedValue(Void.class, null, null);
+
+    private final LruCache<String, CachedValue> cachedValues = new LruCache<>(MAXIMUM_CACHED_VALUES);
+    private final Map<String, CachedValue> pendingWrites = new HashMap<>();
+    private final Object writeLock = new Object();
+    private final Subject<String> changedKeys = PublishSubject.<String>create().toSerialized();
 
     private PreferencesProvider provider;
+    private boolean isFlushScheduled;
 
     @Override
     public Completable doInitialize(@NonNull Context context) {
@@ -44,80 +86,161 @@ public class PreferencesManager extends Manager implements PreferencesProvider {
         });
     }
 
+    @Override
+    public void dispose() {
+        if (provider != null) {
+            flush().onErrorComplete().blockingAwait();
+        }
+        cachedValues.evictAll();
+        super.dispose();
+    }
+
     private Single<PreferencesProvider> getInitializedProvider() {
         return Single.defer(() -> getInitializedField(provider));
     }
 
     @Override
     public Observable<String> getKeys() {
-        return getInitializedProvider()
+        return flush().andThen(getInitializedProvider())
                 .flatMapObservable(PreferencesProvider::getKeys);
     }
 
     @Override
     public Single<Boolean> containsKey(@NonNull String key) {
-        return getInitializedProvider()
-                .flatMap(provider -> provider.containsKey(key));
+        return Single.defer(() -> {
+            CachedValue value = getCachedOrPendingValue(key);
+            if (value == DELETED) {
+                return Single.just(false);
+            } else if (value != null) {
+                return Single.just(true);
+            }
+            return getInitializedProvider()
+                    .flatMap(provider -> provider.containsKey(key));
+        });
     }
 
     @Override
     public <Type> Single<Type> restore(@NonNull String key, @NonNull Class<Type> typeClass) {
-        return getInitializedProvider()
-                .flatMap(provider -> provider.restore(key, typeClass));
+        return restoreIfAvailable(key, typeClass)
+                .switchIfEmpty(Single.defer(() -> getInitializedProvider()
+                        .flatMap(provider -> provider.restore(key, typeClass))));
     }
 
     @Override
     public <Type> Single<Type> restoreOrDefault(@NonNull String key, @NonNull Type defaultValue) {
-        return getInitializedProvider()
-                .flatMap(provider -> provider.restoreOrDefault(key, defaultValue));
+        return restoreIfAvailable(key, getTypeClass(defaultValue))
+                .defaultIfEmpty(defaultValue);
     }
 
     @Override
     public <Type> Observable<Type> restoreOrDefaultAndGetChanges(@NonNull String key, @NonNull Type defaultValue) {
-        return getInitializedProvider()
-                .flatMapObservable(provider -> provider.restoreOrDefaultAndGetChanges(key, defaultValue));
+        return getChanges(key, getTypeClass(defaultValue))
+                .startWith(restoreOrDefault(key, defaultValue));
     }
 
     @Override
     public <Type> Maybe<Type> restoreIfAvailable(@NonNull String key, @NonNull Class<Type> typeClass) {
-        return getInitializedProvider()
-                .flatMapMaybe(provider -> provider.restoreIfAvailable(key, typeClass));
+        return Maybe.defer(() -> {
+            CachedValue value = getCachedOrPendingValue(key);
+            if (value == DELETED) {
+                return Maybe.empty();
+            } else if (value != null && value.isInstanceOf(typeClass)) {
+                return Maybe.just(value.restore(typeClass));
+            }
+            // not cached or cached with a different type, make sure the provider is up to date
+            return flushIfPending(key)
+                    .andThen(getInitializedProvider())
+                    .flatMapMaybe(provider -> provider.restoreIfAvailable(key, typeClass))
+                    .doOnSuccess(restoredValue -> cacheRestoredValue(key, restoredValue));
+        });
     }
 
     @Override
     public <Type> Observable<Type> restoreIfAvailableAndGetChanges(@NonNull String key, @NonNull Class<Type> typeClass) {
-        return getInitializedProvider()
-                .flatMapObservable(provider -> provider.restoreIfAvailableAndGetChanges(key, typeClass));
+        return getChanges(key, typeClass)
+                .startWith(restoreIfAvailable(key, typeClass));
     }
 
+    /**
+     * Persists the value and completes once it has been written to the underlying provider.
+     */
     @Override
     public <Type> Completable persist(@NonNull String key, @NonNull Type value) {
         return getInitializedProvider()
-                .flatMapCompletable(provider -> provider.persist(key, value));
+                .flatMapCompletable(provider -> Completable.fromAction(() -> {
+                    synchronized (writeLock) {
+                        CachedValue cachedValue = addPendingWrite(key, value);
+                        writeChange(provider, key, cachedValue, value);
+                    }
+                }));
+    }
+
+    /**
+     * Persists the value and completes once it has been cached. The value will be written within
+     * the {@link #WRITE_BEHIND_DELAY}, or earlier if {@link #flush()} is called. Should only be used
+     * for values that may get lost if the app gets killed in the meantime.
+     */
+    public <Type> Completable persistDeferred(@NonNull String key, @NonNull Type value) {
+        return getInitializedProvider()
+                .flatMapCompletable(provider -> Completable.fromAction(() -> {
+                    addPendingWrite(key, value);
+                    scheduleFlush();
+                }));
+    }
+
+    private <Type> CachedValue addPendingWrite(@NonNull String key, @NonNull Type value) {
+        CachedValue cachedValue = CachedValue.of(value);
+        synchronized (pendingWrites) {
+            cachedValues.put(key, cachedValue);
+            pendingWrites.put(key, cachedValue);
+        }
+        changedKeys.onNext(key);
+        return cachedValue;
     }
 
     @Override
     public <Type> Completable persistIfNotYetAvailable(@NonNull String key, @NonNull Type value) {
-        return getInitializedProvider()
-                .flatMapCompletable(provider -> provider.persistIfNotYetAvailable(key, value));
+        return containsKey(key)
+                .flatMapCompletable(containsKey -> containsKey ? Completable.complete() : persist(key, value));
     }
 
+    /**
+     * Emits the restored value each time the key gets persisted. Changes are emitted as soon as
+     * the value is cached, without waiting for the value being written.
+     */
     @Override
     public <Type> Observable<Type> getChanges(@NonNull String key, @NonNull Class<Type> typeClass) {
         return getInitializedProvider()
-                .flatMapObservable(provider -> provider.getChanges(key, typeClass));
+                .flatMapObservable(provider -> changedKeys.filter(key::equals))
+                .concatMapMaybe(changedKey -> restoreIfAvailable(key, typeClass));
     }
 
     @Override
     public Completable delete(@NonNull String key) {
         return getInitializedProvider()
-                .flatMapCompletable(provider -> provider.delete(key));
+                .flatMapCompletable(provider -> Completable.fromAction(() -> {
+                    synchronized (writeLock) {
+                        synchronized (pendingWrites) {
+                            cachedValues.remove(key);
+                            pendingWrites.put(key, DELETED);
+                        }
+                        writeChange(provider, key, DELETED, null);
+                    }
+                }));
     }
 
     @Override
     public Completable deleteAll() {
         return getInitializedProvider()
-                .flatMapCompletable(preferencesProvider -> preferencesProvider.deleteAll()
+                .flatMapCompletable(preferencesProvider -> Completable.fromAction(() -> {
+                            synchronized (writeLock) {
+                                synchronized (pendingWrites) {
+                                    cachedValues.evictAll();
+                                    pendingWrites.clear();
+                                }
+                                preferencesProvider.deleteAll().blockingAwait();
+                            }
+                        })
                         .andThen(Completable.defer(() -> {
                             if (preferencesProvider instanceof EncryptedSharedPreferencesProvider) {
                                 return ((EncryptedSharedPreferencesProvider) preferencesProvider).resetSharedPreferences(context);
@@ -127,4 +250,142 @@ public class PreferencesManager extends Manager implements PreferencesProvider {
                         })));
     }
 
+    /**
+     * Writes all pending changes to the underlying provider.
+     */
+    public Completable flush() {
+        return getInitializedProvider()
+                .flatMapCompletable(provider -> Completable.fromAction(() -> writePendingChanges(provider)));
+    }
+
+    private Completable flushIfPending(@NonNull String key) {
+        return Completable.defer(() -> {
+            synchronized (pendingWrites) {
+                if (!pendingWrites.containsKey(key)) {
+                    return Completable.complete();
+                }
+            }
+            return flush();
+        });
+    }
+
+    private void scheduleFlush() {
+        synchronized (pendingWrites) {
+            if (isFlushScheduled) {
+                return;
+            }
+            isFlushScheduled = true;
+        }
+        managerDisposable.add(flush()
+                .delaySubscription(WRITE_BEHIND_DELAY, TimeUnit.MILLISECONDS, Schedulers.io())
+                .subscribe(
+                        () -> Timber.v("Flushed pending preference changes"),
+                        throwable -> Timber.w("Unable to flush pending preference changes: %s", throwable.toString())
+                ));
+    }
+
+    /**
+     * Writes a snapshot of the pending changes. Entries are only removed after being written and
+     * if they haven't been changed in the meantime, so that reads can rely on them until then.
+     */
+    private void writePendingChanges(@NonNull PreferencesProvider provider) {
+        synchronized (writeLock) {
+            Map<String, CachedValue> changes;
+            synchronized (pendingWrites) {
+                isFlushScheduled = false;
+                changes = new HashMap<>(pendingWrites);
+            }
+            for (Map.Entry<String, CachedValue> change : changes.entrySet()) {
+                CachedValue cachedValue = change.getValue();
+                Object value = cachedValue != DELETED ? cachedValue.restore(Object.class) : null;
+                writeChange(provider, change.getKey(), cachedValue, value);
+            }
+        }
+    }
+
+    /**
+     * Writes the value of the pending change and removes the change, unless it has been replaced
+     * in the meantime. Must be called while holding the {@link #writeLock}.
+     */
+    private void writeChange(@NonNull PreferencesProvider provider, @NonNull String key, @NonNull CachedValue pendingValue, @Nullable Object value) {
+        if (pendingValue == DELETED) {
+            provider.delete(key).blockingAwait();
+        } else {
+            provider.persist(key, value).blockingAwait();
+        }
+        synchronized (pendingWrites) {
+            pendingWrites.remove(key, pendingValue);
+        }
+    }
+
+    @VisibleForTesting
+    int getPendingWriteCount() {
+        synchronized (pendingWrites) {
+            return pendingWrites.size();
+        }
+    }
+
+    @Nullable
+    private CachedValue getCachedOrPendingValue(@NonNull String key) {
+        synchronized (pendingWrites) {
+            CachedValue pendingValue = pendingWrites.get(key);
+            return pendingValue != null ? pendingValue : cachedValues.get(key);
+        }
+    }
+
+    private void cacheRestoredValue(@NonNull String key, @NonNull Object value) {
+        CachedValue cachedValue = CachedValue.of(value);
+        synchronized (pendingWrites) {
+            if (!pendingWrites.containsKey(key)) {
+                cachedValues.put(key, cachedValue);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <Type> Class<Type> getTypeClass(@NonNull Type value) {
+        return (Class<Type>) Objects.requireNonNull(value).getClass();
+    }
+
+    /**
+     * A cached or pending value. Immutable values are kept by reference, other values are kept as
+     * JSON and deserialized into a new instance each time they are restored.
+     */
+    private static final class CachedValue {
+
+        private final Class<?> typeClass;
+
+        @Nullable
+        private final Object immutableValue;
+
+        @Nullable
+        private final String serializedValue;
+
+        private CachedValue(@NonNull Class<?> typeClass, @Nullable Object immutableValue, @Nullable String serializedValue) {
+            this.typeClass = typeClass;
+            this.immutableValue = immutableValue;
+            this.serializedValue = serializedValue;
+        }
+
+        private static CachedValue of(@NonNull Object value) {
+            if (value instanceof String || value instanceof Number || value instanceof Boolean
+                    || value instanceof Character || value instanceof Enum) {
+                return new CachedValue(value.getClass(), value, null);
+            }
+            return new CachedValue(value.getClass(), null, GSON.toJson(value));
+        }
+
+        private boolean isInstanceOf(@NonNull Class<?> typeClass) {
+            return typeClass.isAssignableFrom(this.typeClass);
+        }
+
+        private <Type> Type restore(@NonNull Class<Type> typeClass) {
+            if (immutableValue != null) {
+                return typeClass.cast(immutableValue);
+            }
+            return typeClass.cast(GSON.fromJson(serializedValue, this.typeClass));
+        }
+
+    }
+
 }
@@ -3,6 +3,7 @@ package de.culture4life.luca.registration
 import android.content.Context
 import android.os.Looper
 import android.widget.Toast
+import androidx.annotation.VisibleForTesting
 import com.google.gson.JsonArray
 import com.google.gson.JsonObject
 import de.culture4life.luca.LucaApplication
@@ -21,11 +22,13 @@ import io.reactivex.rxjava3.core.Completable
 import io.reactivex.rxjava3.core.Maybe
 import io.reactivex.rxjava3.core.Observable
 import io.reactivex.rxjava3.core.Single
+import io.reactivex.rxjava3.schedulers.Schedulers
 import timber.log.Timber
 import java.net.HttpURLConnection
 import java.nio.charset.StandardCharsets
 import java.util.*
 import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
 import kotlin.collections.ArrayList
 
 /**
@@ -50,6 +53,8 @@ class RegistrationManager(
 
     private var cachedRegistrationData: RegistrationData? = null
 
+    val dataTransferMetrics = DataTransferMetrics()
+
     override fun doInitialize(context: Context): Completable {
         return Completable.mergeArray(
             preferencesManager.initialize(context),
@@ -420,25 +425,36 @@ class RegistrationManager(
      * Overview: Secrets](https://www.luca-app.de/securityoverview/properties/secrets.html.term-guest-data-transfer-object)
      */
     private fun createDataTransferRequestData(days: Int): Single<DataTransferRequestData> {
-        return cryptoManager.initialize(context)
-            .andThen(createTransferData(days))
+        val getSerializedTransferData = createTransferData(days)
             .doOnSuccess { Timber.i("Encrypting transfer data: %s", it) }
-            .flatMap(SerializationUtil::toJson)
-            .map(String::toByteArray)
-            .flatMap(cryptoManager::eciesEncrypt)
-            .map { eciesData ->
-                DataTransferRequestData().apply {
-                    this.encryptedContactData = eciesData.encryptedData.encodeToBase64()
-                    this.iv = eciesData.iv.encodeToBase64()
-                    this.mac = eciesData.mac.encodeToBase64()
-                    this.guestKeyPairPublicKey = AsymmetricCipherProvider.encode(eciesData.ephemeralPublicKey)
-                        .map(ByteArray::encodeToBase64)
-                        .blockingGet()
-                    this.dailyKeyPairPublicKeyId = cryptoManager.getDailyPublicKey()
-                        .map(DailyPublicKeyData::id)
-                        .blockingGet()
-                }
+            .flatMap { SerializationUtil.toJsonBytes(it).measureDuration(dataTransferMetrics.serializationDuration) }
+
+        // looked up while the tracing secrets are being collected, zip subscribes in order
+        val getDailyPublicKey = cryptoManager.getDailyPublicKey()
+            .measureDuration(dataTransferMetrics.dailyPublicKeyLookupDuration)
+            .subscribeOn(Schedulers.io())
+
+        return cryptoManager.initialize(context)
+            .andThen(Single.zip(getDailyPublicKey, getSerializedTransferData, ::Pair))
+            .flatMap { (dailyPublicKeyData, serializedTransferData) ->
+                cryptoManager.eciesEncrypt(serializedTransferData, dailyPublicKeyData.publicKey)
+                    .measureDuration(dataTransferMetrics.encryptionDuration)
+                    .flatMap { eciesData ->
+                        AsymmetricCipherProvider.encode(eciesData.ephemeralPublicKey)
+                            .map(ByteArray::encodeToBase64)
+                            .map { encodedEphemeralPublicKey ->
+                                DataTransferRequestData().apply {
+                                    this.encryptedContactData = eciesData.encryptedData.encodeToBase64()
+                                    this.iv = eciesData.iv.encodeToBase64()
+                                    this.mac = eciesData.mac.encodeToBase64()
+                                    this.guestKeyPairPublicKey = encodedEphemeralPublicKey
+                                    this.dailyKeyPairPublicKeyId = dailyPublicKeyData.id
+                                }
+                            }
+                    }
             }
+            .measureDuration(dataTransferMetrics.totalDuration)
+            .doOnSuccess { Timber.d("Created data transfer request data: %s", dataTransferMetrics) }
     }
 
     /**
@@ -446,60 +462,49 @@ class RegistrationManager(
      *
      * @see [Tracing the Check-In History of an Infected Guest](https://luca-app.de/securityoverview/processes/tracing_access_to_history.html?highlight=transfer#accessing-the-infected-guest-s-tracing-secrets)
      */
-    private fun createTransferData(days: Int): Single<TransferData> {
+    @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE)
+    fun createTransferData(days: Int): Single<TransferData> {
+        val getDataSecret = cryptoManager.getDataSecret()
+            .map(ByteArray::encodeToBase64)
+
+        val getRegistrations = archiver.getData()
+            .toSortedList(compareBy(RegistrationData::registrationTimestamp))
+
+        val getTraceSecretWrappers = checkInManager.initialize(context)
+            .andThen(checkInManager.restoreRecentTracingSecrets(TimeUnit.DAYS.toMillis(days.toLong())))
+            .map {
+                TraceSecretWrapper(
+                    timestamp = it.first.toUnixTimestamp(),
+                    traceSecret = it.second.encodeToBase64()
+                )
+            }
+            .toList()
+            .measureDuration(dataTransferMetrics.tracingSecretsCollectionDuration)
+
         return cryptoManager.initialize(context)
             .andThen(
-                Single.fromCallable {
-                    val dataSecret = cryptoManager.getDataSecret()
-                        .map(ByteArray::encodeToBase64)
-                        .blockingGet()
-
-                    val userDataWrappers = archiver.getData()
-                        .map {
-                            UserDataWrapper(
-                                id = it.id.toString(),
-                                registrationTimestamp = it.registrationTimestamp.toUnixTimestamp(),
-                                dataSecret = dataSecret,
-                                traceSecretWrappers = mutableListOf()
-                            )
-                        }.toList().blockingGet()
-
-                    val getTracingSecrets = checkInManager.initialize(context)
-                        .andThen(checkInManager.restoreRecentTracingSecrets(TimeUnit.DAYS.toMillis(days.toLong())))
-                        .map {
-                            TraceSecretWrapper(
-                                timestamp = it.first.toUnixTimestamp(),
-                                traceSecret = it.second.encodeToBase64()
-                            )
-                        }
-                        .cache()
-
-                    userDataWrappers.forEachIndexed { index, element ->
-                        val startUnixTimestamp = element.registrationTimestamp
-                        val endUnixTimestamp = if (index < userDataWrappers.lastIndex) {
-                            userDataWrappers[index + 1].registrationTimestamp
-                        } else {
-                            TimeUtil.getCurrentMillis().toUnixTimestamp()
-                        }
-
-                        Timber.d("Filtering trace secret wrappers between $startUnixTimestamp and $endUnixTimestamp for ${element.id}")
-                        val wrappers = getTracingSecrets
-                            .doOnNext { Timber.v("Checking trace secret wrapper: $it") }
-                            .filter { it.timestamp in startUnixTimestamp until endUnixTimestamp }
-                            .switchIfEmpty(
-                                // can happen for the very first check-in due to timestamp rounding
-                                getTracingSecrets.lastElement().toObservable()
-                            )
-                            .toList()
-                            .blockingGet()
-                        element.traceSecretWrappers.addAll(wrappers)
+                Single.zip(getDataSecret, getRegistrations, getTraceSecretWrappers) { dataSecret, registrations, traceSecretWrappers ->
+                    val userDataWrappers = registrations.map {
+                        UserDataWrapper(
+                            id = it.id.toString(),
+                            registrationTimestamp = it.registrationTimestamp.toUnixTimestamp(),
+                            dataSecret = dataSecret,
+                            traceSecretWrappers = mutableListOf()
+                        )
                     }
-
+                    assignTraceSecretWrappers(userDataWrappers, traceSecretWrappers, TimeUtil.getCurrentMillis().toUnixTimestamp())
                     TransferData(userDataWrappers)
                 }
             )
     }
 
+    private fun <T : Any> Single<T>.measureDuration(duration: AtomicLong): Single<T> {
+        return Single.defer {
+            val startTime = System.nanoTime()
+            this.doOnSuccess { duration.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime)) }
+        }
+    }
+
     private fun invokeRemovalOfOldDataFromArchive(): Completable {
         return invokeDelayed(archiver.deleteDataOlderThan(ARCHIVE_DURATION), TimeUnit.SECONDS.toMillis(3))
     }
@@ -515,5 +520,65 @@ class RegistrationManager(
         val USER_ACTIVITY_REPORT_INTERVAL = TimeUnit.DAYS.toMillis((365 / 2).toLong())
         private val ARCHIVE_DURATION = USER_ACTIVITY_REPORT_INTERVAL
         private const val KEY_ARCHIVED_REGISTRATION_DATA = "registration_archive"
+
+        /**
+         * Adds each trace secret wrapper to the user data wrapper that has been registered when the
+         * tracing secret was used, in a single pass over the trace secret wrappers.
+         *
+         * @param userDataWrappers sorted by registration timestamp, ascending
+         */
+        @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE)
+        fun assignTraceSecretWrappers(
+            userDataWrappers: List<UserDataWrapper>,
+            traceSecretWrappers: List<TraceSecretWrapper>,
+            currentUnixTimestamp: Long
+        ) {
+            val registrationTimestamps = userDataWrappers.map(UserDataWrapper::registrationTimestamp)
+            for (traceSecretWrapper in traceSecretWrappers) {
+                if (traceSecretWrapper.timestamp >= currentUnixTimestamp) {
+                    continue
+                }
+                var index = registrationTimestamps.binarySearch(traceSecretWrapper.timestamp)
+                    .let { if (it >= 0) it else -it - 2 }
+                if (index < 0) {
+                    continue // used before the first registration
+                }
+                while (index < registrationTimestamps.lastIndex && registrationTimestamps[index + 1] <= traceSecretWrapper.timestamp) {
+                    index++
+                }
+                userDataWrappers[index].traceSecretWrappers.add(traceSecretWrapper)
+            }
+
+            // can happen for the very first check-in due to timestamp rounding
+            val fallbackTraceSecretWrapper = traceSecretWrappers.lastOrNull() ?: return
+            userDataWrappers.filter { it.traceSecretWrappers.isEmpty() }
+                .forEach { it.traceSecretWrappers.add(fallbackTraceSecretWrapper) }
+        }
+    }
+
+    /**
+     * Durations of the stages of the most recent data transfer request creation, in milliseconds.
+     */
+    class DataTransferMetrics {
+
+        val tracingSecretsCollectionDuration = AtomicLong()
+
+        val dailyPublicKeyLookupDuration = AtomicLong()
+
+        val serializationDuration = AtomicLong()
+
+        val encryptionDuration = AtomicLong()
+
+        val totalDuration = AtomicLong()
+
+        override fun toString(): String {
+            return "DataTransferMetrics(tracingSecretsCollectionDuration=%d ms, dailyPublicKeyLookupDuration=%d ms, serializationDuration=%d ms, encryptionDuration=%d ms, totalDuration=%d ms)".format(
+                tracingSecretsCollectionDuration.get(),
+                dailyPublicKeyLookupDuration.get(),
+                serializationDuration.get(),
+                encryptionDuration.get(),
+                totalDuration.get()
+            )
+        }
     }
 }
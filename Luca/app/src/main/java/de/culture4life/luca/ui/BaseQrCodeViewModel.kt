@@ -1,24 +1,23 @@
 package de.culture4life.luca.ui
 
-import android.annotation.SuppressLint
 import android.app.Application
-import android.media.Image
+import android.graphics.RectF
 import androidx.annotation.CallSuper
 import androidx.camera.core.ImageAnalysis
 import androidx.camera.core.ImageProxy
 import androidx.lifecycle.LiveData
 import androidx.lifecycle.MutableLiveData
-import com.google.mlkit.vision.common.InputImage
 import de.culture4life.luca.notification.LucaNotificationManager
 import de.culture4life.luca.ui.BaseQrCodeViewModel.CameraRequest.HidePreview
 import de.culture4life.luca.ui.BaseQrCodeViewModel.CameraRequest.ShowPreviewAndRequestMissingPermissions
+import de.culture4life.luca.ui.common.BarcodeScanningPipeline
 import de.culture4life.luca.ui.common.LucaBarcodeScanner
 import io.reactivex.rxjava3.core.Completable
-import io.reactivex.rxjava3.core.Maybe
 import io.reactivex.rxjava3.core.Single
-import io.reactivex.rxjava3.disposables.Disposable
 import io.reactivex.rxjava3.schedulers.Schedulers
 import timber.log.Timber
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicReference
 
 class BaseQrCodeViewModel(application: Application) :
     BaseViewModel(application), ImageAnalysis.Analyzer {
@@ -26,7 +25,9 @@ class BaseQrCodeViewModel(application: Application) :
     protected var notificationManager: LucaNotificationManager = this.application.notificationManager
 
     private val scanner by lazy { LucaBarcodeScanner() }
-    private var imageProcessingDisposable: Disposable? = null
+    private val scanningPipeline by lazy { BarcodeScanningPipeline(scanner) }
+    private val isProcessingBarcode = AtomicBoolean()
+    private val pendingBarcodeData = AtomicReference<String?>()
     protected val showCameraPreview: MutableLiveData<ViewEvent<CameraRequest>> = MutableLiveData(ViewEvent(HidePreview))
     var pauseCameraImageProcessing = false
     var barcodeCallback: BaseQrCodeCallback? = null
@@ -77,29 +78,29 @@ class BaseQrCodeViewModel(application: Application) :
         Camera image processing
      */
 
-    @SuppressLint("UnsafeExperimentalUsageError")
     override fun analyze(imageProxy: ImageProxy) {
         if (!shouldProcessCameraImages()) {
+            scanningPipeline.onFrameDropped()
             imageProxy.close()
             return
         }
-        imageProcessingDisposable = processCameraImage(imageProxy)
-            .doOnError { Timber.w("Unable to process camera image: %s", it.toString()) }
-            .onErrorComplete()
-            .doFinally { imageProxy.close() }
-            .subscribeOn(Schedulers.computation())
-            .subscribe()
-        modelDisposable.add(imageProcessingDisposable)
+        modelDisposable.add(
+            processCameraImage(imageProxy)
+                .doOnError { Timber.w("Unable to process camera image: %s", it.toString()) }
+                .onErrorComplete()
+                .subscribeOn(Schedulers.computation())
+                .subscribe()
+        )
     }
 
     /**
-     * Indicates if new camera images should be processed. Should return false if an image
-     * is currently processed or any UI is overlaying the camera preview.
+     * Indicates if new camera images should be processed. Should return false if too many images
+     * are currently processed or any UI is overlaying the camera preview.
      */
     @CallSuper
     protected open fun shouldProcessCameraImages(): Boolean {
-        if (imageProcessingDisposable != null && !imageProcessingDisposable!!.isDisposed) {
-            return false // still processing last image
+        if (!scanningPipeline.canAcceptFrame()) {
+            return false // still detecting barcodes in previous images
         } else if (isLoading.value == true) {
             return false // something is still loading, e.g. a check-in request
         } else if (errors.value?.isNotEmpty() == true) {
@@ -110,12 +111,54 @@ class BaseQrCodeViewModel(application: Application) :
         return true
     }
 
-    @SuppressLint("UnsafeOptInUsageError")
+    /**
+     * Detects barcodes in the image. The image is released before the detected barcodes are
+     * processed, so that the next image can already be detected meanwhile. Only one barcode is
+     * processed at a time, the latest barcode detected in the meantime is processed afterwards.
+     */
     private fun processCameraImage(imageProxy: ImageProxy): Completable {
-        return Maybe.fromCallable<Image> { imageProxy.image }
-            .map { image -> InputImage.fromMediaImage(image, imageProxy.imageInfo.rotationDegrees) }
-            .flatMapObservable(scanner::detectBarcodes)
-            .flatMapCompletable { barcodeData -> processBarcode(barcodeData) }
+        return scanningPipeline.detectBarcodes(imageProxy)
+            .flatMapCompletable { barcodeData ->
+                if (isProcessingBarcode.compareAndSet(false, true)) {
+                    processBarcodes(barcodeData)
+                        .doFinally { isProcessingBarcode.set(false) }
+                } else {
+                    pendingBarcodeData.set(barcodeData)
+                    Completable.complete()
+                }
+            }
+    }
+
+    private fun processBarcodes(barcodeData: String): Completable {
+        return processBarcode(barcodeData)
+            .doOnError { Timber.w("Unable to process barcode: %s", it.toString()) }
+            .onErrorComplete()
+            .doOnComplete {
+                scanningPipeline.onBarcodeProcessed(barcodeData)
+                Timber.v("Processed barcode, scanning %s", scanningPipeline.metrics)
+            }
+            .andThen(
+                Completable.defer {
+                    val nextBarcodeData = pendingBarcodeData.getAndSet(null)
+                    if (nextBarcodeData != null && nextBarcodeData != barcodeData && shouldProcessCameraImages()) {
+                        processBarcodes(nextBarcodeData)
+                    } else {
+                        Completable.complete()
+                    }
+                }
+            )
+    }
+
+    /**
+     * Region of the camera image that should be scanned, relative to the image size.
+     * Defaults to the centered square of the image.
+     */
+    fun setRegionOfInterest(regionOfInterest: RectF?) {
+        scanningPipeline.regionOfInterest = regionOfInterest
+    }
+
+    fun getScanningMetrics(): BarcodeScanningPipeline.Metrics {
+        return scanningPipeline.metrics
     }
 
     private fun processBarcode(barcodeData: String): Completable {
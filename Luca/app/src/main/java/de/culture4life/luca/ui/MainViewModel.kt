@@ -53,7 +53,8 @@ class MainViewModel(application: Application) : BaseViewModel(application) {
     }
 
     private fun keepHasNewsMessagesUpdated(): Completable {
-        return updateHasNewsMessages()
+        return whatIsNewManager.initialize(application)
+            .andThen(updateHasNewsMessages())
             .andThen(whatIsNewManager.getMessageUpdates())
             .debounce(100, TimeUnit.MILLISECONDS)
             .flatMapCompletable { updateHasNewsMessages() }
@@ -71,7 +72,9 @@ class MainViewModel(application: Application) : BaseViewModel(application) {
             connectManager.getEnrollmentSupportedButNotRecognizedStatusAndChanges(),
             connectManager.getHasUnreadMessagesStatusAndChanges()
         )
-        return statusChanges.flatMapCompletable { updateHasLucaConnectMessages() }
+        return connectManager.initialize(application)
+            .andThen(statusChanges)
+            .flatMapCompletable { updateHasLucaConnectMessages() }
     }
 
     private fun keepTermsOfServiceMessagesUpdated(): Completable {
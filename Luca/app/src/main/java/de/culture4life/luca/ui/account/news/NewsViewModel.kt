@@ -15,7 +15,9 @@ class NewsViewModel(app: Application) : BaseViewModel(app) {
     }
 
     private fun updateLucaIdEnabledStatus(): Completable {
-        return application.idNowManager.isEnrollmentEnabled()
+        val idNowManager = application.idNowManager
+        return idNowManager.initialize(application)
+            .andThen(idNowManager.isEnrollmentEnabled())
             .flatMapCompletable { enabled ->
                 update(lucaIdEnabledStatus, ViewEvent(enabled))
             }
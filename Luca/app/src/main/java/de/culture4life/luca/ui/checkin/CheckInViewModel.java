@@ -35,6 +35,7 @@ import java.security.KeyPair;
 import java.security.PrivateKey;
 import java.security.interfaces.ECPublicKey;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
@@ -97,6 +98,8 @@ public class CheckInViewModel extends BaseViewModel implements BaseQrCodeCallbac
     private final MutableLiveData<ViewEvent<Boolean>> showCameraPreview = new MutableLiveData<>();
     private final MutableLiveData<Boolean> dailyPublicKeyAvailable = new MutableLiveData<>();
 
+    private final QrCodePayloadPipeline<QrCodePayload> qrCodePayloadPipeline;
+
     private UUID userId;
 
     private ViewError meetingError;
@@ -110,6 +113,18 @@ public class CheckInViewModel extends BaseViewModel implements BaseQrCodeCallbac
         this.meetingManager = this.application.getMeetingManager();
         this.networkManager = this.application.getNetworkManager();
         this.documentManager = this.application.getDocumentManager();
+        this.qrCodePayloadPipeline = new QrCodePayloadPipeline<>(
+                this::generateQrCodePayload,
+                this::discardQrCodePayload,
+                QrCodePayloadPipeline.DEFAULT_PREFETCH_COUNT,
+                Schedulers.io()
+        );
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        qrCodePayloadPipeline.dispose();
     }
 
     @Override
@@ -182,7 +197,8 @@ public class CheckInViewModel extends BaseViewModel implements BaseQrCodeCallbac
 
     private Completable observeIncludeEntryPolicyChanges() {
         return preferencesManager.getChanges(CheckInManager.KEY_INCLUDE_ENTRY_POLICY, Boolean.class)
-                .flatMapCompletable(includeEntryPolicy -> updateQrCode())
+                .flatMapCompletable(includeEntryPolicy -> Completable.fromAction(qrCodePayloadPipeline::invalidate)
+                        .andThen(updateQrCode()))
                 .subscribeOn(Schedulers.io());
     }
 
@@ -212,24 +228,62 @@ public class CheckInViewModel extends BaseViewModel implements BaseQrCodeCallbac
         QR code generation
      */
 
+    /**
+     * Updates the QR code now and at the start of each following minute, as that's when the trace
+     * ID changes.
+     */
     private Completable keepUpdatingQrCodes() {
-        return Observable.interval(0, 1, TimeUnit.MINUTES, Schedulers.io())
-                .flatMapCompletable(tick -> updateQrCode());
+        return updateQrCode()
+                .andThen(Completable.defer(() -> {
+                    long durationUntilNextMinute = TimeUnit.MINUTES.toMillis(1) - TimeUtil.getCurrentMillis() % TimeUnit.MINUTES.toMillis(1);
+                    return Completable.timer(durationUntilNextMinute, TimeUnit.MILLISECONDS, Schedulers.io());
+                }))
+                .repeat();
     }
 
+    /**
+     * Shows the QR code of the current minute, which has usually been pre-generated by the
+     * {@link #qrCodePayloadPipeline}. The trace ID is persisted once it's shown.
+     */
     private Completable updateQrCode() {
-        return generateQrCodeData()
-                .doOnSubscribe(disposable -> Timber.d("Generating new QR code data"))
-                .doOnSuccess(qrCodeData -> Timber.i("Generated new QR code data: %s", qrCodeData))
-                .flatMap(this::serializeQrCodeData)
-                .doOnSuccess(serializedQrCodeData -> Timber.d("Serialized QR code data: %s", serializedQrCodeData))
-                .flatMap(this::generateQrCode)
-                .flatMapCompletable(bitmap -> update(qrCode, bitmap))
+        return TimeUtil.getCurrentUnixTimestamp()
+                .flatMap(TimeUtil::roundUnixTimestampDownToMinute)
+                .flatMap(qrCodePayloadPipeline::getPayload)
+                .doOnSubscribe(disposable -> Timber.d("Getting QR code payload"))
+                .flatMapCompletable(payload -> checkInManager.persistTraceIdWrapper(payload.getTraceIdWrapper())
+                        .andThen(update(qrCode, payload.getBitmap())))
+                .doOnComplete(() -> Timber.v("QR code payload pipeline: %s", qrCodePayloadPipeline.getMetrics()))
                 .doOnError(throwable -> Timber.w("Unable to update QR code: %s", throwable.toString()))
                 .onErrorComplete()
                 .doFinally(() -> updateAsSideEffect(isLoading, false));
     }
 
+    private Single<QrCodePayload> generateQrCodePayload(long roundedUnixTimestamp) {
+        return preferencesManager.restoreOrDefault(CheckInManager.KEY_INCLUDE_ENTRY_POLICY, false)
+                .flatMap(includeEntryPolicy -> checkInManager.generateTraceIdWrapper(userId, roundedUnixTimestamp)
+                        .flatMap(traceIdWrapper -> generateQrCodeData(false, includeEntryPolicy, traceIdWrapper)
+                                .doOnSuccess(qrCodeData -> Timber.i("Generated new QR code data: %s", qrCodeData))
+                                .flatMap(this::serializeQrCodeData)
+                                .doOnSuccess(serializedQrCodeData -> Timber.d("Serialized QR code data: %s", serializedQrCodeData))
+                                .flatMap(this::generateQrCode)
+                                .map(bitmap -> new QrCodePayload(traceIdWrapper, bitmap))));
+    }
+
+    /**
+     * Deletes the user ephemeral key pair of a pre-generated QR code that has never been shown,
+     * unless the trace ID has been persisted in the meantime. Called by the {@link #qrCodePayloadPipeline}
+     * once the minute of the QR code passed, so that the key pair can't be used by a QR code that is
+     * being shown.
+     */
+    private Completable discardQrCodePayload(@NonNull QrCodePayload payload) {
+        byte[] traceId = payload.getTraceIdWrapper().getTraceId();
+        return checkInManager.getTraceIdWrappers()
+                .any(traceIdWrapper -> Arrays.equals(traceIdWrapper.getTraceId(), traceId))
+                .filter(isPersisted -> !isPersisted)
+                .flatMapSingle(isPersisted -> CheckInManager.getGuestEphemeralKeyPairAlias(traceId))
+                .flatMapCompletable(alias -> cryptoManager.deleteKeyPairs(Observable.just(alias)));
+    }
+
     private Single<QrCodeData> generateQrCodeData() {
         return preferencesManager.restoreOrDefault(CheckInManager.KEY_INCLUDE_ENTRY_POLICY, false)
                 .flatMap(includeEntryPolicy -> generateQrCodeData(this.userId, false, includeEntryPolicy));
@@ -238,34 +292,38 @@ public class CheckInViewModel extends BaseViewModel implements BaseQrCodeCallbac
     @VisibleForTesting
     protected Single<QrCodeData> generateQrCodeData(UUID actualUserId, boolean isAnonymous, boolean shareEntryPolicy) {
         Timber.i("CheckInViewModel.generateQrCodeData(%s, %b, %b)", actualUserId.toString(), isAnonymous, shareEntryPolicy);
+        return checkInManager.getTraceIdWrapper(actualUserId)
+                .flatMap(userTraceIdWrapper -> generateQrCodeData(isAnonymous, shareEntryPolicy, userTraceIdWrapper));
+    }
+
+    private Single<QrCodeData> generateQrCodeData(boolean isAnonymous, boolean shareEntryPolicy, @NonNull TraceIdWrapper userTraceIdWrapper) {
         return cryptoManager.initialize(application)
                 .andThen(Single.just(new QrCodeData()))
-                .flatMap(qrCodeData -> checkInManager.getTraceIdWrapper(actualUserId)
-                        .flatMapCompletable(userTraceIdWrapper -> Completable.mergeArray(
-                                cryptoManager.getDailyPublicKey()
-                                        .map(DailyPublicKeyData::getId)
-                                        .doOnSuccess(qrCodeData::setKeyId)
-                                        .doOnError(err -> Timber.i("GenerateQRCodeData -> Cannot get daily public key"))
-                                        .ignoreElement(),
-                                CheckInManager.getGuestEphemeralKeyPairAlias(userTraceIdWrapper.getTraceId())
-                                        .flatMap(cryptoManager::getKeyPair)
-                                        .doOnError(err -> Timber.i("Cannoit get guest ephermeral key pair alias"))
-                                        .observeOn(Schedulers.computation())
-                                        .flatMapCompletable(keyPair -> {
-                                            if (!isAnonymous) {
-                                                return setQrCodeEncryptedData(qrCodeData, keyPair, userTraceIdWrapper);
-                                            } else {
-                                                return setQrCodeAnonymousEncryptedData(qrCodeData, keyPair, userTraceIdWrapper);
-                                            }
-                                        }),
-                                TimeUtil.encodeUnixTimestamp(userTraceIdWrapper.getTimestamp())
-                                        .doOnSuccess(qrCodeData::setTimestamp)
-                                        .ignoreElement(),
-                                getQrCodeEntryPolicy(shareEntryPolicy)
-                                        .doOnSuccess(qrCodeData::setEntryPolicy)
-                                        .ignoreElement(),
-                                Completable.fromAction(() -> qrCodeData.setTraceId(userTraceIdWrapper.getTraceId()))))
-                .andThen(Single.just(qrCodeData)))
+                .flatMap(qrCodeData -> Completable.mergeArray(
+                        cryptoManager.getDailyPublicKey()
+                                .map(DailyPublicKeyData::getId)
+                                .doOnSuccess(qrCodeData::setKeyId)
+                                .doOnError(err -> Timber.i("GenerateQRCodeData -> Cannot get daily public key"))
+                                .ignoreElement(),
+                        CheckInManager.getGuestEphemeralKeyPairAlias(userTraceIdWrapper.getTraceId())
+                                .flatMap(cryptoManager::getKeyPair)
+                                .doOnError(err -> Timber.i("Cannoit get guest ephermeral key pair alias"))
+                                .observeOn(Schedulers.computation())
+                                .flatMapCompletable(keyPair -> {
+                                    if (!isAnonymous) {
+                                        return setQrCodeEncryptedData(qrCodeData, keyPair, userTraceIdWrapper);
+                                    } else {
+                                        return setQrCodeAnonymousEncryptedData(qrCodeData, keyPair, userTraceIdWrapper);
+                                    }
+                                }),
+                        TimeUtil.encodeUnixTimestamp(userTraceIdWrapper.getTimestamp())
+                                .doOnSuccess(qrCodeData::setTimestamp)
+                                .ignoreElement(),
+                        getQrCodeEntryPolicy(shareEntryPolicy)
+                                .doOnSuccess(qrCodeData::setEntryPolicy)
+                                .ignoreElement(),
+                        Completable.fromAction(() -> qrCodeData.setTraceId(userTraceIdWrapper.getTraceId())))
+                        .andThen(Single.just(qrCodeData)))
                 .doOnSuccess(qrCodeData -> Timber.i("We have the qrcode data %s %s", qrCodeData.getTraceId(), qrCodeData.getUserEphemeralPublicKey()))
                 .doOnError(err -> Timber.i("Generate qr code data failed"));
     }
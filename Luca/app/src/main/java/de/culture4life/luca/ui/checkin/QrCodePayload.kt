@@ -0,0 +1,12 @@
+package de.culture4life.luca.ui.checkin
+
+import android.graphics.Bitmap
+import de.culture4life.luca.crypto.TraceIdWrapper
+
+/**
+ * A QR code ready to be shown, along with the trace ID it contains.
+ */
+data class QrCodePayload(
+    val traceIdWrapper: TraceIdWrapper,
+    val bitmap: Bitmap
+)
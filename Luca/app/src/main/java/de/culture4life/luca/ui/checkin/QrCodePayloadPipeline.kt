@@ -0,0 +1,187 @@
+package de.culture4life.luca.ui.checkin
+
+import de.culture4life.luca.util.TimeUtil
+import io.reactivex.rxjava3.core.Completable
+import io.reactivex.rxjava3.core.Scheduler
+import io.reactivex.rxjava3.core.Single
+import io.reactivex.rxjava3.disposables.CompositeDisposable
+import io.reactivex.rxjava3.schedulers.Schedulers
+import timber.log.Timber
+import java.util.*
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Pre-generates the QR code payloads of the upcoming minutes in the background, so that the
+ * payload of the current minute is usually ready when the QR code needs to be refreshed.
+ *
+ * - Payloads are generated by the [generator] for rounded unix timestamps (seconds).
+ * - Payloads that have been pre-generated but never been requested are passed to the [discarder]
+ *   once their minute passed, so that associated data can be deleted. This also applies to
+ *   invalidated payloads, as the payload of an upcoming minute may be generated again with the
+ *   same associated data until then.
+ */
+class QrCodePayloadPipeline<Payload : Any>(
+    private val generator: (Long) -> Single<Payload>,
+    private val discarder: (Payload) -> Completable,
+    private val prefetchCount: Int = DEFAULT_PREFETCH_COUNT,
+    private val scheduler: Scheduler = Schedulers.io()
+) {
+
+    val metrics = Metrics()
+
+    private val payloads = TreeMap<Long, Single<Payload>>()
+    private val requestedTimestamps = HashSet<Long>()
+    private val disposables = CompositeDisposable()
+
+    /**
+     * Emits the payload for the given minute, generating it if it hasn't been pre-generated yet,
+     * and starts pre-generating the payloads of the following minutes.
+     */
+    fun getPayload(roundedUnixTimestamp: Long): Single<Payload> {
+        return Single.defer {
+            synchronized(payloads) {
+                discardPayloadsBefore(roundedUnixTimestamp)
+                requestedTimestamps.add(roundedUnixTimestamp)
+                val payload = getOrGeneratePayload(roundedUnixTimestamp)
+                for (minute in 1..prefetchCount) {
+                    prefetchPayload(roundedUnixTimestamp + TimeUnit.MINUTES.toSeconds(minute.toLong()))
+                }
+                payload
+            }
+        }.doOnSuccess { metrics.requestedPayloads.incrementAndGet() }
+    }
+
+    /**
+     * Discards all payloads that have not been requested yet, e.g. because data included in the
+     * payloads changed. Requested payloads will be generated again when requested the next time.
+     * Discarded payloads are passed to the [discarder] once their minute passed.
+     */
+    fun invalidate() {
+        synchronized(payloads) {
+            discardPayloads(payloads.keys.toList())
+        }
+    }
+
+    /**
+     * Stops pre-generating and discards all payloads that have not been requested yet.
+     */
+    fun dispose() {
+        disposables.clear()
+        invalidate()
+    }
+
+    private fun getOrGeneratePayload(roundedUnixTimestamp: Long): Single<Payload> {
+        val payload = payloads[roundedUnixTimestamp]
+        if (payload == null) {
+            metrics.missedPayloads.incrementAndGet()
+            return generatePayload(roundedUnixTimestamp)
+        }
+        return payload
+    }
+
+    private fun prefetchPayload(roundedUnixTimestamp: Long) {
+        if (payloads.containsKey(roundedUnixTimestamp)) {
+            return
+        }
+        disposables.add(
+            generatePayload(roundedUnixTimestamp).subscribe(
+                { Timber.v("Pre-generated QR code payload for %d", roundedUnixTimestamp) },
+                { Timber.w("Unable to pre-generate QR code payload for %d: %s", roundedUnixTimestamp, it.toString()) }
+            )
+        )
+    }
+
+    private fun generatePayload(roundedUnixTimestamp: Long): Single<Payload> {
+        val payload = Single.defer {
+            val generationStartTime = System.nanoTime()
+            generator(roundedUnixTimestamp)
+                .doOnSuccess { metrics.addGenerationLatency(System.nanoTime() - generationStartTime) }
+        }
+            .subscribeOn(scheduler)
+            .doOnError { removePayload(roundedUnixTimestamp) }
+            .cache()
+        payloads[roundedUnixTimestamp] = payload
+        return payload
+    }
+
+    private fun removePayload(roundedUnixTimestamp: Long) {
+        synchronized(payloads) {
+            payloads.remove(roundedUnixTimestamp)
+            requestedTimestamps.remove(roundedUnixTimestamp)
+        }
+    }
+
+    private fun discardPayloadsBefore(roundedUnixTimestamp: Long) {
+        discardPayloads(payloads.headMap(roundedUnixTimestamp).keys.toList())
+    }
+
+    private fun discardPayloads(roundedUnixTimestamps: List<Long>) {
+        for (roundedUnixTimestamp in roundedUnixTimestamps) {
+            val payload = payloads.remove(roundedUnixTimestamp) ?: continue
+            if (requestedTimestamps.remove(roundedUnixTimestamp)) {
+                continue
+            }
+            metrics.discardedPayloads.incrementAndGet()
+            disposables.add(
+                Completable.timer(getDurationUntilMinutePassed(roundedUnixTimestamp), TimeUnit.MILLISECONDS, scheduler)
+                    .andThen(payload.flatMapCompletable(discarder))
+                    .onErrorComplete()
+                    .subscribe()
+            )
+        }
+    }
+
+    private fun getDurationUntilMinutePassed(roundedUnixTimestamp: Long): Long {
+        val minutePassedTimestamp = TimeUnit.SECONDS.toMillis(roundedUnixTimestamp) + TimeUnit.MINUTES.toMillis(1)
+        return maxOf(minutePassedTimestamp - TimeUtil.getCurrentMillis(), 0)
+    }
+
+    class Metrics {
+
+        val requestedPayloads = AtomicLong()
+
+        /**
+         * Number of requested payloads that had not been pre-generated.
+         */
+        val missedPayloads = AtomicLong()
+
+        val discardedPayloads = AtomicLong()
+
+        private val generationLatencies = LongArray(LATENCY_SAMPLE_COUNT)
+        private var generationLatencyCount = 0
+
+        @Synchronized
+        internal fun addGenerationLatency(latency: Long) {
+            generationLatencies[generationLatencyCount % LATENCY_SAMPLE_COUNT] = latency
+            generationLatencyCount++
+        }
+
+        /**
+         * Generation latency in milliseconds of the given percentile (0 to 100), based on the
+         * most recent generated payloads.
+         */
+        @Synchronized
+        fun getGenerationLatencyPercentile(percentile: Int): Long {
+            val sampleCount = minOf(generationLatencyCount, LATENCY_SAMPLE_COUNT)
+            if (sampleCount == 0) {
+                return 0
+            }
+            val sortedLatencies = generationLatencies.copyOf(sampleCount).apply { sort() }
+            val index = ((percentile.coerceIn(0, 100) / 100.0) * (sampleCount - 1)).toInt()
+            return TimeUnit.NANOSECONDS.toMillis(sortedLatencies[index])
+        }
+
+        override fun toString(): String {
+            return "Metrics(requestedPayloads=%d, missedPayloads=%d, discardedPayloads=%d, p50=%d ms, p90=%d ms, p99=%d ms)".format(
+                requestedPayloads.get(), missedPayloads.get(), discardedPayloads.get(),
+                getGenerationLatencyPercentile(50), getGenerationLatencyPercentile(90), getGenerationLatencyPercentile(99)
+            )
+        }
+    }
+
+    companion object {
+        const val DEFAULT_PREFETCH_COUNT = 2
+        private const val LATENCY_SAMPLE_COUNT = 64
+    }
+}
@@ -0,0 +1,212 @@
+package de.culture4life.luca.ui.common
+
+import android.annotation.SuppressLint
+import android.graphics.ImageFormat
+import android.graphics.Rect
+import android.graphics.RectF
+import androidx.camera.core.ImageProxy
+import com.google.mlkit.vision.common.InputImage
+import de.culture4life.luca.util.TimeUtil
+import io.reactivex.rxjava3.core.Observable
+import io.reactivex.rxjava3.core.Single
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Detects barcodes in camera frames using the [LucaBarcodeScanner].
+ *
+ * - Frames are cropped to the [regionOfInterest] before being detected.
+ * - Frames are released as soon as they have been cropped, so that the camera can deliver the
+ *   next frame while barcodes of the previous frame are still detected or processed.
+ * - Barcodes that have recently been processed are skipped for the [recentBarcodeDuration].
+ */
+class BarcodeScanningPipeline(
+    private val scanner: LucaBarcodeScanner,
+    private val recentBarcodeDuration: Long = DEFAULT_RECENT_BARCODE_DURATION
+) {
+
+    /**
+     * Region of the frame that should be scanned, relative to the frame size. If not set, the
+     * centered square of the frame is used, matching the viewfinder.
+     */
+    var regionOfInterest: RectF? = null
+
+    val metrics = Metrics()
+
+    private val framesInFlight = AtomicInteger()
+    private val recentBarcodes = HashMap<String, Long>()
+
+    /**
+     * Indicates if another frame can be detected without exceeding [MAXIMUM_FRAMES_IN_FLIGHT].
+     */
+    fun canAcceptFrame(): Boolean {
+        return framesInFlight.get() < MAXIMUM_FRAMES_IN_FLIGHT
+    }
+
+    fun onFrameDropped() {
+        metrics.droppedFrames.incrementAndGet()
+    }
+
+    /**
+     * Crops and releases the frame, then emits barcodes that have not been processed recently.
+     * The pipeline takes ownership of the [imageProxy] and closes it.
+     *
+     * The frame is counted as in flight as soon as this method is called, not when the returned
+     * observable is subscribed, so that [canAcceptFrame] considers it immediately.
+     */
+    fun detectBarcodes(imageProxy: ImageProxy): Observable<String> {
+        framesInFlight.incrementAndGet()
+        return Single.fromCallable {
+            metrics.onFrameAnalyzed()
+            try {
+                createInputImage(imageProxy, regionOfInterest)
+            } finally {
+                imageProxy.close()
+            }
+        }
+            .flatMapObservable { inputImage ->
+                val detectionStartTime = System.nanoTime()
+                scanner.detectBarcodes(inputImage)
+                    .doOnComplete { metrics.onFrameDecoded(System.nanoTime() - detectionStartTime) }
+            }
+            .filter { barcode ->
+                val isRecent = isRecentBarcode(barcode)
+                if (isRecent) {
+                    metrics.skippedBarcodes.incrementAndGet()
+                }
+                !isRecent
+            }
+            .doFinally { framesInFlight.decrementAndGet() }
+    }
+
+    /**
+     * Marks the barcode as processed, so that it will be skipped in subsequent frames, no matter
+     * if it has been accepted or rejected.
+     */
+    fun onBarcodeProcessed(barcode: String) {
+        synchronized(recentBarcodes) {
+            recentBarcodes[barcode] = TimeUtil.getCurrentMillis()
+        }
+    }
+
+    internal fun isRecentBarcode(barcode: String): Boolean {
+        val currentTime = TimeUtil.getCurrentMillis()
+        synchronized(recentBarcodes) {
+            recentBarcodes.values.removeAll { currentTime - it > recentBarcodeDuration }
+            return recentBarcodes.containsKey(barcode)
+        }
+    }
+
+    class Metrics {
+
+        val analyzedFrames = AtomicLong()
+        val droppedFrames = AtomicLong()
+        val skippedBarcodes = AtomicLong()
+
+        private val firstFrameTime = AtomicLong()
+        private val decodedFrames = AtomicLong()
+        private val totalDecodeLatency = AtomicLong()
+        private val lastDecodeLatency = AtomicLong()
+
+        internal fun onFrameAnalyzed() {
+            firstFrameTime.compareAndSet(0, System.nanoTime())
+            analyzedFrames.incrementAndGet()
+        }
+
+        internal fun onFrameDecoded(latency: Long) {
+            decodedFrames.incrementAndGet()
+            totalDecodeLatency.addAndGet(latency)
+            lastDecodeLatency.set(latency)
+        }
+
+        /**
+         * Analyzed frames per second since the first frame.
+         */
+        val frameRate: Double
+            get() {
+                val duration = System.nanoTime() - firstFrameTime.get()
+                return if (firstFrameTime.get() == 0L || duration <= 0) 0.0 else analyzedFrames.get() * TimeUnit.SECONDS.toNanos(1).toDouble() / duration
+            }
+
+        /**
+         * Average duration of the barcode detection, in milliseconds.
+         */
+        val averageDecodeLatency: Long
+            get() = TimeUnit.NANOSECONDS.toMillis(totalDecodeLatency.get() / decodedFrames.get().coerceAtLeast(1))
+
+        val lastDecodeLatencyMillis: Long
+            get() = TimeUnit.NANOSECONDS.toMillis(lastDecodeLatency.get())
+
+        override fun toString(): String {
+            return "Metrics(frameRate=%.1f, analyzedFrames=%d, droppedFrames=%d, skippedBarcodes=%d, averageDecodeLatency=%d ms, lastDecodeLatency=%d ms)".format(
+                frameRate, analyzedFrames.get(), droppedFrames.get(), skippedBarcodes.get(), averageDecodeLatency, lastDecodeLatencyMillis
+            )
+        }
+    }
+
+    companion object {
+
+        const val MAXIMUM_FRAMES_IN_FLIGHT = 2
+        val DEFAULT_RECENT_BARCODE_DURATION = TimeUnit.SECONDS.toMillis(2)
+
+        /**
+         * Calculates the area of the frame that should be scanned.
+         */
+        @JvmStatic
+        fun getCropRect(width: Int, height: Int, regionOfInterest: RectF?): Rect {
+            val cropRect = if (regionOfInterest != null) {
+                Rect(
+                    (regionOfInterest.left * width).toInt(),
+                    (regionOfInterest.top * height).toInt(),
+                    (regionOfInterest.right * width).toInt(),
+                    (regionOfInterest.bottom * height).toInt()
+                )
+            } else {
+                val size = minOf(width, height)
+                val left = (width - size) / 2
+                val top = (height - size) / 2
+                Rect(left, top, left + size, top + size)
+            }
+            cropRect.intersect(0, 0, width, height)
+            // NV21 requires even dimensions
+            cropRect.right -= cropRect.width() % 2
+            cropRect.bottom -= cropRect.height() % 2
+            return cropRect
+        }
+
+        /**
+         * Copies the luminance of the cropped area into a NV21 buffer. QR codes don't need colors,
+         * so the chrominance is set to neutral.
+         */
+        @SuppressLint("UnsafeOptInUsageError")
+        private fun createInputImage(imageProxy: ImageProxy, regionOfInterest: RectF?): InputImage {
+            check(imageProxy.format == ImageFormat.YUV_420_888) { "Unsupported image format: ${imageProxy.format}" }
+            val cropRect = getCropRect(imageProxy.width, imageProxy.height, regionOfInterest)
+            val width = cropRect.width()
+            val height = cropRect.height()
+            val luminancePlane = imageProxy.planes[0]
+            val luminanceBuffer = luminancePlane.buffer
+            val rowStride = luminancePlane.rowStride
+            val pixelStride = luminancePlane.pixelStride
+            val nv21 = ByteArray(width * height * 3 / 2)
+            if (pixelStride == 1) {
+                for (row in 0 until height) {
+                    luminanceBuffer.position((cropRect.top + row) * rowStride + cropRect.left)
+                    luminanceBuffer.get(nv21, row * width, width)
+                }
+            } else {
+                for (row in 0 until height) {
+                    val rowOffset = (cropRect.top + row) * rowStride
+                    for (column in 0 until width) {
+                        nv21[row * width + column] = luminanceBuffer.get(rowOffset + (cropRect.left + column) * pixelStride)
+                    }
+                }
+            }
+            nv21.fill(NEUTRAL_CHROMINANCE, width * height)
+            return InputImage.fromByteArray(nv21, width, height, imageProxy.imageInfo.rotationDegrees, InputImage.IMAGE_FORMAT_NV21)
+        }
+
+        private const val NEUTRAL_CHROMINANCE = 128.toByte()
+    }
+}
@@ -0,0 +1,198 @@
+package de.culture4life.luca.ui.history
+
+import de.culture4life.luca.history.HistoryIndex
+import de.culture4life.luca.history.HistoryItem
+import java.util.*
+
+/**
+ * Pairs end items (check-out, meeting ended) with the latest start item (check-in, meeting started)
+ * that has been created before them. Items that are neither paired end items nor referenced as
+ * start item by any end item remain single entries.
+ *
+ * The pairing is created in one linear pass over the sorted items and then updated incrementally
+ * when items get added, which only requires lookups in the sorted start and end items of the
+ * affected type. Removals are rare (deleting old or selected items) and require a [reset].
+ */
+class HistoryItemPairing {
+
+    /**
+     * Either a paired end item with its [start] item, or a single [item] without [start] item.
+     */
+    data class Entry(val start: HistoryItem?, val item: HistoryItem)
+
+    data class Diff(
+        val addedEntries: List<Entry>,
+        val removedEntries: List<Entry>
+    )
+
+    private val entries = TreeMap<HistoryItem, Entry>(HistoryIndex.COMPARATOR)
+    private val startItemsByType = HashMap<Int, TreeMap<Long, HistoryItem>>()
+    private val endItemsByType = HashMap<Int, TreeMap<Long, MutableList<HistoryItem>>>()
+    private val pairedEndItemCounts = IdentityHashMap<HistoryItem, Int>()
+
+    /**
+     * All entries, ordered by the timestamp of the (end) item, descending.
+     */
+    @Synchronized
+    fun getEntries(): List<Entry> {
+        return entries.values.toList()
+    }
+
+    /**
+     * Replaces all entries by pairing the specified items in one pass.
+     *
+     * @param items all available items, sorted by timestamp (descending)
+     */
+    @Synchronized
+    fun reset(items: List<HistoryItem>): Diff {
+        val removedEntries = entries.values.toList()
+        entries.clear()
+        startItemsByType.clear()
+        endItemsByType.clear()
+        pairedEndItemCounts.clear()
+
+        // iterate in ascending order, grouped by timestamp, so that only start items created
+        // before an end item get paired with it
+        var groupEnd = items.size
+        while (groupEnd > 0) {
+            val timestamp = items[groupEnd - 1].timestamp
+            var groupStart = groupEnd - 1
+            while (groupStart > 0 && items[groupStart - 1].timestamp == timestamp) {
+                groupStart--
+            }
+            val group = items.subList(groupStart, groupEnd)
+            group.filter { isEndItem(it) }.forEach { endItem ->
+                addEndItem(endItem)
+                val startItem = startItemsByType[getStartItemType(endItem.type)]?.lastEntry()?.value
+                entries[endItem] = Entry(startItem, endItem)
+                startItem?.let { pairedEndItemCounts[it] = (pairedEndItemCounts[it] ?: 0) + 1 }
+            }
+            // iterated in reverse, so that the first item of the descending order is kept per timestamp
+            group.asReversed().filter { isStartItem(it) }.forEach { startItemsByType.getOrPut(it.type) { TreeMap() }[it.timestamp] = it }
+            groupEnd = groupStart
+        }
+
+        items.filterNot { isEndItem(it) || pairedEndItemCounts.containsKey(it) }
+            .forEach { entries[it] = Entry(null, it) }
+        return Diff(entries.values.toList(), removedEntries)
+    }
+
+    /**
+     * Adds the items incrementally and returns the entries that changed as a result.
+     */
+    @Synchronized
+    fun add(items: List<HistoryItem>): Diff {
+        val previousEntries = IdentityHashMap<HistoryItem, Entry?>()
+        for (item in items) {
+            if (entries.containsKey(item) || pairedEndItemCounts.containsKey(item)) {
+                continue // already paired, e.g. when the changes overlap with a reset
+            }
+            when {
+                isEndItem(item) -> addPairedEndItem(item, previousEntries)
+                isStartItem(item) -> addStartItem(item, previousEntries)
+                else -> setEntry(item, Entry(null, item), previousEntries)
+            }
+        }
+        val addedEntries = ArrayList<Entry>()
+        val removedEntries = ArrayList<Entry>()
+        for ((item, previousEntry) in previousEntries) {
+            val currentEntry = entries[item]
+            if (currentEntry != previousEntry) {
+                previousEntry?.let { removedEntries.add(it) }
+                currentEntry?.let { addedEntries.add(it) }
+            }
+        }
+        return Diff(addedEntries, removedEntries)
+    }
+
+    private fun addPairedEndItem(endItem: HistoryItem, previousEntries: MutableMap<HistoryItem, Entry?>) {
+        addEndItem(endItem)
+        val startItem = startItemsByType[getStartItemType(endItem.type)]?.lowerEntry(endItem.timestamp)?.value
+        setEntry(endItem, Entry(startItem, endItem), previousEntries)
+        startItem?.let { incrementPairedEndItemCount(it, previousEntries) }
+    }
+
+    private fun addStartItem(startItem: HistoryItem, previousEntries: MutableMap<HistoryItem, Entry?>) {
+        val startItems = startItemsByType.getOrPut(startItem.type) { TreeMap() }
+        val existingStartItem = startItems[startItem.timestamp]
+        if (existingStartItem != null && HistoryIndex.COMPARATOR.compare(existingStartItem, startItem) < 0) {
+            // another start item with the same timestamp takes precedence
+            setEntry(startItem, Entry(null, startItem), previousEntries)
+            return
+        }
+        startItems[startItem.timestamp] = startItem
+
+        // end items created after this start item, but not after the next start item, are now paired with it
+        val nextStartTimestamp = startItems.higherKey(startItem.timestamp) ?: Long.MAX_VALUE
+        val affectedEndItems = endItemsByType[getEndItemType(startItem.type)]
+            ?.subMap(startItem.timestamp, false, nextStartTimestamp, true)
+            ?.values?.flatten()
+            ?: emptyList()
+        for (endItem in affectedEndItems) {
+            entries[endItem]?.start?.let { decrementPairedEndItemCount(it, previousEntries) }
+            setEntry(endItem, Entry(startItem, endItem), previousEntries)
+            pairedEndItemCounts[startItem] = (pairedEndItemCounts[startItem] ?: 0) + 1
+        }
+        if (!pairedEndItemCounts.containsKey(startItem)) {
+            setEntry(startItem, Entry(null, startItem), previousEntries)
+        }
+    }
+
+    private fun addEndItem(endItem: HistoryItem) {
+        endItemsByType.getOrPut(endItem.type) { TreeMap() }
+            .getOrPut(endItem.timestamp) { ArrayList(1) }
+            .add(endItem)
+    }
+
+    /**
+     * Sets or removes the entry of the item, remembering the entry it had before the first change.
+     */
+    private fun setEntry(item: HistoryItem, entry: Entry?, previousEntries: MutableMap<HistoryItem, Entry?>) {
+        if (!previousEntries.containsKey(item)) {
+            previousEntries[item] = entries[item]
+        }
+        if (entry != null) {
+            entries[item] = entry
+        } else {
+            entries.remove(item)
+        }
+    }
+
+    private fun incrementPairedEndItemCount(startItem: HistoryItem, previousEntries: MutableMap<HistoryItem, Entry?>) {
+        val count = pairedEndItemCounts[startItem] ?: 0
+        if (count == 0) {
+            // the start item is no longer a single entry
+            setEntry(startItem, null, previousEntries)
+        }
+        pairedEndItemCounts[startItem] = count + 1
+    }
+
+    private fun decrementPairedEndItemCount(startItem: HistoryItem, previousEntries: MutableMap<HistoryItem, Entry?>) {
+        val count = pairedEndItemCounts[startItem] ?: return
+        if (count <= 1) {
+            pairedEndItemCounts.remove(startItem)
+            setEntry(startItem, Entry(null, startItem), previousEntries)
+        } else {
+            pairedEndItemCounts[startItem] = count - 1
+        }
+    }
+
+    companion object {
+
+        private fun isStartItem(item: HistoryItem): Boolean {
+            return item.type == HistoryItem.TYPE_CHECK_IN || item.type == HistoryItem.TYPE_MEETING_STARTED
+        }
+
+        private fun isEndItem(item: HistoryItem): Boolean {
+            return item.type == HistoryItem.TYPE_CHECK_OUT || item.type == HistoryItem.TYPE_MEETING_ENDED
+        }
+
+        private fun getStartItemType(endItemType: Int): Int {
+            return if (endItemType == HistoryItem.TYPE_CHECK_OUT) HistoryItem.TYPE_CHECK_IN else HistoryItem.TYPE_MEETING_STARTED
+        }
+
+        private fun getEndItemType(startItemType: Int): Int {
+            return if (startItemType == HistoryItem.TYPE_CHECK_IN) HistoryItem.TYPE_CHECK_OUT else HistoryItem.TYPE_MEETING_ENDED
+        }
+    }
+}
@@ -42,6 +42,8 @@ class HistoryViewModel(application: Application) : BaseViewModel(application) {
     private val tracingTanEvent = MutableLiveData<ViewEvent<String>>()
     private val newAccessedData = MutableLiveData<ViewEvent<List<AccessedTraceData>>>()
     private val historyItems = MutableLiveData<List<HistoryListItem>>()
+    private val historyItemPairing = HistoryItemPairing()
+    private val listItemsByEntry = HashMap<HistoryItemPairing.Entry, HistoryListItem>()
     private val historyCanBeShared = MutableLiveData<Boolean>()
     private var dataSharingError: ViewError? = null
 
@@ -78,14 +80,39 @@ class HistoryViewModel(application: Application) : BaseViewModel(application) {
     }
 
     private fun observeHistoryChanges(): Completable {
-        return historyManager.newItems
-            .throttleLatest(1, TimeUnit.SECONDS)
-            .switchMapCompletable { updateHistoryItems() }
+        return historyManager.changes
+            .concatMapCompletable { changeSet ->
+                if (changeSet.removedItems.isNotEmpty() || changeSet.addedItems.any { it.type == HistoryItem.TYPE_TRACE_DATA_ACCESSED }) {
+                    // removals require re-pairing and accessed trace data is shown in the check-out items
+                    updateHistoryItems()
+                } else {
+                    Single.fromCallable { historyItemPairing.add(changeSet.addedItems) }
+                        .flatMapCompletable(this::updateHistoryItems)
+                }
+            }
     }
 
     private fun updateHistoryItems(): Completable {
-        return loadHistoryItems()
+        return historyManager.items
+            .toList()
+            .map(historyItemPairing::reset)
+            .flatMapCompletable(this::updateHistoryItems)
+    }
+
+    /**
+     * Creates list items for the added entries only and publishes the list items of all entries.
+     */
+    private fun updateHistoryItems(diff: HistoryItemPairing.Diff): Completable {
+        return Observable.fromIterable(diff.addedEntries)
+            .concatMapMaybe { entry -> createHistoryViewItem(entry).map { Pair(entry, it) } }
             .toList()
+            .map { addedListItems ->
+                synchronized(listItemsByEntry) {
+                    diff.removedEntries.forEach { listItemsByEntry.remove(it) }
+                    addedListItems.forEach { listItemsByEntry[it.first] = it.second }
+                    historyItemPairing.getEntries().mapNotNull { listItemsByEntry[it] }
+                }
+            }
             .flatMapCompletable { items: List<HistoryListItem> ->
                 updateAsSideEffect(historyItems, items)
                 if (items.isEmpty()) {
@@ -98,62 +125,13 @@ class HistoryViewModel(application: Application) : BaseViewModel(application) {
             }
     }
 
-    private fun loadHistoryItems(): Observable<HistoryListItem> {
-        // get all available items
-        val cachedItems = historyManager.items.cache()
-
-        // find items that belong to each other
-        val cachedStartAndEndItems = cachedItems
-            .flatMapMaybe { endItem: HistoryItem ->
-                getHistoryStartItem(endItem, cachedItems)
-                    .map { startItem: HistoryItem -> Pair(startItem, endItem) }
-            }
-            .cache()
-
-        // find items that don't belong to another item
-        val cachedSingleItems = cachedStartAndEndItems
-            .flatMap { historyItemPair: Pair<HistoryItem, HistoryItem> ->
-                Observable.just(historyItemPair.first, historyItemPair.second)
-            }
-            .toList()
-            .flatMapObservable { startAndEndItemsList: List<HistoryItem> ->
-                cachedItems.filter { historyItem: HistoryItem -> !startAndEndItemsList.contains(historyItem) }
-            }
-
-        // convert and merge items
-        return Observable.mergeArray(
-            cachedStartAndEndItems
-                .flatMapMaybe(this::createHistoryViewItem),
-            cachedSingleItems
-                .flatMapMaybe(this::createHistoryViewItem)
-        ).sorted { item1, item2 -> item2.timestamp.compareTo(item1.timestamp) }
-    }
-
-    /**
-     * Attempts to find the start item for the specified end item.
-     *
-     * @param endItem      the item to find the matching start item for
-     * @param historyItems all available items, sorted by timestamp (descending)
-     */
-    private fun getHistoryStartItem(endItem: HistoryItem, historyItems: Observable<HistoryItem>): Maybe<HistoryItem> {
-        return Single.just(endItem)
-            .filter {
-                it.type == HistoryItem.TYPE_CHECK_OUT || it.type == HistoryItem.TYPE_MEETING_ENDED
-            }
-            .flatMap {
-                Maybe.fromCallable {
-                    // get the matching start item type
-                    if (endItem.type == HistoryItem.TYPE_CHECK_OUT) {
-                        HistoryItem.TYPE_CHECK_IN
-                    } else {
-                        HistoryItem.TYPE_MEETING_STARTED
-                    }
-                }.flatMap { startItemType ->
-                    historyItems.filter { historyItem: HistoryItem -> historyItem.type == startItemType }
-                        .filter { historyItem: HistoryItem -> historyItem.timestamp < endItem.timestamp }
-                        .firstElement()
-                }
-            }
+    private fun createHistoryViewItem(entry: HistoryItemPairing.Entry): Maybe<HistoryListItem> {
+        val startItem = entry.start
+        return if (startItem != null) {
+            createHistoryViewItem(Pair(startItem, entry.item))
+        } else {
+            createHistoryViewItem(entry.item)
+        }
     }
 
     private fun createHistoryViewItem(historyItemPair: Pair<HistoryItem, HistoryItem>): Maybe<HistoryListItem> {
@@ -40,7 +40,9 @@ class LucaConnectBottomSheetViewModel(app: Application) : BaseFlowViewModel(app)
     }
 
     fun onEnrollmentRequested() {
-        application.connectManager.enroll()
+        val connectManager = application.connectManager
+        connectManager.initialize(application)
+            .andThen(connectManager.enroll())
             .subscribeOn(Schedulers.io())
             .observeOn(AndroidSchedulers.mainThread())
             .subscribe(
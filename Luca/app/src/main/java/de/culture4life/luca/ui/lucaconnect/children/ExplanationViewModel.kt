@@ -2,10 +2,15 @@ package de.culture4life.luca.ui.lucaconnect.children
 
 import android.app.Application
 import de.culture4life.luca.ui.base.bottomsheetflow.BaseFlowChildViewModel
+import io.reactivex.rxjava3.schedulers.Schedulers
 
 class ExplanationViewModel(app: Application) : BaseFlowChildViewModel(app) {
     fun onActionButtonClicked() {
-        application.connectManager.invokePowChallengeSolving().subscribe()
+        val connectManager = application.connectManager
+        connectManager.initialize(application)
+            .andThen(connectManager.invokePowChallengeSolving())
+            .subscribeOn(Schedulers.io())
+            .subscribe()
         sharedViewModel?.navigateToNext()
     }
 }
@@ -53,7 +53,9 @@ class LucaConnectSharedDataViewModel(app: Application) : BaseFlowChildViewModel(
     }
 
     private fun initializeDocuments(): Completable {
-        return application.connectManager.getLatestCovidCertificates()
+        val connectManager = application.connectManager
+        return connectManager.initialize(application)
+            .andThen(connectManager.getLatestCovidCertificates())
             .toList()
             .flatMapCompletable { update(documents, it) }
     }
@@ -23,7 +23,9 @@ class ProvideProofViewModel(app: Application) : BaseFlowChildViewModel(app) {
     }
 
     private fun checkProofAvailable(): Completable {
-        return application.connectManager.getLatestCovidCertificates()
+        val connectManager = application.connectManager
+        return connectManager.initialize(application)
+            .andThen(connectManager.getLatestCovidCertificates())
             .subscribeOn(Schedulers.io())
             .toList()
             .flatMapCompletable { documents ->
@@ -256,13 +256,15 @@ public class RegistrationViewModel extends BaseViewModel {
     private Completable unEnrollIfRequired() {
         return Single.fromCallable(this::getShouldUnEnrollLucaConnect)
                 .filter(shouldUnEnroll -> shouldUnEnroll)
-                .flatMapCompletable(shouldUnEnroll -> connectManager.unEnroll());
+                .flatMap(shouldUnEnroll -> application.getInitializedManager(connectManager).toMaybe())
+                .flatMapCompletable(ConnectManager::unEnroll);
     }
 
     private Completable updateSharedDataIfRequired() {
         return Single.fromCallable(this::getShouldUpdateLucaConnectSharedData)
                 .filter(shouldUpdate -> shouldUpdate)
-                .flatMapCompletable(shouldUpdate -> connectManager.reEnroll());
+                .flatMap(shouldUpdate -> application.getInitializedManager(connectManager).toMaybe())
+                .flatMapCompletable(ConnectManager::reEnroll);
     }
 
     private Completable reImportDocumentsIfRequired() {
@@ -602,7 +604,8 @@ public class RegistrationViewModel extends BaseViewModel {
     }
 
     private Completable keepConnectEnrollmentStatusUpdated() {
-        return connectManager.getEnrollmentStatusAndChanges()
+        return application.getInitializedManager(connectManager)
+                .flatMapObservable(ConnectManager::getEnrollmentStatusAndChanges)
                 .flatMapCompletable(status -> updateIfRequired(connectEnrollmentStatus, status));
     }
 
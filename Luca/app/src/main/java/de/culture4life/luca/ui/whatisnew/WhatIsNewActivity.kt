@@ -46,10 +46,11 @@ class WhatIsNewActivity : BaseActivity() {
     }
 
     private fun initializePages(onlyUnseenPages: Boolean = true, pageGroup: WhatIsNewManager.PageGroup? = null) {
+        val whatIsNewManager = application.whatIsNewManager
         val pagesToDisplay = if (onlyUnseenPages) {
-            application.whatIsNewManager.getUnseenPages()
+            whatIsNewManager.getUnseenPages()
         } else {
-            application.whatIsNewManager.getAllPages()
+            whatIsNewManager.getAllPages()
         }
 
         val filterByPageGroup = if (pageGroup != null) {
@@ -60,7 +61,8 @@ class WhatIsNewActivity : BaseActivity() {
             Predicate<WhatIsNewPage> { true }
         }
 
-        pagesToDisplay
+        whatIsNewManager.initialize(application)
+            .andThen(pagesToDisplay)
             .filter(filterByPageGroup)
             .toList()
             .doOnSuccess { this.pages = it }
@@ -84,7 +86,9 @@ class WhatIsNewActivity : BaseActivity() {
                 super.onPageSelected(position)
                 updateBottomButtonsLabels(position)
                 pages?.get(position)?.index?.let { index ->
-                    application.whatIsNewManager.markPageAsSeen(index)
+                    val whatIsNewManager = application.whatIsNewManager
+                    whatIsNewManager.initialize(application)
+                        .andThen(whatIsNewManager.markPageAsSeen(index))
                         .onErrorComplete()
                         .subscribeOn(Schedulers.io())
                         .subscribe()
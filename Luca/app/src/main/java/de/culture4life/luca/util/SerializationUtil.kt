@@ -5,6 +5,9 @@ import com.google.gson.Gson
 import com.nexenio.rxkeystore.util.RxBase64
 import io.reactivex.rxjava3.core.Single
 import org.apache.commons.codec.binary.Base32
+import java.io.ByteArrayOutputStream
+import java.io.OutputStreamWriter
+import java.nio.charset.StandardCharsets
 
 object SerializationUtil {
 
@@ -17,6 +20,18 @@ object SerializationUtil {
         return Single.fromCallable { GSON.toJson(data) }
     }
 
+    /**
+     * Serializes the data as UTF-8 encoded JSON, without creating an intermediate [String].
+     */
+    @JvmStatic
+    fun toJsonBytes(data: Any): Single<ByteArray> {
+        return Single.fromCallable {
+            val outputStream = ByteArrayOutputStream()
+            OutputStreamWriter(outputStream, StandardCharsets.UTF_8).use { GSON.toJson(data, it) }
+            outputStream.toByteArray()
+        }
+    }
+
     @JvmStatic
     fun <Type : Any> fromJson(json: String, typeClass: Class<Type>): Single<Type> {
         return Single.fromCallable { GSON.fromJson(json, typeClass) }
@@ -0,0 +1,179 @@
+package de.culture4life.luca
+
+import android.content.Context
+import io.reactivex.rxjava3.core.Completable
+import io.reactivex.rxjava3.subjects.CompletableSubject
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class ManagerDependencyGraphTest : LucaUnitTest() {
+
+    private val preferencesManager = TestManager("Preferences")
+    private val networkManager = TestManager("Network")
+    private val cryptoManager = TestManager("Crypto")
+    private val registrationManager = TestManager("Registration")
+    private val connectManager = TestManager("Connect")
+
+    private val graph = ManagerDependencyGraph()
+        .add(preferencesManager)
+        .add(networkManager)
+        .add(cryptoManager, preferencesManager, networkManager)
+        .add(registrationManager, preferencesManager, networkManager)
+        .add(connectManager, cryptoManager, registrationManager)
+
+    private val trace = StartupTrace()
+
+    @Test
+    fun getTopologicalOrder_validGraph_dependenciesBeforeDependents() {
+        val order = graph.getTopologicalOrder()
+        assertEquals(graph.getManagers().size, order.size)
+        for (manager in order) {
+            graph.getDependencies(manager).forEach {
+                assertTrue("$it should come before $manager", order.indexOf(it) < order.indexOf(manager))
+            }
+        }
+    }
+
+    @Test
+    fun getTopologicalOrder_subsetOfManagers_includesTransitiveDependencies() {
+        val order = graph.getTopologicalOrder(listOf(cryptoManager))
+        assertEquals(setOf(preferencesManager, networkManager, cryptoManager), order.toSet())
+        assertEquals(cryptoManager, order.last())
+    }
+
+    @Test(expected = IllegalStateException::class)
+    fun getTopologicalOrder_cyclicDependency_throwsException() {
+        graph.add(preferencesManager, connectManager)
+        graph.getTopologicalOrder()
+    }
+
+    @Test
+    fun initialize_pendingDependency_waitsForDependency() {
+        val observer = graph.initialize(application, listOf(connectManager), trace).test()
+        triggerScheduler()
+
+        assertNotNull(trace.getEntry("Preferences"))
+        assertNotNull(trace.getEntry("Network"))
+        assertNull(trace.getEntry("Crypto"))
+
+        preferencesManager.completeInitialization()
+        networkManager.completeInitialization()
+        triggerScheduler()
+
+        assertNotNull(trace.getEntry("Crypto"))
+        assertNotNull(trace.getEntry("Registration"))
+        assertNull(trace.getEntry("Connect"))
+
+        cryptoManager.completeInitialization()
+        registrationManager.completeInitialization()
+        triggerScheduler()
+        connectManager.completeInitialization()
+        triggerScheduler()
+
+        observer.assertComplete()
+        trace.getEntries().forEach { entry ->
+            entry.dependencies.forEach { dependency ->
+                assertTrue(trace.getEntry(dependency)!!.endTimestamp!! <= entry.startTimestamp)
+            }
+        }
+    }
+
+    @Test
+    fun initialize_sharedDependencies_initializesEachManagerOnce() {
+        val observer = graph.initialize(application, graph.getManagers(), trace).test()
+        completeAllInitializations()
+
+        observer.assertComplete()
+        graph.getManagers().forEach {
+            assertTrue(it.isInitialized)
+            assertEquals(1, (it as TestManager).initializationCount)
+        }
+        assertEquals(graph.getManagers().size, trace.getEntries().size)
+    }
+
+    @Test
+    fun initialize_alreadyInitializedManager_notRecordedInTrace() {
+        preferencesManager.completeInitialization()
+        preferencesManager.initialize(application).test().assertComplete()
+
+        graph.initialize(application, listOf(cryptoManager), trace).test()
+        triggerScheduler()
+
+        assertNull(trace.getEntry("Preferences"))
+        assertNotNull(trace.getEntry("Network"))
+    }
+
+    @Test
+    fun getCriticalPath_afterInitialization_endsWithLastManager() {
+        graph.initialize(application, graph.getManagers(), trace).test()
+        completeAllInitializations()
+
+        val criticalPath = trace.getCriticalPath().map { it.name }
+        assertEquals("Connect", criticalPath.last())
+        assertEquals(3, criticalPath.size)
+        assertTrue(criticalPath[0] == "Preferences" || criticalPath[0] == "Network")
+        assertTrue(criticalPath[1] == "Crypto" || criticalPath[1] == "Registration")
+    }
+
+    @Test
+    fun initialize_concurrentSubscribers_sharesInitialization() {
+        val firstObserver = cryptoManager.initialize(application).test()
+        val secondObserver = cryptoManager.initialize(application).test()
+
+        assertTrue(cryptoManager.isInitializing)
+        assertFalse(cryptoManager.isInitialized)
+        assertEquals(1, cryptoManager.initializationCount)
+        firstObserver.assertNotComplete()
+        secondObserver.assertNotComplete()
+
+        cryptoManager.completeInitialization()
+
+        firstObserver.assertComplete()
+        secondObserver.assertComplete()
+        assertTrue(cryptoManager.isInitialized)
+        assertEquals(1, cryptoManager.initializationCount)
+    }
+
+    @Test
+    fun initialize_afterError_allowsRetry() {
+        cryptoManager.initialization.onError(IllegalStateException())
+        cryptoManager.initialize(application).test().assertError(IllegalStateException::class.java)
+        assertFalse(cryptoManager.isInitializing)
+
+        cryptoManager.initialization = CompletableSubject.create()
+        cryptoManager.completeInitialization()
+        cryptoManager.initialize(application).test().assertComplete()
+        assertEquals(2, cryptoManager.initializationCount)
+    }
+
+    private fun completeAllInitializations() {
+        for (manager in graph.getTopologicalOrder()) {
+            triggerScheduler()
+            (manager as TestManager).completeInitialization()
+        }
+        triggerScheduler()
+    }
+
+    private class TestManager(private val name: String) : Manager() {
+
+        var initialization: CompletableSubject = CompletableSubject.create()
+        var initializationCount = 0
+
+        override fun doInitialize(context: Context): Completable {
+            initializationCount++
+            return initialization
+        }
+
+        fun completeInitialization() {
+            initialization.onComplete()
+        }
+
+        override fun toString(): String {
+            return name
+        }
+    }
+}
@@ -24,12 +24,38 @@ class ArchiverTest : LucaUnitTest() {
     fun addData_noOverridingConditions_archivesData() {
         val testData = TestTimeData()
         archiver.addData(testData)
-            .andThen(preferencesManager.restore(key, ArchivedTestData::class.java))
-            .map { it.getData().first() }
+            .andThen(createArchiver().getData())
             .test()
             .assertValue(testData)
     }
 
+    @Test
+    fun addData_differentDays_persistsSeparateSegments() {
+        val testData1 = TestTimeData(TimeUtil.getCurrentMillis())
+        val testData2 = TestTimeData(TimeUtil.getCurrentMillis() - TimeUnit.DAYS.toMillis(2))
+        archiver.addData(testData1)
+            .andThen(archiver.addData(testData2))
+            .andThen(preferencesManager.getKeys())
+            .filter { it.startsWith(key + "_segment_") }
+            .test()
+            .assertValueCount(2)
+    }
+
+    @Test
+    fun getData_hasLegacyArchivedData_migratesData() {
+        val data = TestTimeData()
+        preferencesManager.persist(key, ArchivedTestData(arrayListOf(data)))
+            .andThen(archiver.getData())
+            .ignoreElements()
+            .andThen(preferencesManager.containsKey(key))
+            .test()
+            .assertValue(false)
+
+        createArchiver().getData()
+            .test()
+            .assertValue(data)
+    }
+
     @Test
     fun addData_overridingConditions_archivesNewData() {
         val testData1 = TestTimeData()
@@ -78,6 +104,17 @@ class ArchiverTest : LucaUnitTest() {
             .assertValue(dataToBeKept)
     }
 
+    @Test
+    fun deleteDataOlderThan_containsOldData_removesPersistedOldData() {
+        val dataToBeKept = TestTimeData(TimeUtil.getCurrentMillis())
+        val dataToBeDeleted = TestTimeData(TimeUtil.getCurrentMillis() - TimeUnit.DAYS.toMillis(30))
+        archiver.addData(arrayListOf(dataToBeKept, dataToBeDeleted))
+            .andThen(archiver.deleteDataOlderThan())
+            .andThen(createArchiver().getData())
+            .test()
+            .assertValue(dataToBeKept)
+    }
+
     @Test
     fun deleteDataAddedBefore_containsOldData_removesOldData() {
         val deletionTimestamp = TimeUtil.getCurrentMillis() - TimeUnit.HOURS.toMillis(1)
@@ -150,6 +187,10 @@ class ArchiverTest : LucaUnitTest() {
             .assertValueCount(1)
     }
 
+    private fun createArchiver(): Archiver<TestTimeData> {
+        return Archiver(preferencesManager, key, ArchivedTestData::class.java) { it.timestamp }
+    }
+
     private fun injectUnCachedData(timestamp: Long = 0): Completable {
         val unCachedData = TestTimeData(timestamp = timestamp, id = UN_CACHED_ID)
         return preferencesManager.restoreOrDefault(key, ArchivedTestData())
@@ -0,0 +1,37 @@
+package de.culture4life.luca.checkin
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class AbsentTraceIdsTest {
+
+    private val absentTraceIds = AbsentTraceIds(RECHECK_INTERVAL)
+
+    @Test
+    fun filterTraceIdsToLookUp_absentTraceIds_skippedUntilRecheck() {
+        absentTraceIds.onTraceIdsLookedUp(listOf("a", "b", "c"), listOf("b"), 0)
+
+        assertEquals(listOf("b"), absentTraceIds.filterTraceIdsToLookUp(listOf("a", "b", "c"), RECHECK_INTERVAL - 1))
+        assertEquals(listOf("a", "b", "c"), absentTraceIds.filterTraceIdsToLookUp(listOf("a", "b", "c"), RECHECK_INTERVAL))
+        assertEquals(2, absentTraceIds.skippedTraceIds.get())
+    }
+
+    @Test
+    fun filterTraceIdsToLookUp_newTraceIds_notSkipped() {
+        absentTraceIds.onTraceIdsLookedUp(listOf("a"), emptyList(), 0)
+
+        assertEquals(listOf("d"), absentTraceIds.filterTraceIdsToLookUp(listOf("a", "d"), 0))
+    }
+
+    @Test
+    fun filterTraceIdsToLookUp_expiredTraceIds_forgotten() {
+        absentTraceIds.onTraceIdsLookedUp(listOf("a"), emptyList(), 0)
+        absentTraceIds.filterTraceIdsToLookUp(listOf("d"), 0)
+
+        assertEquals(listOf("a"), absentTraceIds.filterTraceIdsToLookUp(listOf("a"), 0))
+    }
+
+    companion object {
+        private const val RECHECK_INTERVAL = 1000L
+    }
+}
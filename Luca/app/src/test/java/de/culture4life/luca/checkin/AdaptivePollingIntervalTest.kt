@@ -0,0 +1,48 @@
+package de.culture4life.luca.checkin
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class AdaptivePollingIntervalTest {
+
+    private val pollingInterval = AdaptivePollingInterval(MINIMUM_INTERVAL, MAXIMUM_INTERVAL)
+
+    @Test
+    fun getNextDelay_unchangedState_backsOffUntilMaximum() {
+        val delays = (1..5).map { pollingInterval.getNextDelay(null) }
+
+        assertEquals(listOf(1L, 2L, 4L, 8L, 8L), delays)
+        assertEquals(5, pollingInterval.scheduledPolls.get())
+        assertEquals(0L + 1 + 3 + 7 + 7, pollingInterval.savedPolls.get())
+    }
+
+    @Test
+    fun getNextDelay_afterReset_startsAtMinimum() {
+        repeat(3) { pollingInterval.getNextDelay(null) }
+
+        pollingInterval.reset()
+
+        assertEquals(MINIMUM_INTERVAL, pollingInterval.getNextDelay(null))
+    }
+
+    @Test
+    fun getNextDelay_upcomingExpectedEvent_pollsWhenReached() {
+        repeat(4) { pollingInterval.getNextDelay(null) }
+
+        assertEquals(3L, pollingInterval.getNextDelay(3))
+        assertEquals(MINIMUM_INTERVAL, pollingInterval.getNextDelay(0))
+    }
+
+    @Test
+    fun getNextDelay_passedExpectedEvent_usesMinimumWithinWindow() {
+        repeat(4) { pollingInterval.getNextDelay(null) }
+
+        assertEquals(MINIMUM_INTERVAL, pollingInterval.getNextDelay(-MAXIMUM_INTERVAL))
+        assertEquals(MAXIMUM_INTERVAL, pollingInterval.getNextDelay(-MAXIMUM_INTERVAL - 1))
+    }
+
+    companion object {
+        private const val MINIMUM_INTERVAL = 1L
+        private const val MAXIMUM_INTERVAL = 8L
+    }
+}
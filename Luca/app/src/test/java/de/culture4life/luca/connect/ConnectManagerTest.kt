@@ -320,6 +320,44 @@ class ConnectManagerTest : LucaUnitTest() {
         generatingMessageId.assertValue(expectedMessageId)
     }
 
+    @Test
+    fun `Getting message ids only derives message ids for timestamps that have not been cached`() {
+        // Given
+        val notificationId = "1eAyKyWyFA1kDGxreciT7Q=="
+        val departmentId = "e0fe6752-809a-4c13-8350-6ecf5a70e1ce"
+        val now = LocalDateTime.parse("1993-12-20T10:00").atZone(ZoneOffset.UTC).toInstant().toEpochMilli()
+        TimeUtil.clock = Clock.fixed(Instant.ofEpochMilli(now), ZoneOffset.UTC)
+        val cachedTimestamps = listOf(now - 2 * ROUNDED_TIMESTAMP_ACCURACY, now - ROUNDED_TIMESTAMP_ACCURACY)
+        val allTimestamps = cachedTimestamps + now
+        val expectedMessageIds = connectManager.generateMessageIds(notificationId, departmentId, allTimestamps).blockingGet()
+        connectManager.getMessageIds(notificationId, departmentId, cachedTimestamps).blockingGet()
+        clearInvocations(connectManager)
+
+        // When
+        val gettingMessageIds = connectManager.getMessageIds(notificationId, departmentId, allTimestamps).test()
+
+        // Then
+        gettingMessageIds.await().assertValue(expectedMessageIds)
+        verify(connectManager).generateMessageIds(notificationId, departmentId, listOf(now))
+    }
+
+    @Test
+    fun `Getting message ids for another notification id does not use cached message ids`() {
+        // Given
+        val departmentId = "e0fe6752-809a-4c13-8350-6ecf5a70e1ce"
+        val timestamps = listOf(1639046100000)
+        TimeUtil.clock = Clock.fixed(Instant.ofEpochMilli(timestamps.first()), ZoneOffset.UTC)
+        connectManager.getMessageIds("1eAyKyWyFA1kDGxreciT7Q==", departmentId, timestamps).blockingGet()
+
+        // When
+        val gettingMessageIds = connectManager.getMessageIds("23b0c2e0f725446da0bb763eaf682de3", departmentId, timestamps).test()
+
+        // Then
+        gettingMessageIds.await().assertValue(
+            connectManager.generateMessageIds("23b0c2e0f725446da0bb763eaf682de3", departmentId, timestamps).blockingGet()
+        )
+    }
+
     @Test
     fun `Generating rounded timestamps since last update only returns timestamps between now and last update`() {
         // Given
@@ -17,7 +17,9 @@ import de.culture4life.luca.util.*
 import de.culture4life.luca.util.SerializationUtil.fromBase64
 import de.culture4life.luca.util.SerializationUtil.toBase64
 import io.reactivex.rxjava3.core.Completable
+import io.reactivex.rxjava3.core.Observable
 import io.reactivex.rxjava3.core.Single
+import org.junit.Assert.assertEquals
 import org.junit.Before
 import org.junit.Ignore
 import org.junit.Test
@@ -142,6 +144,20 @@ class CryptoManagerTest : LucaUnitTest() {
             .assertValue("b35bca06abed087a38399b559c67fbde2b5f53aac2fa2d3f0840a6a9eeeb4b6a")
     }
 
+    @Test
+    fun hkdf_multipleSalts_sameOutputAsSingleDerivations() {
+        val ikm = "77f84ac8bb5ea7cde72f983bce000987".decodeFromHex()
+        val label = "share_history_tan".toByteArray()
+        val salts = listOf(null, "salt".toByteArray(), "another salt".toByteArray())
+        val expectedOutput = salts.map { salt ->
+            cryptoManager.hkdf(ikm = ikm, salt = salt, label = label, length = 16).map(ByteArray::encodeToHex).blockingGet()
+        }
+        cryptoManager.hkdf(ikm = ikm, salts = salts, label = label, length = 16)
+            .map { output -> output.map(ByteArray::encodeToHex) }
+            .test()
+            .assertValue(expectedOutput)
+    }
+
     @Test
     fun ecies_validInput_decryptableOutput() {
         val ephemeralKeyPair = KeyPair(
@@ -303,6 +319,52 @@ class CryptoManagerTest : LucaUnitTest() {
             .assertError(RxSignatureException::class.java)
     }
 
+    @Test
+    fun beginKeyStoreTransaction_multipleMutations_persistsKeyStoreOnce() {
+        Mockito.doReturn(Completable.complete()).`when`(cryptoManager).persistKeyStoreToFile()
+        val keyPair = KeyPair(
+            decodePublicKey(ENCODED_PUBLIC_KEY.decodeFromHex()).blockingGet(),
+            decodePrivateKey(ENCODED_PRIVATE_KEY.decodeFromHex()).blockingGet()
+        )
+
+        cryptoManager.beginKeyStoreTransaction()
+            .setKeyPair("first", keyPair)
+            .setKeyPair("second", keyPair)
+            .deleteEntry("first")
+            .commit()
+            .test()
+            .await()
+            .assertComplete()
+
+        Mockito.verify(cryptoManager, Mockito.times(1)).persistKeyStoreToFile()
+        cryptoManager.restoreKeyPair("first").test().assertNoValues()
+        cryptoManager.restoreKeyPair("second").test().assertValueCount(1)
+    }
+
+    @Test
+    fun deleteKeyPairs_multipleAliases_persistsKeyStoreOnceDelayed() {
+        Mockito.doReturn(Completable.complete()).`when`(cryptoManager).persistKeyStoreToFile()
+        val keyPair = KeyPair(
+            decodePublicKey(ENCODED_PUBLIC_KEY.decodeFromHex()).blockingGet(),
+            decodePrivateKey(ENCODED_PRIVATE_KEY.decodeFromHex()).blockingGet()
+        )
+        val aliases = List(100) { "ephemeral-$it" }
+        aliases.fold(cryptoManager.beginKeyStoreTransaction()) { transaction, alias -> transaction.setKeyPair(alias, keyPair) }
+            .commit()
+            .blockingAwait()
+
+        cryptoManager.deleteKeyPairs(Observable.fromIterable(aliases))
+            .test()
+            .await()
+            .assertComplete()
+        Mockito.verify(cryptoManager, Mockito.times(1)).persistKeyStoreToFile()
+        advanceScheduler(5, TimeUnit.SECONDS)
+
+        Mockito.verify(cryptoManager, Mockito.times(2)).persistKeyStoreToFile()
+        cryptoManager.restoreKeyPair(aliases.first()).test().assertNoValues()
+        assertEquals(200L, cryptoManager.keyStoreMetrics.keyStoreMutations.get())
+    }
+
     @Test
     fun encodeToString_decodeFromString_isSameAsInput() {
         val input = "abc123!§$%&/()=,.-*"
@@ -0,0 +1,93 @@
+package de.culture4life.luca.crypto
+
+import de.culture4life.luca.testtools.rules.FixedTimeRule
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Rule
+import org.junit.Test
+import java.util.concurrent.TimeUnit
+
+class SecretVaultTest {
+
+    @get:Rule
+    val fixedTimeRule = FixedTimeRule()
+
+    private val vault = SecretVault(MAXIMUM_RESIDENCY_DURATION)
+
+    @Test
+    fun get_afterPut_returnsCopyOfSecret() {
+        val secret = byteArrayOf(1, 2, 3)
+        vault.put(ALIAS, secret)
+        secret.fill(0)
+
+        val restoredSecret = vault.get(ALIAS)!!
+        restoredSecret.fill(0)
+
+        assertArrayEquals(byteArrayOf(1, 2, 3), vault.get(ALIAS))
+        assertEquals(2L, vault.metrics.hits.get())
+    }
+
+    @Test
+    fun get_unknownAlias_countsMiss() {
+        assertNull(vault.get(ALIAS))
+        assertEquals(1L, vault.metrics.misses.get())
+    }
+
+    @Test
+    fun get_afterResidencyDuration_evictsSecret() {
+        val startTimestamp = TimeUnit.DAYS.toMillis(1)
+        fixedTimeRule.setCurrentDateTime(startTimestamp)
+        vault.put(ALIAS, byteArrayOf(1, 2, 3))
+
+        fixedTimeRule.setCurrentDateTime(startTimestamp + MAXIMUM_RESIDENCY_DURATION + 1)
+
+        assertNull(vault.get(ALIAS))
+        assertEquals(0, vault.size())
+        assertEquals(1L, vault.metrics.evictions.get())
+    }
+
+    @Test
+    fun evictExpired_withExpiredSecret_evictsOnlyExpiredSecret() {
+        val startTimestamp = TimeUnit.DAYS.toMillis(1)
+        fixedTimeRule.setCurrentDateTime(startTimestamp)
+        vault.put(ALIAS, byteArrayOf(1, 2, 3))
+        fixedTimeRule.setCurrentDateTime(startTimestamp + 1000)
+        vault.put("other", byteArrayOf(4, 5, 6))
+
+        fixedTimeRule.setCurrentDateTime(startTimestamp + MAXIMUM_RESIDENCY_DURATION)
+
+        assertEquals(1000L, vault.evictExpired())
+        assertEquals(1, vault.size())
+        assertEquals(1L, vault.metrics.evictions.get())
+    }
+
+    @Test
+    fun evictExpired_noRemainingSecrets_returnsNull() {
+        val startTimestamp = TimeUnit.DAYS.toMillis(1)
+        fixedTimeRule.setCurrentDateTime(startTimestamp)
+        vault.put(ALIAS, byteArrayOf(1, 2, 3))
+
+        fixedTimeRule.setCurrentDateTime(startTimestamp + MAXIMUM_RESIDENCY_DURATION)
+
+        assertNull(vault.evictExpired())
+        assertEquals(0, vault.size())
+    }
+
+    @Test
+    fun clear_withSecrets_evictsAllSecrets() {
+        vault.put(ALIAS, byteArrayOf(1, 2, 3))
+        vault.put("other", byteArrayOf(4, 5, 6))
+
+        vault.clear()
+
+        assertNull(vault.get(ALIAS))
+        assertEquals(0, vault.size())
+        assertEquals(2L, vault.metrics.evictions.get())
+    }
+
+    companion object {
+        private const val ALIAS = "tracing_secret_0"
+        private val MAXIMUM_RESIDENCY_DURATION = TimeUnit.MINUTES.toMillis(15)
+    }
+}
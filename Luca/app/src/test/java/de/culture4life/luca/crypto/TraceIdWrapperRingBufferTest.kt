@@ -0,0 +1,75 @@
+package de.culture4life.luca.crypto
+
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+
+class TraceIdWrapperRingBufferTest {
+
+    private val ringBuffer = TraceIdWrapperRingBuffer(3)
+
+    @Test
+    fun add_exceedingCapacity_evictsOldest() {
+        assertNull(ringBuffer.add(createWrapper(1)))
+        assertNull(ringBuffer.add(createWrapper(2)))
+        assertNull(ringBuffer.add(createWrapper(3)))
+
+        val evicted = ringBuffer.add(createWrapper(4))
+
+        assertEquals(1L, evicted!!.timestamp)
+        assertEquals(listOf(2L, 3L, 4L), getTimestamps(ringBuffer.toList()))
+    }
+
+    @Test
+    fun add_outOfOrder_keepsOrder() {
+        ringBuffer.add(createWrapper(1))
+        ringBuffer.add(createWrapper(3))
+
+        ringBuffer.add(createWrapper(2))
+
+        assertEquals(listOf(1L, 2L, 3L), getTimestamps(ringBuffer.toList()))
+    }
+
+    @Test
+    fun removeOlderThan_afterWrapAround_removesExpired() {
+        (1L..5L).forEach { ringBuffer.add(createWrapper(it)) }
+
+        val removed = ringBuffer.removeOlderThan(5)
+
+        assertEquals(listOf(3L, 4L), getTimestamps(removed))
+        assertEquals(listOf(5L), getTimestamps(ringBuffer.toList()))
+    }
+
+    @Test
+    fun getRange_withinBounds_returnsMatchingWrappers() {
+        (1L..5L).forEach { ringBuffer.add(createWrapper(it)) }
+
+        assertEquals(listOf(3L, 4L), getTimestamps(ringBuffer.getRange(0, 4)))
+        assertEquals(listOf(4L, 5L), getTimestamps(ringBuffer.getRange(4, Long.MAX_VALUE)))
+        assertEquals(emptyList<Long>(), getTimestamps(ringBuffer.getRange(6, Long.MAX_VALUE)))
+    }
+
+    @Test
+    fun decode_encodedWrappers_restoresWrappers() {
+        val traceIdWrappers = listOf(createWrapper(1), createWrapper(1640995200))
+
+        val encoded = TraceIdWrapperRingBuffer.encode(traceIdWrappers)
+        val decoded = TraceIdWrapperRingBuffer.decode(encoded)
+
+        assertEquals(2 * TraceIdWrapperRingBuffer.ENCODED_WRAPPER_LENGTH, encoded.size)
+        assertEquals(getTimestamps(traceIdWrappers), getTimestamps(decoded))
+        assertArrayEquals(traceIdWrappers[1].traceId, decoded[1].traceId)
+    }
+
+    companion object {
+
+        private fun createWrapper(timestamp: Long): TraceIdWrapper {
+            return TraceIdWrapper(timestamp, ByteArray(TraceIdWrapperRingBuffer.TRACE_ID_LENGTH) { (timestamp + it).toByte() })
+        }
+
+        private fun getTimestamps(traceIdWrappers: List<TraceIdWrapper>): List<Long> {
+            return traceIdWrappers.map { it.timestamp }
+        }
+    }
+}
@@ -15,6 +15,7 @@ import de.culture4life.luca.notification.LucaNotificationManager
 import de.culture4life.luca.preference.PreferencesManager
 import de.culture4life.luca.registration.RegistrationManager
 import de.culture4life.luca.util.TimeUtil
+import io.reactivex.rxjava3.core.Completable
 import io.reactivex.rxjava3.core.Observable
 import io.reactivex.rxjava3.core.Single
 import org.junit.Assert
@@ -71,7 +72,8 @@ class DataAccessManagerTest : LucaUnitTest() {
     @Test
     fun update_successful_updatesLastUpdateTimestamp() {
         `when`(dataAccessManager.fetchNotificationConfig()).thenReturn(Single.error(RuntimeException()))
-        `when`(dataAccessManager.fetchNewRecentlyAccessedTraceData()).thenReturn(Observable.empty())
+        `when`(dataAccessManager.fetchUnprocessedChunks()).thenReturn(Observable.empty())
+        `when`(dataAccessManager.fetchNewRecentlyAccessedTraceData(ArgumentMatchers.any())).thenReturn(Observable.empty())
         val previousDuration = dataAccessManager.durationSinceLastUpdate.blockingGet()
         dataAccessManager.update()
             .andThen(dataAccessManager.durationSinceLastUpdate)
@@ -81,7 +83,8 @@ class DataAccessManagerTest : LucaUnitTest() {
 
     @Test
     fun update_unsuccessful_doesNotUpdateLastUpdateTimestamp() {
-        `when`(dataAccessManager.fetchNewRecentlyAccessedTraceData()).thenReturn(Observable.error(RuntimeException()))
+        `when`(dataAccessManager.fetchUnprocessedChunks()).thenReturn(Observable.empty())
+        `when`(dataAccessManager.fetchNewRecentlyAccessedTraceData(ArgumentMatchers.any())).thenReturn(Observable.error(RuntimeException()))
         val previousDuration = dataAccessManager.durationSinceLastUpdate.blockingGet()
         val duration = dataAccessManager.update().onErrorComplete()
             .andThen(dataAccessManager.durationSinceLastUpdate)
@@ -89,10 +92,38 @@ class DataAccessManagerTest : LucaUnitTest() {
         Assert.assertEquals(duration.toFloat(), previousDuration.toFloat(), 20f)
     }
 
+    @Test
+    fun update_successful_marksChunksAsProcessed() {
+        val chunk = createDummyChunk()
+        `when`(dataAccessManager.fetchNotificationConfig()).thenReturn(Single.error(RuntimeException()))
+        `when`(dataAccessManager.fetchUnprocessedChunks()).thenReturn(Observable.just(chunk))
+        `when`(dataAccessManager.fetchNewRecentlyAccessedTraceData(ArgumentMatchers.any())).thenReturn(Observable.empty())
+        dataAccessManager.update()
+            .andThen(preferencesManager.restore(DataAccessManager.LAST_PREVIOUS_CHUNK_ID_KEY, String::class.java))
+            .test()
+            .assertValue(chunk.previousChunkId)
+    }
+
+    @Test
+    fun update_processingFailed_doesNotMarkChunksAsProcessed() {
+        val accessedTraceData = AccessedTraceData().apply {
+            traceId = "LLJMzA/HqlS77qkpUGNJrA=="
+            hashedTraceId = "SOME_HASH_VALUE"
+        }
+        `when`(dataAccessManager.fetchUnprocessedChunks()).thenReturn(Observable.just(createDummyChunk()))
+        `when`(dataAccessManager.fetchNewRecentlyAccessedTraceData(ArgumentMatchers.any())).thenReturn(Observable.just(accessedTraceData))
+        doReturn(Completable.error(RuntimeException())).`when`(dataAccessManager).processNewRecentlyAccessedTraceData(ArgumentMatchers.anyList())
+        dataAccessManager.update().onErrorComplete()
+            .andThen(preferencesManager.containsKey(DataAccessManager.LAST_PREVIOUS_CHUNK_ID_KEY))
+            .test()
+            .assertValue(false)
+    }
+
     @Test
     fun durationSinceLastUpdate_justUpdated_emitsLowDuration() {
         `when`(dataAccessManager.fetchNotificationConfig()).thenReturn(Single.error(RuntimeException()))
-        `when`(dataAccessManager.fetchNewRecentlyAccessedTraceData()).thenReturn(Observable.empty())
+        `when`(dataAccessManager.fetchUnprocessedChunks()).thenReturn(Observable.empty())
+        `when`(dataAccessManager.fetchNewRecentlyAccessedTraceData(ArgumentMatchers.any())).thenReturn(Observable.empty())
         dataAccessManager.update()
             .andThen(dataAccessManager.durationSinceLastUpdate)
             .test()
@@ -207,11 +238,8 @@ class DataAccessManagerTest : LucaUnitTest() {
     fun fetchRecentlyAccessedTraceData_noDataAccessed_completesEmpty() {
         val healthDepartment = createDummyHealthDepartment()
         `when`(dataAccessManager.fetchHealthDepartments()).thenReturn(Observable.just(healthDepartment))
-        val chunk = createDummyChunk()
-        chunk.hashedTraceIds.add(
-            dataAccessManager.getHashedTraceId(
-                healthDepartment.id, 1, "99FmQcylJT5e/cyHOjT6Hw==", chunk.hashLength
-            ).blockingGet()
+        val chunk = createDummyChunk(
+            dataAccessManager.getHashedTraceId(healthDepartment.id, 1, "99FmQcylJT5e/cyHOjT6Hw==", DUMMY_CHUNK_HASH_LENGTH).blockingGet()
         )
         `when`(dataAccessManager.fetchUnprocessedChunks()).thenReturn(Observable.just(chunk))
         `when`(dataAccessManager.recentTraceIds).thenReturn(Observable.just("hCvt6FNlhomxbBmL50PYDw=="))
@@ -225,16 +253,9 @@ class DataAccessManagerTest : LucaUnitTest() {
     fun fetchRecentlyAccessedTraceData_someDataAccessed_emitsAccessedData() {
         val healthDepartment = createDummyHealthDepartment()
         `when`(dataAccessManager.fetchHealthDepartments()).thenReturn(Observable.just(healthDepartment))
-        val chunk = createDummyChunk()
-        chunk.hashedTraceIds.add(
-            dataAccessManager.getHashedTraceId(
-                healthDepartment.id, 1, "9bZZ5Ak465V60PXv92aMFA==", chunk.hashLength
-            ).blockingGet()
-        )
-        chunk.hashedTraceIds.add(
-            dataAccessManager.getHashedTraceId(
-                healthDepartment.id, 1, "99FmQcylJT5e/cyHOjT6Hw==", chunk.hashLength
-            ).blockingGet()
+        val chunk = createDummyChunk(
+            dataAccessManager.getHashedTraceId(healthDepartment.id, 1, "9bZZ5Ak465V60PXv92aMFA==", DUMMY_CHUNK_HASH_LENGTH).blockingGet(),
+            dataAccessManager.getHashedTraceId(healthDepartment.id, 1, "99FmQcylJT5e/cyHOjT6Hw==", DUMMY_CHUNK_HASH_LENGTH).blockingGet()
         )
         `when`(dataAccessManager.fetchUnprocessedChunks()).thenReturn(Observable.just(chunk))
         `when`(dataAccessManager.recentTraceIds).thenReturn(Observable.just("9bZZ5Ak465V60PXv92aMFA==", "hCvt6FNlhomxbBmL50PYDw=="))
@@ -245,13 +266,30 @@ class DataAccessManagerTest : LucaUnitTest() {
             .assertComplete()
     }
 
+    @Test
+    fun fetchRecentlyAccessedTraceData_someDataAccessed_persistsHashedTraceIdIndex() {
+        val healthDepartment = createDummyHealthDepartment()
+        `when`(dataAccessManager.fetchHealthDepartments()).thenReturn(Observable.just(healthDepartment))
+        val chunk = createDummyChunk(
+            dataAccessManager.getHashedTraceId(healthDepartment.id, 1, "9bZZ5Ak465V60PXv92aMFA==", DUMMY_CHUNK_HASH_LENGTH).blockingGet()
+        )
+        `when`(dataAccessManager.fetchUnprocessedChunks()).thenReturn(Observable.just(chunk))
+        `when`(dataAccessManager.recentTraceIds).thenReturn(Observable.just("9bZZ5Ak465V60PXv92aMFA==", "hCvt6FNlhomxbBmL50PYDw=="))
+        dataAccessManager.fetchRecentlyAccessedTraceData()
+            .ignoreElements()
+            .andThen(preferencesManager.restore(DataAccessManager.KEY_HASHED_TRACE_ID_INDEX, HashedTraceIdIndex::class.java))
+            .map { it.entries.size }
+            .test()
+            .assertValue(2 * AccessedTraceData.NUMBER_OF_WARNING_LEVELS)
+    }
+
     @Test
     fun fetchNewRecentlyAccessedTraceData_someNewDataAccessed_emitsNewAccessedData() {
         val newAccessedTraceData = AccessedTraceData().apply {
             traceId = "LLJMzA/HqlS77qkpUGNJrA=="
             hashedTraceId = "SOME_HASH_VALUE"
         }
-        `when`(dataAccessManager.fetchRecentlyAccessedTraceData())
+        `when`(dataAccessManager.fetchRecentlyAccessedTraceData(ArgumentMatchers.any()))
             .thenReturn(Observable.just(previouslyAccessedTraceData, newAccessedTraceData))
         `when`(dataAccessManager.previouslyAccessedTraceData).thenReturn(Observable.just(previouslyAccessedTraceData))
         dataAccessManager.fetchNewRecentlyAccessedTraceData()
@@ -267,7 +305,7 @@ class DataAccessManagerTest : LucaUnitTest() {
             hashedTraceId = "HASH_VALUE_FOR_WARNING_LEVEL_2"
             warningLevel = 2
         }
-        `when`(dataAccessManager.fetchRecentlyAccessedTraceData())
+        `when`(dataAccessManager.fetchRecentlyAccessedTraceData(ArgumentMatchers.any()))
             .thenReturn(Observable.just(previouslyAccessedTraceData, newAccessedTraceData))
         `when`(dataAccessManager.previouslyAccessedTraceData).thenReturn(Observable.just(previouslyAccessedTraceData))
         dataAccessManager.fetchNewRecentlyAccessedTraceData()
@@ -400,7 +438,7 @@ class DataAccessManagerTest : LucaUnitTest() {
     @Test
     fun updateIfNecessary_withCheckIns_callsUpdate() {
         `when`(dataAccessManager.fetchNotificationConfig()).thenReturn(Single.error(RuntimeException()))
-        `when`(dataAccessManager.fetchRecentlyAccessedTraceData()).thenReturn(Observable.empty())
+        `when`(dataAccessManager.fetchUnprocessedChunks()).thenReturn(Observable.empty())
         `when`(checkInManager.archivedTraceIds).thenReturn(Observable.just("anything"))
         dataAccessManager.updateIfNecessary().blockingAwait()
         verify(dataAccessManager, times(1)).update()
@@ -422,14 +460,14 @@ class DataAccessManagerTest : LucaUnitTest() {
         )
     }
 
-    private fun createDummyChunk(): NotificationDataChunk {
+    private fun createDummyChunk(vararg hashedTraceIds: String): NotificationDataChunk {
         return NotificationDataChunk(
             1,
             0,
-            16,
+            DUMMY_CHUNK_HASH_LENGTH,
             TimeUtil.getCurrentMillis() - TimeUnit.HOURS.toMillis(1),
             "3cYZ5Ak465V80PXv93aMFB==",
-            ArrayList()
+            HashedTraceIds.fromEncoded(hashedTraceIds.toList(), DUMMY_CHUNK_HASH_LENGTH)
         )
     }
 
@@ -460,4 +498,8 @@ class DataAccessManagerTest : LucaUnitTest() {
             .andThen(dataAccessManager.hasNewNotifications())
             .test().assertValue(true)
     }
+
+    companion object {
+        private const val DUMMY_CHUNK_HASH_LENGTH = 16
+    }
 }
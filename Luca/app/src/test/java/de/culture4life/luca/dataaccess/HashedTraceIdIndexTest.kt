@@ -0,0 +1,40 @@
+package de.culture4life.luca.dataaccess
+
+import de.culture4life.luca.LucaUnitTest
+import de.culture4life.luca.preference.PreferencesManager
+import org.junit.Test
+
+class HashedTraceIdIndexTest : LucaUnitTest() {
+
+    private val preferencesManager = getInitializedManager(PreferencesManager())
+
+    @Test
+    fun restore_afterPersist_equalsPersistedIndex() {
+        val index = HashedTraceIdIndex(
+            listOf(
+                HashedTraceIdIndex.Entry(TRACE_ID, HEALTH_DEPARTMENT_ID, 1, "9bZZ5Ak465V60PXv92aMFA=="),
+                HashedTraceIdIndex.Entry(TRACE_ID, HEALTH_DEPARTMENT_ID, 2, "99FmQcylJT5e/cyHOjT6Hw=="),
+                HashedTraceIdIndex.Entry("hCvt6FNlhomxbBmL50PYDw==", HEALTH_DEPARTMENT_ID, 1, "LLJMzA/HqlS77qkpUGNJrA=="),
+                HashedTraceIdIndex.Entry(TRACE_ID, "e3a6c8a4-2c8f-4b6a-9d51-0e6a5a0f4c21", 4, "qiqA2+SpnoioxRMWb7IDsw==")
+            )
+        )
+        preferencesManager.persist(KEY, index)
+            .andThen(preferencesManager.restore(KEY, HashedTraceIdIndex::class.java))
+            .test()
+            .assertValue(index)
+    }
+
+    @Test
+    fun restore_afterPersistingEmptyIndex_equalsEmptyIndex() {
+        preferencesManager.persist(KEY, HashedTraceIdIndex())
+            .andThen(preferencesManager.restore(KEY, HashedTraceIdIndex::class.java))
+            .test()
+            .assertValue(HashedTraceIdIndex())
+    }
+
+    companion object {
+        private const val KEY = "hashed_trace_id_index_test"
+        private const val TRACE_ID = "9bZZ5Ak465V60PXv92aMFA=="
+        private const val HEALTH_DEPARTMENT_ID = "8c9a3d5e-3f3b-4a1e-9f64-2b7d1c0e5a13"
+    }
+}
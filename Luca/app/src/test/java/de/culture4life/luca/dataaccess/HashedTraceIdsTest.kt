@@ -0,0 +1,73 @@
+package de.culture4life.luca.dataaccess
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import kotlin.random.Random
+
+class HashedTraceIdsTest {
+
+    private val random = Random(16)
+
+    @Test
+    fun contains_allAddedHashes_isTrue() {
+        val hashes = List(1000) { random.nextBytes(HASH_LENGTH) }
+        val hashedTraceIds = HashedTraceIds.from(concat(hashes), HASH_LENGTH)
+
+        assertEquals(hashes.size, hashedTraceIds.size)
+        hashes.forEach { assertTrue(it in hashedTraceIds) }
+    }
+
+    @Test
+    fun contains_unknownHash_isFalse() {
+        val hashedTraceIds = HashedTraceIds.from(concat(List(100) { random.nextBytes(HASH_LENGTH) }), HASH_LENGTH)
+
+        assertFalse(random.nextBytes(HASH_LENGTH) in hashedTraceIds)
+    }
+
+    @Test
+    fun contains_differentHashLength_isFalse() {
+        val hash = random.nextBytes(HASH_LENGTH)
+        val hashedTraceIds = HashedTraceIds.from(hash.copyOf(), HASH_LENGTH)
+
+        assertFalse(hash.copyOf(HASH_LENGTH - 1) in hashedTraceIds)
+    }
+
+    @Test
+    fun contains_duplicateAndExtremeHashes_isTrue() {
+        val hashes = listOf(
+            ByteArray(HASH_LENGTH) { 0xFF.toByte() },
+            ByteArray(HASH_LENGTH),
+            ByteArray(HASH_LENGTH) { 0x7F },
+            ByteArray(HASH_LENGTH) { 0x80.toByte() },
+            ByteArray(HASH_LENGTH)
+        )
+        val hashedTraceIds = HashedTraceIds.from(concat(hashes), HASH_LENGTH)
+
+        hashes.forEach { assertTrue(it in hashedTraceIds) }
+    }
+
+    @Test
+    fun from_noHashes_isEmpty() {
+        val hashedTraceIds = HashedTraceIds.from(ByteArray(0), HASH_LENGTH)
+
+        assertTrue(hashedTraceIds.isEmpty())
+        assertFalse(ByteArray(HASH_LENGTH) in hashedTraceIds)
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun from_incompleteHash_throws() {
+        HashedTraceIds.from(ByteArray(HASH_LENGTH + 1), HASH_LENGTH)
+    }
+
+    private fun concat(hashes: List<ByteArray>): ByteArray {
+        val result = ByteArray(hashes.size * HASH_LENGTH)
+        hashes.forEachIndexed { index, hash -> hash.copyInto(result, index * HASH_LENGTH) }
+        return result
+    }
+
+    companion object {
+        private const val HASH_LENGTH = 16
+    }
+}
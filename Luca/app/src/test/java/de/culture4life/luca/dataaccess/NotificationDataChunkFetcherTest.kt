@@ -0,0 +1,107 @@
+package de.culture4life.luca.dataaccess
+
+import de.culture4life.luca.LucaUnitTest
+import de.culture4life.luca.network.endpoints.LucaEndpointsV4
+import de.culture4life.luca.util.TimeUtil
+import de.culture4life.luca.util.decodeFromBase64
+import de.culture4life.luca.util.encodeToBase64
+import io.reactivex.rxjava3.core.Single
+import okhttp3.ResponseBody
+import okhttp3.ResponseBody.Companion.toResponseBody
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.times
+import org.mockito.kotlin.verify
+import org.mockito.kotlin.whenever
+import retrofit2.HttpException
+import retrofit2.Response
+import java.net.HttpURLConnection
+import java.nio.ByteBuffer
+import java.util.concurrent.TimeUnit
+import kotlin.random.Random
+
+class NotificationDataChunkFetcherTest : LucaUnitTest() {
+
+    @get:Rule
+    val temporaryFolder = TemporaryFolder()
+
+    private val random = Random(22)
+    private val processedChunkId = createChunkId()
+    private val previousChunkId = createChunkId()
+    private val currentChunk = createChunk(previousChunkId)
+    private val previousChunk = createChunk(processedChunkId)
+    private val endpoints = mock<LucaEndpointsV4>()
+    private lateinit var fetcher: NotificationDataChunkFetcher
+
+    @Before
+    fun setup() {
+        whenever(endpoints.getNotifications()).then { Single.just(currentChunk.toResponseBody()) }
+        whenever(endpoints.getNotifications(previousChunkId)).then { Single.just(previousChunk.toResponseBody()) }
+        fetcher = NotificationDataChunkFetcher(Single.just(endpoints), NotificationDataChunkCache(temporaryFolder.newFolder()))
+    }
+
+    @Test
+    fun fetchChunks_unprocessedPreviousChunk_emitsChain() {
+        val chunks = fetchChunks()
+
+        assertEquals(setOf(null, previousChunkId), chunks.map { it.id }.toSet())
+        assertEquals(previousChunkId, chunks.first { it.id == null }.previousChunkId)
+        assertEquals(2L, fetcher.metrics.downloadedChunks.get())
+        assertEquals((currentChunk.size + previousChunk.size).toLong(), fetcher.metrics.downloadedBytes.get())
+    }
+
+    @Test
+    fun fetchChunks_previousChunkFetchedBefore_servesPreviousChunkFromCache() {
+        val initialChunks = fetchChunks()
+        val chunks = fetchChunks()
+
+        assertEquals(initialChunks.first { it.id == previousChunkId }, chunks.first { it.id == previousChunkId })
+        verify(endpoints, times(1)).getNotifications(previousChunkId)
+        assertEquals(1L, fetcher.metrics.cachedChunks.get())
+        assertEquals(previousChunk.size.toLong(), fetcher.metrics.cachedBytes.get())
+    }
+
+    @Test
+    fun fetchChunks_previousChunkDeleted_emitsCurrentChunk() {
+        whenever(endpoints.getNotifications(previousChunkId)).then {
+            Single.error<ResponseBody>(HttpException(Response.error<ResponseBody>(HttpURLConnection.HTTP_NOT_FOUND, "".toResponseBody())))
+        }
+
+        val chunks = fetchChunks()
+
+        assertEquals(listOf<String?>(null), chunks.map { it.id })
+    }
+
+    private fun fetchChunks(): List<NotificationDataChunk> {
+        val observer = fetcher.fetchChunks { chunkId -> Single.just(chunkId != processedChunkId) }
+            .test()
+        triggerScheduler()
+        return observer.await()
+            .assertComplete()
+            .values()
+    }
+
+    private fun createChunkId(): String {
+        return random.nextBytes(16).encodeToBase64()
+    }
+
+    private fun createChunk(previousChunkId: String): ByteArray {
+        val byteBuffer = ByteBuffer.allocate(NotificationDataChunk.HEADER_LENGTH + 100 * HASH_LENGTH)
+        byteBuffer.put(1) // version
+        byteBuffer.put(0) // algorithm
+        byteBuffer.put(HASH_LENGTH.toByte())
+        byteBuffer.putLong(TimeUtil.getCurrentMillis() - TimeUnit.HOURS.toMillis(1))
+        byteBuffer.position(16)
+        byteBuffer.put(previousChunkId.decodeFromBase64())
+        byteBuffer.put(random.nextBytes(100 * HASH_LENGTH))
+        return byteBuffer.array()
+    }
+
+    companion object {
+        private const val HASH_LENGTH = 16
+    }
+}
@@ -0,0 +1,63 @@
+package de.culture4life.luca.dataaccess
+
+import android.util.Base64
+import com.nexenio.rxkeystore.util.RxBase64
+import de.culture4life.luca.LucaUnitTest
+import de.culture4life.luca.util.TimeUtil
+import okhttp3.MediaType.Companion.toMediaType
+import okhttp3.ResponseBody.Companion.toResponseBody
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.nio.ByteBuffer
+import java.util.concurrent.TimeUnit
+import kotlin.random.Random
+
+class NotificationDataChunkTest : LucaUnitTest() {
+
+    @Test
+    fun from_responseBody_sameHashesAsLegacyParser() {
+        val responseBody = createResponseBody(1000)
+
+        val chunk = NotificationDataChunk.from(responseBody.toResponseBody(MEDIA_TYPE))
+        val legacyHashedTraceIds = parseLegacy(responseBody)
+
+        assertEquals(legacyHashedTraceIds.size, chunk.hashedTraceIds.size)
+        legacyHashedTraceIds.forEach { assertTrue(it in chunk.hashedTraceIds) }
+        assertEquals(legacyHashedTraceIds.sorted(), chunk.hashedTraceIds.toEncodedList().sorted())
+    }
+
+    private fun createResponseBody(hashCount: Int): ByteArray {
+        val random = Random(hashCount)
+        val byteBuffer = ByteBuffer.allocate(NotificationDataChunk.HEADER_LENGTH + hashCount * HASH_LENGTH)
+        byteBuffer.put(1) // version
+        byteBuffer.put(0) // algorithm
+        byteBuffer.put(HASH_LENGTH.toByte())
+        byteBuffer.putLong(TimeUtil.getCurrentMillis() - TimeUnit.HOURS.toMillis(1))
+        byteBuffer.position(16)
+        byteBuffer.put(random.nextBytes(16)) // previous chunk hash
+        byteBuffer.put(random.nextBytes(hashCount * HASH_LENGTH))
+        return byteBuffer.array()
+    }
+
+    /**
+     * The hash parsing of [NotificationDataChunk.from] before the hashes have been stored in [HashedTraceIds].
+     */
+    private fun parseLegacy(responseBody: ByteArray): List<String> {
+        val byteBuffer = ByteBuffer.wrap(responseBody)
+        val hashLength = byteBuffer.get(2).toInt()
+        byteBuffer.position(NotificationDataChunk.HEADER_LENGTH)
+        val hashedTraceIds = ArrayList<String>()
+        while (byteBuffer.hasRemaining()) {
+            val hash = ByteArray(hashLength)
+            byteBuffer.get(hash)
+            hashedTraceIds.add(RxBase64.encode(hash, Base64.NO_WRAP).blockingGet())
+        }
+        return hashedTraceIds
+    }
+
+    companion object {
+        private const val HASH_LENGTH = 16
+        private val MEDIA_TYPE = "application/octet-stream".toMediaType()
+    }
+}
@@ -202,6 +202,7 @@ public class DocumentManagerTest extends LucaUnitTest {
         EudccDocumentProvider eudccDocumentProvider = spy(new EudccDocumentProvider(application));
         doReturn(Completable.error(new DocumentVerificationException(DocumentVerificationException.Reason.INVALID_SIGNATURE)))
                 .when(eudccDocumentProvider).verify(EudccDocumentProviderTest.EUDCC_FULLY_VACCINATED);
+        doReturn(Single.just("signing keys")).when(eudccDocumentProvider).getSigningKeySetVersion();
         documentManager.setEudccDocumentProvider(eudccDocumentProvider);
 
         TestObserver<Document> parseDocument = eudccDocumentProvider.parse(EudccDocumentProviderTest.EUDCC_FULLY_VACCINATED)
@@ -215,6 +216,46 @@ public class DocumentManagerTest extends LucaUnitTest {
         parseDocument.assertValue(document -> !document.isVerified());
     }
 
+    @Test
+    public void reVerifyDocuments_unchangedSigningKeys_usesCachedResult() {
+        EudccDocumentProvider eudccDocumentProvider = spy(new EudccDocumentProvider(application));
+        doReturn(Completable.complete()).when(eudccDocumentProvider).verify(EudccDocumentProviderTest.EUDCC_FULLY_VACCINATED);
+        doReturn(Single.just("signing keys")).when(eudccDocumentProvider).getSigningKeySetVersion();
+        documentManager.setEudccDocumentProvider(eudccDocumentProvider);
+
+        TestObserver<Document> reVerifyDocuments = eudccDocumentProvider.parse(EudccDocumentProviderTest.EUDCC_FULLY_VACCINATED)
+                .map(ProvidedDocument::getDocument)
+                .flatMapCompletable(document -> documentManager.addDocument(document))
+                .andThen(documentManager.reVerifyDocuments())
+                .andThen(documentManager.reVerifyDocuments())
+                .andThen(documentManager.getOrRestoreDocuments())
+                .test();
+        rxSchedulersRule.getTestScheduler().triggerActions();
+        reVerifyDocuments.assertValue(Document::isVerified);
+
+        verify(eudccDocumentProvider, times(1)).verify(EudccDocumentProviderTest.EUDCC_FULLY_VACCINATED);
+    }
+
+    @Test
+    public void reVerifyDocuments_changedSigningKeys_verifiesAgain() {
+        EudccDocumentProvider eudccDocumentProvider = spy(new EudccDocumentProvider(application));
+        doReturn(Completable.complete()).when(eudccDocumentProvider).verify(EudccDocumentProviderTest.EUDCC_FULLY_VACCINATED);
+        doReturn(Single.just("signing keys"), Single.just("updated signing keys")).when(eudccDocumentProvider).getSigningKeySetVersion();
+        documentManager.setEudccDocumentProvider(eudccDocumentProvider);
+
+        TestObserver<Document> reVerifyDocuments = eudccDocumentProvider.parse(EudccDocumentProviderTest.EUDCC_FULLY_VACCINATED)
+                .map(ProvidedDocument::getDocument)
+                .flatMapCompletable(document -> documentManager.addDocument(document))
+                .andThen(documentManager.reVerifyDocuments())
+                .andThen(documentManager.reVerifyDocuments())
+                .andThen(documentManager.getOrRestoreDocuments())
+                .test();
+        rxSchedulersRule.getTestScheduler().triggerActions();
+        reVerifyDocuments.assertValueCount(1);
+
+        verify(eudccDocumentProvider, times(2)).verify(EudccDocumentProviderTest.EUDCC_FULLY_VACCINATED);
+    }
+
     @Test
     public void addDocument_expiredDocument_throwsInRelease() {
         Document expiredDocument = new OpenTestCheckDocument(EXPIRED_TEST_RESULT_TICKET_IO).getDocument();
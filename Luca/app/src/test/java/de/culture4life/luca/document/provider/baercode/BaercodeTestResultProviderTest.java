@@ -36,7 +36,7 @@ public class BaercodeTestResultProviderTest extends LucaUnitTest {
 
     @Before
     public void setUp() throws IOException, CertificateException {
-        provider = new BaercodeDocumentProvider(application);
+        provider = new BaercodeDocumentProvider(application, getInitializedManager(application.getNetworkManager()).getHttpClient());
         BaercodeDocumentProvider.baercodeBundle = BaercodeBundle.getTestBundle();
         BaercodeDocumentProvider.baercodeCertificate = new BaercodeCertificate(BaercodeCertificateTest.getFileContent("src/test/assets/baercode.crt"));
     }
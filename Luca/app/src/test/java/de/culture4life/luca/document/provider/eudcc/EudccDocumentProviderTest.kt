@@ -7,13 +7,17 @@ import de.culture4life.luca.document.DocumentVerificationException
 import de.culture4life.luca.document.provider.baercode.BaercodeTestResultProviderTest
 import de.culture4life.luca.document.provider.opentestcheck.OpenTestCheckDocumentProviderTest
 import de.culture4life.luca.registration.Person
-import io.reactivex.rxjava3.core.Observable
+import de.culture4life.luca.util.TimeUtil
+import io.reactivex.rxjava3.core.Single
 import org.junit.Assert.assertEquals
 import org.junit.Before
 import org.junit.Ignore
 import org.junit.Test
 import org.mockito.Mockito.spy
 import org.mockito.Mockito.`when`
+import org.mockito.kotlin.anyOrNull
+import org.mockito.kotlin.times
+import org.mockito.kotlin.verify
 
 @ExperimentalUnsignedTypes
 class EudccDocumentProviderTest : LucaUnitTest() {
@@ -23,21 +27,38 @@ class EudccDocumentProviderTest : LucaUnitTest() {
     @Before
     fun setUp() {
         provider = spy(EudccDocumentProvider(application))
-        `when`(provider.fetchSigningKeys()).thenReturn(
-            Observable.just(
-                EudccSigningKey(
-                    "DSC",
-                    "DE",
-                    "yWCRdph8XJs=",
-                    "MIIHUTCCBQmgAwIBAgIQTrNSYxxkgkYkdCLUyN9QuTA9BgkqhkiG9w0BAQowMKANMAsGCWCGSAFlAwQCA6EaMBgGCSqGSIb3DQEBCDALBglghkgBZQMEAgOiAwIBQDBbMQswCQYDVQQGEwJERTEVMBMGA1UEChMMRC1UcnVzdCBHbWJIMRwwGgYDVQQDExNELVRSVVNUIENBIDItMiAyMDE5MRcwFQYDVQRhEw5OVFJERS1IUkI3NDM0NjAeFw0yMTA2MDMxMDUyNTNaFw0yMzA2MDcxMDUyNTNaMIHrMQswCQYDVQQGEwJERTEdMBsGA1UEChMUUm9iZXJ0IEtvY2gtSW5zdGl0dXQxJDAiBgNVBAsTG0VsZWt0cm9uaXNjaGVyIEltcGZuYWNod2VpczEdMBsGA1UEAxMUUm9iZXJ0IEtvY2gtSW5zdGl0dXQxDzANBgNVBAcTBkJlcmxpbjEOMAwGA1UEEQwFMTMzNTMxFDASBgNVBAkTC05vcmR1ZmVyIDIwMRkwFwYDVQRhExBEVDpERS0zMDIzNTMxNDQ1MRUwEwYDVQQFEwxDU00wMjYzODI5NjgxDzANBgNVBAgTBkJlcmxpbjBZMBMGByqGSM49AgEGCCqGSM49AwEHA0IABIDIaTpLXww+1Z+1pvgZR2mxW6TrNlJgla7SKXDhaSJa/PtsBz+f1UlGbJRMUqNvOH6cLqCeXinIw7r5Qj42TYWjggLpMIIC5TAfBgNVHSMEGDAWgBRxEDKudHF7VI7x1qtiVK78PsC7FjAtBggrBgEFBQcBAwQhMB8wCAYGBACORgEBMBMGBgQAjkYBBjAJBgcEAI5GAQYCMIH+BggrBgEFBQcBAQSB8TCB7jA3BggrBgEFBQcwAYYraHR0cDovL2QtdHJ1c3QtY2EtMi0yLTIwMTkub2NzcC5kLXRydXN0Lm5ldDBCBggrBgEFBQcwAoY2aHR0cDovL3d3dy5kLXRydXN0Lm5ldC9jZ2ktYmluL0QtVFJVU1RfQ0FfMi0yXzIwMTkuY3J0MG8GCCsGAQUFBzAChmNsZGFwOi8vZGlyZWN0b3J5LmQtdHJ1c3QubmV0L0NOPUQtVFJVU1QlMjBDQSUyMDItMiUyMDIwMTksTz1ELVRydXN0JTIwR21iSCxDPURFP2NBQ2VydGlmaWNhdGU/YmFzZT8wcAYDVR0gBGkwZzAJBgcEAIvsQAEBMFoGCysGAQQBpTQCgRYFMEswSQYIKwYBBQUHAgEWPWh0dHA6Ly93d3cuZC10cnVzdC5uZXQvaW50ZXJuZXQvZmlsZXMvRC1UUlVTVF9DU01fUEtJX0NQUy5wZGYwgfAGA1UdHwSB6DCB5TCB4qCB36CB3IZpbGRhcDovL2RpcmVjdG9yeS5kLXRydXN0Lm5ldC9DTj1ELVRSVVNUJTIwQ0ElMjAyLTIlMjAyMDE5LE89RC1UcnVzdCUyMEdtYkgsQz1ERT9jZXJ0aWZpY2F0ZXJldm9jYXRpb25saXN0hjJodHRwOi8vY3JsLmQtdHJ1c3QubmV0L2NybC9kLXRydXN0X2NhXzItMl8yMDE5LmNybIY7aHR0cDovL2Nkbi5kLXRydXN0LWNsb3VkY3JsLm5ldC9jcmwvZC10cnVzdF9jYV8yLTJfMjAxOS5jcmwwHQYDVR0OBBYEFOUf3iWd2Hum+D068MgwNqU55MGHMA4GA1UdDwEB/wQEAwIGwDA9BgkqhkiG9w0BAQowMKANMAsGCWCGSAFlAwQCA6EaMBgGCSqGSIb3DQEBCDALBglghkgBZQMEAgOiAwIBQAOCAgEAgNEC7rkQnh/72wrtGhZx/A5dHXieX5Kp4VM6uAS+AnZE/WHsDsg6tOB/8jD6hAAHOAemg0GgUHrpM/A4uwTX/9lJtXF/p+3Eiv54keF2qnv9cZybLmZL6rC7OytA7x3ElhFxfV1SumRqikW5ddb7H/zAeykKTckomWNG2PEDwB3F5HF5L8MGOYmqEI1X+mdI8d7L+4E2z5OXYjB0vh6n+R05MD23LM8EEfN/WkV44toLVAp/tLpln4MmE6sVhXkx2p7LqyRzzOyBI46lccBqGgriWm5rJre9YYO0Il7jAFC1SJNxmTtGxwK9VebxzNeqlVE9lVv/iRSQu+1FwJ5yqUGLjYUbbWTA1U6TV5kgLg7MO3ThBrUVkJDw7f5xewuXfWXueFDW94lS7Er+xsXiHPqsOqDrbDqc+GwcZK5lCKTt/df2W6lWWXR+TFyqI6CEcjFLnzV1t+BuRnyhZcIYcUyNDPUVw7cuh81eN4jORCKXwvThRd3CAFIn8F28/C487aAQDPXTFCL0xpPbbNaN/AqUY5LWGfCuUWrVnVCaOCPfmCijHbKMYjbebybicostdndQl2PfWdCxNSIV2QSTvgiOSYnL8LcV1crE9eoeXN0CYFgj+phNveOwXrA4N8mXIe2uQfW7gKW4vqS0um0fdPeu539Hhpp8sI2LdsEh7EA=",
-                    "MIAGCSqGSIb3DQEHAqCAMIACAQExDzANBglghkgBZQMEAgEFADCABgkqhkiG9w0BBwEAAKCAMIIFTjCCBDagAwIBAgIQeQJYn+2D5dqB2rpatIzUezANBgkqhkiG9w0BAQsFADBQMQswCQYDVQQGEwJERTEVMBMGA1UECgwMRC1UcnVzdCBHbWJIMSowKAYDVQQDDCFELVRSVVNUIExpbWl0ZWQgQmFzaWMgQ0EgMS0yIDIwMTkwHhcNMjEwNTIzMTk1ODI3WhcNMjExMTIyMjA1ODI3WjCBizELMAkGA1UEBhMCREUxFDASBgNVBAoTC3ViaXJjaCBHbWJIMSEwHwYDVQQDExh1cGxvYWQuZGUuZHNjLnViaXJjaC5jb20xDjAMBgNVBAcTBUtvZWxuMRUwEwYDVQQFEwxDU00wMjYyOTQyNjUxHDAaBgNVBAgTE05vcmRyaGVpbi1XZXN0ZmFsZW4wWTATBgcqhkjOPQIBBggqhkjOPQMBBwNCAAS7vWbF4ktHYoVMgQGN5PpIDUxvyTJ5NJ3m4wmceQzgwmSIuX2y/0N1H/tcBhFEbzKhTZs3p6bSilCB4fD230fRo4ICsTCCAq0wEwYDVR0lBAwwCgYIKwYBBQUHAwIwHwYDVR0jBBgwFoAU0A0+3Aiv40EIZuDc8vqZai3fGLkwggEvBggrBgEFBQcBAQSCASEwggEdMEUGCCsGAQUFBzABhjlodHRwOi8vZC10cnVzdC1saW1pdGVkLWJhc2ljLWNhLTEtMi0yMDE5Lm9jc3AuZC10cnVzdC5uZXQwUAYIKwYBBQUHMAKGRGh0dHA6Ly93d3cuZC10cnVzdC5uZXQvY2dpLWJpbi9ELVRSVVNUX0xpbWl0ZWRfQmFzaWNfQ0FfMS0yXzIwMTkuY3J0MIGBBggrBgEFBQcwAoZ1bGRhcDovL2RpcmVjdG9yeS5kLXRydXN0Lm5ldC9DTj1ELVRSVVNUJTIwTGltaXRlZCUyMEJhc2ljJTIwQ0ElMjAxLTIlMjAyMDE5LE89RC1UcnVzdCUyMEdtYkgsQz1ERT9jQUNlcnRpZmljYXRlP2Jhc2U/MBgGA1UdIAQRMA8wDQYLKwYBBAGlNAKDdAEwgdMGA1UdHwSByzCByDCBxaCBwqCBv4ZAaHR0cDovL2NybC5kLXRydXN0Lm5ldC9jcmwvZC10cnVzdF9saW1pdGVkX2Jhc2ljX2NhXzEtMl8yMDE5LmNybIZ7bGRhcDovL2RpcmVjdG9yeS5kLXRydXN0Lm5ldC9DTj1ELVRSVVNUJTIwTGltaXRlZCUyMEJhc2ljJTIwQ0ElMjAxLTIlMjAyMDE5LE89RC1UcnVzdCUyMEdtYkgsQz1ERT9jZXJ0aWZpY2F0ZXJldm9jYXRpb25saXN0MB0GA1UdDgQWBBR3URlrkdxR+aUZUhApAz5uZmJTAzAOBgNVHQ8BAf8EBAMCBLAwIwYDVR0RBBwwGoIYdXBsb2FkLmRlLmRzYy51YmlyY2guY29tMA0GCSqGSIb3DQEBCwUAA4IBAQAizlIQ5L37J6KF4Is7foLR6UeYBA/ibUXB333T7mCIJZ/VnZ+AUNz5BqCKTnIWEN+LyAxbKtAeuX45nDv4OuwT9f0IO4ZvK4aFexZk3/Ur33uzlSPC8t84kLe3kFQG+i2IE/3guYJsm+YRQrOKcfAr/0wONbbrSH+sOOUPYAGuAAok1WGhJDs90QEswWS9LYAKhYdmeBAyFblOIgEcyvxj4MEBTEbqj7LEZlg5Fsh5ne0twwgRGKZIs3gQCto0Togzh6CMI6B63kz1YFDNyorUaln20DiyTv2UI1y6cKqAaStS19tGej0BRwVCL6ShzS3qp3Q+4wf53bJbzw8um6ybAAAxggG2MIIBsgIBATBkMFAxCzAJBgNVBAYTAkRFMRUwEwYDVQQKDAxELVRydXN0IEdtYkgxKjAoBgNVBAMMIUQtVFJVU1QgTGltaXRlZCBCYXNpYyBDQSAxLTIgMjAxOQIQeQJYn+2D5dqB2rpatIzUezALBglghkgBZQMEAgGggeQwGAYJKoZIhvcNAQkDMQsGCSqGSIb3DQEHATAcBgkqhkiG9w0BCQUxDxcNMjEwNjAzMTcwOTExWjAvBgkqhkiG9w0BCQQxIgQgyWCRdph8XJsbsnzH7bDul9pZsflGDL/dLNWbPkP0cUUweQYJKoZIhvcNAQkPMWwwajALBglghkgBZQMEASowCwYJYIZIAWUDBAEWMAsGCWCGSAFlAwQBAjAKBggqhkiG9w0DBzAOBggqhkiG9w0DAgICAIAwDQYIKoZIhvcNAwICAUAwBwYFKw4DAgcwDQYIKoZIhvcNAwICASgwCgYIKoZIzj0EAwIERzBFAiEAuKnZ9ACdkc9UlHa1lOWc12WpTU2z7Yl7Wieq964zukECIHKYNn9KFT+Ny8XtK1zeCTD4h6AvFhrWL7oMgVmi/AE9AAAAAAAA",
-                    "c9609176987c5c9b1bb27cc7edb0ee97da59b1f9460cbfdd2cd59b3e43f47145",
-                    "2021-06-03T19:09:10+02:00"
+        `when`(provider.fetchSigningKeyList(anyOrNull())).thenReturn(
+            Single.just(
+                EudccSigningKeyList(
+                    signingKeys = listOf(SIGNING_KEY),
+                    downloadTimestamp = TimeUtil.getCurrentMillis(),
+                    expirationTimestamp = Long.MAX_VALUE
                 )
             )
         )
     }
 
+    @Test
+    fun getSigningKeys_calledTwice_fetchesOnce() {
+        provider.getSigningKeys()
+            .concatWith(provider.getSigningKeys())
+            .test()
+            .await()
+            .assertValues(SIGNING_KEY, SIGNING_KEY)
+        verify(provider, times(1)).fetchSigningKeyList(anyOrNull())
+    }
+
+    @Test
+    fun getSigningKeys_expiredSigningKeys_emitsExpiredKeysAndUpdates() {
+        `when`(provider.fetchSigningKeyList(anyOrNull())).thenReturn(
+            Single.just(EudccSigningKeyList(signingKeys = listOf(SIGNING_KEY), expirationTimestamp = 0))
+        )
+        provider.getSigningKeys().test().await().assertValue(SIGNING_KEY)
+        provider.getSigningKeys().test().await().assertValue(SIGNING_KEY)
+        triggerScheduler()
+        verify(provider, times(2)).fetchSigningKeyList(anyOrNull())
+    }
+
     @Test
     fun canParse_validData_emitsTrue() {
         provider.canParse(EUDCC_TEST_RESULT)
@@ -203,6 +224,16 @@ class EudccDocumentProviderTest : LucaUnitTest() {
     }
 
     companion object {
+        private val SIGNING_KEY = EudccSigningKey(
+            "DSC",
+            "DE",
+            "yWCRdph8XJs=",
+            "MIIHUTCCBQmgAwIBAgIQTrNSYxxkgkYkdCLUyN9QuTA9BgkqhkiG9w0BAQowMKANMAsGCWCGSAFlAwQCA6EaMBgGCSqGSIb3DQEBCDALBglghkgBZQMEAgOiAwIBQDBbMQswCQYDVQQGEwJERTEVMBMGA1UEChMMRC1UcnVzdCBHbWJIMRwwGgYDVQQDExNELVRSVVNUIENBIDItMiAyMDE5MRcwFQYDVQRhEw5OVFJERS1IUkI3NDM0NjAeFw0yMTA2MDMxMDUyNTNaFw0yMzA2MDcxMDUyNTNaMIHrMQswCQYDVQQGEwJERTEdMBsGA1UEChMUUm9iZXJ0IEtvY2gtSW5zdGl0dXQxJDAiBgNVBAsTG0VsZWt0cm9uaXNjaGVyIEltcGZuYWNod2VpczEdMBsGA1UEAxMUUm9iZXJ0IEtvY2gtSW5zdGl0dXQxDzANBgNVBAcTBkJlcmxpbjEOMAwGA1UEEQwFMTMzNTMxFDASBgNVBAkTC05vcmR1ZmVyIDIwMRkwFwYDVQRhExBEVDpERS0zMDIzNTMxNDQ1MRUwEwYDVQQFEwxDU00wMjYzODI5NjgxDzANBgNVBAgTBkJlcmxpbjBZMBMGByqGSM49AgEGCCqGSM49AwEHA0IABIDIaTpLXww+1Z+1pvgZR2mxW6TrNlJgla7SKXDhaSJa/PtsBz+f1UlGbJRMUqNvOH6cLqCeXinIw7r5Qj42TYWjggLpMIIC5TAfBgNVHSMEGDAWgBRxEDKudHF7VI7x1qtiVK78PsC7FjAtBggrBgEFBQcBAwQhMB8wCAYGBACORgEBMBMGBgQAjkYBBjAJBgcEAI5GAQYCMIH+BggrBgEFBQcBAQSB8TCB7jA3BggrBgEFBQcwAYYraHR0cDovL2QtdHJ1c3QtY2EtMi0yLTIwMTkub2NzcC5kLXRydXN0Lm5ldDBCBggrBgEFBQcwAoY2aHR0cDovL3d3dy5kLXRydXN0Lm5ldC9jZ2ktYmluL0QtVFJVU1RfQ0FfMi0yXzIwMTkuY3J0MG8GCCsGAQUFBzAChmNsZGFwOi8vZGlyZWN0b3J5LmQtdHJ1c3QubmV0L0NOPUQtVFJVU1QlMjBDQSUyMDItMiUyMDIwMTksTz1ELVRydXN0JTIwR21iSCxDPURFP2NBQ2VydGlmaWNhdGU/YmFzZT8wcAYDVR0gBGkwZzAJBgcEAIvsQAEBMFoGCysGAQQBpTQCgRYFMEswSQYIKwYBBQUHAgEWPWh0dHA6Ly93d3cuZC10cnVzdC5uZXQvaW50ZXJuZXQvZmlsZXMvRC1UUlVTVF9DU01fUEtJX0NQUy5wZGYwgfAGA1UdHwSB6DCB5TCB4qCB36CB3IZpbGRhcDovL2RpcmVjdG9yeS5kLXRydXN0Lm5ldC9DTj1ELVRSVVNUJTIwQ0ElMjAyLTIlMjAyMDE5LE89RC1UcnVzdCUyMEdtYkgsQz1ERT9jZXJ0aWZpY2F0ZXJldm9jYXRpb25saXN0hjJodHRwOi8vY3JsLmQtdHJ1c3QubmV0L2NybC9kLXRydXN0X2NhXzItMl8yMDE5LmNybIY7aHR0cDovL2Nkbi5kLXRydXN0LWNsb3VkY3JsLm5ldC9jcmwvZC10cnVzdF9jYV8yLTJfMjAxOS5jcmwwHQYDVR0OBBYEFOUf3iWd2Hum+D068MgwNqU55MGHMA4GA1UdDwEB/wQEAwIGwDA9BgkqhkiG9w0BAQowMKANMAsGCWCGSAFlAwQCA6EaMBgGCSqGSIb3DQEBCDALBglghkgBZQMEAgOiAwIBQAOCAgEAgNEC7rkQnh/72wrtGhZx/A5dHXieX5Kp4VM6uAS+AnZE/WHsDsg6tOB/8jD6hAAHOAemg0GgUHrpM/A4uwTX/9lJtXF/p+3Eiv54keF2qnv9cZybLmZL6rC7OytA7x3ElhFxfV1SumRqikW5ddb7H/zAeykKTckomWNG2PEDwB3F5HF5L8MGOYmqEI1X+mdI8d7L+4E2z5OXYjB0vh6n+R05MD23LM8EEfN/WkV44toLVAp/tLpln4MmE6sVhXkx2p7LqyRzzOyBI46lccBqGgriWm5rJre9YYO0Il7jAFC1SJNxmTtGxwK9VebxzNeqlVE9lVv/iRSQu+1FwJ5yqUGLjYUbbWTA1U6TV5kgLg7MO3ThBrUVkJDw7f5xewuXfWXueFDW94lS7Er+xsXiHPqsOqDrbDqc+GwcZK5lCKTt/df2W6lWWXR+TFyqI6CEcjFLnzV1t+BuRnyhZcIYcUyNDPUVw7cuh81eN4jORCKXwvThRd3CAFIn8F28/C487aAQDPXTFCL0xpPbbNaN/AqUY5LWGfCuUWrVnVCaOCPfmCijHbKMYjbebybicostdndQl2PfWdCxNSIV2QSTvgiOSYnL8LcV1crE9eoeXN0CYFgj+phNveOwXrA4N8mXIe2uQfW7gKW4vqS0um0fdPeu539Hhpp8sI2LdsEh7EA=",
+            "MIAGCSqGSIb3DQEHAqCAMIACAQExDzANBglghkgBZQMEAgEFADCABgkqhkiG9w0BBwEAAKCAMIIFTjCCBDagAwIBAgIQeQJYn+2D5dqB2rpatIzUezANBgkqhkiG9w0BAQsFADBQMQswCQYDVQQGEwJERTEVMBMGA1UECgwMRC1UcnVzdCBHbWJIMSowKAYDVQQDDCFELVRSVVNUIExpbWl0ZWQgQmFzaWMgQ0EgMS0yIDIwMTkwHhcNMjEwNTIzMTk1ODI3WhcNMjExMTIyMjA1ODI3WjCBizELMAkGA1UEBhMCREUxFDASBgNVBAoTC3ViaXJjaCBHbWJIMSEwHwYDVQQDExh1cGxvYWQuZGUuZHNjLnViaXJjaC5jb20xDjAMBgNVBAcTBUtvZWxuMRUwEwYDVQQFEwxDU00wMjYyOTQyNjUxHDAaBgNVBAgTE05vcmRyaGVpbi1XZXN0ZmFsZW4wWTATBgcqhkjOPQIBBggqhkjOPQMBBwNCAAS7vWbF4ktHYoVMgQGN5PpIDUxvyTJ5NJ3m4wmceQzgwmSIuX2y/0N1H/tcBhFEbzKhTZs3p6bSilCB4fD230fRo4ICsTCCAq0wEwYDVR0lBAwwCgYIKwYBBQUHAwIwHwYDVR0jBBgwFoAU0A0+3Aiv40EIZuDc8vqZai3fGLkwggEvBggrBgEFBQcBAQSCASEwggEdMEUGCCsGAQUFBzABhjlodHRwOi8vZC10cnVzdC1saW1pdGVkLWJhc2ljLWNhLTEtMi0yMDE5Lm9jc3AuZC10cnVzdC5uZXQwUAYIKwYBBQUHMAKGRGh0dHA6Ly93d3cuZC10cnVzdC5uZXQvY2dpLWJpbi9ELVRSVVNUX0xpbWl0ZWRfQmFzaWNfQ0FfMS0yXzIwMTkuY3J0MIGBBggrBgEFBQcwAoZ1bGRhcDovL2RpcmVjdG9yeS5kLXRydXN0Lm5ldC9DTj1ELVRSVVNUJTIwTGltaXRlZCUyMEJhc2ljJTIwQ0ElMjAxLTIlMjAyMDE5LE89RC1UcnVzdCUyMEdtYkgsQz1ERT9jQUNlcnRpZmljYXRlP2Jhc2U/MBgGA1UdIAQRMA8wDQYLKwYBBAGlNAKDdAEwgdMGA1UdHwSByzCByDCBxaCBwqCBv4ZAaHR0cDovL2NybC5kLXRydXN0Lm5ldC9jcmwvZC10cnVzdF9saW1pdGVkX2Jhc2ljX2NhXzEtMl8yMDE5LmNybIZ7bGRhcDovL2RpcmVjdG9yeS5kLXRydXN0Lm5ldC9DTj1ELVRSVVNUJTIwTGltaXRlZCUyMEJhc2ljJTIwQ0ElMjAxLTIlMjAyMDE5LE89RC1UcnVzdCUyMEdtYkgsQz1ERT9jZXJ0aWZpY2F0ZXJldm9jYXRpb25saXN0MB0GA1UdDgQWBBR3URlrkdxR+aUZUhApAz5uZmJTAzAOBgNVHQ8BAf8EBAMCBLAwIwYDVR0RBBwwGoIYdXBsb2FkLmRlLmRzYy51YmlyY2guY29tMA0GCSqGSIb3DQEBCwUAA4IBAQAizlIQ5L37J6KF4Is7foLR6UeYBA/ibUXB333T7mCIJZ/VnZ+AUNz5BqCKTnIWEN+LyAxbKtAeuX45nDv4OuwT9f0IO4ZvK4aFexZk3/Ur33uzlSPC8t84kLe3kFQG+i2IE/3guYJsm+YRQrOKcfAr/0wONbbrSH+sOOUPYAGuAAok1WGhJDs90QEswWS9LYAKhYdmeBAyFblOIgEcyvxj4MEBTEbqj7LEZlg5Fsh5ne0twwgRGKZIs3gQCto0Togzh6CMI6B63kz1YFDNyorUaln20DiyTv2UI1y6cKqAaStS19tGej0BRwVCL6ShzS3qp3Q+4wf53bJbzw8um6ybAAAxggG2MIIBsgIBATBkMFAxCzAJBgNVBAYTAkRFMRUwEwYDVQQKDAxELVRydXN0IEdtYkgxKjAoBgNVBAMMIUQtVFJVU1QgTGltaXRlZCBCYXNpYyBDQSAxLTIgMjAxOQIQeQJYn+2D5dqB2rpatIzUezALBglghkgBZQMEAgGggeQwGAYJKoZIhvcNAQkDMQsGCSqGSIb3DQEHATAcBgkqhkiG9w0BCQUxDxcNMjEwNjAzMTcwOTExWjAvBgkqhkiG9w0BCQQxIgQgyWCRdph8XJsbsnzH7bDul9pZsflGDL/dLNWbPkP0cUUweQYJKoZIhvcNAQkPMWwwajALBglghkgBZQMEASowCwYJYIZIAWUDBAEWMAsGCWCGSAFlAwQBAjAKBggqhkiG9w0DBzAOBggqhkiG9w0DAgICAIAwDQYIKoZIhvcNAwICAUAwBwYFKw4DAgcwDQYIKoZIhvcNAwICASgwCgYIKoZIzj0EAwIERzBFAiEAuKnZ9ACdkc9UlHa1lOWc12WpTU2z7Yl7Wieq964zukECIHKYNn9KFT+Ny8XtK1zeCTD4h6AvFhrWL7oMgVmi/AE9AAAAAAAA",
+            "c9609176987c5c9b1bb27cc7edb0ee97da59b1f9460cbfdd2cd59b3e43f47145",
+            "2021-06-03T19:09:10+02:00"
+        )
+
         const val EUDCC_FULLY_VACCINATED =
             "HC1:6BF180190T9WTWGSLKC 4769R174TF//5P30FBBXL2WY0AHCBEPFN01FDKDT*70J+9D97TK0F90\$PC5\$CUZC\$\$5Y\$5TPCBEC7ZKW.CXPEQED*WO1/DBJETZ9 QE5\$C .CJEC JC8/D3Z8WEDOCC8V8-2N7WELPCG/DXJDIZAITA9IANB8.+9I3D7WEGY8/B9:B8GVC*JC1A6G%63W5Q47*96KECTHG4KCD3DX47B46IL6646H*6Z/E5JD%96IA74R6646307Q\$D.UDRYA 96NF6L/5SW6Y57B\$D% D3IA4W5646946846.96XJC\$+D3KC.SCXJCCWENF6PF63W5Y96UF6WJCT3EHS8%JC QE/IAYJC5LEW34U3ET7DXC9 QE-ED8%EWJC0FD4X4:KEPH7M/ESDD746LG7\$X8TB8ENA.Q667B7DBEL6657IS8X59Z09%M927BTX64XM6Z5++QQN7%WBD5Q174Q/R87PLRRO7DI7B9HMG:4N0A/RJ2NEGNBNVH10DI-78MR/8EOOIK.P: QFPPGBKL-570I82I33MIAG"
         private const val EUDCC_PARTIALLY_VACCINATED =
@@ -70,6 +70,62 @@ class HistoryManagerTest : LucaUnitTest() {
             .test().assertValueCount(1)
     }
 
+    @Test
+    fun changes_afterAddingCheckInItem_emitsAddedItem() {
+        val changesObserver = historyManager.changes.test()
+
+        historyManager.addCheckInItem(checkInData)
+            .test()
+            .assertComplete()
+
+        changesObserver.assertValue { it.addedItems.size == 1 && it.removedItems.isEmpty() }
+    }
+
+    @Test
+    fun changes_afterAddingDuplicateItem_emitsNothing() {
+        historyManager.addCheckInItem(checkInData)
+            .test()
+            .assertComplete()
+        val changesObserver = historyManager.changes.test()
+
+        historyManager.addCheckInItem(checkInData)
+            .andThen(historyManager.items)
+            .test()
+            .assertValueCount(1)
+
+        changesObserver.assertNoValues()
+    }
+
+    @Test
+    fun items_afterAddingItems_sortedByTimestampDescending() {
+        val currentTimestamp = TimeUtil.getCurrentMillis()
+        historyManager.addCheckInItem(CheckInData().apply { traceId = "first"; timestamp = currentTimestamp - 2000 })
+            .andThen(historyManager.addCheckInItem(CheckInData().apply { traceId = "third"; timestamp = currentTimestamp }))
+            .andThen(historyManager.addCheckInItem(CheckInData().apply { traceId = "second"; timestamp = currentTimestamp - 1000 }))
+            .andThen(historyManager.items)
+            .map { it.relatedId }
+            .test()
+            .assertValues("third", "second", "first")
+    }
+
+    @Test
+    fun addCheckInItem_concurrently_persistsAllItems() {
+        val currentTimestamp = TimeUtil.getCurrentMillis()
+        val threads = (1..20).map { index ->
+            Thread {
+                historyManager.addCheckInItem(CheckInData().apply { traceId = "traceId$index"; timestamp = currentTimestamp - index })
+                    .blockingAwait()
+            }
+        }
+        threads.forEach(Thread::start)
+        threads.forEach(Thread::join)
+
+        preferencesManager.restore(HistoryManager.KEY_HISTORY_ITEMS, HistoryItemContainer::class.java)
+            .map { it.size }
+            .test()
+            .assertValue(20)
+    }
+
     @Test
     fun createOrderedList_withItems_isCorrect() {
         val listString = HistoryManager.createOrderedList(listOf("A", "B"))
@@ -0,0 +1,186 @@
+package de.culture4life.luca.meeting
+
+import com.google.gson.Gson
+import de.culture4life.luca.LucaUnitTest
+import de.culture4life.luca.crypto.AsymmetricCipherProvider
+import de.culture4life.luca.crypto.CryptoManager
+import de.culture4life.luca.network.pojo.TracesResponseData
+import de.culture4life.luca.util.SerializationUtil
+import io.reactivex.rxjava3.core.Observable
+import io.reactivex.rxjava3.core.Single
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Before
+import org.junit.Test
+import org.mockito.kotlin.*
+import java.security.KeyPair
+import java.security.KeyPairGenerator
+import java.security.interfaces.ECPublicKey
+import java.security.spec.ECGenParameterSpec
+import java.util.*
+
+class MeetingManagerTest : LucaUnitTest() {
+
+    private lateinit var cryptoManager: CryptoManager
+    private lateinit var meetingManager: MeetingManager
+    private val meetingKeyPair = generateKeyPair()
+    private val meetingData = MeetingData().apply {
+        locationId = UUID.randomUUID()
+        accessId = UUID.randomUUID()
+        scannerId = UUID.randomUUID()
+        creationTimestamp = System.currentTimeMillis()
+    }
+
+    @Before
+    fun setup() {
+        cryptoManager = spy(application.cryptoManager)
+        meetingManager = spy(
+            MeetingManager(
+                application.preferencesManager,
+                application.networkManager,
+                application.locationManager,
+                application.historyManager,
+                cryptoManager
+            )
+        )
+        initializeManagers(meetingManager, cryptoManager)
+        doReturn(Single.just(meetingKeyPair)).whenever(meetingManager).getMeetingEphemeralKeyPair(any())
+        meetingManager.persistCurrentMeetingData(meetingData)
+            .andThen(meetingManager.restoreCurrentMeetingDataIfAvailable())
+            .test()
+            .assertValueCount(1)
+    }
+
+    @Test
+    fun updateMeetingGuestData_newGuests_decryptsNames() {
+        givenGuests(createTrace("trace1", "Erika"), createTrace("trace2", "Max"))
+
+        updateMeetingGuestData()
+
+        assertEquals(listOf("Erika", "Max"), getGuestData().map { it.firstName })
+        verify(cryptoManager, times(2)).eciesDecrypt(any(), any())
+    }
+
+    @Test
+    fun updateMeetingGuestData_knownGuests_notDecryptedAgain() {
+        givenGuests(createTrace("trace1", "Erika"), createTrace("trace2", "Max"))
+        updateMeetingGuestData()
+        givenGuests(createTrace("trace1", "Erika"), createTrace("trace2", "Max"), createTrace("trace3", "Lisa"))
+
+        updateMeetingGuestData()
+
+        assertEquals(listOf("Erika", "Max", "Lisa"), getGuestData().map { it.firstName })
+        verify(cryptoManager, times(3)).eciesDecrypt(any(), any())
+        verify(meetingManager, times(1)).getMeetingEphemeralKeyPair(any())
+    }
+
+    @Test
+    fun updateMeetingGuestData_additionalDataUploadedLater_decryptsGuest() {
+        givenGuests(createTrace("trace1", null))
+        updateMeetingGuestData()
+        assertNull(getGuestData()[0].firstName)
+
+        givenGuests(createTrace("trace1", "Erika"))
+        updateMeetingGuestData()
+
+        assertEquals("Erika", getGuestData()[0].firstName)
+    }
+
+    @Test
+    fun updateMeetingGuestData_decryptionFailed_decryptsAgainOnNextUpdate() {
+        givenGuests(createTrace("trace1", "Erika"))
+        doReturn(Single.error<ByteArray>(RuntimeException())).whenever(cryptoManager).eciesDecrypt(any(), any())
+        updateMeetingGuestData()
+        assertNull(getGuestData()[0].firstName)
+
+        doCallRealMethod().whenever(cryptoManager).eciesDecrypt(any(), any())
+        updateMeetingGuestData()
+
+        assertEquals("Erika", getGuestData()[0].firstName)
+        verify(cryptoManager, times(2)).eciesDecrypt(any(), any())
+    }
+
+    @Test
+    fun updateMeetingGuestData_unchangedGuestData_notPersisted() {
+        givenGuests(createTrace("trace1", "Erika"))
+        updateMeetingGuestData()
+        clearInvocations(meetingManager)
+
+        updateMeetingGuestData()
+        verify(meetingManager, never()).persistCurrentMeetingData(any())
+
+        givenGuests(createTrace("trace1", "Erika", CHECK_OUT_TIMESTAMP))
+        updateMeetingGuestData()
+        verify(meetingManager, times(1)).persistCurrentMeetingData(any())
+        assertEquals(CHECK_OUT_TIMESTAMP * 1000, getGuestData()[0].checkOutTimestamp)
+    }
+
+    @Test
+    fun getMeetingHostStateChanges_meetingEnded_emitsChange() {
+        val observer = meetingManager.getMeetingHostStateChanges().test()
+        observer.assertValues(true)
+
+        meetingManager.addCurrentMeetingDataToArchive()
+            .test()
+            .assertComplete()
+
+        observer.assertValues(true, false)
+    }
+
+    private fun updateMeetingGuestData() {
+        val observer = meetingManager.updateMeetingGuestData().test()
+        triggerScheduler()
+        observer.assertComplete()
+    }
+
+    private fun getGuestData(): List<MeetingGuestData> {
+        return meetingManager.currentMeetingDataIfAvailable.blockingGet()!!.guestData
+    }
+
+    private fun givenGuests(vararg tracesResponseData: TracesResponseData) {
+        doReturn(Observable.fromArray(*tracesResponseData)).whenever(meetingManager).fetchGuestData()
+    }
+
+    private fun createTrace(traceId: String, firstName: String?, checkOutTimestamp: Long? = null): TracesResponseData {
+        return TracesResponseData().apply {
+            this.traceId = traceId
+            this.checkInTimestamp = CHECK_IN_TIMESTAMP
+            this.checkOutTimestamp = checkOutTimestamp
+            if (firstName != null) {
+                additionalData = createAdditionalData(firstName)
+            }
+        }
+    }
+
+    private fun createAdditionalData(firstName: String): TracesResponseData.AdditionalData {
+        val meetingAdditionalData = MeetingAdditionalData().apply {
+            this.firstName = firstName
+            this.lastName = "Mustermann"
+        }
+        val guestKeyPair = generateKeyPair()
+        val eciesResult = cryptoManager.eciesEncrypt(
+            data = Gson().toJson(meetingAdditionalData).toByteArray(),
+            ephemeralKeyPair = guestKeyPair,
+            receiverPublicKey = meetingKeyPair.public
+        ).blockingGet()
+        return TracesResponseData.AdditionalData().apply {
+            data = SerializationUtil.toBase64(eciesResult.encryptedData).blockingGet()
+            iv = SerializationUtil.toBase64(eciesResult.iv).blockingGet()
+            mac = SerializationUtil.toBase64(eciesResult.mac).blockingGet()
+            publicKey = AsymmetricCipherProvider.encode(guestKeyPair.public as ECPublicKey)
+                .flatMap { SerializationUtil.toBase64(it) }
+                .blockingGet()
+        }
+    }
+
+    companion object {
+        private const val CHECK_IN_TIMESTAMP = 1640995200L
+        private const val CHECK_OUT_TIMESTAMP = 1640998800L
+
+        private fun generateKeyPair(): KeyPair {
+            return KeyPairGenerator.getInstance("EC")
+                .apply { initialize(ECGenParameterSpec("secp256r1")) }
+                .generateKeyPair()
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package de.culture4life.luca.network
+
+import okhttp3.Cache
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.net.HttpURLConnection
+
+class HttpCachePolicyInterceptorTest {
+
+    @get:Rule
+    val temporaryFolder = TemporaryFolder()
+
+    private val server = MockWebServer()
+    private val metrics = HttpCacheMetrics()
+    private val interceptor = HttpCachePolicyInterceptor(
+        mapOf(
+            "/config" to 3600L,
+            "/keys/" to 0L
+        )
+    )
+    private lateinit var client: OkHttpClient
+
+    @Before
+    fun setup() {
+        server.start()
+        client = OkHttpClient.Builder()
+            .cache(Cache(temporaryFolder.newFolder(), 1024 * 1024))
+            .addNetworkInterceptor(interceptor)
+            .eventListener(metrics)
+            .build()
+    }
+
+    @After
+    fun tearDown() {
+        server.shutdown()
+    }
+
+    @Test
+    fun getMaxAge_matchingPath_returnsMaxAge() {
+        assertEquals(3600L, interceptor.getMaxAge("/api/v4/notifications/config"))
+        assertEquals(0L, interceptor.getMaxAge("/api/v4/keys/issuers/1234"))
+        assertNull(interceptor.getMaxAge("/api/v4/notifications/traces"))
+    }
+
+    @Test
+    fun intercept_maxAgePolicy_servedFromCache() {
+        server.enqueue(MockResponse().setBody("config"))
+
+        assertEquals("config", fetch("/config"))
+        assertEquals("config", fetch("/config"))
+
+        assertEquals(1, server.requestCount)
+        assertEquals(1, metrics.hits.get())
+        assertEquals(1, metrics.misses.get())
+    }
+
+    @Test
+    fun intercept_revalidationPolicy_sendsConditionalRequest() {
+        server.enqueue(MockResponse().setBody("keys").setHeader("ETag", "\"v1\""))
+        server.enqueue(MockResponse().setResponseCode(HttpURLConnection.HTTP_NOT_MODIFIED))
+
+        assertEquals("keys", fetch("/keys/"))
+        assertEquals("keys", fetch("/keys/"))
+
+        server.takeRequest()
+        assertEquals("\"v1\"", server.takeRequest().getHeader("If-None-Match"))
+        assertEquals(1, metrics.conditionalHits.get())
+    }
+
+    @Test
+    fun intercept_serverCacheControl_notOverridden() {
+        server.enqueue(MockResponse().setBody("first").setHeader("Cache-Control", "no-store"))
+        server.enqueue(MockResponse().setBody("second").setHeader("Cache-Control", "no-store"))
+
+        assertEquals("first", fetch("/config"))
+        assertEquals("second", fetch("/config"))
+
+        assertEquals(2, server.requestCount)
+        assertEquals(0, metrics.hits.get())
+    }
+
+    private fun fetch(path: String): String {
+        val request = Request.Builder()
+            .url(server.url(path))
+            .build()
+        return client.newCall(request).execute().use { it.body!!.string() }
+    }
+}
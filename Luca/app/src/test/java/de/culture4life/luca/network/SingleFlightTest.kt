@@ -0,0 +1,88 @@
+package de.culture4life.luca.network
+
+import io.reactivex.rxjava3.core.Single
+import io.reactivex.rxjava3.subjects.SingleSubject
+import okhttp3.MediaType.Companion.toMediaType
+import okhttp3.Request
+import okhttp3.RequestBody.Companion.toRequestBody
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import org.junit.Test
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class SingleFlightTest {
+
+    private val singleFlight = SingleFlight()
+
+    @Test
+    fun execute_concurrentCalls_executesSourceOnce() {
+        val subscriptionCount = AtomicInteger()
+        val subject = SingleSubject.create<String>()
+        val source = subject.doOnSubscribe { subscriptionCount.incrementAndGet() }
+
+        val firstObserver = singleFlight.execute(KEY, source).test()
+        val secondObserver = singleFlight.execute(KEY, source).test()
+        subject.onSuccess("value")
+
+        firstObserver.assertValue("value")
+        secondObserver.assertValue("value")
+        assertEquals(1, subscriptionCount.get())
+        assertEquals(1, singleFlight.executedCalls.get())
+        assertEquals(1, singleFlight.coalescedCalls.get())
+    }
+
+    @Test
+    fun execute_afterCompletion_executesSourceAgain() {
+        singleFlight.execute(KEY, Single.just("first")).test().assertValue("first")
+        singleFlight.execute(KEY, Single.just("second")).test().assertValue("second")
+
+        assertEquals(2, singleFlight.executedCalls.get())
+        assertEquals(0, singleFlight.coalescedCalls.get())
+    }
+
+    @Test
+    fun execute_differentKeys_notCoalesced() {
+        val subject = SingleSubject.create<String>()
+        singleFlight.execute(KEY, subject).test()
+        singleFlight.execute("other", Single.just("other")).test().assertValue("other")
+
+        assertEquals(0, singleFlight.coalescedCalls.get())
+    }
+
+    @Test
+    fun execute_withMemoization_emitsMemoizedResult() {
+        val memoizationDuration = TimeUnit.MINUTES.toMillis(1)
+        singleFlight.execute(KEY, Single.just("first"), memoizationDuration).test().assertValue("first")
+        singleFlight.execute(KEY, Single.just("second"), memoizationDuration).test().assertValue("first")
+
+        assertEquals(1, singleFlight.executedCalls.get())
+        assertEquals(1, singleFlight.memoizedCalls.get())
+    }
+
+    @Test
+    fun execute_errorWithMemoization_notMemoized() {
+        val memoizationDuration = TimeUnit.MINUTES.toMillis(1)
+        singleFlight.execute(KEY, Single.error<String>(IllegalStateException()), memoizationDuration).test()
+            .assertError(IllegalStateException::class.java)
+        singleFlight.execute(KEY, Single.just("value"), memoizationDuration).test().assertValue("value")
+
+        assertEquals(0, singleFlight.memoizedCalls.get())
+    }
+
+    @Test
+    fun getKey_differentBodies_differentKeys() {
+        val mediaType = "application/json".toMediaType()
+        val request = Request.Builder().url("https://app.luca-app.de/api/v3/traces/bulk")
+        val firstKey = CoalescingCallAdapterFactory.getKey(request.post("[\"a\"]".toRequestBody(mediaType)).build())
+        val sameKey = CoalescingCallAdapterFactory.getKey(request.post("[\"a\"]".toRequestBody(mediaType)).build())
+        val otherKey = CoalescingCallAdapterFactory.getKey(request.post("[\"b\"]".toRequestBody(mediaType)).build())
+
+        assertEquals(firstKey, sameKey)
+        assertNotEquals(firstKey, otherKey)
+    }
+
+    companion object {
+        private const val KEY = "key"
+    }
+}
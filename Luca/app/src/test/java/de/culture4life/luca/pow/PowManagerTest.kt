@@ -5,8 +5,10 @@ import de.culture4life.luca.util.TimeUtil
 import io.reactivex.rxjava3.core.Single
 import io.reactivex.rxjava3.internal.schedulers.ComputationScheduler
 import io.reactivex.rxjava3.internal.schedulers.IoScheduler
+import io.reactivex.rxjava3.observers.TestObserver
 import io.reactivex.rxjava3.plugins.RxJavaPlugins
 import io.reactivex.rxjava3.schedulers.Schedulers
+import org.junit.Assert.assertTrue
 import org.junit.Test
 import org.mockito.kotlin.*
 import java.math.BigInteger
@@ -131,6 +133,36 @@ class PowManagerTest : LucaUnitTest() {
             .assertError(PowException::class.java)
     }
 
+    @Test
+    fun solveChallenge_disposedWhileSolving_stopsSolving() {
+        val challenge = spy(createChallenge())
+        val solveObserver = TestObserver<Void>()
+        var solvingError: Throwable? = null
+        doAnswer { invocation ->
+            solveObserver.dispose()
+            solvingError = runCatching { invocation.callRealMethod() }.exceptionOrNull()
+            BigInteger.ONE
+        }.whenever(challenge).getOrCalculateW(anyOrNull())
+
+        powManager.solveChallenge(challenge)
+            .subscribe(solveObserver)
+
+        assertTrue(solvingError is PowException)
+        solveObserver.assertNotComplete()
+    }
+
+    private fun createChallenge(): PowChallenge {
+        return PowChallenge(
+            id = "aec4b300-d83d-4b35-bec9-7506a4d590f9",
+            t = 722000,
+            n = BigInteger(
+                "144380763259650206165998492155351388825945452939423498473280949282313289136159375661015977582124727973311826782287838157897769664221001485570865841509663731386087436449391953482279620327058756416748340645252983772240122199269269171151377875385220439442022824366535997821105787938297760058083260498515463996677",
+                10
+            ),
+            expirationTimestamp = TimeUtil.getCurrentMillis() + TimeUnit.MINUTES.toMillis(1)
+        )
+    }
+
     class ControllableEndingChallenge {
 
         private val reentrantLock = ReentrantLock()
@@ -0,0 +1,44 @@
+package de.culture4life.luca.pow
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.math.BigInteger
+import java.util.*
+
+class SequentialSquaringTest {
+
+    private val random = Random(0)
+
+    @Test
+    fun calculate_oddAndEvenModuli_sameAsModPow() {
+        val base = BigInteger.valueOf(2)
+        for (t in listOf(0, 1, 1000, SequentialSquaring.CHECK_INTERVAL, SequentialSquaring.CHECK_INTERVAL + 1, 10000)) {
+            for (n in listOf(BigInteger(256, random).setBit(0), BigInteger(256, random).clearBit(0), BigInteger.ONE)) {
+                assertEquals(base.modPow(BigInteger.ONE.shiftLeft(t), n), SequentialSquaring(n).calculate(base, t))
+            }
+        }
+    }
+
+    @Test
+    fun calculate_withListener_notifiedAfterEachInterval() {
+        val completedSquarings = ArrayList<Int>()
+        val t = 2 * SequentialSquaring.CHECK_INTERVAL + 1
+        SequentialSquaring(BigInteger(256, random)).calculate(BigInteger.valueOf(2), t) { completed, total ->
+            assertEquals(t, total)
+            completedSquarings.add(completed)
+        }
+        assertEquals(listOf(SequentialSquaring.CHECK_INTERVAL, 2 * SequentialSquaring.CHECK_INTERVAL, t), completedSquarings)
+    }
+
+    @Test(expected = IllegalStateException::class)
+    fun calculate_listenerThrows_abortsCalculation() {
+        SequentialSquaring(BigInteger(256, random)).calculate(BigInteger.valueOf(2), Int.MAX_VALUE) { _, _ ->
+            throw IllegalStateException()
+        }
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun calculate_negativeSquarings_throwsException() {
+        SequentialSquaring(BigInteger.TEN).calculate(BigInteger.valueOf(2), -1)
+    }
+}
@@ -0,0 +1,123 @@
+package de.culture4life.luca.preference
+
+import de.culture4life.luca.LucaUnitTest
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.concurrent.TimeUnit
+
+class PreferencesManagerTest : LucaUnitTest() {
+
+    private val preferencesManager = getInitializedManager(application.preferencesManager)
+
+    @Test
+    fun restore_pendingWrite_restoresPersistedValue() {
+        preferencesManager.persistDeferred(KEY, "value")
+            .andThen(preferencesManager.restore(KEY, String::class.java))
+            .test()
+            .assertValue("value")
+
+        assertEquals(1, preferencesManager.pendingWriteCount)
+    }
+
+    @Test
+    fun persistDeferred_consecutiveWrites_coalescedIntoOneWrite() {
+        preferencesManager.persistDeferred(KEY, "first")
+            .andThen(preferencesManager.persistDeferred(KEY, "second"))
+            .andThen(preferencesManager.persistDeferred(KEY, "third"))
+            .test()
+            .assertComplete()
+
+        assertEquals(1, preferencesManager.pendingWriteCount)
+
+        advanceScheduler(1, TimeUnit.SECONDS)
+
+        assertEquals(0, preferencesManager.pendingWriteCount)
+        preferencesManager.restore(KEY, String::class.java)
+            .test()
+            .assertValue("third")
+    }
+
+    @Test
+    fun restoreIfAvailable_afterDeletion_emitsNothing() {
+        preferencesManager.persist(KEY, "value")
+            .andThen(preferencesManager.flush())
+            .andThen(preferencesManager.delete(KEY))
+            .andThen(preferencesManager.restoreIfAvailable(KEY, String::class.java))
+            .test()
+            .assertNoValues()
+            .assertComplete()
+
+        preferencesManager.containsKey(KEY)
+            .test()
+            .assertValue(false)
+    }
+
+    @Test
+    fun getChanges_pendingWrite_emitsPersistedValue() {
+        val changesObserver = preferencesManager.getChanges(KEY, String::class.java).test()
+
+        preferencesManager.persist(KEY, "value")
+            .test()
+            .assertComplete()
+
+        changesObserver.assertValue("value")
+    }
+
+    @Test
+    fun flush_pendingWrites_writesToProvider() {
+        preferencesManager.persistDeferred(KEY, "value")
+            .andThen(preferencesManager.flush())
+            .test()
+            .assertComplete()
+
+        assertEquals(0, preferencesManager.pendingWriteCount)
+        val keys = preferencesManager.getKeys()
+            .toList()
+            .blockingGet()
+        assertTrue(keys.contains(KEY))
+    }
+
+    @Test
+    fun persist_value_writesBeforeCompleting() {
+        preferencesManager.persist(KEY, "value")
+            .test()
+            .assertComplete()
+
+        assertEquals(0, preferencesManager.pendingWriteCount)
+        val keys = preferencesManager.getKeys()
+            .toList()
+            .blockingGet()
+        assertTrue(keys.contains(KEY))
+    }
+
+    @Test
+    fun persist_valueModifiedAfterwards_restoresPersistedSnapshot() {
+        val value = arrayListOf("first")
+        preferencesManager.persist(KEY, value)
+            .test()
+            .assertComplete()
+
+        value.add("second")
+
+        preferencesManager.restore(KEY, ArrayList::class.java)
+            .test()
+            .assertValue(arrayListOf("first"))
+    }
+
+    @Test
+    fun restore_restoredValueModified_restoresUnmodifiedValue() {
+        preferencesManager.persist(KEY, arrayListOf("first")).blockingAwait()
+
+        val restoredValue = preferencesManager.restore(KEY, ArrayList::class.java).blockingGet() as ArrayList<String>
+        restoredValue.add("second")
+
+        preferencesManager.restore(KEY, ArrayList::class.java)
+            .test()
+            .assertValue(arrayListOf("first"))
+    }
+
+    companion object {
+        private const val KEY = "test_key"
+    }
+}
@@ -2,11 +2,19 @@ package de.culture4life.luca.registration
 
 import com.google.gson.JsonObject
 import de.culture4life.luca.LucaUnitTest
+import de.culture4life.luca.crypto.CryptoManager
+import de.culture4life.luca.crypto.CryptoManagerTest
+import de.culture4life.luca.crypto.EciesResult
 import de.culture4life.luca.network.NetworkManager
 import de.culture4life.luca.network.endpoints.LucaEndpointsV3
+import de.culture4life.luca.network.pojo.DataTransferRequestData
+import de.culture4life.luca.network.pojo.TraceSecretWrapper
+import de.culture4life.luca.network.pojo.TransferData
+import de.culture4life.luca.network.pojo.UserDataWrapper
 import de.culture4life.luca.network.pojo.UserDeletionRequestData
 import de.culture4life.luca.network.pojo.UserRegistrationRequestData
 import de.culture4life.luca.preference.PreferencesManager
+import de.culture4life.luca.util.SerializationUtil
 import de.culture4life.luca.util.TimeUtil
 import de.culture4life.luca.util.encodeToBase64
 import io.reactivex.rxjava3.core.Completable
@@ -19,6 +27,7 @@ import org.junit.Test
 import org.mockito.kotlin.*
 import retrofit2.HttpException
 import retrofit2.Response
+import java.security.PublicKey
 import java.util.*
 
 class RegistrationManagerUnitTest : LucaUnitTest() {
@@ -100,6 +109,63 @@ class RegistrationManagerUnitTest : LucaUnitTest() {
         assertActivityReportTimestampNotStoredYet()
     }
 
+    @Test
+    fun assignTraceSecretWrappers_multipleRegistrations_assignsSecretsToRegistrationIntervals() {
+        val userDataWrappers = listOf(buildUserDataWrapper(100), buildUserDataWrapper(200))
+        val traceSecretWrappers = listOf(250L, 200L, 150L, 100L, 50L).map { TraceSecretWrapper(it, "secret $it") }
+
+        RegistrationManager.assignTraceSecretWrappers(userDataWrappers, traceSecretWrappers, 300)
+
+        assertThat(userDataWrappers[0].traceSecretWrappers.map { it.timestamp }).containsExactly(150L, 100L)
+        assertThat(userDataWrappers[1].traceSecretWrappers.map { it.timestamp }).containsExactly(250L, 200L)
+    }
+
+    @Test
+    fun assignTraceSecretWrappers_registrationWithoutSecret_assignsOldestSecret() {
+        val userDataWrappers = listOf(buildUserDataWrapper(100), buildUserDataWrapper(110))
+        val traceSecretWrappers = listOf(200L, 50L).map { TraceSecretWrapper(it, "secret $it") }
+
+        RegistrationManager.assignTraceSecretWrappers(userDataWrappers, traceSecretWrappers, 300)
+
+        assertThat(userDataWrappers[0].traceSecretWrappers.map { it.timestamp }).containsExactly(50L)
+        assertThat(userDataWrappers[1].traceSecretWrappers.map { it.timestamp }).containsExactly(200L)
+    }
+
+    @Test
+    fun transferUserData_withTransferData_uploadsEncryptedTransferData() {
+        val transferData = TransferData(listOf(buildUserDataWrapper(100)))
+        val eciesResult = EciesResult(dummyContactData, dummyIv, dummyMac, CryptoManagerTest.DAILY_KEY_NOT_EXPIRED.publicKey)
+        val cryptoManager = spy(application.cryptoManager) {
+            doReturn(Completable.complete()).`when`(it).initialize(any())
+            doReturn(Single.just(CryptoManagerTest.DAILY_KEY_NOT_EXPIRED)).`when`(it).getDailyPublicKey()
+            doReturn(Single.just(eciesResult)).`when`(it).eciesEncrypt(any(), any<PublicKey>())
+        }
+        registrationManager = spy(buildRegistrationManager(cryptoManager)) {
+            doReturn(Single.just(transferData)).`when`(it).createTransferData(any())
+        }
+        whenever(mockLucaEndpoints.getTracingTan(any())).thenReturn(Single.just(JsonObject().also { it.addProperty("tan", "dummy tan") }))
+
+        val testObserver = registrationManager.transferUserData(14).test()
+        triggerScheduler()
+
+        testObserver.assertValue("dummy tan")
+        verify(cryptoManager).eciesEncrypt(eq(SerializationUtil.toJsonBytes(transferData).blockingGet()), any<PublicKey>())
+        argumentCaptor<DataTransferRequestData>().apply {
+            verify(mockLucaEndpoints).getTracingTan(capture())
+            assertThat(firstValue.encryptedContactData).isEqualTo(dummyContactData.encodeToBase64())
+            assertThat(firstValue.iv).isEqualTo(dummyIv.encodeToBase64())
+            assertThat(firstValue.mac).isEqualTo(dummyMac.encodeToBase64())
+            assertThat(firstValue.dailyKeyPairPublicKeyId).isEqualTo(CryptoManagerTest.DAILY_KEY_NOT_EXPIRED.id)
+        }
+    }
+
+    private fun buildUserDataWrapper(registrationTimestamp: Long) = UserDataWrapper(
+        id = UUID.randomUUID().toString(),
+        registrationTimestamp = registrationTimestamp,
+        dataSecret = "data secret",
+        traceSecretWrappers = mutableListOf()
+    )
+
     private fun whenOnReportActiveUser() {
         registrationManager.reportActiveUser().blockingAwait()
     }
@@ -111,8 +177,8 @@ class RegistrationManagerUnitTest : LucaUnitTest() {
         signature = dummySignature.encodeToBase64()
     }
 
-    private fun buildRegistrationManager(): RegistrationManager {
-        return RegistrationManager(preferencesManager, buildMockNetworkManager(), application.cryptoManager)
+    private fun buildRegistrationManager(cryptoManager: CryptoManager = application.cryptoManager): RegistrationManager {
+        return RegistrationManager(preferencesManager, buildMockNetworkManager(), cryptoManager)
     }
 
     private fun updateUserWillRespondWithError(httpCode: Int) {
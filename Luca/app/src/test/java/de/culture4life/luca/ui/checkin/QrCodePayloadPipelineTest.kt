@@ -0,0 +1,96 @@
+package de.culture4life.luca.ui.checkin
+
+import de.culture4life.luca.testtools.rules.FixedTimeRule
+import io.reactivex.rxjava3.core.Completable
+import io.reactivex.rxjava3.core.Scheduler
+import io.reactivex.rxjava3.core.Single
+import io.reactivex.rxjava3.schedulers.Schedulers
+import io.reactivex.rxjava3.schedulers.TestScheduler
+import org.junit.Assert.assertEquals
+import org.junit.Rule
+import org.junit.Test
+import java.util.concurrent.TimeUnit
+
+class QrCodePayloadPipelineTest {
+
+    @get:Rule
+    val fixedTimeRule = FixedTimeRule()
+
+    private val generatedTimestamps = ArrayList<Long>()
+    private val discardedPayloads = ArrayList<String>()
+    private val pipeline = createPipeline(Schedulers.trampoline())
+
+    private fun createPipeline(scheduler: Scheduler) = QrCodePayloadPipeline(
+        generator = { timestamp ->
+            Single.fromCallable {
+                generatedTimestamps.add(timestamp)
+                "payload-$timestamp"
+            }
+        },
+        discarder = { payload -> Completable.fromAction { discardedPayloads.add(payload) } },
+        prefetchCount = 2,
+        scheduler = scheduler
+    )
+
+    @Test
+    fun getPayload_initialRequest_prefetchesUpcomingMinutes() {
+        pipeline.getPayload(MINUTE).test().assertValue("payload-$MINUTE")
+
+        assertEquals(listOf(MINUTE, 2 * MINUTE, 3 * MINUTE), generatedTimestamps.sorted())
+        assertEquals(1, pipeline.metrics.missedPayloads.get())
+    }
+
+    @Test
+    fun getPayload_prefetchedMinute_notGeneratedAgain() {
+        pipeline.getPayload(MINUTE).test()
+
+        pipeline.getPayload(2 * MINUTE).test().assertValue("payload-${2 * MINUTE}")
+
+        assertEquals(listOf(MINUTE, 2 * MINUTE, 3 * MINUTE, 4 * MINUTE), generatedTimestamps.sorted())
+        assertEquals(1, pipeline.metrics.missedPayloads.get())
+        assertEquals(2, pipeline.metrics.requestedPayloads.get())
+    }
+
+    @Test
+    fun getPayload_skippedMinutes_discardsUnrequestedPayloads() {
+        pipeline.getPayload(MINUTE).test()
+
+        pipeline.getPayload(10 * MINUTE).test()
+
+        assertEquals(listOf("payload-${2 * MINUTE}", "payload-${3 * MINUTE}"), discardedPayloads)
+    }
+
+    @Test
+    fun invalidate_afterRequest_regeneratesRequestedPayload() {
+        pipeline.getPayload(MINUTE).test()
+
+        pipeline.invalidate()
+        pipeline.getPayload(MINUTE).test()
+
+        assertEquals(listOf("payload-${2 * MINUTE}", "payload-${3 * MINUTE}"), discardedPayloads)
+        assertEquals(2, pipeline.metrics.missedPayloads.get())
+    }
+
+    @Test
+    fun invalidate_upcomingMinutes_discardsPayloadsOnceMinutePassed() {
+        val scheduler = TestScheduler()
+        val pipeline = createPipeline(scheduler)
+        fixedTimeRule.setCurrentDateTime(TimeUnit.SECONDS.toMillis(MINUTE))
+        pipeline.getPayload(MINUTE).test()
+        scheduler.triggerActions()
+
+        pipeline.invalidate()
+        scheduler.triggerActions()
+        assertEquals(emptyList<String>(), discardedPayloads)
+
+        scheduler.advanceTimeBy(2, TimeUnit.MINUTES)
+        assertEquals(listOf("payload-${2 * MINUTE}"), discardedPayloads)
+
+        scheduler.advanceTimeBy(1, TimeUnit.MINUTES)
+        assertEquals(listOf("payload-${2 * MINUTE}", "payload-${3 * MINUTE}"), discardedPayloads)
+    }
+
+    companion object {
+        private const val MINUTE = 60L
+    }
+}
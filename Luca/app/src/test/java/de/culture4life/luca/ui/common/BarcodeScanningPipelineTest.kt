@@ -0,0 +1,81 @@
+package de.culture4life.luca.ui.common
+
+import android.graphics.Rect
+import android.graphics.RectF
+import de.culture4life.luca.LucaUnitTest
+import de.culture4life.luca.testtools.rules.FixedTimeRule
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.mockito.kotlin.mock
+import java.util.concurrent.TimeUnit
+
+class BarcodeScanningPipelineTest : LucaUnitTest() {
+
+    @get:Rule
+    val fixedTimeRule = FixedTimeRule()
+
+    private val pipeline = BarcodeScanningPipeline(mock(), RECENT_BARCODE_DURATION)
+
+    @Test
+    fun getCropRect_noRegionOfInterest_centeredSquare() {
+        assertEquals(Rect(420, 0, 1500, 1080), BarcodeScanningPipeline.getCropRect(1920, 1080, null))
+        assertEquals(Rect(0, 420, 1080, 1500), BarcodeScanningPipeline.getCropRect(1080, 1920, null))
+    }
+
+    @Test
+    fun getCropRect_regionOfInterest_relativeToFrameSize() {
+        val cropRect = BarcodeScanningPipeline.getCropRect(1920, 1080, RectF(0.25f, 0.25f, 0.75f, 0.75f))
+        assertEquals(Rect(480, 270, 1440, 810), cropRect)
+    }
+
+    @Test
+    fun getCropRect_regionOfInterestExceedingFrame_clippedToEvenSize() {
+        val cropRect = BarcodeScanningPipeline.getCropRect(1001, 801, RectF(-0.5f, 0f, 1.5f, 1f))
+        assertEquals(Rect(0, 0, 1000, 800), cropRect)
+    }
+
+    @Test
+    fun isRecentBarcode_processedBarcode_skippedUntilExpired() {
+        val startTimestamp = TimeUnit.DAYS.toMillis(1)
+        fixedTimeRule.setCurrentDateTime(startTimestamp)
+        assertFalse(pipeline.isRecentBarcode(BARCODE))
+
+        pipeline.onBarcodeProcessed(BARCODE)
+        assertTrue(pipeline.isRecentBarcode(BARCODE))
+        assertFalse(pipeline.isRecentBarcode("other"))
+
+        fixedTimeRule.setCurrentDateTime(startTimestamp + RECENT_BARCODE_DURATION)
+        assertTrue(pipeline.isRecentBarcode(BARCODE))
+
+        fixedTimeRule.setCurrentDateTime(startTimestamp + RECENT_BARCODE_DURATION + 1)
+        assertFalse(pipeline.isRecentBarcode(BARCODE))
+    }
+
+    @Test
+    fun canAcceptFrame_initially_true() {
+        assertTrue(pipeline.canAcceptFrame())
+    }
+
+    @Test
+    fun canAcceptFrame_maximumFramesDetecting_false() {
+        repeat(BarcodeScanningPipeline.MAXIMUM_FRAMES_IN_FLIGHT) {
+            assertTrue(pipeline.canAcceptFrame())
+            pipeline.detectBarcodes(mock())
+        }
+        assertFalse(pipeline.canAcceptFrame())
+    }
+
+    @Test
+    fun onFrameDropped_droppedFrame_countsDroppedFrames() {
+        pipeline.onFrameDropped()
+        assertEquals(1, pipeline.metrics.droppedFrames.get())
+    }
+
+    companion object {
+        private const val BARCODE = "https://app.luca-app.de/webapp/"
+        private const val RECENT_BARCODE_DURATION = 50L
+    }
+}
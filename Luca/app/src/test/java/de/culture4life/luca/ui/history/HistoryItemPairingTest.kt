@@ -0,0 +1,109 @@
+package de.culture4life.luca.ui.history
+
+import de.culture4life.luca.history.HistoryIndex
+import de.culture4life.luca.history.HistoryItem
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.*
+
+class HistoryItemPairingTest {
+
+    private val pairing = HistoryItemPairing()
+
+    @Test
+    fun reset_checkInAndCheckOut_paired() {
+        val checkIn = createItem(HistoryItem.TYPE_CHECK_IN, 1000)
+        val checkOut = createItem(HistoryItem.TYPE_CHECK_OUT, 2000)
+
+        pairing.reset(sorted(checkIn, checkOut))
+
+        assertEquals(listOf(HistoryItemPairing.Entry(checkIn, checkOut)), pairing.getEntries())
+    }
+
+    @Test
+    fun reset_checkOutWithoutCheckIn_single() {
+        val checkOut = createItem(HistoryItem.TYPE_CHECK_OUT, 1000)
+        val checkIn = createItem(HistoryItem.TYPE_CHECK_IN, 2000)
+
+        pairing.reset(sorted(checkIn, checkOut))
+
+        assertEquals(2, pairing.getEntries().size)
+        pairing.getEntries().forEach { assertNull(it.start) }
+    }
+
+    @Test
+    fun add_checkOutAfterCheckIn_replacesSingleCheckIn() {
+        val checkIn = createItem(HistoryItem.TYPE_CHECK_IN, 1000)
+        val checkOut = createItem(HistoryItem.TYPE_CHECK_OUT, 2000)
+        pairing.reset(sorted(checkIn))
+
+        val diff = pairing.add(listOf(checkOut))
+
+        assertEquals(listOf(HistoryItemPairing.Entry(null, checkIn)), diff.removedEntries)
+        assertEquals(listOf(HistoryItemPairing.Entry(checkIn, checkOut)), diff.addedEntries)
+    }
+
+    @Test
+    fun add_randomItems_sameEntriesAsReset() {
+        val random = Random(42)
+        val items = ArrayList<HistoryItem>()
+        val types = listOf(
+            HistoryItem.TYPE_CHECK_IN,
+            HistoryItem.TYPE_CHECK_OUT,
+            HistoryItem.TYPE_MEETING_STARTED,
+            HistoryItem.TYPE_MEETING_ENDED,
+            HistoryItem.TYPE_DATA_DELETED
+        )
+        repeat(200) {
+            val item = createItem(types[random.nextInt(types.size)], random.nextInt(100).toLong())
+            items.add(item)
+            pairing.add(listOf(item))
+        }
+
+        val expectedEntries = HistoryItemPairing().apply { reset(sorted(*items.toTypedArray())) }.getEntries()
+        assertEquals(expectedEntries, pairing.getEntries())
+        assertTrue(expectedEntries.size < items.size)
+    }
+
+    @Test
+    fun reset_randomItems_sameEntriesAsQuadraticPairing() {
+        val random = Random(1337)
+        val items = (0 until 200).map {
+            val type = if (random.nextBoolean()) HistoryItem.TYPE_CHECK_IN else HistoryItem.TYPE_CHECK_OUT
+            createItem(type, random.nextInt(1000).toLong())
+        }
+        val sortedItems = sorted(*items.toTypedArray())
+
+        pairing.reset(sortedItems)
+
+        assertEquals(getQuadraticPairing(sortedItems), pairing.getEntries().toSet())
+    }
+
+    /**
+     * The pairing as previously done by the view model, by scanning all items for each end item.
+     */
+    private fun getQuadraticPairing(sortedItems: List<HistoryItem>): Set<HistoryItemPairing.Entry> {
+        val pairs = sortedItems.filter { it.type == HistoryItem.TYPE_CHECK_OUT }
+            .mapNotNull { endItem ->
+                sortedItems.firstOrNull { it.type == HistoryItem.TYPE_CHECK_IN && it.timestamp < endItem.timestamp }
+                    ?.let { HistoryItemPairing.Entry(it, endItem) }
+            }
+        val pairedItems = pairs.flatMap { listOf(it.start, it.item) }
+        val singles = sortedItems.filterNot { item -> pairedItems.any { it === item } }
+            .map { HistoryItemPairing.Entry(null, it) }
+        return (pairs + singles).toSet()
+    }
+
+    private fun sorted(vararg items: HistoryItem): List<HistoryItem> {
+        return items.sortedWith(HistoryIndex.COMPARATOR)
+    }
+
+    private fun createItem(type: Int, timestamp: Long): HistoryItem {
+        return HistoryItem(type).apply {
+            this.timestamp = timestamp
+            relatedId = UUID.randomUUID().toString()
+        }
+    }
+}
@@ -22,45 +22,61 @@
 
 package dgca.verifier.app.decoder.base45
 
-import java.math.BigInteger
-
 /**
  *  The Base45 Data Decoding
  *
  *  https://datatracker.ietf.org/doc/draft-faltstrom-base45/?include_text=1
+ *
+ *  Characters are mapped using a reverse lookup table and each group of three characters is
+ *  decoded into a pre-sized output array, without intermediate allocations.
  */
 @ExperimentalUnsignedTypes
 class Base45Decoder {
 
-    private val alphabet = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ $%*+-./:"
-    private val int45 = BigInteger.valueOf(45)
-
-    fun decode(input: String) =
-        input.chunked(3).map(this::decodeThreeCharsPadded)
-            .flatten().map { it.toByte() }.toByteArray()
-
-    private fun decodeThreeCharsPadded(input: String): List<UByte> {
-        val result = decodeThreeChars(input).toMutableList()
-        when (input.length) {
-            3 -> while (result.size < 2) result += 0U
+    /**
+     * @throws IllegalArgumentException if the input contains characters outside of the Base45
+     * alphabet, has an invalid length or contains groups exceeding the value range of their bytes
+     */
+    fun decode(input: String): ByteArray {
+        val remainder = input.length % 3
+        require(remainder != 1) { "Invalid Base45 input length: ${input.length}" }
+        val output = ByteArray(input.length / 3 * 2 + if (remainder == 2) 1 else 0)
+        var inputIndex = 0
+        var outputIndex = 0
+        while (inputIndex + 3 <= input.length) {
+            val value = valueOf(input, inputIndex) +
+                valueOf(input, inputIndex + 1) * 45 +
+                valueOf(input, inputIndex + 2) * 45 * 45
+            require(value <= 0xFFFF) { "Invalid Base45 triplet at index $inputIndex" }
+            output[outputIndex++] = (value shr 8).toByte()
+            output[outputIndex++] = value.toByte()
+            inputIndex += 3
+        }
+        if (remainder == 2) {
+            val value = valueOf(input, inputIndex) + valueOf(input, inputIndex + 1) * 45
+            require(value <= 0xFF) { "Invalid Base45 pair at index $inputIndex" }
+            output[outputIndex] = value.toByte()
         }
-        return result.reversed()
+        return output
     }
 
-    private fun decodeThreeChars(list: String) =
-        generateSequenceByDivRem(fromThreeCharValue(list))
-            .map { it.toUByte() }.toList()
-
-    private fun fromThreeCharValue(list: String): Long {
-        return list.foldIndexed(0L, { index, acc: Long, element ->
-            if (!alphabet.contains(element)) throw IllegalArgumentException()
-            pow(int45, index) * alphabet.indexOf(element) + acc
-        })
+    private fun valueOf(input: String, index: Int): Int {
+        val char = input[index]
+        val value = if (char.code < REVERSE_ALPHABET.size) REVERSE_ALPHABET[char.code] else -1
+        require(value >= 0) { "Invalid Base45 character at index $index" }
+        return value
     }
 
-    private fun generateSequenceByDivRem(seed: Long) =
-        generateSequence(seed) { if (it >= 256) it.div(256) else null }
-            .map { it.rem(256).toInt() }
+    companion object {
 
-    private fun pow(base: BigInteger, exp: Int) = base.pow(exp).toLong()
+        private val REVERSE_ALPHABET = IntArray(256) { -1 }.also { table ->
+            BASE45_ALPHABET.forEachIndexed { value, char -> table[char.code] = value }
+        }
+    }
 }
+
+/**
+ * Declared outside of [Base45Decoder], so that the [Base45Encoder] can use it without opting in
+ * to experimental unsigned types.
+ */
+internal const val BASE45_ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ $%*+-./:"
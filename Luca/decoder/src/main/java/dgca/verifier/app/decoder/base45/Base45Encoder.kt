@@ -0,0 +1,29 @@
+package dgca.verifier.app.decoder.base45
+
+/**
+ *  The Base45 Data Encoding
+ *
+ *  https://datatracker.ietf.org/doc/draft-faltstrom-base45/?include_text=1
+ */
+class Base45Encoder {
+
+    fun encode(input: ByteArray): String {
+        val output = CharArray(input.size / 2 * 3 + if (input.size % 2 == 1) 2 else 0)
+        var inputIndex = 0
+        var outputIndex = 0
+        while (inputIndex + 2 <= input.size) {
+            var value = (input[inputIndex].toInt() and 0xFF shl 8) or (input[inputIndex + 1].toInt() and 0xFF)
+            output[outputIndex++] = BASE45_ALPHABET[value % 45]
+            value /= 45
+            output[outputIndex++] = BASE45_ALPHABET[value % 45]
+            output[outputIndex++] = BASE45_ALPHABET[value / 45]
+            inputIndex += 2
+        }
+        if (inputIndex < input.size) {
+            val value = input[inputIndex].toInt() and 0xFF
+            output[outputIndex++] = BASE45_ALPHABET[value % 45]
+            output[outputIndex] = BASE45_ALPHABET[value / 45]
+        }
+        return String(output)
+    }
+}
@@ -23,10 +23,6 @@
 package dgca.verifier.app.decoder.schema
 
 import com.fasterxml.jackson.databind.JsonNode
-import com.fasterxml.jackson.databind.ObjectMapper
-import com.networknt.schema.JsonSchema
-import com.networknt.schema.JsonSchemaFactory
-import com.networknt.schema.SpecVersion
 import com.upokecenter.cbor.CBORObject
 import dgca.verifier.app.decoder.JSON_SCHEMA_V1
 import dgca.verifier.app.decoder.cwt.CwtHeaderKeys
@@ -44,16 +40,9 @@ class DefaultSchemaValidator : SchemaValidator {
         try {
             val map = CBORObject.DecodeFromBytes(cbor)
             val hcert = map[CwtHeaderKeys.HCERT.asCBOR()]
-            val json = hcert[CBORObject.FromObject(1)].ToJSONString()
+            val jsonNode: JsonNode = hcert[CBORObject.FromObject(1)].toJsonNode()
 
-            val mapper = ObjectMapper()
-            val schemaNode: JsonNode = mapper.readTree(JSON_SCHEMA_V1)
-            val jsonNode: JsonNode = mapper.readTree(json)
-
-            val factory = JsonSchemaFactory.getInstance(SpecVersion.VersionFlag.V4)
-            val schema: JsonSchema = factory.getSchema(schemaNode)
-
-            val errors = schema.validate(jsonNode)
+            val errors = JsonSchemaRegistry.getSchema().validate(jsonNode)
             isValid = errors.isEmpty()
             verificationResult.isSchemaValid = isValid
 
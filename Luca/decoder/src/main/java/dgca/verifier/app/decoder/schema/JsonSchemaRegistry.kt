@@ -0,0 +1,101 @@
+package dgca.verifier.app.decoder.schema
+
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.databind.node.JsonNodeFactory
+import com.networknt.schema.JsonSchema
+import com.networknt.schema.JsonSchemaFactory
+import com.networknt.schema.SpecVersion
+import com.upokecenter.cbor.CBORObject
+import com.upokecenter.cbor.CBORType
+import dgca.verifier.app.decoder.JSON_SCHEMA_V1
+import java.math.BigInteger
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Process-wide registry of compiled JSON schemas. Schemas are identified by their ID and version,
+ * parsed and compiled lazily on first use and then shared by all validators. Compiled schemas are
+ * immutable, so they can be used from multiple threads concurrently.
+ */
+object JsonSchemaRegistry {
+
+    const val SCHEMA_ID_DGC = "https://id.uvci.eu/DGC.combined-schema.json"
+    const val SCHEMA_VERSION_1 = "1.0.0"
+
+    private val objectMapper = ObjectMapper()
+    private val schemaFactory = JsonSchemaFactory.getInstance(SpecVersion.VersionFlag.V4)
+    private val schemaContents = ConcurrentHashMap<SchemaKey, String>()
+    private val compiledSchemas = ConcurrentHashMap<SchemaKey, JsonSchema>()
+
+    init {
+        register(SCHEMA_ID_DGC, SCHEMA_VERSION_1, JSON_SCHEMA_V1)
+    }
+
+    /**
+     * Registers the content of a schema. A previously compiled schema with the same ID and version
+     * is discarded.
+     */
+    fun register(schemaId: String, version: String, schemaContent: String) {
+        val key = SchemaKey(schemaId, version)
+        schemaContents[key] = schemaContent
+        compiledSchemas.remove(key)
+    }
+
+    @JvmStatic
+    @JvmOverloads
+    fun getSchema(schemaId: String = SCHEMA_ID_DGC, version: String = SCHEMA_VERSION_1): JsonSchema {
+        val key = SchemaKey(schemaId, version)
+        compiledSchemas[key]?.let { return it }
+        val schemaContent = requireNotNull(schemaContents[key]) { "No schema registered for $schemaId in version $version" }
+        val compiledSchema = schemaFactory.getSchema(objectMapper.readTree(schemaContent))
+        return compiledSchemas.putIfAbsent(key, compiledSchema) ?: compiledSchema
+    }
+
+    private data class SchemaKey(val schemaId: String, val version: String)
+}
+
+/**
+ * Converts the CBOR object into a Jackson [JsonNode] tree, equivalent to parsing the output of
+ * [CBORObject.ToJSONString] but without serializing and parsing an intermediate JSON string.
+ */
+fun CBORObject.toJsonNode(): JsonNode {
+    val nodeFactory = JsonNodeFactory.instance
+    return when (type) {
+        CBORType.Map -> nodeFactory.objectNode().also { objectNode ->
+            for (key in keys) {
+                val fieldName = if (key.type == CBORType.TextString) key.AsString() else key.ToJSONString()
+                objectNode.set<JsonNode>(fieldName, this[key].toJsonNode())
+            }
+        }
+        CBORType.Array -> nodeFactory.arrayNode().also { arrayNode ->
+            for (index in 0 until size()) {
+                arrayNode.add(this[index].toJsonNode())
+            }
+        }
+        CBORType.TextString -> nodeFactory.textNode(AsString())
+        CBORType.Boolean -> nodeFactory.booleanNode(isTrue)
+        CBORType.Integer -> if (CanTruncatedIntFitInInt32()) {
+            nodeFactory.numberNode(AsInt32Value())
+        } else if (CanValueFitInInt64()) {
+            nodeFactory.numberNode(AsInt64Value())
+        } else {
+            nodeFactory.numberNode(BigInteger(AsEIntegerValue().toString()))
+        }
+        CBORType.FloatingPoint -> floatingPointToJsonNode(AsDoubleValue(), nodeFactory)
+        CBORType.SimpleValue -> nodeFactory.nullNode()
+        else -> nodeFactory.textNode(ToJSONString().removeSurrounding("\""))
+    }
+}
+
+/**
+ * Integral values are converted to integer nodes and non-finite values to null nodes, like in the
+ * JSON representation of CBOR, so that e.g. `1.0` still matches a schema of type `integer`.
+ */
+private fun floatingPointToJsonNode(value: Double, nodeFactory: JsonNodeFactory): JsonNode {
+    return when {
+        value.isNaN() || value.isInfinite() -> nodeFactory.nullNode()
+        value % 1.0 != 0.0 || value < Long.MIN_VALUE || value >= Long.MAX_VALUE -> nodeFactory.numberNode(value)
+        value >= Int.MIN_VALUE && value <= Int.MAX_VALUE -> nodeFactory.numberNode(value.toInt())
+        else -> nodeFactory.numberNode(value.toLong())
+    }
+}
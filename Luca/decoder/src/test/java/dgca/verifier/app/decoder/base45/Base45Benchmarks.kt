@@ -0,0 +1,106 @@
+package dgca.verifier.app.decoder.base45
+
+import org.junit.Assert.assertArrayEquals
+import org.junit.Ignore
+import org.junit.Test
+import java.math.BigInteger
+import java.util.concurrent.TimeUnit
+import kotlin.random.Random
+
+/**
+ * Compares the table-driven [Base45Decoder] with the previous, allocation-heavy implementation
+ * using warm-up and measurement iterations of a fixed duration.
+ */
+@ExperimentalUnsignedTypes
+class Base45Benchmarks {
+
+    private val decoder = Base45Decoder()
+    private val legacyDecoder = LegacyBase45Decoder()
+
+    // size of a typical compressed EUDCC
+    private val encodedData = Base45Encoder().encode(Random(45).nextBytes(400))
+
+    @Test
+    fun decode_sameInput_sameResultAsLegacyDecoder() {
+        assertArrayEquals(legacyDecoder.decode(encodedData), decoder.decode(encodedData))
+    }
+
+    @Ignore("Benchmark")
+    @Test
+    fun benchmark_decode() {
+        val operationsPerMillisecond = measure { decoder.decode(encodedData) }
+        println("Base45Decoder: $operationsPerMillisecond decodings per millisecond")
+    }
+
+    @Ignore("Benchmark")
+    @Test
+    fun benchmark_legacyDecode() {
+        val operationsPerMillisecond = measure { legacyDecoder.decode(encodedData) }
+        println("LegacyBase45Decoder: $operationsPerMillisecond decodings per millisecond")
+    }
+
+    private fun measure(operation: () -> ByteArray): Float {
+        var blackHole = 0
+        repeat(WARM_UP_ITERATIONS) { runFor(ITERATION_DURATION) { blackHole += operation().size } }
+        val results = List(MEASUREMENT_ITERATIONS) {
+            runFor(ITERATION_DURATION) { blackHole += operation().size } / ITERATION_DURATION.toFloat()
+        }
+        results.forEachIndexed { index, result -> println("Iteration ${index + 1}: $result decodings per millisecond") }
+        check(blackHole != 0)
+        return results.average().toFloat()
+    }
+
+    private fun runFor(duration: Long, operation: () -> Unit): Int {
+        val endTime = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(duration)
+        var count = 0
+        while (System.nanoTime() < endTime) {
+            operation()
+            count++
+        }
+        return count
+    }
+
+    /**
+     * The implementation of [Base45Decoder] before it has been rewritten.
+     */
+    private class LegacyBase45Decoder {
+
+        private val alphabet = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ $%*+-./:"
+        private val int45 = BigInteger.valueOf(45)
+
+        fun decode(input: String) =
+            input.chunked(3).map(this::decodeThreeCharsPadded)
+                .flatten().map { it.toByte() }.toByteArray()
+
+        private fun decodeThreeCharsPadded(input: String): List<UByte> {
+            val result = decodeThreeChars(input).toMutableList()
+            when (input.length) {
+                3 -> while (result.size < 2) result += 0U
+            }
+            return result.reversed()
+        }
+
+        private fun decodeThreeChars(list: String) =
+            generateSequenceByDivRem(fromThreeCharValue(list))
+                .map { it.toUByte() }.toList()
+
+        private fun fromThreeCharValue(list: String): Long {
+            return list.foldIndexed(0L, { index, acc: Long, element ->
+                if (!alphabet.contains(element)) throw IllegalArgumentException()
+                pow(int45, index) * alphabet.indexOf(element) + acc
+            })
+        }
+
+        private fun generateSequenceByDivRem(seed: Long) =
+            generateSequence(seed) { if (it >= 256) it.div(256) else null }
+                .map { it.rem(256).toInt() }
+
+        private fun pow(base: BigInteger, exp: Int) = base.pow(exp).toLong()
+    }
+
+    companion object {
+        private const val WARM_UP_ITERATIONS = 3
+        private const val MEASUREMENT_ITERATIONS = 5
+        private val ITERATION_DURATION = TimeUnit.SECONDS.toMillis(2)
+    }
+}
@@ -0,0 +1,74 @@
+package dgca.verifier.app.decoder.base45
+
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import kotlin.random.Random
+
+@ExperimentalUnsignedTypes
+internal class Base45DecoderTest {
+
+    private val decoder = Base45Decoder()
+    private val encoder = Base45Encoder()
+
+    @Test
+    fun decode_specificationExamples_returnsExpectedBytes() {
+        assertEquals("AB", String(decoder.decode("BB8")))
+        assertEquals("Hello!!", String(decoder.decode("%69 VD92EX0")))
+        assertEquals("base-45", String(decoder.decode("UJCLQE7W581")))
+        assertEquals("ietf!", String(decoder.decode("QED8WEX0")))
+    }
+
+    @Test
+    fun decode_emptyInput_returnsEmptyArray() {
+        assertEquals(0, decoder.decode("").size)
+    }
+
+    @Test
+    fun encode_specificationExamples_returnsExpectedString() {
+        assertEquals("BB8", encoder.encode("AB".toByteArray()))
+        assertEquals("%69 VD92EX0", encoder.encode("Hello!!".toByteArray()))
+        assertEquals("UJCLQE7W581", encoder.encode("base-45".toByteArray()))
+    }
+
+    @Test
+    fun decode_encodedRandomData_returnsOriginalData() {
+        val random = Random(45)
+        for (size in 0..100) {
+            val data = random.nextBytes(size)
+            assertArrayEquals(data, decoder.decode(encoder.encode(data)))
+        }
+    }
+
+    @Test
+    fun decode_allByteValues_returnsOriginalData() {
+        val data = ByteArray(256) { it.toByte() }
+        assertArrayEquals(data, decoder.decode(encoder.encode(data)))
+        assertArrayEquals(data.copyOf(255), decoder.decode(encoder.encode(data.copyOf(255))))
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun decode_invalidCharacter_throwsException() {
+        decoder.decode("BBa")
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun decode_nonAsciiCharacter_throwsException() {
+        decoder.decode("BBĸ")
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun decode_overflowingTriplet_throwsException() {
+        decoder.decode("GGW")
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun decode_overflowingPair_throwsException() {
+        decoder.decode("BB8::")
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun decode_danglingCharacter_throwsException() {
+        decoder.decode("BB8B")
+    }
+}
@@ -0,0 +1,63 @@
+package dgca.verifier.app.decoder.schema
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.upokecenter.cbor.CBORObject
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+internal class JsonSchemaRegistryTest {
+
+    private val json = "{\n" +
+        "  \"v\": [\n" +
+        "    {\n" +
+        "      \"ci\": \"URN:UVCI:01DE/IZ12345A/5CWLU12RNOB9RXSEOP6FG8#W\",\n" +
+        "      \"co\": \"DE\",\n" +
+        "      \"dn\": 2,\n" +
+        "      \"dt\": \"2021-05-29\",\n" +
+        "      \"is\": \"Robert Koch-Institut\",\n" +
+        "      \"ma\": \"ORG-100031184\",\n" +
+        "      \"mp\": \"EU/1/20/1507\",\n" +
+        "      \"sd\": 2,\n" +
+        "      \"tg\": \"840539006\",\n" +
+        "      \"vp\": \"1119349007\"\n" +
+        "    }\n" +
+        "  ],\n" +
+        "  \"dob\": \"1964-08-12\",\n" +
+        "  \"nam\": {\n" +
+        "    \"fn\": \"Mustermann\",\n" +
+        "    \"gn\": \"Erika\",\n" +
+        "    \"fnt\": \"MUSTERMANN\",\n" +
+        "    \"gnt\": \"ERIKA\"\n" +
+        "  },\n" +
+        "  \"ver\": \"1.0.0\"\n" +
+        "}"
+
+    @Test
+    fun getSchema_calledTwice_returnsSameCompiledSchema() {
+        assertSame(JsonSchemaRegistry.getSchema(), JsonSchemaRegistry.getSchema())
+    }
+
+    @Test
+    fun toJsonNode_validCertificate_equalsParsedJson() {
+        val cborObject = CBORObject.FromJSONString(json)
+        val expectedNode = ObjectMapper().readTree(cborObject.ToJSONString())
+        assertEquals(expectedNode, cborObject.toJsonNode())
+    }
+
+    @Test
+    fun toJsonNode_floatingPointValues_equalsParsedJson() {
+        val cborObject = CBORObject.NewMap()
+            .Add("dn", CBORObject.FromObject(1.0))
+            .Add("sd", CBORObject.FromObject(2.5))
+        val expectedNode = ObjectMapper().readTree("{\"dn\": 1, \"sd\": 2.5}")
+        assertEquals(expectedNode, cborObject.toJsonNode())
+    }
+
+    @Test
+    fun validate_validCertificate_emitsNoErrors() {
+        val cborObject = CBORObject.FromJSONString(json)
+        assertTrue(JsonSchemaRegistry.getSchema().validate(cborObject.toJsonNode()).isEmpty())
+    }
+}